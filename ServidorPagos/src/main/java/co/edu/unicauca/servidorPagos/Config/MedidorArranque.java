@@ -0,0 +1,71 @@
+package co.edu.unicauca.servidorPagos.Config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mide el tiempo de arranque desde el inicio de la JVM: hasta que la aplicación está lista
+ * y hasta que atiende su primera petición HTTP.
+ * <p>
+ * Los tiempos se imprimen en consola y se publican como
+ * {@code arranque.listo.ms} y {@code arranque.primera.peticion.ms} en {@code /actuator/metrics}.
+ */
+@Component
+public class MedidorArranque extends OncePerRequestFilter {
+
+    private volatile double listoMs = Double.NaN;
+    private volatile double primeraPeticionMs = Double.NaN;
+
+    public MedidorArranque(MeterRegistry meterRegistry) {
+        Gauge.builder("arranque.listo.ms", this, m -> m.listoMs)
+                .description("Milisegundos desde el inicio de la JVM hasta que la aplicación está lista")
+                .register(meterRegistry);
+        Gauge.builder("arranque.primera.peticion.ms", this, m -> m.primeraPeticionMs)
+                .description("Milisegundos desde el inicio de la JVM hasta la primera petición atendida")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void alEstarLista() {
+        listoMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("[SERVIDOR PAGOS] Aplicación lista " + (long) listoMs + " ms después de iniciar la JVM.");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        alAtenderPeticion(request.getRequestURI());
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Registra la primera petición atendida. Este filtro solo actúa con Tomcat; la variante
+     * reactiva lo llama desde un {@code WebFilter} ({@link RutasPagosReactivas}).
+     *
+     * @param ruta ruta de la petición
+     */
+    void alAtenderPeticion(String ruta) {
+        if (Double.isNaN(primeraPeticionMs)) {
+            registrarPrimeraPeticion(ruta);
+        }
+    }
+
+    private synchronized void registrarPrimeraPeticion(String ruta) {
+        if (Double.isNaN(primeraPeticionMs)) {
+            primeraPeticionMs = ManagementFactory.getRuntimeMXBean().getUptime();
+            System.out.println("[SERVIDOR PAGOS] Primera petición (" + ruta + ") " + (long) primeraPeticionMs
+                    + " ms después de iniciar la JVM.");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package co.edu.unicauca.servidorPagos.Config;
+
+import co.edu.unicauca.servidorPagos.Controller.ManejadorPagosReactivo;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.WebFilter;
+
+import java.util.List;
+
+/**
+ * Rutas de la variante reactiva del servidor de pagos (perfil {@code reactivo}, WebFlux sobre Netty).
+ *
+ * <p>Los pagos, el token y el historial se atienden con rutas funcionales
+ * ({@link ManejadorPagosReactivo}). Las reglas y los arrendamientos siguen en sus controladores
+ * anotados, que WebFlux también atiende, y los endpoints de actuator no cambian.</p>
+ */
+@Configuration
+@Profile("reactivo")
+public class RutasPagosReactivas {
+
+    @Bean
+    public RouterFunction<ServerResponse> rutasPagos(ManejadorPagosReactivo manejador) {
+        return RouterFunctions.route()
+                .POST("/api/pagos/token", manejador::generarToken)
+                .POST("/api/pagos", manejador::registrarPago)
+                .GET("/api/pagos/historial", manejador::consultarHistorial)
+                .GET("/api/pagos/historial/resumen", manejador::resumirHistorial)
+                .build();
+    }
+
+    /**
+     * El equivalente de {@code @CrossOrigin(origins = "*")} de {@code PagosController} para las
+     * rutas funcionales.
+     */
+    @Bean
+    public CorsWebFilter corsPagos() {
+        CorsConfiguration configuracion = new CorsConfiguration();
+        configuracion.setAllowedOrigins(List.of("*"));
+        configuracion.setAllowedMethods(List.of("GET", "POST"));
+        configuracion.setAllowedHeaders(List.of("*"));
+        UrlBasedCorsConfigurationSource origen = new UrlBasedCorsConfigurationSource();
+        origen.registerCorsConfiguration("/api/pagos", configuracion);
+        origen.registerCorsConfiguration("/api/pagos/token", configuracion);
+        origen.registerCorsConfiguration("/api/pagos/historial/**", configuracion);
+        return new CorsWebFilter(origen);
+    }
+
+    /**
+     * Mide la primera petición atendida, como hace {@link MedidorArranque} como filtro de Tomcat.
+     */
+    @Bean
+    public WebFilter medidorPrimeraPeticion(MedidorArranque medidorArranque) {
+        return (intercambio, cadena) -> {
+            medidorArranque.alAtenderPeticion(intercambio.getRequest().getPath().value());
+            return cadena.filter(intercambio);
+        };
+    }
+}
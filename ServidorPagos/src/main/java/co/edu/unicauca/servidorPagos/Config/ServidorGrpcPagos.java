@@ -0,0 +1,82 @@
+package co.edu.unicauca.servidorPagos.Config;
+
+import co.edu.unicauca.servidorPagos.Controller.PagosGrpcController;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidor gRPC del servicio de pagos, en un puerto propio ({@code pagos.grpc.puerto}, 6565
+ * por defecto; 0 elige uno libre) junto al servidor HTTP.
+ * <p>
+ * Arranca y se detiene con el contexto de Spring. Al detenerse deja de aceptar llamadas y espera
+ * hasta {@code pagos.grpc.espera-cierre-ms} a que terminen las que están en curso, igual que el
+ * apagado ordenado de Tomcat.
+ */
+@Component
+public class ServidorGrpcPagos implements SmartLifecycle {
+
+    private final PagosGrpcController pagosGrpcController;
+    private final int puerto;
+    private final long esperaCierreMs;
+
+    private volatile Server servidor;
+
+    public ServidorGrpcPagos(PagosGrpcController pagosGrpcController,
+                             @Value("${pagos.grpc.puerto:6565}") int puerto,
+                             @Value("${pagos.grpc.espera-cierre-ms:10000}") long esperaCierreMs) {
+        this.pagosGrpcController = pagosGrpcController;
+        this.puerto = puerto;
+        this.esperaCierreMs = esperaCierreMs;
+    }
+
+    @Override
+    public void start() {
+        try {
+            servidor = NettyServerBuilder.forPort(puerto)
+                    .addService(pagosGrpcController)
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo iniciar el servidor gRPC de pagos en el puerto " + puerto, e);
+        }
+        System.out.println("[SERVIDOR PAGOS] Servidor gRPC escuchando en el puerto " + servidor.getPort());
+    }
+
+    @Override
+    public void stop() {
+        Server actual = servidor;
+        if (actual == null) {
+            return;
+        }
+        actual.shutdown();
+        try {
+            if (!actual.awaitTermination(esperaCierreMs, TimeUnit.MILLISECONDS)) {
+                actual.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            actual.shutdownNow();
+        }
+        servidor = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+
+    /**
+     * @return puerto en el que escucha el servidor, o -1 si no está iniciado
+     */
+    public int getPuerto() {
+        Server actual = servidor;
+        return actual != null ? actual.getPort() : -1;
+    }
+}
@@ -0,0 +1,62 @@
+package co.edu.unicauca.servidorPagos.Controller;
+
+import co.edu.unicauca.servidorPagos.Models.Arrendamiento;
+import co.edu.unicauca.servidorPagos.Models.LiquidacionArrendamiento;
+import co.edu.unicauca.servidorPagos.Models.ResultadoLiquidacion;
+import co.edu.unicauca.servidorPagos.Models.SolicitudArrendamiento;
+import co.edu.unicauca.servidorPagos.Service.ArrendamientosService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST de los arrendamientos de presupuesto.
+ *
+ * <p>Expone endpoints para:</p>
+ * <ul>
+ *   <li>Arrendar parte del presupuesto de un usuario para aprobar sus reacciones localmente.</li>
+ *   <li>Liquidar en lote lo gastado con cada arrendamiento y devolver lo no usado.</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/pagos/arrendamientos")
+@CrossOrigin(origins = "*")
+public class ArrendamientosController {
+
+    @Autowired
+    private ArrendamientosService arrendamientosService;
+
+    /**
+     * Endpoint para solicitar un arrendamiento.
+     *
+     * <p>Método: {@code POST}</p>
+     * <p>Ruta: {@code /api/pagos/arrendamientos}</p>
+     *
+     * @param solicitud usuario, canción, tipo de reacción y reacciones pedidas
+     * @return respuesta HTTP con el arrendamiento concedido o denegado (LIMITE_SUPERADO),
+     *         o 400 si falta el usuario
+     */
+    @PostMapping
+    public ResponseEntity<Arrendamiento> conceder(@RequestBody SolicitudArrendamiento solicitud) {
+        if (solicitud.getNickname() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(arrendamientosService.conceder(solicitud));
+    }
+
+    /**
+     * Endpoint para liquidar arrendamientos en lote.
+     *
+     * <p>Método: {@code POST}</p>
+     * <p>Ruta: {@code /api/pagos/arrendamientos/liquidaciones}</p>
+     *
+     * @param liquidaciones gasto acumulado de cada arrendamiento y si se devuelve
+     * @return respuesta HTTP con el resultado de cada liquidación
+     */
+    @PostMapping("/liquidaciones")
+    public ResponseEntity<List<ResultadoLiquidacion>> liquidar(@RequestBody List<LiquidacionArrendamiento> liquidaciones) {
+        return ResponseEntity.ok(arrendamientosService.liquidar(liquidaciones));
+    }
+}
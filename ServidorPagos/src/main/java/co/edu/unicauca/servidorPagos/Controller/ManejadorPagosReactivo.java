@@ -0,0 +1,137 @@
+package co.edu.unicauca.servidorPagos.Controller;
+
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PagoRequest;
+import co.edu.unicauca.servidorPagos.Repository.HistorialPagosRepository;
+import co.edu.unicauca.servidorPagos.Service.PagosService;
+import co.edu.unicauca.servidorPagos.Trazas.ContextoTraza;
+import co.edu.unicauca.servidorPagos.Trazas.Tramo;
+import co.edu.unicauca.servidorPagos.Trazas.Trazador;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Manejadores de la variante reactiva del servidor de pagos (perfil {@code reactivo}): los mismos
+ * contratos que {@link PagosController}, enrutados con rutas funcionales
+ * ({@code Config/RutasPagosReactivas}) y atendidos por los hilos de Netty.
+ *
+ * <p>Ningún manejador bloquea su hilo: el pago se resuelve con
+ * {@link PagosService#registrarPagoReactivo}, y el token y las consultas del historial son
+ * operaciones en memoria.</p>
+ *
+ * <p>Como en {@link PagosController}, el token y el pago continúan la traza de la cabecera
+ * {@code traceparent}. Sus tramos no se atan a un hilo, porque la respuesta puede completarse en
+ * otro.</p>
+ */
+@Component
+@Profile("reactivo")
+public class ManejadorPagosReactivo {
+
+    /**
+     * Tamaño máximo de página del historial.
+     */
+    private static final int TAMANO_MAXIMO_PAGINA = 500;
+
+    @Autowired
+    private PagosService pagosService;
+
+    @Autowired
+    private Trazador trazador;
+
+    /**
+     * {@code POST /api/pagos/token}: genera un nuevo token de pago.
+     *
+     * @param peticion petición HTTP, con la cabecera {@code traceparent} opcional
+     * @return respuesta con el {@code TokenResponse}
+     */
+    public Mono<ServerResponse> generarToken(ServerRequest peticion) {
+        Tramo tramo = trazador.iniciarPeticionDesligada("token", traceparent(peticion))
+                .atributo("transporte", "rest-reactivo");
+        try {
+            return ServerResponse.ok().bodyValue(pagosService.generarToken());
+        } finally {
+            tramo.terminar();
+        }
+    }
+
+    /**
+     * {@code POST /api/pagos}: registra un pago asociado a una reacción.
+     *
+     * @param peticion petición HTTP con el {@link PagoRequest} en JSON
+     * @return respuesta con el {@code PagoResponse}, cuando el pago se resuelva
+     */
+    public Mono<ServerResponse> registrarPago(ServerRequest peticion) {
+        String traceparent = traceparent(peticion);
+        return peticion.bodyToMono(PagoRequest.class)
+                .flatMap(pago -> {
+                    Tramo tramo = trazador.iniciarPeticionDesligada("registrar-pago", traceparent)
+                            .atributo("transporte", "rest-reactivo");
+                    return pagosService.registrarPagoReactivo(pago, tramo.getContexto())
+                            .doOnSuccess(respuesta -> tramo.atributo("estado", respuesta.getEstado()))
+                            .doOnError(tramo::error)
+                            .doFinally(senal -> tramo.terminar());
+                })
+                .flatMap(respuesta -> ServerResponse.ok().bodyValue(respuesta));
+    }
+
+    /**
+     * {@code GET /api/pagos/historial}: página del historial de pagos, con los mismos filtros que
+     * {@link PagosController#consultarHistorial}.
+     *
+     * @param peticion petición HTTP
+     * @return respuesta con la página, o 400 si la paginación o un filtro no son válidos
+     */
+    public Mono<ServerResponse> consultarHistorial(ServerRequest peticion) {
+        try {
+            String estado = peticion.queryParam("estado").orElse(null);
+            int pagina = Integer.parseInt(peticion.queryParam("pagina").orElse("0"));
+            int tamano = Integer.parseInt(peticion.queryParam("tamano").orElse("50"));
+            if (pagina < 0 || tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+                return ServerResponse.badRequest().build();
+            }
+            return ServerResponse.ok().bodyValue(pagosService.consultarHistorial(
+                    peticion.queryParam("nickname").orElse(null),
+                    peticion.queryParam("idCancion").orElse(null),
+                    estado == null ? null : EstadoPago.valueOf(estado),
+                    numero(peticion, "desde"),
+                    numero(peticion, "hasta"),
+                    pagina, tamano));
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.badRequest().build();
+        }
+    }
+
+    /**
+     * {@code GET /api/pagos/historial/resumen}: gasto agregado del historial, con los mismos filtros
+     * que {@link PagosController#resumirHistorial}.
+     *
+     * @param peticion petición HTTP
+     * @return respuesta con el resumen por grupo, o 400 si un filtro no es válido
+     */
+    public Mono<ServerResponse> resumirHistorial(ServerRequest peticion) {
+        try {
+            HistorialPagosRepository.Agrupacion agrupacion = HistorialPagosRepository.Agrupacion.valueOf(
+                    peticion.queryParam("agrupar").orElse("cancion").toUpperCase());
+            return ServerResponse.ok().bodyValue(pagosService.resumirHistorial(
+                    agrupacion,
+                    peticion.queryParam("nickname").orElse(null),
+                    peticion.queryParam("idCancion").orElse(null),
+                    numero(peticion, "desde"),
+                    numero(peticion, "hasta")));
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.badRequest().build();
+        }
+    }
+
+    private static String traceparent(ServerRequest peticion) {
+        return peticion.headers().firstHeader(ContextoTraza.CABECERA);
+    }
+
+    private static Long numero(ServerRequest peticion, String parametro) {
+        return peticion.queryParam(parametro).map(Long::valueOf).orElse(null);
+    }
+}
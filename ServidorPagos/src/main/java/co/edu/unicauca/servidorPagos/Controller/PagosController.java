@@ -1,13 +1,23 @@
 package co.edu.unicauca.servidorPagos.Controller;
 
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
 import co.edu.unicauca.servidorPagos.Models.PagoRequest;
 import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import co.edu.unicauca.servidorPagos.Models.PaginaHistorialPagos;
+import co.edu.unicauca.servidorPagos.Models.ResumenGasto;
 import co.edu.unicauca.servidorPagos.Models.TokenResponse;
+import co.edu.unicauca.servidorPagos.Repository.HistorialPagosRepository;
 import co.edu.unicauca.servidorPagos.Service.PagosService;
+import co.edu.unicauca.servidorPagos.Trazas.ContextoTraza;
+import co.edu.unicauca.servidorPagos.Trazas.Tramo;
+import co.edu.unicauca.servidorPagos.Trazas.Trazador;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Controlador REST del servidor de pagos.
  *
@@ -15,17 +25,30 @@ import org.springframework.web.bind.annotation.*;
  * <ul>
  *   <li>Generar un nuevo token de pago.</li>
  *   <li>Registrar un pago asociado a una reacción.</li>
+ *   <li>Consultar el historial de pagos, paginado o agregado.</li>
  * </ul>
  *
  * <p>El servidor de reacciones consumirá estos endpoints para cumplir
  * con los requerimientos de token único, límite de $50 y simulación
  * de fallos en los pagos.</p>
+ *
+ * <p>El token y el pago continúan la traza de la reacción que llega en la cabecera
+ * {@code traceparent}.</p>
+ *
+ * <p>Con el perfil {@code reactivo} no se registra: los mismos endpoints los atiende
+ * {@link ManejadorPagosReactivo} con rutas funcionales sobre Netty.</p>
  */
 @RestController
+@Profile("!reactivo")
 @RequestMapping("/api/pagos")
 @CrossOrigin(origins = "*")
 public class PagosController {
 
+    /**
+     * Tamaño máximo de página del historial.
+     */
+    private static final int TAMANO_MAXIMO_PAGINA = 500;
+
     /**
      * Servicio de negocio que contiene la lógica de generación
      * de tokens y registro de pagos.
@@ -33,6 +56,9 @@ public class PagosController {
     @Autowired
     private PagosService pagosService;
 
+    @Autowired
+    private Trazador trazador;
+
     /**
      * Endpoint para solicitar la generación de un nuevo token.
      *
@@ -42,12 +68,19 @@ public class PagosController {
      * <p>No requiere cuerpo en la petición. Devuelve un objeto
      * {@link TokenResponse} con el valor del token generado.</p>
      *
+     * @param traceparent contexto de traza de la reacción (opcional)
      * @return respuesta HTTP con el token generado
      */
     @PostMapping("/token")
-    public ResponseEntity<TokenResponse> generarToken() {
-        TokenResponse response = pagosService.generarToken();
-        return ResponseEntity.ok(response);
+    public ResponseEntity<TokenResponse> generarToken(
+            @RequestHeader(value = ContextoTraza.CABECERA, required = false) String traceparent) {
+        Tramo tramo = trazador.iniciarPeticion("token", traceparent).atributo("transporte", "rest");
+        try {
+            TokenResponse response = pagosService.generarToken();
+            return ResponseEntity.ok(response);
+        } finally {
+            tramo.terminar();
+        }
     }
 
     /**
@@ -65,11 +98,89 @@ public class PagosController {
      * del procesamiento del pago.</p>
      *
      * @param request datos del pago a registrar
+     * @param traceparent contexto de traza de la reacción (opcional)
      * @return respuesta HTTP con el resultado del pago
      */
     @PostMapping
-    public ResponseEntity<PagoResponse> registrarPago(@RequestBody PagoRequest request) {
-        PagoResponse response = pagosService.registrarPago(request);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<PagoResponse> registrarPago(@RequestBody PagoRequest request,
+            @RequestHeader(value = ContextoTraza.CABECERA, required = false) String traceparent) {
+        Tramo tramo = trazador.iniciarPeticion("registrar-pago", traceparent).atributo("transporte", "rest");
+        try {
+            PagoResponse response = pagosService.registrarPago(request);
+            tramo.atributo("estado", response.getEstado());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            tramo.error(e);
+            throw e;
+        } finally {
+            tramo.terminar();
+        }
+    }
+
+    /**
+     * Endpoint para consultar el historial de pagos, del más reciente al más antiguo.
+     *
+     * <p>Método: {@code GET}</p>
+     * <p>Ruta: {@code /api/pagos/historial}</p>
+     *
+     * <p>Todos los filtros son opcionales. {@code desde} y {@code hasta} son marcas de tiempo
+     * en milisegundos (epoch); por ejemplo, los pagos de la última hora se piden con
+     * {@code desde = ahora - 3600000}.</p>
+     *
+     * @param nickname  filtra por usuario
+     * @param idCancion filtra por canción
+     * @param estado    filtra por estado del pago
+     * @param desde     marca de tiempo mínima, inclusiva
+     * @param hasta     marca de tiempo máxima, exclusiva
+     * @param pagina    número de página, desde 0
+     * @param tamano    pagos por página (máximo 500)
+     * @return respuesta HTTP con la página de pagos, o 400 si la paginación no es válida
+     */
+    @GetMapping("/historial")
+    public ResponseEntity<PaginaHistorialPagos> consultarHistorial(
+            @RequestParam(required = false) String nickname,
+            @RequestParam(required = false) String idCancion,
+            @RequestParam(required = false) EstadoPago estado,
+            @RequestParam(required = false) Long desde,
+            @RequestParam(required = false) Long hasta,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "50") int tamano) {
+        if (pagina < 0 || tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pagosService.consultarHistorial(nickname, idCancion, estado, desde, hasta, pagina, tamano));
+    }
+
+    /**
+     * Endpoint para obtener el gasto agregado del historial.
+     *
+     * <p>Método: {@code GET}</p>
+     * <p>Ruta: {@code /api/pagos/historial/resumen}</p>
+     *
+     * <p>Agrupa los pagos que cumplen los filtros por canción, usuario o estado, con el número
+     * de pagos, los aceptados y el total aceptado de cada grupo. Por ejemplo, el gasto de un
+     * usuario por canción se pide con {@code agrupar=cancion&nickname=...}.</p>
+     *
+     * @param agrupar   criterio: {@code cancion} (por defecto), {@code usuario} o {@code estado}
+     * @param nickname  filtra por usuario
+     * @param idCancion filtra por canción
+     * @param desde     marca de tiempo mínima, inclusiva
+     * @param hasta     marca de tiempo máxima, exclusiva
+     * @return respuesta HTTP con el resumen por grupo, de mayor a menor gasto aceptado
+     */
+    @GetMapping("/historial/resumen")
+    public ResponseEntity<List<ResumenGasto>> resumirHistorial(
+            @RequestParam(defaultValue = "cancion") String agrupar,
+            @RequestParam(required = false) String nickname,
+            @RequestParam(required = false) String idCancion,
+            @RequestParam(required = false) Long desde,
+            @RequestParam(required = false) Long hasta) {
+        HistorialPagosRepository.Agrupacion agrupacion;
+        try {
+            agrupacion = HistorialPagosRepository.Agrupacion.valueOf(agrupar.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pagosService.resumirHistorial(agrupacion, nickname, idCancion, desde, hasta));
     }
 }
@@ -0,0 +1,253 @@
+package co.edu.unicauca.servidorPagos.Controller;
+
+import co.edu.unicauca.pagos.grpc.PagosServiceGrpc;
+import co.edu.unicauca.pagos.grpc.estadoPago;
+import co.edu.unicauca.pagos.grpc.peticionPago;
+import co.edu.unicauca.pagos.grpc.peticionToken;
+import co.edu.unicauca.pagos.grpc.respuestaPago;
+import co.edu.unicauca.pagos.grpc.respuestaToken;
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PagoRequest;
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import co.edu.unicauca.servidorPagos.Replicacion.RespaldoNoPromovidoException;
+import co.edu.unicauca.servidorPagos.Service.PagosService;
+import co.edu.unicauca.servidorPagos.Trazas.Tramo;
+import co.edu.unicauca.servidorPagos.Trazas.Trazador;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Controlador gRPC del servidor de pagos: el mismo servicio que {@link PagosController}
+ * sobre Protobuf y HTTP/2 ({@code src/main/proto/pagos.proto}).
+ *
+ * <p>Expone:</p>
+ * <ul>
+ *   <li>{@code obtenerToken} y {@code registrarPago}: equivalentes unarios de
+ *       {@code POST /api/pagos/token} y {@code POST /api/pagos}.</li>
+ *   <li>{@code registrarPagos}: una sesión bidireccional que transporta muchos pagos por una
+ *       sola conexión. Los pagos de la sesión se procesan en paralelo y cada respuesta lleva el
+ *       {@code idCorrelacion} de su petición, así que un ERROR_SIMULADO lento no retrasa a los
+ *       demás.</li>
+ * </ul>
+ *
+ * <p>La sesión usa control de flujo manual: el servidor pide como máximo {@code pagos.grpc.ventana}
+ * pagos por adelantado y solo pide otro cuando responde uno y el cliente está leyendo las
+ * respuestas. Si el cliente deja de leer, el control de flujo de HTTP/2 lo frena en lugar de
+ * acumular respuestas en memoria.</p>
+ *
+ * <p>Cada token y cada pago continúa la traza del campo {@code traceparent} de su petición.</p>
+ */
+@Component
+public class PagosGrpcController extends PagosServiceGrpc.PagosServiceImplBase {
+
+    /**
+     * Servicio de negocio compartido con el controlador REST.
+     */
+    @Autowired
+    private PagosService pagosService;
+
+    @Autowired
+    private Trazador trazador;
+
+    /**
+     * Pagos que una sesión puede tener en curso a la vez.
+     */
+    @Value("${pagos.grpc.ventana:64}")
+    private int ventana;
+
+    /**
+     * Hilos en los que se procesan los pagos de las sesiones. No tiene límite propio:
+     * la ventana de cada sesión acota los pagos en curso.
+     */
+    private final ExecutorService ejecutor;
+
+    public PagosGrpcController() {
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.ejecutor = Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "pagos-grpc-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @Override
+    public void obtenerToken(peticionToken peticion, StreamObserver<respuestaToken> respuesta) {
+        Tramo tramo = trazador.iniciarPeticion("token", peticion.getTraceparent()).atributo("transporte", "grpc");
+        try {
+            respuesta.onNext(respuestaToken.newBuilder()
+                    .setToken(pagosService.generarToken().getToken())
+                    .build());
+        } finally {
+            tramo.terminar();
+        }
+        respuesta.onCompleted();
+    }
+
+    /**
+     * Registra un pago. Si esta instancia es un respaldo que aún no puede promoverse, responde
+     * {@code UNAVAILABLE}, el equivalente del 503 de la API REST.
+     */
+    @Override
+    public void registrarPago(peticionPago peticion, StreamObserver<respuestaPago> respuesta) {
+        PagoResponse pago;
+        try {
+            pago = registrarTrazado(peticion, "grpc");
+        } catch (RespaldoNoPromovidoException e) {
+            respuesta.onError(Status.UNAVAILABLE.withDescription(e.getReason()).asRuntimeException());
+            return;
+        }
+        respuesta.onNext(aRespuesta(peticion.getIdCorrelacion(), pago));
+        respuesta.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<peticionPago> registrarPagos(StreamObserver<respuestaPago> respuestas) {
+        ServerCallStreamObserver<respuestaPago> salida = (ServerCallStreamObserver<respuestaPago>) respuestas;
+        salida.disableAutoRequest();
+        SesionPagos sesion = new SesionPagos(salida);
+        salida.setOnReadyHandler(sesion::alQuedarListaLaSalida);
+        salida.setOnCancelHandler(sesion::alCancelarse);
+        salida.request(ventana);
+        return sesion;
+    }
+
+    @PreDestroy
+    void detener() {
+        ejecutor.shutdown();
+    }
+
+    /**
+     * Estado de una sesión de pagos. Los campos están protegidos por el monitor de la instancia,
+     * que también serializa las escrituras en {@code salida} (un {@link StreamObserver} no admite
+     * llamadas concurrentes).
+     */
+    private final class SesionPagos implements StreamObserver<peticionPago> {
+
+        private final ServerCallStreamObserver<respuestaPago> salida;
+        private int enCurso;
+
+        /**
+         * Pagos respondidos cuyo reemplazo aún no se pidió porque la salida estaba llena.
+         */
+        private int pedidosPendientes;
+        private boolean entradaTerminada;
+        private boolean cerrada;
+
+        private SesionPagos(ServerCallStreamObserver<respuestaPago> salida) {
+            this.salida = salida;
+        }
+
+        @Override
+        public void onNext(peticionPago peticion) {
+            synchronized (this) {
+                enCurso++;
+            }
+            ejecutor.execute(() -> responder(peticion.getIdCorrelacion(), procesar(peticion)));
+        }
+
+        @Override
+        public synchronized void onError(Throwable error) {
+            cerrada = true;
+            System.err.println("[SERVIDOR PAGOS] Sesión gRPC de pagos terminada por el cliente: " + error.getMessage());
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            entradaTerminada = true;
+            completarSiTermino();
+        }
+
+        private PagoResponse procesar(peticionPago peticion) {
+            try {
+                return registrarTrazado(peticion, "grpc-sesion");
+            } catch (RespaldoNoPromovidoException e) {
+                // Reintentable, como ERROR_SIMULADO: el cliente vuelve al primario o espera la promoción.
+                return new PagoResponse(EstadoPago.ERROR_SIMULADO, e.getReason(), 0);
+            } catch (RuntimeException e) {
+                System.err.println("[SERVIDOR PAGOS] Error procesando pago gRPC: " + e.getMessage());
+                return new PagoResponse(EstadoPago.ERROR_SIMULADO,
+                        "Error interno del servidor de pagos", 0);
+            }
+        }
+
+        private synchronized void responder(long idCorrelacion, PagoResponse respuesta) {
+            enCurso--;
+            if (cerrada) {
+                return;
+            }
+            salida.onNext(aRespuesta(idCorrelacion, respuesta));
+            if (salida.isReady()) {
+                salida.request(1);
+            } else {
+                pedidosPendientes++;
+            }
+            completarSiTermino();
+        }
+
+        private synchronized void alQuedarListaLaSalida() {
+            if (pedidosPendientes > 0 && !cerrada) {
+                salida.request(pedidosPendientes);
+                pedidosPendientes = 0;
+            }
+        }
+
+        private synchronized void alCancelarse() {
+            cerrada = true;
+        }
+
+        private void completarSiTermino() {
+            if (entradaTerminada && enCurso == 0 && !cerrada) {
+                cerrada = true;
+                salida.onCompleted();
+            }
+        }
+    }
+
+    /**
+     * Registra un pago dentro de un tramo que continúa la traza de la petición.
+     */
+    private PagoResponse registrarTrazado(peticionPago peticion, String transporte) {
+        Tramo tramo = trazador.iniciarPeticion("registrar-pago", peticion.getTraceparent())
+                .atributo("transporte", transporte);
+        try {
+            PagoResponse respuesta = pagosService.registrarPago(aPagoRequest(peticion));
+            tramo.atributo("estado", respuesta.getEstado());
+            return respuesta;
+        } catch (RuntimeException e) {
+            tramo.error(e);
+            throw e;
+        } finally {
+            tramo.terminar();
+        }
+    }
+
+    private static PagoRequest aPagoRequest(peticionPago peticion) {
+        PagoRequest request = new PagoRequest();
+        request.setToken(peticion.getToken());
+        request.setNickname(peticion.getNickname());
+        request.setIdCancion(peticion.getIdCancion());
+        request.setClaveIdempotencia(peticion.getClaveIdempotencia().isEmpty() ? null : peticion.getClaveIdempotencia());
+        request.setTipoReaccion(peticion.getTipoReaccion().isEmpty() ? null : peticion.getTipoReaccion());
+        return request;
+    }
+
+    private static respuestaPago aRespuesta(long idCorrelacion, PagoResponse respuesta) {
+        respuestaPago.Builder builder = respuestaPago.newBuilder()
+                .setIdCorrelacion(idCorrelacion)
+                .setEstado(estadoPago.valueOf(respuesta.getEstado().name()))
+                .setTotalAcumuladoUsuario(respuesta.getTotalAcumuladoUsuario());
+        if (respuesta.getMensaje() != null) {
+            builder.setMensaje(respuesta.getMensaje());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,75 @@
+package co.edu.unicauca.servidorPagos.Controller;
+
+import co.edu.unicauca.servidorPagos.Models.DefinicionReglas;
+import co.edu.unicauca.servidorPagos.Service.MotorReglasPagos;
+import co.edu.unicauca.servidorPagos.Service.ReglasCompiladas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de las reglas de precios y límites.
+ *
+ * <p>Expone endpoints para:</p>
+ * <ul>
+ *   <li>Consultar las reglas vigentes.</li>
+ *   <li>Reemplazarlas en caliente, sin reiniciar el servidor.</li>
+ *   <li>Consultar la tarifa que se aplicaría a un pago.</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/pagos/reglas")
+@CrossOrigin(origins = "*")
+public class ReglasPagosController {
+
+    @Autowired
+    private MotorReglasPagos motorReglas;
+
+    /**
+     * <p>Método: {@code GET}</p>
+     * <p>Ruta: {@code /api/pagos/reglas}</p>
+     *
+     * @return respuesta HTTP con la definición de las reglas vigentes
+     */
+    @GetMapping
+    public ResponseEntity<DefinicionReglas> obtenerReglas() {
+        return ResponseEntity.ok(motorReglas.getDefinicion());
+    }
+
+    /**
+     * Reemplaza todas las reglas. Si la definición no es válida responde 400 y
+     * las reglas vigentes no cambian.
+     *
+     * <p>Método: {@code PUT}</p>
+     * <p>Ruta: {@code /api/pagos/reglas}</p>
+     *
+     * @param definicion reglas nuevas
+     * @return respuesta HTTP con la definición ya vigente
+     */
+    @PutMapping
+    public ResponseEntity<?> actualizarReglas(@RequestBody DefinicionReglas definicion) {
+        try {
+            motorReglas.actualizar(definicion);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(motorReglas.getDefinicion());
+    }
+
+    /**
+     * <p>Método: {@code GET}</p>
+     * <p>Ruta: {@code /api/pagos/reglas/tarifa}</p>
+     *
+     * @param nickname     usuario
+     * @param idCancion    canción
+     * @param tipoReaccion tipo de reacción
+     * @return respuesta HTTP con el precio y el límite que se aplicarían
+     */
+    @GetMapping("/tarifa")
+    public ResponseEntity<ReglasCompiladas.Tarifa> consultarTarifa(
+            @RequestParam(required = false) String nickname,
+            @RequestParam(required = false) String idCancion,
+            @RequestParam(required = false) String tipoReaccion) {
+        return ResponseEntity.ok(motorReglas.evaluar(nickname, idCancion, tipoReaccion));
+    }
+}
@@ -0,0 +1,44 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Regla de precio y/o límite para los pagos que coinciden con sus criterios.
+ *
+ * <p>Los criterios ({@code idCancion}, {@code tipoReaccion}, {@code nivel}) son opcionales;
+ * un criterio nulo coincide con cualquier valor. Si varias reglas coinciden, gana la que
+ * tiene más criterios; a igual número, pesa más la canción, luego el tipo de reacción y
+ * luego el nivel. Entre reglas con los mismos criterios gana la última.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DefinicionRegla {
+
+    /**
+     * Canción a la que aplica la regla, o nula para todas.
+     */
+    private String idCancion;
+
+    /**
+     * Tipo de reacción (like, heart, fire...) al que aplica la regla, o nulo para todos.
+     */
+    private String tipoReaccion;
+
+    /**
+     * Nivel de usuario al que aplica la regla, o nulo para todos.
+     */
+    private String nivel;
+
+    /**
+     * Precio de cada reacción que coincide, o nulo si la regla no fija precio.
+     */
+    private Integer precio;
+
+    /**
+     * Gasto máximo acumulado del usuario, o nulo si la regla no fija límite.
+     */
+    private Integer limite;
+}
@@ -0,0 +1,40 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjunto completo de reglas de precios y límites, tal como se carga desde
+ * {@code reglas-pagos.json} o se reemplaza con {@code PUT /api/pagos/reglas}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DefinicionReglas {
+
+    /**
+     * Precio de una reacción cuando ninguna regla fija uno.
+     */
+    private int precioPorDefecto = 10;
+
+    /**
+     * Límite de gasto por usuario cuando ninguna regla fija uno.
+     */
+    private int limitePorDefecto = 50;
+
+    /**
+     * Nivel de cada usuario. Los usuarios que no aparecen tienen el nivel {@code estandar}.
+     */
+    private Map<String, String> nivelesUsuario = new HashMap<>();
+
+    /**
+     * Reglas particulares; ver {@link DefinicionRegla} para el orden de precedencia.
+     */
+    private List<DefinicionRegla> reglas = new ArrayList<>();
+}
@@ -0,0 +1,32 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Gasto informado de un arrendamiento.
+ *
+ * <p>{@code consumidas} es acumulado (todas las reacciones aprobadas con el arrendamiento
+ * desde que se concedió), así que repetir una liquidación no cobra dos veces.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiquidacionArrendamiento {
+
+    /**
+     * Arrendamiento liquidado.
+     */
+    private String idArrendamiento;
+
+    /**
+     * Reacciones aprobadas en total con el arrendamiento.
+     */
+    private int consumidas;
+
+    /**
+     * Si es {@code true}, el arrendamiento se cierra y se libera lo no gastado.
+     */
+    private boolean devolver;
+}
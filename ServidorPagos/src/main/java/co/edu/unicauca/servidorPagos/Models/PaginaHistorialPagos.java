@@ -0,0 +1,37 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta al historial de pagos,
+ * ordenada del pago más reciente al más antiguo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaHistorialPagos {
+
+    /**
+     * Número de página, desde 0.
+     */
+    private int pagina;
+
+    /**
+     * Tamaño de página solicitado.
+     */
+    private int tamano;
+
+    /**
+     * Total de pagos que cumplen los filtros, en todas las páginas.
+     */
+    private long totalElementos;
+
+    /**
+     * Pagos de esta página.
+     */
+    private List<RegistroPago> registros;
+}
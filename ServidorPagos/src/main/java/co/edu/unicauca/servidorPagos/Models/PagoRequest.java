@@ -39,8 +39,21 @@ public class PagoRequest {
     private String idCancion;
 
     /**
-     * Valor monetario del pago asociado a la reacción.
-     * En el requerimiento, cada reacción equivale a $10.
+     * Valor informado por el cliente. Solo es orientativo: el precio que se cobra
+     * lo fija {@link co.edu.unicauca.servidorPagos.Service.MotorReglasPagos}.
      */
     private int valor;
+
+    /**
+     * Clave de idempotencia derivada de la reacción por el servidor de reacciones.
+     * Todos los intentos (reintentos incluidos) de una misma reacción usan la misma
+     * clave, de modo que un intento repetido devuelve el resultado ya registrado
+     * en lugar de cobrar de nuevo. Es opcional: si es nula, no se deduplica.
+     */
+    private String claveIdempotencia;
+
+    /**
+     * Tipo de reacción (like, heart, fire...). Las reglas de precios pueden depender de él.
+     */
+    private String tipoReaccion;
 }
@@ -0,0 +1,39 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Representa un pago del historial tal como se devuelve en las consultas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroPago {
+
+    /**
+     * Momento en que se procesó el pago (epoch en milisegundos).
+     */
+    private long marcaTiempo;
+
+    /**
+     * Usuario que realizó el pago.
+     */
+    private String nickname;
+
+    /**
+     * Canción asociada a la reacción pagada.
+     */
+    private String idCancion;
+
+    /**
+     * Valor del pago.
+     */
+    private int valor;
+
+    /**
+     * Resultado del pago.
+     */
+    private EstadoPago estado;
+}
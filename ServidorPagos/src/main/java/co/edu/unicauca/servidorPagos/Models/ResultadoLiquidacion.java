@@ -0,0 +1,30 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de liquidar un arrendamiento.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLiquidacion {
+
+    /**
+     * Arrendamiento liquidado.
+     */
+    private String idArrendamiento;
+
+    /**
+     * Reacciones cobradas en total con el arrendamiento, incluida esta liquidación.
+     */
+    private int liquidadas;
+
+    /**
+     * {@code false} si el arrendamiento ya no existe (devuelto o vencido); en ese caso el
+     * gasto informado después del cierre no se cobró.
+     */
+    private boolean vigente;
+}
@@ -0,0 +1,34 @@
+package co.edu.unicauca.servidorPagos.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Agregado de pagos de un grupo (una canción, un usuario o un estado).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenGasto {
+
+    /**
+     * Identificador del grupo: idCancion, nickname o nombre del estado.
+     */
+    private String clave;
+
+    /**
+     * Pagos procesados del grupo, con cualquier estado.
+     */
+    private long pagos;
+
+    /**
+     * Pagos aceptados del grupo.
+     */
+    private long aceptados;
+
+    /**
+     * Suma de los valores de los pagos aceptados.
+     */
+    private long totalAceptado;
+}
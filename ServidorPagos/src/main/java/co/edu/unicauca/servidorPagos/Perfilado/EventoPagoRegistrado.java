@@ -0,0 +1,55 @@
+package co.edu.unicauca.servidorPagos.Perfilado;
+
+import co.edu.unicauca.servidorPagos.Models.PagoRequest;
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: un intento de registro de pago, desde que llega hasta que se responde, con su
+ * resultado. Incluye la demora de los errores simulados.
+ */
+@Name("co.edu.unicauca.pagos.PagoRegistrado")
+@Label("Registro de pago")
+@Category("Pagos")
+@Description("Un intento de registro de pago y su resultado")
+@StackTrace(false)
+public class EventoPagoRegistrado extends Event {
+
+    @Label("Nickname")
+    String nickname;
+
+    @Label("Canción")
+    String cancion;
+
+    @Label("Tipo de reacción")
+    String tipo;
+
+    @Label("Intento global")
+    @Description("Número global del intento de pago en el servidor")
+    int intentoGlobal;
+
+    @Label("Resultado")
+    String resultado;
+
+    /**
+     * Cierra el registro, iniciado con {@link #begin()}, y lo emite si supera el umbral de la grabación.
+     *
+     * @param respuesta la respuesta, o {@code null} si el registro falló con una excepción
+     */
+    public void terminar(PagoRequest request, int intentoGlobal, PagoResponse respuesta) {
+        end();
+        if (shouldCommit()) {
+            this.nickname = request.getNickname();
+            this.cancion = request.getIdCancion();
+            this.tipo = request.getTipoReaccion();
+            this.intentoGlobal = intentoGlobal;
+            this.resultado = respuesta == null ? "EXCEPCION" : respuesta.getEstado().name();
+            commit();
+        }
+    }
+}
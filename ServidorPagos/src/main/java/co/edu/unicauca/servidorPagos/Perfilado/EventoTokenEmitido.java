@@ -0,0 +1,29 @@
+package co.edu.unicauca.servidorPagos.Perfilado;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: se emitió un token de pago, por REST o por gRPC.
+ */
+@Name("co.edu.unicauca.pagos.TokenEmitido")
+@Label("Token emitido")
+@Category("Pagos")
+@Description("Generación de un token de pago")
+@StackTrace(false)
+public class EventoTokenEmitido extends Event {
+
+    /**
+     * Emite el evento si la grabación en curso lo incluye; sin grabación no cuesta casi nada.
+     */
+    public static void registrar() {
+        EventoTokenEmitido evento = new EventoTokenEmitido();
+        if (evento.shouldCommit()) {
+            evento.commit();
+        }
+    }
+}
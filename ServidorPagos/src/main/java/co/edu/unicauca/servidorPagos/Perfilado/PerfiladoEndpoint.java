@@ -0,0 +1,105 @@
+package co.edu.unicauca.servidorPagos.Perfilado;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * Perfilado bajo demanda con JDK Flight Recorder ({@code /actuator/perfilado}).
+ * <ul>
+ *     <li>{@code GET}: estado de la grabación.</li>
+ *     <li>{@code POST} (opcional {@code {"segundos": 30}}): inicia una grabación acotada.</li>
+ *     <li>{@code DELETE}: la detiene si sigue en curso y descarga el archivo {@code .jfr}.</li>
+ * </ul>
+ */
+@Component
+@WebEndpoint(id = "perfilado")
+public class PerfiladoEndpoint {
+
+    private final GrabadorJfr grabador;
+
+    public PerfiladoEndpoint(GrabadorJfr grabador) {
+        this.grabador = grabador;
+    }
+
+    /**
+     * @return el estado de la grabación
+     */
+    @ReadOperation
+    public Map<String, Object> estado() {
+        return grabador.estado();
+    }
+
+    /**
+     * Inicia una grabación.
+     *
+     * @param segundos duración, o {@code null} para la configurada por defecto
+     * @return el estado de la grabación, o 429 si ya hay una en curso
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> iniciar(@Nullable Integer segundos)
+            throws IOException, ParseException {
+        if (!grabador.iniciar(segundos)) {
+            return new WebEndpointResponse<>(grabador.estado(), WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        return new WebEndpointResponse<>(grabador.estado());
+    }
+
+    /**
+     * Detiene la grabación y devuelve su archivo, que se borra al terminar de enviarlo.
+     *
+     * @return el archivo {@code .jfr}, o 404 si no hay grabación
+     */
+    @DeleteOperation
+    public WebEndpointResponse<Resource> detener() throws IOException {
+        Path archivo = grabador.detener();
+        if (archivo == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new ArchivoTemporal(archivo));
+    }
+
+    /**
+     * Archivo que se borra cuando se cierra su lectura.
+     */
+    private static final class ArchivoTemporal extends FileSystemResource {
+
+        ArchivoTemporal(Path archivo) {
+            super(archivo);
+        }
+
+        @Override
+        public boolean isFile() {
+            // Obliga a leerlo con getInputStream en lugar de servirlo directamente del disco.
+            return false;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+    }
+}
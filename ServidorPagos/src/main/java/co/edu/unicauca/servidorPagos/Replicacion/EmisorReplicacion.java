@@ -0,0 +1,324 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import co.edu.unicauca.servidorPagos.Repository.PagosRepository;
+import co.edu.unicauca.servidorPagos.Repository.ResultadosIdempotentesRepository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lado primario de la replicación: envía las mutaciones al respaldo por una conexión TCP.
+ *
+ * <p>El envío va en tubería: un hilo agrupa en lotes lo que se acumuló en la cola y lo escribe sin
+ * esperar la confirmación del lote anterior; otro hilo lee las confirmaciones (la última secuencia
+ * aplicada por el respaldo) y despierta a quien las espera. Si pasan {@link #LATIDO_MS} sin nada que
+ * enviar, escribe un lote vacío como latido, para que el respaldo distinga un primario ocioso de uno
+ * caído y no se promueva mientras este siga vivo.</p>
+ *
+ * <p>Cada conexión empieza con una instantánea del {@link PagosRepository} y de los resultados
+ * idempotentes ya calculados, tomada después de fijar
+ * la secuencia desde la que se envían los registros. Por eso, mientras no hay conexión, o si la cola
+ * se desborda porque el respaldo no da abasto, los registros simplemente se descartan: la próxima
+ * conexión los cubre con su instantánea.</p>
+ */
+final class EmisorReplicacion {
+
+    /**
+     * Espera máxima por registros antes de enviar un lote vacío como latido.
+     */
+    static final long LATIDO_MS = 100;
+
+    private final PagosRepository pagosRepository;
+    private final ResultadosIdempotentesRepository resultadosIdempotentes;
+    private final String host;
+    private final int puerto;
+    private final int loteMaximo;
+    private final long reintentoConexionMs;
+    private final BlockingQueue<RegistroReplicacion> cola;
+
+    /**
+     * Registros enviados y aún sin confirmar, en orden de secuencia.
+     */
+    private final ConcurrentLinkedQueue<RegistroReplicacion> sinConfirmar = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Asigna las secuencias y protege el paso de registros a la cola, para que la cola quede en
+     * orden de secuencia.
+     */
+    private final Object monitorSecuencia = new Object();
+    private long secuencia;
+
+    private final Object monitorConfirmaciones = new Object();
+    private volatile long confirmada;
+
+    private volatile boolean conectado;
+    private volatile boolean desbordada;
+    private volatile boolean detenido;
+    private volatile Socket socket;
+    private Thread hilo;
+
+    private final AtomicLong registrosEnviados = new AtomicLong();
+    private final AtomicLong lotesEnviados = new AtomicLong();
+    private final AtomicLong instantaneas = new AtomicLong();
+    private final AtomicLong esperasVencidas = new AtomicLong();
+    private volatile long retrasoUltimoNanos;
+    private volatile long retrasoMaximoNanos;
+
+    EmisorReplicacion(PagosRepository pagosRepository, ResultadosIdempotentesRepository resultadosIdempotentes,
+                      String destino, int loteMaximo, int capacidadCola, long reintentoConexionMs) {
+        int separador = destino.lastIndexOf(':');
+        this.pagosRepository = pagosRepository;
+        this.resultadosIdempotentes = resultadosIdempotentes;
+        this.host = destino.substring(0, separador);
+        this.puerto = Integer.parseInt(destino.substring(separador + 1));
+        this.loteMaximo = loteMaximo;
+        this.reintentoConexionMs = reintentoConexionMs;
+        this.cola = new ArrayBlockingQueue<>(capacidadCola);
+    }
+
+    void iniciar() {
+        hilo = new Thread(this::enviarEnLotes, "replicacion-emisor");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Deja de replicar después de enviar lo que ya estaba en la cola.
+     */
+    void detener(long esperaMs) throws InterruptedException {
+        detenido = true;
+        if (hilo != null) {
+            hilo.join(esperaMs);
+        }
+        cerrarSocket();
+    }
+
+    /**
+     * Asigna la secuencia al registro y lo encola para el respaldo. Debe llamarse justo después de
+     * aplicar la mutación, dentro del bloqueo del usuario, para que las mutaciones de un usuario
+     * lleguen en orden.
+     *
+     * @return la secuencia asignada
+     */
+    long agregar(RegistroReplicacion registro) {
+        synchronized (monitorSecuencia) {
+            registro.secuencia = ++secuencia;
+            if (conectado && !cola.offer(registro)) {
+                desbordada = true;
+            }
+            return registro.secuencia;
+        }
+    }
+
+    /**
+     * Espera a que el respaldo confirme una secuencia.
+     *
+     * @return {@code false} si no hay conexión o se venció la espera
+     */
+    boolean esperar(long secuenciaEsperada, long esperaMs) throws InterruptedException {
+        if (confirmada >= secuenciaEsperada) {
+            return true;
+        }
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        synchronized (monitorConfirmaciones) {
+            while (confirmada < secuenciaEsperada) {
+                long restante = limite - System.nanoTime();
+                if (!conectado || restante <= 0) {
+                    esperasVencidas.incrementAndGet();
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitorConfirmaciones, restante);
+            }
+        }
+        return true;
+    }
+
+    private void enviarEnLotes() {
+        List<RegistroReplicacion> lote = new ArrayList<>(loteMaximo);
+        boolean avisado = false;
+        while (!detenido || (conectado && !cola.isEmpty())) {
+            try {
+                DataOutputStream salida = conectar();
+                avisado = false;
+                while (!detenido || !cola.isEmpty()) {
+                    RegistroReplicacion primero = cola.poll(LATIDO_MS, TimeUnit.MILLISECONDS);
+                    if (desbordada) {
+                        throw new IOException("la cola de replicación se desbordó; se reenvía una instantánea");
+                    }
+                    if (!conectado) {
+                        throw new IOException("el respaldo cerró la conexión");
+                    }
+                    if (primero == null) {
+                        if (!detenido) {
+                            RegistroReplicacion.escribirLote(salida, lote);
+                            salida.flush();
+                        }
+                        continue;
+                    }
+                    lote.add(primero);
+                    cola.drainTo(lote, loteMaximo - 1);
+                    sinConfirmar.addAll(lote);
+                    RegistroReplicacion.escribirLote(salida, lote);
+                    salida.flush();
+                    registrosEnviados.addAndGet(lote.size());
+                    lotesEnviados.incrementAndGet();
+                    lote.clear();
+                }
+                return;
+            } catch (IOException e) {
+                if (!avisado && !detenido) {
+                    System.err.println("[SERVIDOR PAGOS] Replicación al respaldo " + host + ":" + puerto
+                            + " interrumpida: " + e.getMessage() + ". Se reintenta cada " + reintentoConexionMs + " ms");
+                    avisado = true;
+                }
+                lote.clear();
+                desconectar();
+                if (!detenido) {
+                    try {
+                        Thread.sleep(reintentoConexionMs);
+                    } catch (InterruptedException interrupcion) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Abre la conexión, fija la secuencia de partida y envía la instantánea.
+     */
+    private DataOutputStream conectar() throws IOException {
+        Socket nuevo = new Socket();
+        nuevo.setTcpNoDelay(true);
+        nuevo.connect(new InetSocketAddress(host, puerto), 2_000);
+        socket = nuevo;
+        DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(nuevo.getOutputStream(), 64 * 1024));
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(nuevo.getInputStream()));
+
+        long desde;
+        synchronized (monitorSecuencia) {
+            desde = secuencia;
+            cola.clear();
+            sinConfirmar.clear();
+            desbordada = false;
+            conectado = true;
+        }
+        Thread lector = new Thread(() -> leerConfirmaciones(nuevo, entrada), "replicacion-confirmaciones");
+        lector.setDaemon(true);
+        lector.start();
+
+        RegistroReplicacion.escribirInstantanea(salida, desde,
+                pagosRepository.copiarTokensUsados(), pagosRepository.copiarTotales(),
+                resultadosIdempotentes.copiarTerminados());
+        salida.flush();
+        instantaneas.incrementAndGet();
+        System.out.println("[SERVIDOR PAGOS] Replicando al respaldo " + host + ":" + puerto
+                + " desde la secuencia " + desde);
+        return salida;
+    }
+
+    private void leerConfirmaciones(Socket propio, DataInputStream entrada) {
+        try {
+            while (true) {
+                long aplicada = entrada.readLong();
+                RegistroReplicacion registro;
+                RegistroReplicacion ultimo = null;
+                while ((registro = sinConfirmar.peek()) != null && registro.secuencia <= aplicada) {
+                    ultimo = sinConfirmar.poll();
+                }
+                if (ultimo != null) {
+                    long retraso = System.nanoTime() - ultimo.creadoNanos;
+                    retrasoUltimoNanos = retraso;
+                    if (retraso > retrasoMaximoNanos) {
+                        retrasoMaximoNanos = retraso;
+                    }
+                }
+                synchronized (monitorConfirmaciones) {
+                    if (aplicada > confirmada) {
+                        confirmada = aplicada;
+                    }
+                    monitorConfirmaciones.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            if (socket == propio) {
+                conectado = false;
+                synchronized (monitorConfirmaciones) {
+                    monitorConfirmaciones.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void desconectar() {
+        conectado = false;
+        cerrarSocket();
+        synchronized (monitorConfirmaciones) {
+            monitorConfirmaciones.notifyAll();
+        }
+    }
+
+    private void cerrarSocket() {
+        Socket actual = socket;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (IOException ignorada) {
+                // Ya estaba cerrado.
+            }
+        }
+    }
+
+    boolean isConectado() {
+        return conectado;
+    }
+
+    long getSecuencia() {
+        synchronized (monitorSecuencia) {
+            return secuencia;
+        }
+    }
+
+    long getConfirmada() {
+        return confirmada;
+    }
+
+    long getRegistrosEnviados() {
+        return registrosEnviados.get();
+    }
+
+    long getLotesEnviados() {
+        return lotesEnviados.get();
+    }
+
+    long getInstantaneas() {
+        return instantaneas.get();
+    }
+
+    long getEsperasVencidas() {
+        return esperasVencidas.get();
+    }
+
+    long getRetrasoUltimoNanos() {
+        return retrasoUltimoNanos;
+    }
+
+    long getRetrasoMaximoNanos() {
+        return retrasoMaximoNanos;
+    }
+}
@@ -0,0 +1,219 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Lado respaldo de la replicación: escucha al primario en {@code pagos.replicacion.puerto}, aplica
+ * cada trama en orden y confirma la última secuencia aplicada.
+ *
+ * <p>Atiende una conexión a la vez: si el primario se reconecta, la conexión anterior se cierra.
+ * Al promoverse deja de escuchar, para que un primario que siga vivo no sobrescriba lo que el
+ * respaldo ya empezó a atender por su cuenta.</p>
+ *
+ * <p>El primario envía un lote vacío como latido cuando no tiene nada que replicar, así que el
+ * silencio del primario se mide desde el último contacto (conexión aceptada o trama recibida), o
+ * desde el arranque si nunca se conectó. Mientras ese silencio no supere el plazo de promoción, el
+ * respaldo se niega a promoverse.</p>
+ */
+final class ReceptorReplicacion {
+
+    private final int puertoSolicitado;
+    private final Consumer<RegistroReplicacion.Instantanea> aplicarInstantanea;
+    private final Consumer<RegistroReplicacion> aplicarRegistro;
+
+    private ServerSocket servidor;
+    private Thread hilo;
+    private volatile Socket conexion;
+    private volatile boolean promovido;
+
+    /**
+     * Última secuencia aplicada; solo la modifica el hilo de la conexión actual.
+     */
+    private volatile long aplicada;
+    private volatile long ultimaTramaMs;
+
+    /**
+     * Último contacto del primario; se modifica con este objeto bloqueado, para que
+     * {@link #promover} no compita con una trama que se está aplicando.
+     */
+    private volatile long ultimoContactoMs;
+    private final AtomicLong registrosAplicados = new AtomicLong();
+
+    ReceptorReplicacion(int puerto, Consumer<RegistroReplicacion.Instantanea> aplicarInstantanea,
+                        Consumer<RegistroReplicacion> aplicarRegistro) {
+        this.puertoSolicitado = puerto;
+        this.aplicarInstantanea = aplicarInstantanea;
+        this.aplicarRegistro = aplicarRegistro;
+    }
+
+    void iniciar() throws IOException {
+        servidor = new ServerSocket();
+        servidor.setReuseAddress(true);
+        servidor.bind(new InetSocketAddress(puertoSolicitado));
+        ultimoContactoMs = System.currentTimeMillis();
+        hilo = new Thread(this::aceptar, "replicacion-receptor");
+        hilo.setDaemon(true);
+        hilo.start();
+        System.out.println("[SERVIDOR PAGOS] Respaldo esperando la replicación del primario en el puerto "
+                + servidor.getLocalPort());
+    }
+
+    /**
+     * Deja de aceptar la replicación si el primario lleva al menos {@code plazoMs} sin contacto.
+     * Es idempotente.
+     *
+     * @param plazoMs silencio mínimo del primario para promoverse
+     * @return {@code true} si esta llamada hizo la promoción
+     * @throws RespaldoNoPromovidoException si el primario replicó hace menos de {@code plazoMs}
+     */
+    synchronized boolean promover(long plazoMs) {
+        if (promovido) {
+            return false;
+        }
+        long silencio = getSilencioMs();
+        if (silencio < plazoMs) {
+            throw new RespaldoNoPromovidoException(plazoMs - silencio);
+        }
+        promovido = true;
+        cerrar();
+        return true;
+    }
+
+    void cerrar() {
+        try {
+            if (servidor != null) {
+                servidor.close();
+            }
+            Socket actual = conexion;
+            if (actual != null) {
+                actual.close();
+            }
+        } catch (IOException ignorada) {
+            // Ya estaban cerrados.
+        }
+    }
+
+    private void aceptar() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket nueva = servidor.accept();
+                nueva.setTcpNoDelay(true);
+                Socket anterior;
+                synchronized (this) {
+                    if (promovido) {
+                        nueva.close();
+                        continue;
+                    }
+                    anterior = conexion;
+                    conexion = nueva;
+                    ultimoContactoMs = System.currentTimeMillis();
+                }
+                if (anterior != null) {
+                    anterior.close();
+                }
+                Thread atencion = new Thread(() -> atender(nueva), "replicacion-conexion");
+                atencion.setDaemon(true);
+                atencion.start();
+            } catch (IOException e) {
+                if (!servidor.isClosed()) {
+                    System.err.println("[SERVIDOR PAGOS] Error aceptando la replicación: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        try (socket) {
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                byte tipo = entrada.readByte();
+                RegistroReplicacion.Instantanea instantanea = null;
+                List<RegistroReplicacion> lote = null;
+                if (tipo == RegistroReplicacion.INSTANTANEA) {
+                    instantanea = RegistroReplicacion.Instantanea.leer(entrada);
+                } else if (tipo == RegistroReplicacion.LOTE) {
+                    lote = RegistroReplicacion.leerLote(entrada);
+                } else {
+                    throw new IOException("Trama de replicación desconocida: " + tipo);
+                }
+                // Solo la conexión vigente aplica cambios; una reemplazada o posterior a la promoción se descarta.
+                synchronized (this) {
+                    if (promovido || conexion != socket) {
+                        return;
+                    }
+                    ultimoContactoMs = System.currentTimeMillis();
+                    if (instantanea != null) {
+                        aplicarInstantanea.accept(instantanea);
+                        aplicada = instantanea.secuencia();
+                    } else {
+                        for (RegistroReplicacion registro : lote) {
+                            if (registro.secuencia > aplicada) {
+                                aplicarRegistro.accept(registro);
+                                aplicada = registro.secuencia;
+                                registrosAplicados.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+                if (instantanea != null) {
+                    System.out.println("[SERVIDOR PAGOS] Instantánea del primario aplicada: "
+                            + instantanea.tokens().size() + " tokens, " + instantanea.totales().size()
+                            + " usuarios, secuencia " + instantanea.secuencia());
+                }
+                ultimaTramaMs = System.currentTimeMillis();
+                salida.writeLong(aplicada);
+                salida.flush();
+            }
+        } catch (EOFException e) {
+            System.out.println("[SERVIDOR PAGOS] El primario cerró la replicación");
+        } catch (IOException e) {
+            if (!promovido && conexion == socket) {
+                System.err.println("[SERVIDOR PAGOS] Replicación desde el primario interrumpida: " + e.getMessage());
+            }
+        }
+    }
+
+    int getPuerto() {
+        return servidor == null ? -1 : servidor.getLocalPort();
+    }
+
+    boolean isPromovido() {
+        return promovido;
+    }
+
+    boolean isConectado() {
+        Socket actual = conexion;
+        return !promovido && actual != null && !actual.isClosed();
+    }
+
+    long getAplicada() {
+        return aplicada;
+    }
+
+    long getUltimaTramaMs() {
+        return ultimaTramaMs;
+    }
+
+    /**
+     * @return milisegundos desde el último contacto del primario
+     */
+    long getSilencioMs() {
+        return System.currentTimeMillis() - ultimoContactoMs;
+    }
+
+    long getRegistrosAplicados() {
+        return registrosAplicados.get();
+    }
+}
@@ -0,0 +1,190 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Una mutación del estado de pagos que el primario envía al respaldo, y el formato binario
+ * del canal de replicación.
+ *
+ * <p>Los totales viajan como el valor resultante y no como diferencia: así el respaldo puede
+ * recibir una mutación que ya estaba incluida en una instantánea sin contarla dos veces.</p>
+ *
+ * <p>Tramas del primario al respaldo:</p>
+ * <ul>
+ *   <li>{@code INSTANTANEA}: secuencia, tokens usados, totales por usuario y resultados por clave
+ *       de idempotencia.</li>
+ *   <li>{@code LOTE}: cantidad de registros y cada registro con su secuencia.</li>
+ * </ul>
+ * <p>El respaldo responde a cada trama con la última secuencia aplicada ({@code long}).</p>
+ */
+final class RegistroReplicacion {
+
+    static final byte INSTANTANEA = 1;
+    static final byte LOTE = 2;
+
+    private static final byte PAGO = 1;
+    private static final byte TOTAL = 2;
+
+    long secuencia;
+    final byte tipo;
+    final String token;
+    final String nickname;
+    final int total;
+
+    /**
+     * Clave de idempotencia y mensaje del pago aceptado, para que el respaldo responda igual
+     * a un reintento con la misma clave. {@code null} si el pago no trajo clave.
+     */
+    final String clave;
+    final String mensaje;
+
+    /**
+     * Instante en que se generó, en el primario, para medir el retraso de la replicación.
+     */
+    final long creadoNanos;
+
+    private RegistroReplicacion(byte tipo, String token, String nickname, int total, String clave, String mensaje,
+                                long creadoNanos) {
+        this.tipo = tipo;
+        this.token = token;
+        this.nickname = nickname;
+        this.total = total;
+        this.clave = clave;
+        this.mensaje = mensaje;
+        this.creadoNanos = creadoNanos;
+    }
+
+    /**
+     * Pago aceptado: el token queda usado y el usuario con un nuevo total.
+     */
+    static RegistroReplicacion pago(String token, String nickname, int total, String clave, String mensaje) {
+        return new RegistroReplicacion(PAGO, token, nickname, total, clave, mensaje, System.nanoTime());
+    }
+
+    /**
+     * Nuevo total de un usuario, por ejemplo al liquidar un arrendamiento.
+     */
+    static RegistroReplicacion total(String nickname, int total) {
+        return new RegistroReplicacion(TOTAL, null, nickname, total, null, null, System.nanoTime());
+    }
+
+    boolean esPago() {
+        return tipo == PAGO;
+    }
+
+    static void escribirLote(DataOutputStream salida, List<RegistroReplicacion> lote) throws IOException {
+        salida.writeByte(LOTE);
+        salida.writeInt(lote.size());
+        for (RegistroReplicacion registro : lote) {
+            salida.writeLong(registro.secuencia);
+            salida.writeByte(registro.tipo);
+            salida.writeUTF(registro.nickname);
+            salida.writeInt(registro.total);
+            if (registro.tipo == PAGO) {
+                salida.writeUTF(registro.token);
+                salida.writeBoolean(registro.clave != null);
+                if (registro.clave != null) {
+                    salida.writeUTF(registro.clave);
+                    salida.writeUTF(registro.mensaje);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee un lote; el byte de tipo de trama ya se leyó.
+     */
+    static List<RegistroReplicacion> leerLote(DataInputStream entrada) throws IOException {
+        int cantidad = entrada.readInt();
+        List<RegistroReplicacion> lote = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            long secuencia = entrada.readLong();
+            byte tipo = entrada.readByte();
+            String nickname = entrada.readUTF();
+            int total = entrada.readInt();
+            RegistroReplicacion registro;
+            if (tipo == PAGO) {
+                String token = entrada.readUTF();
+                boolean conClave = entrada.readBoolean();
+                String clave = conClave ? entrada.readUTF() : null;
+                String mensaje = conClave ? entrada.readUTF() : null;
+                registro = new RegistroReplicacion(PAGO, token, nickname, total, clave, mensaje, 0);
+            } else if (tipo == TOTAL) {
+                registro = new RegistroReplicacion(TOTAL, null, nickname, total, null, null, 0);
+            } else {
+                throw new IOException("Tipo de registro de replicación desconocido: " + tipo);
+            }
+            registro.secuencia = secuencia;
+            lote.add(registro);
+        }
+        return lote;
+    }
+
+    static void escribirInstantanea(DataOutputStream salida, long secuencia, Set<String> tokens,
+                                    Map<String, Integer> totales, Map<String, PagoResponse> resultados)
+            throws IOException {
+        salida.writeByte(INSTANTANEA);
+        salida.writeLong(secuencia);
+        salida.writeInt(tokens.size());
+        for (String token : tokens) {
+            salida.writeUTF(token);
+        }
+        salida.writeInt(totales.size());
+        for (Map.Entry<String, Integer> total : totales.entrySet()) {
+            salida.writeUTF(total.getKey());
+            salida.writeInt(total.getValue());
+        }
+        salida.writeInt(resultados.size());
+        for (Map.Entry<String, PagoResponse> resultado : resultados.entrySet()) {
+            PagoResponse respuesta = resultado.getValue();
+            salida.writeUTF(resultado.getKey());
+            salida.writeUTF(respuesta.getEstado().name());
+            salida.writeUTF(respuesta.getMensaje() == null ? "" : respuesta.getMensaje());
+            salida.writeInt(respuesta.getTotalAcumuladoUsuario());
+        }
+    }
+
+    /**
+     * Estado completo recibido en una trama {@code INSTANTANEA}.
+     */
+    record Instantanea(long secuencia, Set<String> tokens, Map<String, Integer> totales,
+                       Map<String, PagoResponse> resultados) {
+
+        /**
+         * Lee una instantánea; el byte de tipo de trama ya se leyó.
+         */
+        static Instantanea leer(DataInputStream entrada) throws IOException {
+            long secuencia = entrada.readLong();
+            int cantidadTokens = entrada.readInt();
+            Set<String> tokens = new HashSet<>(Math.max(16, cantidadTokens * 2));
+            for (int i = 0; i < cantidadTokens; i++) {
+                tokens.add(entrada.readUTF());
+            }
+            int cantidadTotales = entrada.readInt();
+            Map<String, Integer> totales = new HashMap<>(Math.max(16, cantidadTotales * 2));
+            for (int i = 0; i < cantidadTotales; i++) {
+                totales.put(entrada.readUTF(), entrada.readInt());
+            }
+            int cantidadResultados = entrada.readInt();
+            Map<String, PagoResponse> resultados = new LinkedHashMap<>(Math.max(16, cantidadResultados * 2));
+            for (int i = 0; i < cantidadResultados; i++) {
+                String clave = entrada.readUTF();
+                EstadoPago estado = EstadoPago.valueOf(entrada.readUTF());
+                resultados.put(clave, new PagoResponse(estado, entrada.readUTF(), entrada.readInt()));
+            }
+            return new Instantanea(secuencia, tokens, totales, resultados);
+        }
+    }
+}
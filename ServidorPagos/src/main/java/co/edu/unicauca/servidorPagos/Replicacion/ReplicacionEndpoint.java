@@ -0,0 +1,30 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Estado de la replicación primario/respaldo ({@code /actuator/replicacion}): rol, conexión,
+ * secuencias enviada y confirmada y retraso de la última confirmación.
+ */
+@Component
+@Endpoint(id = "replicacion")
+public class ReplicacionEndpoint {
+
+    private final ReplicacionPagos replicacionPagos;
+
+    public ReplicacionEndpoint(ReplicacionPagos replicacionPagos) {
+        this.replicacionPagos = replicacionPagos;
+    }
+
+    /**
+     * @return el estado de la replicación en esta instancia
+     */
+    @ReadOperation
+    public Map<String, Object> estado() {
+        return replicacionPagos.estado();
+    }
+}
@@ -0,0 +1,251 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import co.edu.unicauca.servidorPagos.Repository.PagosRepository;
+import co.edu.unicauca.servidorPagos.Repository.ResultadosIdempotentesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicación primario/respaldo del estado de pagos, para que un respaldo pueda atender en
+ * cuanto el primario cae, sin perder los tokens usados ni los totales de cada usuario.
+ *
+ * <p>El rol se elige con {@code pagos.replicacion.rol}:</p>
+ * <ul>
+ *   <li>{@code ninguno} (por defecto): sin replicación.</li>
+ *   <li>{@code primario}: envía cada pago aceptado (token, nuevo total y, si la trae, la clave de
+ *       idempotencia con su respuesta) y cada cambio de total por arrendamientos al respaldo
+ *       {@code pagos.replicacion.respaldo} ({@code host:puerto}), en lotes y en tubería.</li>
+ *   <li>{@code respaldo}: recibe la replicación en {@code pagos.replicacion.puerto}. Su primer pago
+ *       o arrendamiento lo promueve, y desde ese momento deja de aceptar la replicación, pero solo si
+ *       el primario lleva {@code pagos.replicacion.plazo-promocion-ms} sin replicarle (ni siquiera el
+ *       latido que envía cuando está ocioso). Antes de eso rechaza los pagos y arrendamientos con
+ *       {@link RespaldoNoPromovidoException}, para que nunca haya dos instancias aceptando
+ *       escrituras.</li>
+ * </ul>
+ *
+ * <p>La confirmación ({@code pagos.replicacion.confirmacion}) puede ser {@code asincrona}: el pago
+ * se responde sin esperar al respaldo, que queda atrás a lo sumo lo que tarda un lote. También puede
+ * ser {@code sincrona}: el pago se responde cuando el respaldo confirma haberlo aplicado, o al vencer
+ * {@code pagos.replicacion.espera-confirmacion-ms}, lo primero que ocurra; sin conexión con el
+ * respaldo no se espera.</p>
+ *
+ * <p>Los arrendamientos vigentes y lo reservado por ellos no se replican: tras una conmutación, el
+ * cliente deja de usar sus arrendamientos al vencer y vuelve al flujo normal de pagos.</p>
+ */
+@Component
+public class ReplicacionPagos implements SmartLifecycle {
+
+    private enum Rol { NINGUNO, PRIMARIO, RESPALDO }
+
+    private final PagosRepository pagosRepository;
+    private final ResultadosIdempotentesRepository resultadosIdempotentes;
+    private final Rol rol;
+    private final boolean sincrona;
+    private final long esperaConfirmacionMs;
+    private final long plazoPromocionMs;
+
+    private final EmisorReplicacion emisor;
+    private final ReceptorReplicacion receptor;
+    private volatile boolean ejecutando;
+
+    public ReplicacionPagos(PagosRepository pagosRepository,
+                            ResultadosIdempotentesRepository resultadosIdempotentes,
+                            @Value("${pagos.replicacion.rol:ninguno}") String rol,
+                            @Value("${pagos.replicacion.respaldo:localhost:7070}") String respaldo,
+                            @Value("${pagos.replicacion.puerto:7070}") int puerto,
+                            @Value("${pagos.replicacion.confirmacion:asincrona}") String confirmacion,
+                            @Value("${pagos.replicacion.espera-confirmacion-ms:500}") long esperaConfirmacionMs,
+                            @Value("${pagos.replicacion.lote-maximo:512}") int loteMaximo,
+                            @Value("${pagos.replicacion.capacidad-cola:65536}") int capacidadCola,
+                            @Value("${pagos.replicacion.reintento-conexion-ms:500}") long reintentoConexionMs,
+                            @Value("${pagos.replicacion.plazo-promocion-ms:3000}") long plazoPromocionMs) {
+        this.pagosRepository = pagosRepository;
+        this.resultadosIdempotentes = resultadosIdempotentes;
+        this.rol = Rol.valueOf(rol.toUpperCase(Locale.ROOT));
+        this.sincrona = "sincrona".equalsIgnoreCase(confirmacion);
+        this.esperaConfirmacionMs = esperaConfirmacionMs;
+        this.plazoPromocionMs = plazoPromocionMs;
+        this.emisor = this.rol == Rol.PRIMARIO
+                ? new EmisorReplicacion(pagosRepository, resultadosIdempotentes, respaldo, loteMaximo, capacidadCola, reintentoConexionMs)
+                : null;
+        this.receptor = this.rol == Rol.RESPALDO
+                ? new ReceptorReplicacion(puerto, this::aplicarInstantanea, this::aplicarRegistro)
+                : null;
+    }
+
+    /**
+     * Replica un pago aceptado. Se llama dentro del bloqueo del usuario, justo después de marcar el
+     * token y actualizar el total.
+     *
+     * @return la secuencia del registro, para {@link #esperarConfirmacion}, o 0 si no se replica
+     */
+    public long registrarPago(String token, String nickname, int nuevoTotal, String clave, String mensaje) {
+        return emisor == null ? 0 : emisor.agregar(RegistroReplicacion.pago(token, nickname, nuevoTotal, clave, mensaje));
+    }
+
+    /**
+     * Replica el nuevo total de un usuario. Se llama dentro del bloqueo del usuario.
+     *
+     * @return la secuencia del registro, o 0 si no se replica
+     */
+    public long registrarTotal(String nickname, int nuevoTotal) {
+        return emisor == null ? 0 : emisor.agregar(RegistroReplicacion.total(nickname, nuevoTotal));
+    }
+
+    /**
+     * @return {@code true} si {@link #esperarConfirmacion} va a esperar al respaldo por esta secuencia;
+     *         la variante reactiva lo usa para no ocupar un hilo cuando no hay nada que esperar
+     */
+    public boolean requiereConfirmacion(long secuencia) {
+        return sincrona && secuencia != 0;
+    }
+
+    /**
+     * Con confirmación síncrona, espera a que el respaldo aplique el registro. Se llama fuera del
+     * bloqueo del usuario, antes de responder.
+     *
+     * @param secuencia la devuelta por {@link #registrarPago} o {@link #registrarTotal}
+     */
+    public void esperarConfirmacion(long secuencia) {
+        if (!requiereConfirmacion(secuencia)) {
+            return;
+        }
+        try {
+            emisor.esperar(secuencia, esperaConfirmacionMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Si esta instancia es el respaldo, la promueve: deja de aceptar la replicación porque va a
+     * modificar el estado por su cuenta. Se llama antes de atender cada pago o arrendamiento.
+     *
+     * @throws RespaldoNoPromovidoException si el primario replicó hace menos de
+     *                                      {@code pagos.replicacion.plazo-promocion-ms}
+     */
+    public void asumirEscrituras() {
+        if (receptor != null && !receptor.isPromovido() && receptor.promover(plazoPromocionMs)) {
+            long desdeUltimaTrama = receptor.getUltimaTramaMs() == 0
+                    ? -1 : System.currentTimeMillis() - receptor.getUltimaTramaMs();
+            System.out.println("[SERVIDOR PAGOS] Respaldo promovido a primario en la secuencia "
+                    + receptor.getAplicada() + " (última replicación hace " + desdeUltimaTrama + " ms)");
+        }
+    }
+
+    private void aplicarInstantanea(RegistroReplicacion.Instantanea instantanea) {
+        instantanea.resultados().forEach(resultadosIdempotentes::almacenar);
+        for (String token : instantanea.tokens()) {
+            pagosRepository.marcarTokenComoUsado(token);
+        }
+        instantanea.totales().forEach((nickname, total) -> {
+            synchronized (pagosRepository.bloqueoUsuario(nickname)) {
+                pagosRepository.actualizarTotalUsuario(nickname, total);
+            }
+        });
+    }
+
+    private void aplicarRegistro(RegistroReplicacion registro) {
+        synchronized (pagosRepository.bloqueoUsuario(registro.nickname)) {
+            if (registro.esPago()) {
+                pagosRepository.marcarTokenComoUsado(registro.token);
+            }
+            pagosRepository.actualizarTotalUsuario(registro.nickname, registro.total);
+        }
+        if (registro.clave != null) {
+            resultadosIdempotentes.almacenar(registro.clave,
+                    new PagoResponse(EstadoPago.ACEPTADO, registro.mensaje, registro.total));
+        }
+    }
+
+    /**
+     * @return el rol y los contadores de la replicación
+     */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("rol", rol.name().toLowerCase(Locale.ROOT));
+        if (emisor != null) {
+            estado.put("confirmacion", sincrona ? "sincrona" : "asincrona");
+            estado.put("conectado", emisor.isConectado());
+            estado.put("secuencia", emisor.getSecuencia());
+            estado.put("confirmada", emisor.getConfirmada());
+            estado.put("registrosEnviados", emisor.getRegistrosEnviados());
+            estado.put("lotesEnviados", emisor.getLotesEnviados());
+            estado.put("instantaneas", emisor.getInstantaneas());
+            estado.put("esperasVencidas", emisor.getEsperasVencidas());
+            estado.put("retrasoUltimoMicros", TimeUnit.NANOSECONDS.toMicros(emisor.getRetrasoUltimoNanos()));
+            estado.put("retrasoMaximoMicros", TimeUnit.NANOSECONDS.toMicros(emisor.getRetrasoMaximoNanos()));
+        }
+        if (receptor != null) {
+            estado.put("puerto", receptor.getPuerto());
+            estado.put("conectado", receptor.isConectado());
+            estado.put("promovido", receptor.isPromovido());
+            estado.put("silencioPrimarioMs", receptor.getSilencioMs());
+            estado.put("plazoPromocionMs", plazoPromocionMs);
+            estado.put("aplicada", receptor.getAplicada());
+            estado.put("registrosAplicados", receptor.getRegistrosAplicados());
+        }
+        return estado;
+    }
+
+    /**
+     * @return el puerto en que el respaldo escucha la replicación, o -1 si esta instancia no es respaldo
+     */
+    public int getPuertoRespaldo() {
+        return receptor == null ? -1 : receptor.getPuerto();
+    }
+
+    @Override
+    public void start() {
+        if (receptor != null) {
+            try {
+                receptor.iniciar();
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escuchar la replicación de pagos", e);
+            }
+        }
+        if (emisor != null) {
+            emisor.iniciar();
+        }
+        ejecutando = true;
+    }
+
+    @Override
+    public void stop() {
+        ejecutando = false;
+        if (receptor != null) {
+            receptor.cerrar();
+        }
+        if (emisor != null) {
+            try {
+                emisor.detener(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ejecutando;
+    }
+
+    /**
+     * Arranca antes que los servidores HTTP y gRPC y se detiene después de ellos, para replicar
+     * los pagos que terminan durante el apagado ordenado.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
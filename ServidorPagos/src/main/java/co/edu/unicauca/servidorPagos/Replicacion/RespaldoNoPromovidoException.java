@@ -0,0 +1,37 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * El respaldo rechaza un pago o arrendamiento porque el primario sigue replicándole: promoverse
+ * dejaría dos instancias aceptando escrituras sobre el mismo presupuesto.
+ *
+ * <p>Se responde 503 con {@code Retry-After}, para que el cliente reintente en el primario o
+ * vuelva aquí cuando el respaldo ya pueda promoverse.</p>
+ */
+public class RespaldoNoPromovidoException extends ResponseStatusException {
+
+    private final long reintentarEnMs;
+
+    public RespaldoNoPromovidoException(long reintentarEnMs) {
+        super(HttpStatus.SERVICE_UNAVAILABLE,
+                "El primario sigue replicando; el respaldo no acepta escrituras");
+        this.reintentarEnMs = reintentarEnMs;
+    }
+
+    /**
+     * @return en cuánto tiempo, como pronto, el respaldo podría promoverse si el primario no vuelve a replicar
+     */
+    public long getReintentarEnMs() {
+        return reintentarEnMs;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (reintentarEnMs + 999) / 1000)));
+        return cabeceras;
+    }
+}
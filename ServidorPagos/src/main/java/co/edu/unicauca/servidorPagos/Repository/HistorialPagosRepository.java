@@ -0,0 +1,396 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PaginaHistorialPagos;
+import co.edu.unicauca.servidorPagos.Models.RegistroPago;
+import co.edu.unicauca.servidorPagos.Models.ResumenGasto;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historial en memoria de todos los pagos procesados, en formato columnar y de solo anexado.
+ *
+ * <p>Cada pago es una fila con marca de tiempo, usuario, canción, valor y estado, guardados en
+ * arreglos primitivos por columna (sin un objeto por pago). Los nicknames y las canciones se
+ * guardan una vez en diccionarios y las filas referencian su identificador entero.</p>
+ *
+ * <p>Características:</p>
+ * <ul>
+ *   <li>Las columnas se reparten en segmentos de tamaño fijo: crecer nunca copia filas.</li>
+ *   <li>Índices secundarios por nickname y por canción: la lista de filas de cada uno, en orden
+ *       de llegada.</li>
+ *   <li>Las marcas de tiempo son no decrecientes, así que los rangos de tiempo se resuelven con
+ *       búsqueda binaria, tanto en el historial completo como en cada índice.</li>
+ *   <li>Un único escritor a la vez (monitor de la instancia); las consultas no toman bloqueos.
+ *       Cada fila se publica incrementando un contador {@code volatile} después de escribirla, y
+ *       las consultas solo leen filas por debajo del contador que observaron al empezar.</li>
+ * </ul>
+ */
+@Repository
+public class HistorialPagosRepository {
+
+    private static final int BITS_SEGMENTO = 12;
+    private static final int TAMANO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA_SEGMENTO = TAMANO_SEGMENTO - 1;
+
+    private static final EstadoPago[] ESTADOS = EstadoPago.values();
+
+    /**
+     * Bloque de filas consecutivas, una columna por arreglo.
+     */
+    private static final class Segmento {
+        private final long[] marcasTiempo = new long[TAMANO_SEGMENTO];
+        private final int[] usuarios = new int[TAMANO_SEGMENTO];
+        private final int[] canciones = new int[TAMANO_SEGMENTO];
+        private final int[] valores = new int[TAMANO_SEGMENTO];
+        private final byte[] estados = new byte[TAMANO_SEGMENTO];
+    }
+
+    /**
+     * Valor de un diccionario (un nickname o una canción) con su índice de filas.
+     * Las filas se anexan con el monitor del repositorio; se leen sin bloqueo.
+     */
+    private static final class Entrada {
+        private final int id;
+        private final String nombre;
+        private volatile int[] filas = new int[8];
+        private volatile int cantidad;
+
+        private Entrada(int id, String nombre) {
+            this.id = id;
+            this.nombre = nombre;
+        }
+
+        private void agregar(int fila) {
+            int[] actuales = filas;
+            if (cantidad == actuales.length) {
+                actuales = Arrays.copyOf(actuales, actuales.length * 2);
+                filas = actuales;
+            }
+            actuales[cantidad] = fila;
+            cantidad = cantidad + 1;
+        }
+    }
+
+    /**
+     * Asigna identificadores enteros consecutivos a cadenas.
+     */
+    private static final class Diccionario {
+        private final Map<String, Entrada> porNombre = new ConcurrentHashMap<>();
+        private volatile Entrada[] porId = new Entrada[64];
+        private volatile int siguienteId;
+
+        private Entrada buscar(String nombre) {
+            return nombre == null ? null : porNombre.get(nombre);
+        }
+
+        /**
+         * Solo se invoca con el monitor del repositorio.
+         */
+        private Entrada obtenerOCrear(String nombre) {
+            Entrada entrada = porNombre.get(nombre);
+            if (entrada != null) {
+                return entrada;
+            }
+            entrada = new Entrada(siguienteId, nombre);
+            Entrada[] entradas = porId;
+            if (siguienteId == entradas.length) {
+                entradas = Arrays.copyOf(entradas, entradas.length * 2);
+            }
+            entradas[siguienteId] = entrada;
+            porId = entradas;
+            siguienteId = siguienteId + 1;
+            porNombre.put(nombre, entrada);
+            return entrada;
+        }
+
+        private Entrada porId(int id) {
+            return porId[id];
+        }
+
+        private int cantidad() {
+            return siguienteId;
+        }
+    }
+
+    private final Diccionario usuarios = new Diccionario();
+    private final Diccionario canciones = new Diccionario();
+
+    private volatile Segmento[] segmentos = new Segmento[16];
+
+    /**
+     * Filas publicadas; solo las filas menores a este valor son visibles para las consultas.
+     */
+    private volatile int cantidadFilas;
+
+    private long ultimaMarcaTiempo;
+
+    /**
+     * Anexa un pago al historial con la hora actual.
+     *
+     * @param nickname  usuario que pagó
+     * @param idCancion canción de la reacción
+     * @param valor     valor del pago
+     * @param estado    resultado del pago
+     */
+    public void registrar(String nickname, String idCancion, int valor, EstadoPago estado) {
+        registrar(System.currentTimeMillis(), nickname, idCancion, valor, estado);
+    }
+
+    /**
+     * Anexa un pago al historial con la marca de tiempo indicada. Si es anterior a la última
+     * registrada se ajusta a esta, para mantener el historial ordenado por tiempo.
+     */
+    synchronized void registrar(long marcaTiempo, String nickname, String idCancion, int valor, EstadoPago estado) {
+        Entrada usuario = usuarios.obtenerOCrear(nickname != null ? nickname : "");
+        Entrada cancion = canciones.obtenerOCrear(idCancion != null ? idCancion : "");
+        ultimaMarcaTiempo = Math.max(ultimaMarcaTiempo, marcaTiempo);
+
+        int fila = cantidadFilas;
+        Segmento[] actuales = segmentos;
+        int numeroSegmento = fila >>> BITS_SEGMENTO;
+        if (numeroSegmento == actuales.length) {
+            actuales = Arrays.copyOf(actuales, actuales.length * 2);
+        }
+        if (actuales[numeroSegmento] == null) {
+            actuales[numeroSegmento] = new Segmento();
+        }
+        segmentos = actuales;
+
+        Segmento segmento = actuales[numeroSegmento];
+        int posicion = fila & MASCARA_SEGMENTO;
+        segmento.marcasTiempo[posicion] = ultimaMarcaTiempo;
+        segmento.usuarios[posicion] = usuario.id;
+        segmento.canciones[posicion] = cancion.id;
+        segmento.valores[posicion] = valor;
+        segmento.estados[posicion] = (byte) estado.ordinal();
+
+        usuario.agregar(fila);
+        cancion.agregar(fila);
+        // Publica la fila: la escritura volatile hace visibles las columnas anteriores.
+        cantidadFilas = fila + 1;
+    }
+
+    /**
+     * @return número de pagos registrados
+     */
+    public int tamano() {
+        return cantidadFilas;
+    }
+
+    /**
+     * Consulta paginada del historial, del pago más reciente al más antiguo.
+     *
+     * @param nickname  filtra por usuario (opcional)
+     * @param idCancion filtra por canción (opcional)
+     * @param estado    filtra por estado (opcional)
+     * @param desde     marca de tiempo mínima, inclusiva (opcional)
+     * @param hasta     marca de tiempo máxima, exclusiva (opcional)
+     * @param pagina    número de página, desde 0
+     * @param tamano    pagos por página
+     * @return la página solicitada y el total de pagos que cumplen los filtros
+     */
+    public PaginaHistorialPagos consultar(String nickname, String idCancion, EstadoPago estado,
+                                          Long desde, Long hasta, int pagina, int tamano) {
+        Vista vista = new Vista(nickname, idCancion, desde, hasta);
+        List<RegistroPago> registros = new ArrayList<>(Math.min(tamano, 256));
+        long omitir = (long) pagina * tamano;
+        if (estado == null && vista.sinFiltroAdicional()) {
+            // Todas las posiciones de la vista cumplen: se salta directamente a la página.
+            int total = vista.fin - vista.inicio;
+            for (long i = vista.fin - 1 - omitir; i >= vista.inicio && registros.size() < tamano; i--) {
+                registros.add(vista.registro(vista.fila((int) i)));
+            }
+            return new PaginaHistorialPagos(pagina, tamano, total, registros);
+        }
+        int total = 0;
+        for (int i = vista.fin - 1; i >= vista.inicio; i--) {
+            int fila = vista.fila(i);
+            if (!vista.cumple(fila, estado)) {
+                continue;
+            }
+            if (total >= omitir && registros.size() < tamano) {
+                registros.add(vista.registro(fila));
+            }
+            total++;
+        }
+        return new PaginaHistorialPagos(pagina, tamano, total, registros);
+    }
+
+    /**
+     * Agrega los pagos que cumplen los filtros por canción, usuario o estado.
+     *
+     * @param agrupacion criterio de agrupación
+     * @param nickname   filtra por usuario (opcional)
+     * @param idCancion  filtra por canción (opcional)
+     * @param desde      marca de tiempo mínima, inclusiva (opcional)
+     * @param hasta      marca de tiempo máxima, exclusiva (opcional)
+     * @return un resumen por grupo, ordenado de mayor a menor total aceptado
+     */
+    public List<ResumenGasto> resumir(Agrupacion agrupacion, String nickname, String idCancion,
+                                      Long desde, Long hasta) {
+        Vista vista = new Vista(nickname, idCancion, desde, hasta);
+        int grupos = switch (agrupacion) {
+            case CANCION -> canciones.cantidad();
+            case USUARIO -> usuarios.cantidad();
+            case ESTADO -> ESTADOS.length;
+        };
+        long[] pagos = new long[grupos];
+        long[] aceptados = new long[grupos];
+        long[] totales = new long[grupos];
+        for (int i = vista.inicio; i < vista.fin; i++) {
+            int fila = vista.fila(i);
+            if (!vista.cumple(fila, null)) {
+                continue;
+            }
+            Segmento segmento = vista.segmentos[fila >>> BITS_SEGMENTO];
+            int posicion = fila & MASCARA_SEGMENTO;
+            int grupo = switch (agrupacion) {
+                case CANCION -> segmento.canciones[posicion];
+                case USUARIO -> segmento.usuarios[posicion];
+                case ESTADO -> segmento.estados[posicion];
+            };
+            if (grupo >= grupos) {
+                // Entrada de diccionario creada después de calcular el número de grupos.
+                grupos = grupo + 1;
+                pagos = Arrays.copyOf(pagos, grupos);
+                aceptados = Arrays.copyOf(aceptados, grupos);
+                totales = Arrays.copyOf(totales, grupos);
+            }
+            pagos[grupo]++;
+            if (segmento.estados[posicion] == EstadoPago.ACEPTADO.ordinal()) {
+                aceptados[grupo]++;
+                totales[grupo] += segmento.valores[posicion];
+            }
+        }
+
+        List<ResumenGasto> resumen = new ArrayList<>();
+        for (int grupo = 0; grupo < grupos; grupo++) {
+            if (pagos[grupo] == 0) {
+                continue;
+            }
+            String clave = switch (agrupacion) {
+                case CANCION -> canciones.porId(grupo).nombre;
+                case USUARIO -> usuarios.porId(grupo).nombre;
+                case ESTADO -> ESTADOS[grupo].name();
+            };
+            resumen.add(new ResumenGasto(clave, pagos[grupo], aceptados[grupo], totales[grupo]));
+        }
+        resumen.sort((a, b) -> Long.compare(b.getTotalAceptado(), a.getTotalAceptado()));
+        return resumen;
+    }
+
+    /**
+     * Criterios de agrupación de {@link #resumir}.
+     */
+    public enum Agrupacion {
+        CANCION, USUARIO, ESTADO
+    }
+
+    /**
+     * Instantánea de las filas candidatas de una consulta: todo el historial o el índice más
+     * selectivo, acotado al rango de tiempo por búsqueda binaria. Las posiciones
+     * {@code [inicio, fin)} se traducen a filas con {@link #fila(int)}.
+     */
+    private final class Vista {
+        private final Segmento[] segmentos;
+        private final int[] indice;
+        private final int filtroUsuario;
+        private final int filtroCancion;
+        private int inicio;
+        private int fin;
+
+        private Vista(String nickname, String idCancion, Long desde, Long hasta) {
+            // Se lee primero el contador publicado; todo lo que está por debajo ya es visible.
+            int filas = cantidadFilas;
+            this.segmentos = HistorialPagosRepository.this.segmentos;
+
+            Entrada usuario = usuarios.buscar(nickname);
+            Entrada cancion = canciones.buscar(idCancion);
+            boolean sinResultados = (nickname != null && usuario == null) || (idCancion != null && cancion == null);
+
+            Entrada elegida = null;
+            int cantidadElegida = filas;
+            for (Entrada entrada : new Entrada[]{usuario, cancion}) {
+                if (entrada != null) {
+                    int cantidad = entrada.cantidad;
+                    if (elegida == null || cantidad < cantidadElegida) {
+                        elegida = entrada;
+                        cantidadElegida = cantidad;
+                    }
+                }
+            }
+            int[] filasIndice = elegida != null ? elegida.filas : null;
+            if (filasIndice != null) {
+                // El índice puede haber crecido tras leer el contador: se descartan las filas no publicadas.
+                while (cantidadElegida > 0 && filasIndice[cantidadElegida - 1] >= filas) {
+                    cantidadElegida--;
+                }
+            }
+            this.indice = filasIndice;
+            this.filtroUsuario = usuario != null && usuario != elegida ? usuario.id : -1;
+            this.filtroCancion = cancion != null && cancion != elegida ? cancion.id : -1;
+            this.inicio = 0;
+            this.fin = sinResultados ? 0 : cantidadElegida;
+            if (desde != null) {
+                inicio = primeraPosicionDesde(desde);
+            }
+            if (hasta != null) {
+                fin = primeraPosicionDesde(hasta);
+            }
+            if (inicio > fin) {
+                inicio = fin;
+            }
+        }
+
+        private int fila(int posicion) {
+            return indice != null ? indice[posicion] : posicion;
+        }
+
+        private boolean sinFiltroAdicional() {
+            return filtroUsuario < 0 && filtroCancion < 0;
+        }
+
+        private boolean cumple(int fila, EstadoPago estado) {
+            Segmento segmento = segmentos[fila >>> BITS_SEGMENTO];
+            int posicion = fila & MASCARA_SEGMENTO;
+            return (filtroUsuario < 0 || segmento.usuarios[posicion] == filtroUsuario)
+                    && (filtroCancion < 0 || segmento.canciones[posicion] == filtroCancion)
+                    && (estado == null || segmento.estados[posicion] == estado.ordinal());
+        }
+
+        private RegistroPago registro(int fila) {
+            Segmento segmento = segmentos[fila >>> BITS_SEGMENTO];
+            int posicion = fila & MASCARA_SEGMENTO;
+            return new RegistroPago(
+                    segmento.marcasTiempo[posicion],
+                    usuarios.porId(segmento.usuarios[posicion]).nombre,
+                    canciones.porId(segmento.canciones[posicion]).nombre,
+                    segmento.valores[posicion],
+                    ESTADOS[segmento.estados[posicion]]);
+        }
+
+        /**
+         * @return la primera posición dentro de {@code [0, fin)} cuya marca de tiempo es {@code >= marcaTiempo}
+         */
+        private int primeraPosicionDesde(long marcaTiempo) {
+            int bajo = 0;
+            int alto = fin;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                int fila = fila(medio);
+                if (segmentos[fila >>> BITS_SEGMENTO].marcasTiempo[fila & MASCARA_SEGMENTO] < marcaTiempo) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package co.edu.unicauca.servidorPagos.Repository;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Repositorio en memoria para almacenar información relacionada
@@ -13,9 +19,23 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>Responsabilidades principales:</p>
  * <ul>
  *   <li>Registrar y consultar tokens ya utilizados.</li>
- *   <li>Almacenar y consultar el total acumulado por usuario.</li>
+ *   <li>Almacenar y consultar el total que cuenta contra el límite de cada usuario.</li>
+ *   <li>Llevar el presupuesto reservado por los arrendamientos vigentes de cada usuario.</li>
  * </ul>
  *
+ * <p>Las operaciones que leen y modifican el saldo de un usuario (total y reservado) se
+ * hacen dentro de {@code synchronized (bloqueoUsuario(nickname))}, para que la verificación
+ * del límite y la actualización sean atómicas.</p>
+ *
+ * <p>Con {@code pagos.limite.ventana-segundos} en 0 el total es de por vida y el límite no se
+ * reinicia. Con un valor mayor solo cuenta lo gastado dentro de esa ventana deslizante (por
+ * ejemplo 86400 para un límite diario), dividida en {@code pagos.limite.cubetas-por-ventana}
+ * cubetas que vencen con una rueda de temporización (ver {@link TotalesVentanaDeslizante}).</p>
+ *
+ * <p>Los totales de por vida se guardan en el heap o, con {@code pagos.totales.almacen=mapeado},
+ * en un archivo mapeado en memoria fuera del heap que sobrevive a reinicios y que otro proceso
+ * local puede leer (ver {@link TotalesMapeados}).</p>
+ *
  * <p>Internamente utiliza estructuras {@link ConcurrentHashMap} y
  * conjuntos concurrentes, adecuadas para un entorno multi-hilo
  * como el que maneja Spring Boot.</p>
@@ -29,11 +49,70 @@ public class PagosRepository {
     private final Set<String> tokensUsados = ConcurrentHashMap.newKeySet();
 
     /**
-     * Mapa que almacena el total acumulado por usuario.
-     * Clave: nickname del usuario.
-     * Valor: total en pesos de sus reacciones.
+     * Total en pesos de las reacciones de cada usuario que cuenta contra su límite.
+     */
+    private final TotalesUsuarios totales;
+
+    /**
+     * Presupuesto reservado por arrendamientos vigentes, aún no gastado ni devuelto.
+     * Clave: nickname del usuario. Valor: monto en pesos.
+     */
+    private final Map<String, Integer> reservadoPorUsuario = new ConcurrentHashMap<>();
+
+    /**
+     * Bloqueos por franjas de usuarios: acotan la memoria a un arreglo fijo en lugar de
+     * un objeto por nickname.
+     */
+    private final Object[] bloqueos = new Object[64];
+
+    /**
+     * Crea el repositorio con totales de por vida.
+     */
+    public PagosRepository() {
+        this(0, 1, "memoria", null, 0);
+    }
+
+    /**
+     * @param ventanaSegundos   ventana del límite de gasto; 0 para un total de por vida
+     * @param cubetasPorVentana en cuántas cubetas se divide la ventana
+     * @param almacen           dónde guardar los totales de por vida: {@code memoria} o {@code mapeado}
+     * @param archivo           archivo del almacén mapeado
+     * @param capacidad         usuarios que caben en el almacén mapeado, potencia de 2
      */
-    private final Map<String, Integer> totalPorUsuario = new ConcurrentHashMap<>();
+    @Autowired
+    public PagosRepository(@Value("${pagos.limite.ventana-segundos:0}") long ventanaSegundos,
+                           @Value("${pagos.limite.cubetas-por-ventana:24}") int cubetasPorVentana,
+                           @Value("${pagos.totales.almacen:memoria}") String almacen,
+                           @Value("${pagos.totales.archivo:totales-pagos.dat}") String archivo,
+                           @Value("${pagos.totales.capacidad:4194304}") int capacidad) {
+        for (int i = 0; i < bloqueos.length; i++) {
+            bloqueos[i] = new Object();
+        }
+        boolean mapeado = "mapeado".equalsIgnoreCase(almacen);
+        if (!mapeado && !"memoria".equalsIgnoreCase(almacen)) {
+            throw new IllegalArgumentException("pagos.totales.almacen debe ser memoria o mapeado: " + almacen);
+        }
+        if (ventanaSegundos > 0) {
+            if (mapeado) {
+                throw new IllegalArgumentException("El almacén mapeado solo guarda totales de por vida; "
+                        + "use pagos.limite.ventana-segundos=0");
+            }
+            this.totales = new TotalesVentanaDeslizante(TimeUnit.SECONDS.toMillis(ventanaSegundos), cubetasPorVentana,
+                    System::currentTimeMillis, this::bloqueoUsuario);
+        } else {
+            this.totales = mapeado ? TotalesMapeados.abrir(Path.of(archivo), capacidad) : new TotalesAcumulados();
+        }
+    }
+
+    /**
+     * Devuelve el bloqueo que protege el saldo de un usuario.
+     *
+     * @param nickname nickname del usuario
+     * @return objeto sobre el que sincronizar
+     */
+    public Object bloqueoUsuario(String nickname) {
+        return bloqueos[(nickname == null ? 0 : nickname.hashCode()) & (bloqueos.length - 1)];
+    }
 
     /**
      * Marca un token como utilizado, para evitar que sea usado
@@ -56,22 +135,79 @@ public class PagosRepository {
     }
 
     /**
-     * Obtiene el total acumulado actual para un usuario.
+     * Obtiene el total acumulado actual para un usuario, dentro de la ventana si la hay.
      *
      * @param nickname nickname del usuario
      * @return total acumulado o 0 si no tiene registros previos
      */
     public int obtenerTotalUsuario(String nickname) {
-        return totalPorUsuario.getOrDefault(nickname, 0);
+        return totales.obtener(nickname);
     }
 
     /**
-     * Actualiza el total acumulado de un usuario con un nuevo valor.
+     * Actualiza el total acumulado de un usuario con un nuevo valor. Debe llamarse con
+     * {@link #bloqueoUsuario} tomado.
      *
      * @param nickname    nickname del usuario
      * @param nuevoTotal  nuevo total acumulado a registrar
      */
     public void actualizarTotalUsuario(String nickname, int nuevoTotal) {
-        totalPorUsuario.put(nickname, nuevoTotal);
+        totales.actualizar(nickname, nuevoTotal);
+    }
+
+    /**
+     * Deja de contar el gasto que salió de la ventana del límite, si la hay.
+     */
+    @Scheduled(fixedDelayString = "${pagos.limite.periodo-vencimiento-ms:1000}")
+    public void vencerGastos() {
+        totales.vencer();
+    }
+
+    @PreDestroy
+    void cerrar() {
+        totales.cerrar();
+    }
+
+    /**
+     * Copia los tokens usados, para enviarlos al respaldo. La copia puede incluir o no los
+     * tokens que se marcan mientras se hace.
+     *
+     * @return una copia del conjunto de tokens usados
+     */
+    public Set<String> copiarTokensUsados() {
+        return Set.copyOf(tokensUsados);
+    }
+
+    /**
+     * Copia los totales acumulados, para enviarlos al respaldo, con la misma salvedad de
+     * {@link #copiarTokensUsados()}.
+     *
+     * @return una copia de los totales por usuario
+     */
+    public Map<String, Integer> copiarTotales() {
+        return totales.copiar();
+    }
+
+    /**
+     * Obtiene el presupuesto reservado por los arrendamientos vigentes de un usuario.
+     *
+     * @param nickname nickname del usuario
+     * @return monto reservado o 0 si no tiene arrendamientos
+     */
+    public int obtenerReservadoUsuario(String nickname) {
+        return reservadoPorUsuario.getOrDefault(nickname, 0);
+    }
+
+    /**
+     * Suma (o resta, con un valor negativo) un monto al reservado de un usuario.
+     *
+     * @param nickname nickname del usuario
+     * @param delta    monto a sumar
+     */
+    public void ajustarReservadoUsuario(String nickname, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        reservadoPorUsuario.merge(nickname, delta, (actual, cambio) -> actual + cambio == 0 ? null : actual + cambio);
     }
 }
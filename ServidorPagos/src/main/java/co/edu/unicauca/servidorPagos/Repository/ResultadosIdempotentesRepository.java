@@ -0,0 +1,238 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Repositorio en memoria de resultados de pagos indexados por clave de idempotencia.
+ *
+ * <p>Permite que un intento repetido (por ejemplo, un reintento del servidor de
+ * reacciones tras un timeout cuya petición original sí se procesó) reciba el mismo
+ * {@link PagoResponse} sin volver a ejecutar las reglas de negocio ni cobrar dos veces.</p>
+ *
+ * <p>Características:</p>
+ * <ul>
+ *   <li>Acotado: guarda como máximo {@code capacidad} resultados; al superarla
+ *       se eliminan primero los más antiguos.</li>
+ *   <li>Con expiración: cada resultado vive {@code ttl} desde que se calculó.</li>
+ *   <li>Si llegan dos peticiones con la misma clave a la vez, la segunda espera
+ *       el resultado de la primera en lugar de procesarse en paralelo.</li>
+ * </ul>
+ */
+@Repository
+public class ResultadosIdempotentesRepository {
+
+    /**
+     * Resultado (posiblemente aún en cálculo) asociado a una clave.
+     */
+    private static final class Entrada {
+        private final String clave;
+        private final CompletableFuture<PagoResponse> resultado = new CompletableFuture<>();
+        private volatile long expiraEnNanos = Long.MAX_VALUE;
+
+        private Entrada(String clave) {
+            this.clave = clave;
+        }
+
+        private boolean expirada(long ahora) {
+            return ahora - expiraEnNanos >= 0;
+        }
+    }
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    /**
+     * Entradas completadas en el orden en que se almacenaron; como el ttl es
+     * fijo, también es el orden de expiración.
+     */
+    private final Queue<Entrada> ordenAlmacenamiento = new ConcurrentLinkedQueue<>();
+
+    private final int capacidad;
+    private final long ttlNanos;
+
+    public ResultadosIdempotentesRepository(
+            @Value("${pagos.idempotencia.capacidad:10000}") int capacidad,
+            @Value("${pagos.idempotencia.ttl-segundos:600}") long ttlSegundos) {
+        this.capacidad = capacidad;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSegundos);
+    }
+
+    /**
+     * Devuelve el resultado almacenado para la clave o, si no existe, lo calcula una sola vez.
+     *
+     * @param clave       clave de idempotencia enviada por el cliente
+     * @param calculo     procesamiento real del pago
+     * @param almacenable indica si un resultado debe recordarse (los errores transitorios no)
+     * @return el resultado almacenado o el recién calculado
+     */
+    public PagoResponse obtenerOCalcular(String clave, Supplier<PagoResponse> calculo,
+                                         Predicate<PagoResponse> almacenable) {
+        while (true) {
+            Entrada nueva = new Entrada(clave);
+            Entrada existente = entradas.putIfAbsent(clave, nueva);
+            if (existente != null) {
+                if (!existente.expirada(System.nanoTime())) {
+                    System.out.println("[SERVIDOR PAGOS] Repetición idempotente para clave=" + clave
+                            + ". Se devuelve el resultado previo.");
+                    return existente.resultado.join();
+                }
+                entradas.remove(clave, existente);
+                continue;
+            }
+
+            PagoResponse respuesta;
+            try {
+                respuesta = calculo.get();
+            } catch (RuntimeException e) {
+                entradas.remove(clave, nueva);
+                nueva.resultado.completeExceptionally(e);
+                throw e;
+            }
+
+            completar(nueva, respuesta, almacenable);
+            return respuesta;
+        }
+    }
+
+    /**
+     * Devuelve el resultado ya almacenado para la clave, sin esperar a uno que aún esté en cálculo.
+     *
+     * @param clave clave de idempotencia enviada por el cliente
+     * @return el resultado vigente, o {@code null} si la clave no tiene uno terminado
+     */
+    public PagoResponse obtenerTerminado(String clave) {
+        Entrada existente = entradas.get(clave);
+        if (existente == null || existente.expirada(System.nanoTime()) || !existente.resultado.isDone()
+                || existente.resultado.isCompletedExceptionally()) {
+            return null;
+        }
+        System.out.println("[SERVIDOR PAGOS] Repetición idempotente para clave=" + clave
+                + ". Se devuelve el resultado previo.");
+        return existente.resultado.getNow(null);
+    }
+
+    /**
+     * Variante no bloqueante de {@link #obtenerOCalcular}, para la variante reactiva: si la clave ya
+     * está en cálculo, el resultado llega cuando termine el primero, sin ocupar un hilo esperándolo.
+     *
+     * @param clave       clave de idempotencia enviada por el cliente
+     * @param calculo     procesamiento real del pago, que puede terminar más tarde
+     * @param almacenable indica si un resultado debe recordarse (los errores transitorios no)
+     * @return el resultado almacenado o el del cálculo; cancelarlo no afecta a los demás intentos
+     */
+    public CompletableFuture<PagoResponse> obtenerOCalcularAsincrono(String clave,
+                                                                     Supplier<CompletableFuture<PagoResponse>> calculo,
+                                                                     Predicate<PagoResponse> almacenable) {
+        while (true) {
+            Entrada nueva = new Entrada(clave);
+            Entrada existente = entradas.putIfAbsent(clave, nueva);
+            if (existente != null) {
+                if (!existente.expirada(System.nanoTime())) {
+                    System.out.println("[SERVIDOR PAGOS] Repetición idempotente para clave=" + clave
+                            + ". Se devuelve el resultado previo.");
+                    return existente.resultado.copy();
+                }
+                entradas.remove(clave, existente);
+                continue;
+            }
+
+            CompletableFuture<PagoResponse> enCalculo;
+            try {
+                enCalculo = calculo.get();
+            } catch (RuntimeException e) {
+                enCalculo = CompletableFuture.failedFuture(e);
+            }
+            enCalculo.whenComplete((respuesta, error) -> {
+                if (error != null) {
+                    entradas.remove(clave, nueva);
+                    nueva.resultado.completeExceptionally(error);
+                } else {
+                    completar(nueva, respuesta, almacenable);
+                }
+            });
+            return nueva.resultado.copy();
+        }
+    }
+
+    /**
+     * Almacena un resultado ya calculado en otra instancia (por ejemplo, el pago replicado desde el
+     * primario), salvo que la clave ya tenga un resultado.
+     *
+     * @param clave     clave de idempotencia
+     * @param respuesta resultado del pago
+     */
+    public void almacenar(String clave, PagoResponse respuesta) {
+        Entrada nueva = new Entrada(clave);
+        if (entradas.putIfAbsent(clave, nueva) != null) {
+            return;
+        }
+        nueva.expiraEnNanos = System.nanoTime() + ttlNanos;
+        ordenAlmacenamiento.add(nueva);
+        nueva.resultado.complete(respuesta);
+        recortar();
+    }
+
+    /**
+     * Copia los resultados vigentes ya calculados, para enviarlos al respaldo; las claves en cálculo
+     * no se incluyen.
+     *
+     * @return los resultados por clave, del más antiguo al más reciente
+     */
+    public Map<String, PagoResponse> copiarTerminados() {
+        long ahora = System.nanoTime();
+        Map<String, PagoResponse> copia = new LinkedHashMap<>();
+        for (Entrada entrada : ordenAlmacenamiento) {
+            if (entradas.get(entrada.clave) == entrada && !entrada.expirada(ahora) && entrada.resultado.isDone()
+                    && !entrada.resultado.isCompletedExceptionally()) {
+                copia.put(entrada.clave, entrada.resultado.getNow(null));
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * @return número de claves almacenadas (incluye las que están en cálculo)
+     */
+    public int tamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Publica el resultado de una entrada recién calculada y lo recuerda si es almacenable.
+     */
+    private void completar(Entrada nueva, PagoResponse respuesta, Predicate<PagoResponse> almacenable) {
+        if (almacenable.test(respuesta)) {
+            nueva.expiraEnNanos = System.nanoTime() + ttlNanos;
+            ordenAlmacenamiento.add(nueva);
+            recortar();
+        } else {
+            entradas.remove(nueva.clave, nueva);
+        }
+        nueva.resultado.complete(respuesta);
+    }
+
+    /**
+     * Elimina las entradas expiradas y, si se supera la capacidad, las más antiguas.
+     */
+    private void recortar() {
+        long ahora = System.nanoTime();
+        Entrada masAntigua;
+        while ((masAntigua = ordenAlmacenamiento.peek()) != null
+                && (masAntigua.expirada(ahora) || entradas.size() > capacidad)) {
+            if (ordenAlmacenamiento.remove(masAntigua)) {
+                entradas.remove(masAntigua.clave, masAntigua);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+/**
+ * Rueda de temporización jerárquica (Varghese y Lauck) para vencer muchos nodos sin recorrerlos
+ * todos en cada avance.
+ *
+ * <p>El tiempo se mide en ticks enteros. Hay {@value #NIVELES} niveles de {@value #RANURAS} ranuras:
+ * el nivel 0 tiene una ranura por tick y cada nivel superior cubre {@value #RANURAS} veces más. Un
+ * nodo se guarda en el nivel más bajo que alcanza su vencimiento y, cuando el tiempo llega a su
+ * ranura, baja de nivel hasta vencer en el nivel 0. Agregar es O(1), y vencer una ranura también:
+ * su lista se desengancha completa sin recorrerla.</p>
+ *
+ * <p>Las listas son intrusivas (el enlace vive en el nodo), así que la rueda no reserva memoria al
+ * agregar ni al vencer. No es segura entre hilos: quien la usa la sincroniza.</p>
+ *
+ * @param <N> tipo de los nodos
+ */
+final class RuedaTemporizacion<N extends RuedaTemporizacion.Nodo<N>> {
+
+    static final int BITS = 6;
+    static final int RANURAS = 1 << BITS;
+    static final int NIVELES = 4;
+    private static final int MASCARA = RANURAS - 1;
+
+    /**
+     * Nodo de la rueda, con su vencimiento y el enlace a su siguiente en la misma lista.
+     *
+     * @param <N> tipo concreto del nodo
+     */
+    abstract static class Nodo<N> {
+        long vence;
+        N siguiente;
+    }
+
+    private final Object[][] primeros = new Object[NIVELES][RANURAS];
+    private final Object[][] ultimos = new Object[NIVELES][RANURAS];
+
+    /**
+     * Último tick procesado.
+     */
+    private long tick;
+
+    /**
+     * @param tickInicial tick actual al crear la rueda
+     */
+    RuedaTemporizacion(long tickInicial) {
+        this.tick = tickInicial;
+    }
+
+    /**
+     * Agrega un nodo que vence al llegar al tick indicado. Un vencimiento ya pasado vence en el
+     * próximo avance.
+     *
+     * @param nodo  nodo que no está en la rueda
+     * @param vence tick de vencimiento
+     */
+    void agregar(N nodo, long vence) {
+        nodo.vence = Math.max(vence, tick + 1);
+        insertar(nodo);
+    }
+
+    /**
+     * Avanza la rueda tick a tick hasta el indicado.
+     *
+     * @param destino tick hasta el que se avanza
+     * @return los nodos vencidos, enlazados por {@link Nodo#siguiente}, o {@code null} si no hay
+     */
+    N avanzar(long destino) {
+        N primerVencido = null;
+        N ultimoVencido = null;
+        while (tick < destino) {
+            tick++;
+            // Primero bajan los niveles superiores cuya ranura empieza en este tick.
+            int nivelSuperior = 0;
+            while (nivelSuperior + 1 < NIVELES && (tick & ((1L << (BITS * (nivelSuperior + 1))) - 1)) == 0) {
+                nivelSuperior++;
+            }
+            for (int nivel = nivelSuperior; nivel > 0; nivel--) {
+                N nodo = desenganchar(nivel, (int) ((tick >>> (BITS * nivel)) & MASCARA));
+                while (nodo != null) {
+                    N siguiente = nodo.siguiente;
+                    nodo.siguiente = null;
+                    insertar(nodo);
+                    nodo = siguiente;
+                }
+            }
+            int ranura = (int) (tick & MASCARA);
+            @SuppressWarnings("unchecked")
+            N ultimo = (N) ultimos[0][ranura];
+            N vencidos = desenganchar(0, ranura);
+            if (vencidos == null) {
+                continue;
+            }
+            if (primerVencido == null) {
+                primerVencido = vencidos;
+            } else {
+                ultimoVencido.siguiente = vencidos;
+            }
+            ultimoVencido = ultimo;
+        }
+        return primerVencido;
+    }
+
+    /**
+     * @return último tick procesado
+     */
+    long getTick() {
+        return tick;
+    }
+
+    private void insertar(N nodo) {
+        long restante = nodo.vence - tick;
+        int nivel = 0;
+        while (nivel + 1 < NIVELES && restante >= 1L << (BITS * (nivel + 1))) {
+            nivel++;
+        }
+        int ranura = (int) ((nodo.vence >>> (BITS * nivel)) & MASCARA);
+        @SuppressWarnings("unchecked")
+        N ultimo = (N) ultimos[nivel][ranura];
+        if (ultimo == null) {
+            primeros[nivel][ranura] = nodo;
+        } else {
+            ultimo.siguiente = nodo;
+        }
+        ultimos[nivel][ranura] = nodo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private N desenganchar(int nivel, int ranura) {
+        N primero = (N) primeros[nivel][ranura];
+        primeros[nivel][ranura] = null;
+        ultimos[nivel][ranura] = null;
+        return primero;
+    }
+}
@@ -0,0 +1,30 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gasto acumulado de por vida: el límite nunca se reinicia.
+ */
+final class TotalesAcumulados implements TotalesUsuarios {
+
+    /**
+     * Clave: nickname del usuario. Valor: total en pesos de sus reacciones.
+     */
+    private final Map<String, Integer> totalPorUsuario = new ConcurrentHashMap<>();
+
+    @Override
+    public int obtener(String nickname) {
+        return totalPorUsuario.getOrDefault(nickname, 0);
+    }
+
+    @Override
+    public void actualizar(String nickname, int nuevoTotal) {
+        totalPorUsuario.put(nickname, nuevoTotal);
+    }
+
+    @Override
+    public Map<String, Integer> copiar() {
+        return Map.copyOf(totalPorUsuario);
+    }
+}
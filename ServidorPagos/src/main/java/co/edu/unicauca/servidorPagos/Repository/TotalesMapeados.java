@@ -0,0 +1,419 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Totales de por vida guardados fuera del heap, en un archivo mapeado en memoria.
+ *
+ * <p>El archivo es una tabla hash de direccionamiento abierto (sondeo lineal) con registros de
+ * {@value #TAMANO_REGISTRO} bytes: encabezado de la clave (longitud y marcas), total y nickname en UTF-8. No hay
+ * objetos por usuario ni enteros en caja, así que millones de usuarios no agregan trabajo al
+ * recolector de basura. Los usuarios nunca se borran, por lo que la tabla no necesita lápidas.</p>
+ *
+ * <p>Un registro libre se reclama con una operación CAS sobre su encabezado (0 → reservado), se
+ * escribe el nickname y se publica el encabezado definitivo con escritura volátil; los lectores
+ * que encuentran un registro reservado esperan a que se publique. El total se lee y escribe con
+ * acceso volátil, así que otro proceso local puede abrir el mismo archivo con
+ * {@link #abrirLectura(Path)} y leer los totales mientras el servidor los actualiza. Como el
+ * archivo vive en la caché de páginas del sistema operativo, los totales sobreviven a reinicios
+ * del proceso; {@link #cerrar()} los fuerza a disco.</p>
+ *
+ * <p>Los nicknames de más de {@value #CLAVE_MAXIMA} bytes se guardan como sus primeros
+ * {@value #PREFIJO_RESUMEN} bytes más un resumen MD5 del nickname completo. Como el resumen no
+ * permite reconstruirlos, la primera vez que aparecen se agregan completos a un archivo vecino
+ * ({@code <archivo>.largos}) antes de reclamar su registro; así {@link #copiar()} los incluye en la
+ * copia para el respaldo. Solo estos nicknames, que deberían ser raros, se guardan en el heap.</p>
+ */
+final class TotalesMapeados implements TotalesUsuarios {
+
+    static final int TAMANO_REGISTRO = 64;
+    static final int CLAVE_MAXIMA = TAMANO_REGISTRO - 8;
+    static final int PREFIJO_RESUMEN = CLAVE_MAXIMA - 16;
+
+    private static final int MAGICO = 0x50475454;
+    private static final int VERSION = 2;
+    private static final int TAMANO_CABECERA = 64;
+
+    private static final int LIBRE = 0;
+    private static final int RESERVADO = -1;
+
+    /**
+     * Bits del encabezado con la longitud en bytes de la clave.
+     */
+    private static final int LONGITUD = 0xFF;
+
+    /**
+     * Marca, en el encabezado, las claves guardadas como prefijo y resumen.
+     */
+    private static final int CON_RESUMEN = 0x100;
+
+    /**
+     * Marca los registros publicados, para que el nickname vacío (longitud 0) no se confunda con
+     * un registro {@link #LIBRE}.
+     */
+    private static final int OCUPADO = 0x200;
+
+    private static final VarHandle ENTEROS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle LARGOS_CLAVE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final ThreadLocal<byte[]> CLAVES = ThreadLocal.withInitial(() -> new byte[CLAVE_MAXIMA]);
+
+    private final MappedByteBuffer buffer;
+    private final int capacidad;
+    private final boolean soloLectura;
+
+    /**
+     * Archivo con los nicknames guardados como resumen, y esos mismos nicknames en memoria.
+     */
+    private final Path archivoLargos;
+    private final Set<String> largos;
+
+    private TotalesMapeados(MappedByteBuffer buffer, int capacidad, boolean soloLectura, Path archivoLargos) {
+        this.buffer = buffer;
+        this.capacidad = capacidad;
+        this.soloLectura = soloLectura;
+        this.archivoLargos = archivoLargos;
+        this.largos = leerLargos(archivoLargos, !soloLectura);
+    }
+
+    /**
+     * Abre el archivo para leer y escribir, creándolo si no existe.
+     *
+     * @param archivo   ruta del archivo
+     * @param capacidad registros de la tabla, potencia de 2; debe coincidir con la de un archivo existente
+     * @return el almacén
+     */
+    static TotalesMapeados abrir(Path archivo, int capacidad) {
+        if (Integer.bitCount(capacidad) != 1 || capacidad > (Integer.MAX_VALUE - TAMANO_CABECERA) / TAMANO_REGISTRO) {
+            throw new IllegalArgumentException("Capacidad de totales no válida: " + capacidad);
+        }
+        long tamano = TAMANO_CABECERA + (long) capacidad * TAMANO_REGISTRO;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean nuevo = canal.size() == 0;
+            if (!nuevo && canal.size() != tamano) {
+                throw new IllegalStateException("El archivo " + archivo + " no tiene capacidad para " + capacidad + " registros");
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+            buffer.order(ByteOrder.nativeOrder());
+            if (nuevo) {
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacidad);
+                buffer.putInt(12, TAMANO_REGISTRO);
+                ENTEROS.setVolatile(buffer, 0, MAGICO);
+            } else {
+                validarCabecera(buffer, archivo);
+                liberarReservados(buffer, capacidad);
+            }
+            System.out.println("[SERVIDOR PAGOS] Totales " + (nuevo ? "creados" : "recuperados") + " en " + archivo);
+            return new TotalesMapeados(buffer, capacidad, false, archivoLargos(archivo));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear " + archivo, e);
+        }
+    }
+
+    /**
+     * Abre un archivo existente solo para leer, por ejemplo desde otro proceso.
+     *
+     * @param archivo ruta del archivo
+     * @return el almacén; {@link #actualizar} lanza {@link UnsupportedOperationException}
+     */
+    static TotalesMapeados abrirLectura(Path archivo) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            buffer.order(ByteOrder.nativeOrder());
+            validarCabecera(buffer, archivo);
+            return new TotalesMapeados(buffer, buffer.getInt(8), true, archivoLargos(archivo));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear " + archivo, e);
+        }
+    }
+
+    private static void validarCabecera(MappedByteBuffer buffer, Path archivo) {
+        if ((int) ENTEROS.getVolatile(buffer, 0) != MAGICO || buffer.getInt(4) != VERSION
+                || buffer.getInt(12) != TAMANO_REGISTRO
+                || buffer.capacity() != TAMANO_CABECERA + (long) buffer.getInt(8) * TAMANO_REGISTRO) {
+            throw new IllegalStateException("El archivo " + archivo + " no es un almacén de totales válido");
+        }
+    }
+
+    private static Path archivoLargos(Path archivo) {
+        return archivo.resolveSibling(archivo.getFileName() + ".largos");
+    }
+
+    /**
+     * Lee los nicknames largos registrados, cada uno como su longitud en bytes y su UTF-8. Un
+     * registro cortado al final, si el proceso terminó mientras lo escribía, se ignora: su
+     * registro en la tabla todavía no se había reclamado.
+     *
+     * @param recortar si quitar del archivo el registro cortado, para que los siguientes se lean
+     */
+    private static Set<String> leerLargos(Path archivoLargos, boolean recortar) {
+        Set<String> largos = ConcurrentHashMap.newKeySet();
+        if (!Files.exists(archivoLargos)) {
+            return largos;
+        }
+        try {
+            ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(archivoLargos));
+            int completos = 0;
+            while (contenido.remaining() >= Integer.BYTES) {
+                int longitud = contenido.getInt();
+                if (longitud < 0 || longitud > contenido.remaining()) {
+                    break;
+                }
+                byte[] nickname = new byte[longitud];
+                contenido.get(nickname);
+                largos.add(new String(nickname, StandardCharsets.UTF_8));
+                completos = contenido.position();
+            }
+            if (recortar && completos < contenido.limit()) {
+                try (FileChannel canal = FileChannel.open(archivoLargos, StandardOpenOption.WRITE)) {
+                    canal.truncate(completos);
+                }
+            }
+            return largos;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + archivoLargos, e);
+        }
+    }
+
+    /**
+     * Agrega un nickname largo al archivo vecino si aún no está, forzándolo a disco.
+     */
+    private void registrarLargo(String nickname) {
+        if (largos.contains(nickname)) {
+            return;
+        }
+        synchronized (largos) {
+            if (largos.contains(nickname)) {
+                return;
+            }
+            byte[] completo = nickname.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES + completo.length).putInt(completo.length).put(completo).flip();
+            try (FileChannel canal = FileChannel.open(archivoLargos, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bytes.hasRemaining()) {
+                    canal.write(bytes);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo registrar un nickname largo en " + archivoLargos, e);
+            }
+            largos.add(nickname);
+        }
+    }
+
+    /**
+     * Libera los registros que quedaron reservados sin publicar si el proceso anterior terminó a
+     * mitad de una inserción. Ninguna clave pudo quedar después de ellos en su secuencia de sondeo,
+     * porque quien los encontraba esperaba a que se publicaran.
+     */
+    private static void liberarReservados(MappedByteBuffer buffer, int capacidad) {
+        for (int i = 0; i < capacidad; i++) {
+            int registro = TAMANO_CABECERA + i * TAMANO_REGISTRO;
+            if ((int) ENTEROS.getVolatile(buffer, registro) == RESERVADO) {
+                ENTEROS.setVolatile(buffer, registro, LIBRE);
+            }
+        }
+    }
+
+    @Override
+    public int obtener(String nickname) {
+        int registro = buscar(nickname, false);
+        return registro < 0 ? 0 : (int) ENTEROS.getVolatile(buffer, registro + 4);
+    }
+
+    @Override
+    public void actualizar(String nickname, int nuevoTotal) {
+        if (soloLectura) {
+            throw new UnsupportedOperationException("Almacén de totales abierto solo para lectura");
+        }
+        ENTEROS.setVolatile(buffer, buscar(nickname, true) + 4, nuevoTotal);
+    }
+
+    /**
+     * Recorre toda la tabla; se usa solo para la copia completa al respaldo. Las claves resumidas
+     * se toman de los nicknames largos registrados.
+     */
+    @Override
+    public Map<String, Integer> copiar() {
+        Map<String, Integer> copia = new HashMap<>();
+        for (int i = 0; i < capacidad; i++) {
+            int registro = TAMANO_CABECERA + i * TAMANO_REGISTRO;
+            int encabezado = (int) ENTEROS.getVolatile(buffer, registro);
+            if (encabezado == LIBRE || encabezado == RESERVADO || (encabezado & CON_RESUMEN) != 0) {
+                continue;
+            }
+            byte[] clave = new byte[encabezado & LONGITUD];
+            buffer.get(registro + 8, clave);
+            copia.put(new String(clave, StandardCharsets.UTF_8), (int) ENTEROS.getVolatile(buffer, registro + 4));
+        }
+        for (String nickname : largos) {
+            int registro = buscar(nickname, false);
+            if (registro >= 0) {
+                copia.put(nickname, (int) ENTEROS.getVolatile(buffer, registro + 4));
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * Fuerza a disco los registros modificados.
+     */
+    @Override
+    public void cerrar() {
+        if (!soloLectura) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * @return registros ocupados; recorre toda la tabla
+     */
+    int contarUsuarios() {
+        int usuarios = 0;
+        for (int i = 0; i < capacidad; i++) {
+            if ((int) ENTEROS.getVolatile(buffer, TAMANO_CABECERA + i * TAMANO_REGISTRO) != LIBRE) {
+                usuarios++;
+            }
+        }
+        return usuarios;
+    }
+
+    /**
+     * Busca el registro de un nickname con sondeo lineal.
+     *
+     * @param nickname nickname del usuario
+     * @param crear    si reclamar un registro libre cuando no existe
+     * @return posición del registro en el buffer, o -1 si no existe y no se crea
+     */
+    private int buscar(String nickname, boolean crear) {
+        byte[] clave = CLAVES.get();
+        int longitud = codificar(nickname, clave);
+        int encabezadoBuscado = longitud | OCUPADO;
+        if (longitud < 0) {
+            if (crear) {
+                registrarLargo(nickname);
+            }
+            clave = resumir(nickname);
+            longitud = clave.length;
+            encabezadoBuscado = longitud | CON_RESUMEN | OCUPADO;
+        }
+        int mascara = capacidad - 1;
+        int indice = mezclar(nickname.hashCode()) & mascara;
+        for (int sondeos = 0; sondeos < capacidad; sondeos++, indice = (indice + 1) & mascara) {
+            int registro = TAMANO_CABECERA + indice * TAMANO_REGISTRO;
+            int encabezado = (int) ENTEROS.getVolatile(buffer, registro);
+            if (encabezado == LIBRE) {
+                if (!crear) {
+                    return -1;
+                }
+                if (ENTEROS.compareAndSet(buffer, registro, LIBRE, RESERVADO)) {
+                    buffer.put(registro + 8, clave, 0, longitud);
+                    ENTEROS.setVolatile(buffer, registro + 4, 0);
+                    ENTEROS.setVolatile(buffer, registro, encabezadoBuscado);
+                    return registro;
+                }
+                encabezado = (int) ENTEROS.getVolatile(buffer, registro);
+            }
+            while (encabezado == RESERVADO) {
+                Thread.onSpinWait();
+                encabezado = (int) ENTEROS.getVolatile(buffer, registro);
+            }
+            if (encabezado == encabezadoBuscado && mismaClave(registro + 8, clave, longitud)) {
+                return registro;
+            }
+        }
+        throw new IllegalStateException("Almacén de totales lleno (" + capacidad + " usuarios)");
+    }
+
+    private boolean mismaClave(int posicion, byte[] clave, int longitud) {
+        int i = 0;
+        for (; i + Long.BYTES <= longitud; i += Long.BYTES) {
+            if (buffer.getLong(posicion + i) != (long) LARGOS_CLAVE.get(clave, i)) {
+                return false;
+            }
+        }
+        for (; i < longitud; i++) {
+            if (buffer.get(posicion + i) != clave[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Codifica el nickname en UTF-8 sin reservar memoria.
+     *
+     * @return bytes escritos, o -1 si no cabe en {@value #CLAVE_MAXIMA} bytes
+     */
+    static int codificar(String nickname, byte[] destino) {
+        int posicion = 0;
+        for (int i = 0; i < nickname.length(); i++) {
+            int c = nickname.codePointAt(i);
+            if (Character.isSupplementaryCodePoint(c)) {
+                i++;
+            }
+            int bytes = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            if (posicion + bytes > destino.length) {
+                return -1;
+            }
+            switch (bytes) {
+                case 1 -> destino[posicion] = (byte) c;
+                case 2 -> {
+                    destino[posicion] = (byte) (0xC0 | (c >> 6));
+                    destino[posicion + 1] = (byte) (0x80 | (c & 0x3F));
+                }
+                case 3 -> {
+                    destino[posicion] = (byte) (0xE0 | (c >> 12));
+                    destino[posicion + 1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    destino[posicion + 2] = (byte) (0x80 | (c & 0x3F));
+                }
+                default -> {
+                    destino[posicion] = (byte) (0xF0 | (c >> 18));
+                    destino[posicion + 1] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                    destino[posicion + 2] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    destino[posicion + 3] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            posicion += bytes;
+        }
+        return posicion;
+    }
+
+    private static byte[] resumir(String nickname) {
+        byte[] completo = nickname.getBytes(StandardCharsets.UTF_8);
+        byte[] clave = new byte[CLAVE_MAXIMA];
+        System.arraycopy(completo, 0, clave, 0, PREFIJO_RESUMEN);
+        try {
+            byte[] resumen = MessageDigest.getInstance("MD5").digest(completo);
+            System.arraycopy(resumen, 0, clave, PREFIJO_RESUMEN, resumen.length);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return clave;
+    }
+
+    private static int mezclar(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
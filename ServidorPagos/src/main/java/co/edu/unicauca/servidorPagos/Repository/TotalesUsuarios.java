@@ -0,0 +1,43 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import java.util.Map;
+
+/**
+ * Almacén del gasto que cuenta contra el límite de cada usuario.
+ *
+ * <p>Las escrituras se hacen con {@link PagosRepository#bloqueoUsuario} tomado; las lecturas
+ * pueden hacerse sin él.</p>
+ */
+interface TotalesUsuarios {
+
+    /**
+     * @param nickname nickname del usuario
+     * @return gasto vigente del usuario, 0 si no tiene
+     */
+    int obtener(String nickname);
+
+    /**
+     * Registra el nuevo gasto vigente de un usuario.
+     *
+     * @param nickname   nickname del usuario
+     * @param nuevoTotal gasto vigente tras el cambio
+     */
+    void actualizar(String nickname, int nuevoTotal);
+
+    /**
+     * @return una copia del gasto vigente por usuario
+     */
+    Map<String, Integer> copiar();
+
+    /**
+     * Deja de contar el gasto que ya salió de su ventana. Por defecto el gasto no vence.
+     */
+    default void vencer() {
+    }
+
+    /**
+     * Libera o sincroniza los recursos del almacén al detener el servidor.
+     */
+    default void cerrar() {
+    }
+}
@@ -0,0 +1,179 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Gasto de cada usuario en una ventana deslizante (por ejemplo, el último día).
+ *
+ * <p>La ventana se divide en cubetas de igual duración. Lo que un usuario gasta se suma a su
+ * cubeta del periodo actual y a su total; cuando la cubeta sale de la ventana, su monto se resta
+ * del total. Así, verificar el límite es leer un entero, sin reservar memoria ni recorrer cubetas.
+ * Un gasto deja de contar entre {@code ventana - duración de cubeta} y {@code ventana} después de
+ * hacerse, según el momento del periodo en que ocurrió.</p>
+ *
+ * <p>Las cubetas vencen con una {@link RuedaTemporizacion} cuyo tick es la duración de una cubeta,
+ * no recorriendo periódicamente todos los usuarios. {@link #vencer()} desengancha las cubetas
+ * vencidas con la rueda bloqueada y las descuenta después, con el bloqueo de cada usuario, para no
+ * detener los pagos mientras vence una ventana completa de millones de usuarios. Entre el fin de
+ * un periodo y el siguiente {@link #vencer()} el gasto vencido aún cuenta: el error siempre es
+ * hacia negar, nunca hacia gastar de más.</p>
+ */
+final class TotalesVentanaDeslizante implements TotalesUsuarios {
+
+    /**
+     * Gasto vigente de un usuario. Los campos mutables, salvo la lectura de {@code total}, se
+     * protegen con el bloqueo del usuario.
+     */
+    private static final class Gasto {
+        private final String nickname;
+        private volatile int total;
+        private Cubeta actual;
+        private int cubetasVivas;
+
+        private Gasto(String nickname) {
+            this.nickname = nickname;
+        }
+    }
+
+    /**
+     * Lo gastado por un usuario en un periodo; su monto se protege con el bloqueo del usuario.
+     */
+    private static final class Cubeta extends RuedaTemporizacion.Nodo<Cubeta> {
+        private final Gasto gasto;
+        private final long periodo;
+        private int monto;
+
+        private Cubeta(Gasto gasto, long periodo) {
+            this.gasto = gasto;
+            this.periodo = periodo;
+        }
+    }
+
+    private final long duracionCubetaMs;
+    private final int cubetasPorVentana;
+    private final LongSupplier relojMs;
+    private final Function<String, Object> bloqueoUsuario;
+
+    private final Map<String, Gasto> gastos = new ConcurrentHashMap<>();
+
+    /**
+     * Rueda con las cubetas vivas, sincronizada sobre sí misma. Nunca se toma el bloqueo de un
+     * usuario con ella bloqueada.
+     */
+    private final RuedaTemporizacion<Cubeta> rueda;
+
+    /**
+     * @param ventanaMs         duración de la ventana
+     * @param cubetasPorVentana en cuántas cubetas se divide la ventana
+     * @param relojMs           reloj en milisegundos
+     * @param bloqueoUsuario    bloqueo que protege el gasto de cada usuario
+     */
+    TotalesVentanaDeslizante(long ventanaMs, int cubetasPorVentana, LongSupplier relojMs,
+                             Function<String, Object> bloqueoUsuario) {
+        if (cubetasPorVentana < 1 || ventanaMs < cubetasPorVentana) {
+            throw new IllegalArgumentException("Ventana de " + ventanaMs + " ms no divisible en "
+                    + cubetasPorVentana + " cubetas");
+        }
+        this.duracionCubetaMs = ventanaMs / cubetasPorVentana;
+        this.cubetasPorVentana = cubetasPorVentana;
+        this.relojMs = relojMs;
+        this.bloqueoUsuario = bloqueoUsuario;
+        this.rueda = new RuedaTemporizacion<>(periodoActual());
+    }
+
+    @Override
+    public int obtener(String nickname) {
+        Gasto gasto = gastos.get(nickname);
+        return gasto == null ? 0 : gasto.total;
+    }
+
+    /**
+     * Registra el nuevo gasto vigente. Un aumento va a la cubeta del periodo actual. Una
+     * disminución, que solo llega al aplicar totales replicados, se descuenta de esa cubeta hasta
+     * donde alcance; el total nunca baja de 0 al vencer cubetas.
+     */
+    @Override
+    public void actualizar(String nickname, int nuevoTotal) {
+        Gasto gasto = gastos.get(nickname);
+        int delta = nuevoTotal - (gasto == null ? 0 : gasto.total);
+        if (delta == 0) {
+            return;
+        }
+        if (gasto == null) {
+            gasto = new Gasto(nickname);
+            gastos.put(nickname, gasto);
+        }
+        if (delta > 0) {
+            long periodo = periodoActual();
+            Cubeta cubeta = gasto.actual;
+            if (cubeta == null || cubeta.periodo != periodo) {
+                cubeta = new Cubeta(gasto, periodo);
+                gasto.actual = cubeta;
+                gasto.cubetasVivas++;
+                synchronized (rueda) {
+                    rueda.agregar(cubeta, periodo + cubetasPorVentana);
+                }
+            }
+            cubeta.monto += delta;
+        } else if (gasto.actual != null) {
+            gasto.actual.monto -= Math.min(gasto.actual.monto, -delta);
+        }
+        gasto.total = Math.max(0, nuevoTotal);
+        if (gasto.total == 0 && gasto.cubetasVivas == 0) {
+            gastos.remove(nickname, gasto);
+        }
+    }
+
+    @Override
+    public Map<String, Integer> copiar() {
+        Map<String, Integer> copia = new HashMap<>();
+        for (Gasto gasto : gastos.values()) {
+            int total = gasto.total;
+            if (total > 0) {
+                copia.put(gasto.nickname, total);
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * Descuenta las cubetas que salieron de la ventana y olvida a los usuarios que quedan en 0.
+     */
+    @Override
+    public void vencer() {
+        Cubeta vencida;
+        synchronized (rueda) {
+            vencida = rueda.avanzar(periodoActual());
+        }
+        while (vencida != null) {
+            Cubeta siguiente = vencida.siguiente;
+            vencida.siguiente = null;
+            Gasto gasto = vencida.gasto;
+            synchronized (bloqueoUsuario.apply(gasto.nickname)) {
+                gasto.total = Math.max(0, gasto.total - vencida.monto);
+                if (gasto.actual == vencida) {
+                    gasto.actual = null;
+                }
+                if (--gasto.cubetasVivas == 0 && gasto.total == 0) {
+                    gastos.remove(gasto.nickname, gasto);
+                }
+            }
+            vencida = siguiente;
+        }
+    }
+
+    /**
+     * @return usuarios con gasto vigente o cubetas por vencer
+     */
+    int getUsuarios() {
+        return gastos.size();
+    }
+
+    private long periodoActual() {
+        return relojMs.getAsLong() / duracionCubetaMs;
+    }
+}
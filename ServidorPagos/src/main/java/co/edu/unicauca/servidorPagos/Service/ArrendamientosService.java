@@ -0,0 +1,222 @@
+package co.edu.unicauca.servidorPagos.Service;
+
+import co.edu.unicauca.servidorPagos.Models.Arrendamiento;
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.LiquidacionArrendamiento;
+import co.edu.unicauca.servidorPagos.Models.ResultadoLiquidacion;
+import co.edu.unicauca.servidorPagos.Models.SolicitudArrendamiento;
+import co.edu.unicauca.servidorPagos.Replicacion.ReplicacionPagos;
+import co.edu.unicauca.servidorPagos.Repository.HistorialPagosRepository;
+import co.edu.unicauca.servidorPagos.Repository.PagosRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Servicio de arrendamientos de presupuesto.
+ *
+ * <p>En lugar de un viaje síncrono por cada reacción, el servidor de reacciones arrienda una
+ * parte del presupuesto restante de un usuario (varias reacciones de un tipo en una canción)
+ * y las aprueba localmente. Después informa lo gastado en lotes.</p>
+ *
+ * <p>El límite sigue siendo estricto: lo arrendado queda reservado en {@link PagosRepository}
+ * y cuenta como gastado para cualquier otro pago o arrendamiento del usuario. Al liquidar, lo
+ * gastado pasa de reservado a total; al devolver o vencer el arrendamiento, lo no gastado se
+ * libera. Un arrendamiento vence {@code duracion-ms + gracia-ms} después de concederse: el
+ * cliente deja de usarlo al cumplirse la duración y la gracia le da tiempo de liquidar.</p>
+ *
+ * <p>Los cobros de las liquidaciones se replican al respaldo como nuevos totales; los arrendamientos
+ * vigentes no (ver {@link ReplicacionPagos}).</p>
+ */
+@Service
+public class ArrendamientosService {
+
+    @Autowired
+    private PagosRepository pagosRepository;
+
+    @Autowired
+    private HistorialPagosRepository historialPagos;
+
+    @Autowired
+    private MotorReglasPagos motorReglas;
+
+    @Autowired
+    private ReplicacionPagos replicacionPagos;
+
+    /**
+     * Vigencia que se comunica al cliente.
+     */
+    @Value("${pagos.arrendamiento.duracion-ms:30000}")
+    private long duracionMs;
+
+    /**
+     * Tiempo adicional antes de liberar un arrendamiento vencido, para recibir su última liquidación.
+     */
+    @Value("${pagos.arrendamiento.gracia-ms:5000}")
+    private long graciaMs;
+
+    /**
+     * Máximo de reacciones por arrendamiento.
+     */
+    @Value("${pagos.arrendamiento.unidades-maximas:10}")
+    private int unidadesMaximas;
+
+    private final LongSupplier relojMs;
+
+    /**
+     * Arrendamientos vigentes por identificador.
+     */
+    private final Map<String, Vigente> vigentes = new ConcurrentHashMap<>();
+
+    public ArrendamientosService() {
+        this(System::currentTimeMillis);
+    }
+
+    ArrendamientosService(LongSupplier relojMs) {
+        this.relojMs = relojMs;
+    }
+
+    /**
+     * Estado de un arrendamiento vigente. Los campos mutables se protegen con el bloqueo
+     * del usuario ({@link PagosRepository#bloqueoUsuario}).
+     */
+    private static final class Vigente {
+        private final String id;
+        private final String nickname;
+        private final String idCancion;
+        private final int precio;
+        private final int unidades;
+        private final long venceMs;
+        private int liquidadas;
+        private boolean cerrado;
+
+        private Vigente(String id, SolicitudArrendamiento solicitud, int precio, int unidades, long venceMs) {
+            this.id = id;
+            this.nickname = solicitud.getNickname();
+            this.idCancion = solicitud.getIdCancion();
+            this.precio = precio;
+            this.unidades = unidades;
+            this.venceMs = venceMs;
+        }
+    }
+
+    /**
+     * Concede un arrendamiento con tantas reacciones como quepan en el presupuesto restante
+     * del usuario, hasta las pedidas y el máximo configurado.
+     *
+     * @param solicitud usuario, canción, tipo y reacciones pedidas
+     * @return el arrendamiento, con estado LIMITE_SUPERADO y sin unidades si no cabe ninguna
+     */
+    public Arrendamiento conceder(SolicitudArrendamiento solicitud) {
+        replicacionPagos.asumirEscrituras();
+        String nickname = solicitud.getNickname();
+        ReglasCompiladas.Tarifa tarifa = motorReglas.evaluar(nickname, solicitud.getIdCancion(), solicitud.getTipoReaccion());
+        int pedidas = Math.min(Math.max(1, solicitud.getUnidades()), unidadesMaximas);
+        synchronized (pagosRepository.bloqueoUsuario(nickname)) {
+            int total = pagosRepository.obtenerTotalUsuario(nickname);
+            int disponible = tarifa.limite() - total - pagosRepository.obtenerReservadoUsuario(nickname);
+            int unidades = tarifa.precio() == 0 ? pedidas : Math.min(pedidas, Math.max(0, disponible / tarifa.precio()));
+            if (unidades == 0) {
+                return new Arrendamiento(null, EstadoPago.LIMITE_SUPERADO, tarifa.precio(), 0, 0, total);
+            }
+            Vigente vigente = new Vigente(UUID.randomUUID().toString(), solicitud, tarifa.precio(), unidades,
+                    relojMs.getAsLong() + duracionMs + graciaMs);
+            pagosRepository.ajustarReservadoUsuario(nickname, unidades * tarifa.precio());
+            vigentes.put(vigente.id, vigente);
+            System.out.println("[SERVIDOR PAGOS] Arrendamiento " + vigente.id + " concedido a " + nickname
+                    + ": " + unidades + " x $" + tarifa.precio());
+            return new Arrendamiento(vigente.id, EstadoPago.ACEPTADO, tarifa.precio(), unidades, duracionMs, total);
+        }
+    }
+
+    /**
+     * Cobra lo gastado de cada arrendamiento y cierra los que se devuelven.
+     *
+     * @param liquidaciones gasto acumulado de cada arrendamiento
+     * @return el resultado de cada liquidación, en el mismo orden
+     */
+    public List<ResultadoLiquidacion> liquidar(List<LiquidacionArrendamiento> liquidaciones) {
+        replicacionPagos.asumirEscrituras();
+        List<ResultadoLiquidacion> resultados = new ArrayList<>(liquidaciones.size());
+        long secuencia = 0;
+        for (LiquidacionArrendamiento liquidacion : liquidaciones) {
+            Vigente vigente = vigentes.get(liquidacion.getIdArrendamiento());
+            if (vigente == null) {
+                resultados.add(new ResultadoLiquidacion(liquidacion.getIdArrendamiento(), 0, false));
+                continue;
+            }
+            synchronized (pagosRepository.bloqueoUsuario(vigente.nickname)) {
+                if (vigente.cerrado) {
+                    resultados.add(new ResultadoLiquidacion(vigente.id, vigente.liquidadas, false));
+                    continue;
+                }
+                int nuevas = Math.min(liquidacion.getConsumidas(), vigente.unidades) - vigente.liquidadas;
+                if (nuevas > 0) {
+                    secuencia = cobrar(vigente, nuevas);
+                }
+                if (liquidacion.isDevolver()) {
+                    cerrar(vigente);
+                }
+                resultados.add(new ResultadoLiquidacion(vigente.id, vigente.liquidadas, !vigente.cerrado));
+            }
+        }
+        replicacionPagos.esperarConfirmacion(secuencia);
+        return resultados;
+    }
+
+    /**
+     * Libera lo no gastado de los arrendamientos cuya vigencia y gracia ya pasaron.
+     */
+    @Scheduled(fixedDelayString = "${pagos.arrendamiento.periodo-vencimiento-ms:1000}")
+    public void vencer() {
+        long ahora = relojMs.getAsLong();
+        for (Vigente vigente : vigentes.values()) {
+            if (vigente.venceMs <= ahora) {
+                synchronized (pagosRepository.bloqueoUsuario(vigente.nickname)) {
+                    if (!vigente.cerrado) {
+                        System.out.println("[SERVIDOR PAGOS] Arrendamiento " + vigente.id + " vencido con "
+                                + (vigente.unidades - vigente.liquidadas) + " reacciones sin usar");
+                        cerrar(vigente);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return número de arrendamientos vigentes
+     */
+    public int cantidadVigentes() {
+        return vigentes.size();
+    }
+
+    /**
+     * @return la secuencia de replicación del nuevo total
+     */
+    private long cobrar(Vigente vigente, int reacciones) {
+        int monto = reacciones * vigente.precio;
+        int nuevoTotal = pagosRepository.obtenerTotalUsuario(vigente.nickname) + monto;
+        pagosRepository.actualizarTotalUsuario(vigente.nickname, nuevoTotal);
+        long secuencia = replicacionPagos.registrarTotal(vigente.nickname, nuevoTotal);
+        pagosRepository.ajustarReservadoUsuario(vigente.nickname, -monto);
+        vigente.liquidadas += reacciones;
+        for (int i = 0; i < reacciones; i++) {
+            historialPagos.registrar(vigente.nickname, vigente.idCancion, vigente.precio, EstadoPago.ACEPTADO);
+        }
+        return secuencia;
+    }
+
+    private void cerrar(Vigente vigente) {
+        pagosRepository.ajustarReservadoUsuario(vigente.nickname, -(vigente.unidades - vigente.liquidadas) * vigente.precio);
+        vigente.cerrado = true;
+        vigentes.remove(vigente.id);
+    }
+}
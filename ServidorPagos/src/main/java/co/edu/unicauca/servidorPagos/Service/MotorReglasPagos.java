@@ -0,0 +1,84 @@
+package co.edu.unicauca.servidorPagos.Service;
+
+import co.edu.unicauca.servidorPagos.Models.DefinicionReglas;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Motor de reglas de precios y límites de los pagos.
+ *
+ * <p>Las reglas vigentes son una instancia inmutable de {@link ReglasCompiladas} guardada en un
+ * {@link AtomicReference}. Para cambiarlas se compila una instancia nueva y se reemplaza la
+ * referencia de una vez (copy-on-write): los pagos en curso terminan con las reglas que leyeron
+ * y los siguientes ven las nuevas, sin bloqueos en {@code registrarPago}.</p>
+ *
+ * <p>Las reglas iniciales se leen de {@code pagos.reglas.archivo}; si no existe, se usan el
+ * precio de $10 y el límite de $50 del requerimiento original.</p>
+ */
+@Service
+public class MotorReglasPagos {
+
+    private final AtomicReference<ReglasCompiladas> vigentes =
+            new AtomicReference<>(ReglasCompiladas.compilar(new DefinicionReglas()));
+
+    /**
+     * Archivo JSON con la definición inicial de las reglas.
+     */
+    @Value("${pagos.reglas.archivo:classpath:reglas-pagos.json}")
+    private Resource archivoReglas;
+
+    /**
+     * Carga las reglas iniciales desde {@link #archivoReglas}.
+     *
+     * @throws IOException si el archivo existe pero no puede leerse o no es válido
+     */
+    @PostConstruct
+    void cargarReglasIniciales() throws IOException {
+        if (archivoReglas == null || !archivoReglas.exists()) {
+            System.out.println("[SERVIDOR PAGOS] Sin archivo de reglas; se usan precio y límite por defecto.");
+            return;
+        }
+        try (InputStream entrada = archivoReglas.getInputStream()) {
+            actualizar(new ObjectMapper().readValue(entrada, DefinicionReglas.class));
+        }
+    }
+
+    /**
+     * Calcula el precio y el límite que aplican a un pago con las reglas vigentes.
+     *
+     * @param nickname     usuario que paga
+     * @param idCancion    canción de la reacción
+     * @param tipoReaccion tipo de reacción (puede ser nulo)
+     * @return la tarifa aplicable
+     */
+    public ReglasCompiladas.Tarifa evaluar(String nickname, String idCancion, String tipoReaccion) {
+        return vigentes.get().evaluar(nickname, idCancion, tipoReaccion);
+    }
+
+    /**
+     * Compila y pone en vigor un nuevo conjunto de reglas.
+     *
+     * @param definicion reglas nuevas
+     * @throws IllegalArgumentException si la definición no es válida; las reglas vigentes no cambian
+     */
+    public void actualizar(DefinicionReglas definicion) {
+        ReglasCompiladas compiladas = ReglasCompiladas.compilar(definicion);
+        vigentes.set(compiladas);
+        System.out.println("[SERVIDOR PAGOS] Reglas de pagos actualizadas: " + compiladas.getDefinicion().getReglas().size()
+                + " reglas, " + compiladas.getDefinicion().getNivelesUsuario().size() + " usuarios con nivel.");
+    }
+
+    /**
+     * @return la definición de las reglas vigentes
+     */
+    public DefinicionReglas getDefinicion() {
+        return vigentes.get().getDefinicion();
+    }
+}
@@ -3,13 +3,28 @@ package co.edu.unicauca.servidorPagos.Service;
 import co.edu.unicauca.servidorPagos.Models.EstadoPago;
 import co.edu.unicauca.servidorPagos.Models.PagoRequest;
 import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import co.edu.unicauca.servidorPagos.Models.PaginaHistorialPagos;
+import co.edu.unicauca.servidorPagos.Models.ResumenGasto;
 import co.edu.unicauca.servidorPagos.Models.TokenResponse;
+import co.edu.unicauca.servidorPagos.Perfilado.EventoPagoRegistrado;
+import co.edu.unicauca.servidorPagos.Perfilado.EventoTokenEmitido;
+import co.edu.unicauca.servidorPagos.Replicacion.ReplicacionPagos;
+import co.edu.unicauca.servidorPagos.Repository.HistorialPagosRepository;
 import co.edu.unicauca.servidorPagos.Repository.PagosRepository;
+import co.edu.unicauca.servidorPagos.Repository.ResultadosIdempotentesRepository;
+import co.edu.unicauca.servidorPagos.Trazas.ContextoTraza;
+import co.edu.unicauca.servidorPagos.Trazas.Tramo;
+import co.edu.unicauca.servidorPagos.Trazas.Trazador;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -19,6 +34,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  * En esta implementación, toda la información se almacena en
  * memoria a través de {@link PagosRepository}, lo cual es suficiente
  * para el laboratorio y permite ejecutar rápidamente las pruebas.
+ *
+ * Los tokens emitidos y los registros de pago emiten eventos de JDK Flight
+ * Recorder, que solo se registran durante una grabación ({@code /actuator/perfilado}).
+ *
+ * Cada pago se puede registrar de forma bloqueante ({@link #registrarPago}, para Tomcat y gRPC)
+ * o no bloqueante ({@link #registrarPagoReactivo}, para la variante reactiva), con las mismas reglas.
  */
 @Service
 public class PagosService {
@@ -30,25 +51,77 @@ public class PagosService {
     @Autowired
     private PagosRepository pagosRepository;
 
+    /**
+     * Resultados ya calculados por clave de idempotencia, para responder
+     * a los intentos repetidos sin volver a aplicar las reglas de negocio.
+     */
+    @Autowired
+    private ResultadosIdempotentesRepository resultadosIdempotentes;
+
+    /**
+     * Historial de todos los pagos procesados, para las consultas de gasto.
+     */
+    @Autowired
+    private HistorialPagosRepository historialPagos;
+
     /**
      * Generador seguro de valores aleatorios para los tokens.
      */
     private final SecureRandom secureRandom = new SecureRandom();
 
     /**
-     * Límite máximo de dinero que un usuario puede acumular
-     * por reacciones. En el requerimiento, 5 reacciones x $10 = $50.
+     * Reglas de precios y límites según canción, tipo de reacción y nivel del usuario.
+     */
+    @Autowired
+    private MotorReglasPagos motorReglas;
+
+    /**
+     * Trazas de los pagos: la demora simulada y la aplicación de las reglas.
+     */
+    @Autowired
+    private Trazador trazador;
+
+    /**
+     * Envía los pagos aceptados al respaldo, si esta instancia es primaria.
      */
-    private static final int LIMITE_POR_USUARIO = 50;
+    @Autowired
+    private ReplicacionPagos replicacionPagos;
 
     /**
      * Contador global de intentos de registro de pago.
      * Cada vez que se procesa un PagoRequest se incrementa.
-     * Si el valor es múltiplo de 4 (4, 8, 12, ...), se devuelve
-     * un ERROR_SIMULADO para probar los reintentos.
+     * Si el valor es múltiplo de {@link #errorCada} (por defecto 4, 8, 12, ...),
+     * se devuelve un ERROR_SIMULADO para probar los reintentos.
      */
     private final AtomicInteger contadorIntentosPago = new AtomicInteger(0);
 
+    /**
+     * Cada cuántos intentos se simula un error; 0 desactiva la simulación
+     * (por ejemplo, para medir los transportes sin las demoras simuladas).
+     */
+    @Value("${pagos.simulacion.error-cada:4}")
+    private int errorCada;
+
+    /**
+     * Demora de la respuesta ERROR_SIMULADO.
+     */
+    @Value("${pagos.simulacion.demora-error-ms:3000}")
+    private long demoraErrorMs;
+
+    /**
+     * Latencia agregada a todos los pagos (0 la desactiva), para medir cuántos pagos en curso
+     * sostiene cada variante del servidor cuando el procesamiento espera.
+     */
+    @Value("${pagos.simulacion.latencia-ms:0}")
+    private long latenciaMs;
+
+    /**
+     * Resultado de aplicar las reglas a un pago, con la secuencia de replicación cuya confirmación
+     * debe esperarse antes de responder (0 si no hay nada que esperar).
+     */
+    private record PagoProcesado(PagoResponse respuesta, long secuencia) {
+    }
+
     /**
      * Genera un nuevo token único que será utilizado posteriormente
      * para registrar un pago.
@@ -57,6 +130,7 @@ public class PagosService {
      */
     public TokenResponse generarToken() {
         String token = generarTokenAleatorio();
+        EventoTokenEmitido.registrar();
         return new TokenResponse(token);
     }
 
@@ -66,72 +140,344 @@ public class PagosService {
      *
      * Reglas:
      * - Si el token ya fue usado, TOKEN_REPETIDO.
-     * - Si el usuario superaría $50, LIMITE_SUPERADO.
+     * - Si el usuario superaría su límite (lo reservado por sus arrendamientos cuenta como gastado), LIMITE_SUPERADO.
      * - Cada pago global nº 4, 8, 12, ... produce ERROR_SIMULADO.
      * - En caso contrario, se acepta el pago.
      *
+     * Si la petición trae clave de idempotencia y ya se procesó antes, se
+     * devuelve el resultado almacenado sin volver a aplicar las reglas ni simular
+     * el error: un reintento de un pago ya aceptado recibe siempre su resultado.
+     *
+     * El ERROR_SIMULADO se decide después de buscar ese resultado, pero antes de
+     * reservar la clave: así, mientras una petición está detenida en la demora
+     * simulada, una petición de cobertura con la misma clave puede procesarse en
+     * lugar de esperar a la primera.
+     *
      * @param request datos del pago a registrar
      * @return información del resultado del pago
      */
     public PagoResponse registrarPago(PagoRequest request) {
-        String token = request.getToken();
-        String nickname = request.getNickname();
-        int valor = request.getValor();
+        int intentoActual = iniciarIntento(request);
+
+        EventoPagoRegistrado evento = new EventoPagoRegistrado();
+        evento.begin();
+        PagoResponse respuesta = null;
+        try {
+            dormir(latenciaMs);
+            respuesta = resolverPago(request, intentoActual);
+            return respuesta;
+        } finally {
+            evento.terminar(request, intentoActual, respuesta);
+        }
+    }
 
+    /**
+     * Variante no bloqueante de {@link #registrarPago}, para la variante reactiva del servidor
+     * (perfil {@code reactivo}). Aplica las mismas reglas, pero:
+     * <ul>
+     *   <li>la latencia y la demora del ERROR_SIMULADO son temporizadores, no hilos dormidos;</li>
+     *   <li>un intento repetido espera el resultado del primero sin ocupar un hilo;</li>
+     *   <li>con replicación síncrona, solo la espera de la confirmación del respaldo pasa a un hilo
+     *       aparte.</li>
+     * </ul>
+     *
+     * @param request  datos del pago a registrar
+     * @param contexto contexto de la traza de la petición, o {@code null}
+     * @return el resultado del pago, cuando esté listo
+     */
+    public Mono<PagoResponse> registrarPagoReactivo(PagoRequest request, ContextoTraza contexto) {
+        return Mono.defer(() -> {
+            int intentoActual = iniciarIntento(request);
+            EventoPagoRegistrado evento = new EventoPagoRegistrado();
+            evento.begin();
+            return esperar(latenciaMs)
+                    .then(Mono.defer(() -> resolverPagoReactivo(request, intentoActual, contexto)))
+                    .doOnSuccess(respuesta -> evento.terminar(request, intentoActual, respuesta))
+                    .doOnError(error -> evento.terminar(request, intentoActual, null));
+        });
+    }
+
+    /**
+     * Numera un intento de pago y, si esta instancia es el respaldo, la promueve.
+     *
+     * @param request datos del pago
+     * @return número global del intento
+     */
+    private int iniciarIntento(PagoRequest request) {
         int intentoActual = contadorIntentosPago.incrementAndGet();
         System.out.println("[SERVIDOR PAGOS] Procesando intento global de pago #" + intentoActual
-                + " para usuario=" + nickname
+                + " para usuario=" + request.getNickname()
                 + ", cancion=" + request.getIdCancion()
-                + ", valor=" + valor);
-
-        // 0. Simular error cada intento múltiplo de 4
-        if (intentoActual % 4 == 0) {
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                + ", tipo=" + request.getTipoReaccion());
+        replicacionPagos.asumirEscrituras();
+        return intentoActual;
+    }
+
+    /**
+     * Aplica las reglas de {@link #registrarPago} a un intento ya numerado.
+     *
+     * @param request       datos del pago a registrar
+     * @param intentoActual número global del intento
+     * @return información del resultado del pago
+     */
+    private PagoResponse resolverPago(PagoRequest request, int intentoActual) {
+        String clave = request.getClaveIdempotencia();
+        boolean conClave = clave != null && !clave.isEmpty();
+        PagoResponse previa = conClave ? resultadosIdempotentes.obtenerTerminado(clave) : null;
+        if (previa != null) {
+            return previa;
+        }
+
+        // Simular error cada intento múltiplo de errorCada (4 por defecto)
+        if (errorCada > 0 && intentoActual % errorCada == 0) {
+            return simularError(request, intentoActual);
+        }
+
+        if (!conClave) {
+            return procesarPagoTrazado(request);
+        }
+        return resultadosIdempotentes.obtenerOCalcular(
+                clave,
+                () -> procesarPagoTrazado(request),
+                respuesta -> respuesta.getEstado() != EstadoPago.ERROR_SIMULADO);
+    }
+
+    /**
+     * Equivalente de {@link #resolverPago} para {@link #registrarPagoReactivo}.
+     *
+     * @param request       datos del pago a registrar
+     * @param intentoActual número global del intento
+     * @param contexto      contexto de la traza de la petición, o {@code null}
+     * @return información del resultado del pago, cuando esté lista
+     */
+    private Mono<PagoResponse> resolverPagoReactivo(PagoRequest request, int intentoActual, ContextoTraza contexto) {
+        String clave = request.getClaveIdempotencia();
+        boolean conClave = clave != null && !clave.isEmpty();
+        PagoResponse previa = conClave ? resultadosIdempotentes.obtenerTerminado(clave) : null;
+        if (previa != null) {
+            return Mono.just(previa);
+        }
+
+        if (errorCada > 0 && intentoActual % errorCada == 0) {
+            Tramo demora = trazador.iniciarDesligado("error-simulado", contexto).atributo("intento", intentoActual);
+            return esperar(demoraErrorMs)
+                    .doFinally(senal -> demora.terminar())
+                    .then(Mono.fromSupplier(() -> responderErrorSimulado(request, intentoActual)));
+        }
+
+        if (!conClave) {
+            return procesarPagoReactivo(request, contexto);
+        }
+        return Mono.fromFuture(() -> resultadosIdempotentes.obtenerOCalcularAsincrono(
+                clave,
+                () -> procesarPagoReactivo(request, contexto).toFuture(),
+                respuesta -> respuesta.getEstado() != EstadoPago.ERROR_SIMULADO));
+    }
+
+    /**
+     * Simula una falla transitoria del servidor: espera (3 segundos por defecto) y responde ERROR_SIMULADO
+     * sin registrar el pago ni consumir el token.
+     *
+     * @param request       datos del pago
+     * @param intentoActual número global del intento
+     * @return respuesta con estado ERROR_SIMULADO
+     */
+    private PagoResponse simularError(PagoRequest request, int intentoActual) {
+        Tramo demora = trazador.iniciar("error-simulado").atributo("intento", intentoActual);
+        try {
+            dormir(demoraErrorMs);
+        } finally {
+            demora.terminar();
+        }
+        return responderErrorSimulado(request, intentoActual);
+    }
+
+    /**
+     * Registra en el historial y construye la respuesta ERROR_SIMULADO, una vez cumplida la demora.
+     *
+     * @param request       datos del pago
+     * @param intentoActual número global del intento
+     * @return respuesta con estado ERROR_SIMULADO
+     */
+    private PagoResponse responderErrorSimulado(PagoRequest request, int intentoActual) {
+        int totalActual = pagosRepository.obtenerTotalUsuario(request.getNickname());
+        System.out.println("[SERVIDOR PAGOS] Simulando ERROR_SIMULADO en intento #" + intentoActual);
+        registrarEnHistorial(request, 0, EstadoPago.ERROR_SIMULADO);
+        return new PagoResponse(
+                EstadoPago.ERROR_SIMULADO,
+                "Error simulado en el servidor de pagos (intento #" + intentoActual + ")",
+                totalActual);
+    }
+
+    /**
+     * Aplica las reglas de negocio en un tramo propio y espera, fuera de él, la confirmación del
+     * respaldo si la replicación es síncrona. Un reintento que reutiliza el resultado de su clave de
+     * idempotencia no abre este tramo.
+     *
+     * @param request datos del pago a registrar
+     * @return información del resultado del pago
+     */
+    private PagoResponse procesarPagoTrazado(PagoRequest request) {
+        PagoProcesado procesado = aplicarReglasTrazado(request);
+        replicacionPagos.esperarConfirmacion(procesado.secuencia());
+        return procesado.respuesta();
+    }
+
+    /**
+     * Equivalente de {@link #procesarPagoTrazado} para {@link #registrarPagoReactivo}: las reglas se
+     * aplican en el hilo que llega y solo la espera del respaldo, si la hay, pasa a otro hilo.
+     *
+     * @param request  datos del pago a registrar
+     * @param contexto contexto de la traza de la petición, o {@code null}
+     * @return información del resultado del pago, cuando esté lista
+     */
+    private Mono<PagoResponse> procesarPagoReactivo(PagoRequest request, ContextoTraza contexto) {
+        return Mono.defer(() -> {
+            PagoProcesado procesado = trazador.enContexto(contexto, () -> aplicarReglasTrazado(request));
+            if (!replicacionPagos.requiereConfirmacion(procesado.secuencia())) {
+                return Mono.just(procesado.respuesta());
             }
-            int totalActual = pagosRepository.obtenerTotalUsuario(nickname);
-            System.out.println("[SERVIDOR PAGOS] Simulando ERROR_SIMULADO en intento #" + intentoActual);
-            return new PagoResponse(
-                    EstadoPago.ERROR_SIMULADO,
-                    "Error simulado en el servidor de pagos (intento #" + intentoActual + ")",
-                    totalActual);
+            return Mono.fromCallable(() -> {
+                replicacionPagos.esperarConfirmacion(procesado.secuencia());
+                return procesado.respuesta();
+            }).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Aplica las reglas de negocio en un tramo propio, hijo del contexto actual del hilo.
+     */
+    private PagoProcesado aplicarReglasTrazado(PagoRequest request) {
+        Tramo tramo = trazador.iniciar("procesar-pago");
+        try {
+            PagoProcesado procesado = procesarPago(request);
+            tramo.atributo("estado", procesado.respuesta().getEstado());
+            return procesado;
+        } finally {
+            tramo.terminar();
         }
+    }
+
+    /**
+     * Aplica las reglas de negocio a un pago y, si es aceptado, lo registra.
+     * El precio y el límite se obtienen del motor de reglas vigente.
+     *
+     * @param request datos del pago a registrar
+     * @return información del resultado del pago y la secuencia de replicación a confirmar
+     */
+    private PagoProcesado procesarPago(PagoRequest request) {
+        String token = request.getToken();
+        String nickname = request.getNickname();
+        ReglasCompiladas.Tarifa tarifa = motorReglas.evaluar(nickname, request.getIdCancion(), request.getTipoReaccion());
+        int valor = tarifa.precio();
 
         // 1. Validar token repetido
         if (pagosRepository.esTokenUsado(token)) {
-            return new PagoResponse(
+            registrarEnHistorial(request, valor, EstadoPago.TOKEN_REPETIDO);
+            return new PagoProcesado(new PagoResponse(
                     EstadoPago.TOKEN_REPETIDO,
                     "El token ya fue utilizado previamente",
-                    pagosRepository.obtenerTotalUsuario(nickname));
-        }
-
-        // 2. Validar límite de $50 por usuario
-        int totalActual = pagosRepository.obtenerTotalUsuario(nickname);
-        int nuevoTotal = totalActual + valor;
-        if (nuevoTotal > LIMITE_POR_USUARIO) {
-            return new PagoResponse(
-                    EstadoPago.LIMITE_SUPERADO,
-                    "El usuario alcanzó el límite de $" + LIMITE_POR_USUARIO,
-                    totalActual);
+                    pagosRepository.obtenerTotalUsuario(nickname)), 0);
         }
 
-        // 3. Registrar pago: marcar token como usado y actualizar total
-        pagosRepository.marcarTokenComoUsado(token);
-        pagosRepository.actualizarTotalUsuario(nickname, nuevoTotal);
+        // 2. Validar el límite del usuario, contando lo reservado por sus arrendamientos
+        int nuevoTotal;
+        String mensajeExito;
+        long secuencia;
+        synchronized (pagosRepository.bloqueoUsuario(nickname)) {
+            int totalActual = pagosRepository.obtenerTotalUsuario(nickname);
+            nuevoTotal = totalActual + valor;
+            if (nuevoTotal + pagosRepository.obtenerReservadoUsuario(nickname) > tarifa.limite()) {
+                registrarEnHistorial(request, valor, EstadoPago.LIMITE_SUPERADO);
+                return new PagoProcesado(new PagoResponse(
+                        EstadoPago.LIMITE_SUPERADO,
+                        "El usuario alcanzó el límite de $" + tarifa.limite(),
+                        totalActual), 0);
+            }
 
-        String mensajeExito = String.format(
-                "Pago aceptado. Usuario=%s, Cancion=%s, Valor=%d, Total acumulado=%d",
-                nickname, request.getIdCancion(), valor, nuevoTotal);
+            // 3. Registrar pago: marcar token como usado, actualizar total y replicarlo en el mismo orden
+            pagosRepository.marcarTokenComoUsado(token);
+            pagosRepository.actualizarTotalUsuario(nickname, nuevoTotal);
+            mensajeExito = String.format(
+                    "Pago aceptado. Usuario=%s, Cancion=%s, Valor=%d, Total acumulado=%d",
+                    nickname, request.getIdCancion(), valor, nuevoTotal);
+            secuencia = replicacionPagos.registrarPago(token, nickname, nuevoTotal,
+                    request.getClaveIdempotencia(), mensajeExito);
+        }
+        registrarEnHistorial(request, valor, EstadoPago.ACEPTADO);
 
         // Eco del pago en consola (requerimiento de mostrar pagos)
         System.out.println("[SERVIDOR PAGOS] " + mensajeExito);
 
-        return new PagoResponse(
+        return new PagoProcesado(new PagoResponse(
                 EstadoPago.ACEPTADO,
                 mensajeExito,
-                nuevoTotal);
+                nuevoTotal), secuencia);
+    }
+
+    /**
+     * Consulta paginada del historial de pagos, del más reciente al más antiguo.
+     * Todos los filtros son opcionales.
+     *
+     * @param nickname  usuario
+     * @param idCancion canción
+     * @param estado    estado del pago
+     * @param desde     marca de tiempo mínima en milisegundos, inclusiva
+     * @param hasta     marca de tiempo máxima en milisegundos, exclusiva
+     * @param pagina    número de página, desde 0
+     * @param tamano    pagos por página
+     * @return la página de pagos
+     */
+    public PaginaHistorialPagos consultarHistorial(String nickname, String idCancion, EstadoPago estado,
+                                                   Long desde, Long hasta, int pagina, int tamano) {
+        return historialPagos.consultar(nickname, idCancion, estado, desde, hasta, pagina, tamano);
+    }
+
+    /**
+     * Agrega el historial de pagos por canción, usuario o estado.
+     *
+     * @param agrupacion criterio de agrupación
+     * @param nickname   usuario (opcional)
+     * @param idCancion  canción (opcional)
+     * @param desde      marca de tiempo mínima en milisegundos, inclusiva (opcional)
+     * @param hasta      marca de tiempo máxima en milisegundos, exclusiva (opcional)
+     * @return el resumen por grupo, de mayor a menor gasto aceptado
+     */
+    public List<ResumenGasto> resumirHistorial(HistorialPagosRepository.Agrupacion agrupacion, String nickname,
+                                               String idCancion, Long desde, Long hasta) {
+        return historialPagos.resumir(agrupacion, nickname, idCancion, desde, hasta);
+    }
+
+    /**
+     * Anexa el resultado de un pago al historial.
+     *
+     * @param request datos del pago
+     * @param valor   precio aplicado (0 si no llegó a calcularse)
+     * @param estado  resultado del pago
+     */
+    private void registrarEnHistorial(PagoRequest request, int valor, EstadoPago estado) {
+        historialPagos.registrar(request.getNickname(), request.getIdCancion(), valor, estado);
+    }
+
+    /**
+     * Duerme el hilo actual, para las demoras simuladas de la variante con Tomcat.
+     */
+    private static void dormir(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Demora simulada de la variante reactiva: un temporizador en lugar de un hilo dormido.
+     */
+    private static Mono<Long> esperar(long ms) {
+        return ms > 0 ? Mono.delay(Duration.ofMillis(ms)) : Mono.just(0L);
     }
 
     /**
@@ -0,0 +1,170 @@
+package co.edu.unicauca.servidorPagos.Service;
+
+import co.edu.unicauca.servidorPagos.Models.DefinicionRegla;
+import co.edu.unicauca.servidorPagos.Models.DefinicionReglas;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reglas de precios y límites compiladas en una estructura inmutable de búsqueda.
+ *
+ * <p>Las reglas se agrupan por patrón (qué criterios fijan: canción, tipo de reacción y/o
+ * nivel) en un mapa por patrón. Evaluar un pago consiste en probar, del patrón más específico
+ * al menos específico, solo los patrones que tienen reglas; la primera coincidencia gana. No se
+ * recorren las reglas ni se interpreta nada al evaluar, y como la instancia no cambia nunca,
+ * puede compartirse entre hilos sin sincronización.</p>
+ */
+public final class ReglasCompiladas {
+
+    /**
+     * Nivel de los usuarios que no tienen uno asignado.
+     */
+    public static final String NIVEL_POR_DEFECTO = "estandar";
+
+    private static final int CON_CANCION = 4;
+    private static final int CON_TIPO = 2;
+    private static final int CON_NIVEL = 1;
+
+    /**
+     * Precio y límite que aplican a un pago.
+     */
+    public record Tarifa(int precio, int limite) {
+    }
+
+    private record Clave(String idCancion, String tipoReaccion, String nivel) {
+    }
+
+    /**
+     * Reglas de un mismo patrón de criterios.
+     */
+    private record Patron(int criterios, Map<Clave, Integer> valores) {
+
+        private Integer buscar(String idCancion, String tipoReaccion, String nivel) {
+            return valores.get(new Clave(
+                    (criterios & CON_CANCION) != 0 ? idCancion : null,
+                    (criterios & CON_TIPO) != 0 ? tipoReaccion : null,
+                    (criterios & CON_NIVEL) != 0 ? nivel : null));
+        }
+    }
+
+    private final DefinicionReglas definicion;
+    private final Map<String, String> nivelesUsuario;
+    private final Patron[] patronesPrecio;
+    private final Patron[] patronesLimite;
+    private final int precioPorDefecto;
+    private final int limitePorDefecto;
+
+    private ReglasCompiladas(DefinicionReglas definicion, Map<String, String> nivelesUsuario,
+                             Patron[] patronesPrecio, Patron[] patronesLimite) {
+        this.definicion = definicion;
+        this.nivelesUsuario = nivelesUsuario;
+        this.patronesPrecio = patronesPrecio;
+        this.patronesLimite = patronesLimite;
+        this.precioPorDefecto = definicion.getPrecioPorDefecto();
+        this.limitePorDefecto = definicion.getLimitePorDefecto();
+    }
+
+    /**
+     * Valida y compila una definición de reglas.
+     *
+     * @param definicion reglas a compilar
+     * @return las reglas compiladas
+     * @throws IllegalArgumentException si la definición no es válida
+     */
+    public static ReglasCompiladas compilar(DefinicionReglas definicion) {
+        if (definicion.getPrecioPorDefecto() < 0 || definicion.getLimitePorDefecto() < 0) {
+            throw new IllegalArgumentException("El precio y el límite por defecto no pueden ser negativos");
+        }
+        Map<String, String> niveles = new HashMap<>();
+        if (definicion.getNivelesUsuario() != null) {
+            definicion.getNivelesUsuario().forEach((nickname, nivel) -> {
+                if (nivel == null || nivel.isBlank()) {
+                    throw new IllegalArgumentException("El usuario " + nickname + " tiene un nivel vacío");
+                }
+                niveles.put(nickname, nivel);
+            });
+        }
+
+        List<Map<Clave, Integer>> precios = new ArrayList<>();
+        List<Map<Clave, Integer>> limites = new ArrayList<>();
+        for (int criterios = 0; criterios <= (CON_CANCION | CON_TIPO | CON_NIVEL); criterios++) {
+            precios.add(new HashMap<>());
+            limites.add(new HashMap<>());
+        }
+        List<DefinicionRegla> reglas = definicion.getReglas() != null ? definicion.getReglas() : List.of();
+        for (DefinicionRegla regla : reglas) {
+            if (regla.getPrecio() == null && regla.getLimite() == null) {
+                throw new IllegalArgumentException("Cada regla debe fijar un precio, un límite o ambos: " + regla);
+            }
+            if ((regla.getPrecio() != null && regla.getPrecio() < 0) || (regla.getLimite() != null && regla.getLimite() < 0)) {
+                throw new IllegalArgumentException("Los precios y límites no pueden ser negativos: " + regla);
+            }
+            int criterios = (regla.getIdCancion() != null ? CON_CANCION : 0)
+                    | (regla.getTipoReaccion() != null ? CON_TIPO : 0)
+                    | (regla.getNivel() != null ? CON_NIVEL : 0);
+            Clave clave = new Clave(regla.getIdCancion(), regla.getTipoReaccion(), regla.getNivel());
+            if (regla.getPrecio() != null) {
+                precios.get(criterios).put(clave, regla.getPrecio());
+            }
+            if (regla.getLimite() != null) {
+                limites.get(criterios).put(clave, regla.getLimite());
+            }
+        }
+
+        DefinicionReglas copia = new DefinicionReglas(definicion.getPrecioPorDefecto(), definicion.getLimitePorDefecto(),
+                Map.copyOf(niveles), List.copyOf(reglas));
+        return new ReglasCompiladas(copia, Map.copyOf(niveles), patrones(precios), patrones(limites));
+    }
+
+    /**
+     * Ordena los patrones no vacíos del más específico al menos específico.
+     */
+    private static Patron[] patrones(List<Map<Clave, Integer>> porCriterios) {
+        List<Patron> patrones = new ArrayList<>();
+        for (int criterios = 0; criterios < porCriterios.size(); criterios++) {
+            if (!porCriterios.get(criterios).isEmpty()) {
+                patrones.add(new Patron(criterios, Map.copyOf(porCriterios.get(criterios))));
+            }
+        }
+        patrones.sort((a, b) -> {
+            int porCantidad = Integer.compare(Integer.bitCount(b.criterios()), Integer.bitCount(a.criterios()));
+            return porCantidad != 0 ? porCantidad : Integer.compare(b.criterios(), a.criterios());
+        });
+        return patrones.toArray(new Patron[0]);
+    }
+
+    /**
+     * Calcula el precio y el límite que aplican a un pago.
+     *
+     * @param nickname     usuario que paga
+     * @param idCancion    canción de la reacción
+     * @param tipoReaccion tipo de reacción (puede ser nulo)
+     * @return la tarifa aplicable
+     */
+    public Tarifa evaluar(String nickname, String idCancion, String tipoReaccion) {
+        String nivel = nickname != null ? nivelesUsuario.getOrDefault(nickname, NIVEL_POR_DEFECTO) : NIVEL_POR_DEFECTO;
+        return new Tarifa(
+                buscar(patronesPrecio, idCancion, tipoReaccion, nivel, precioPorDefecto),
+                buscar(patronesLimite, idCancion, tipoReaccion, nivel, limitePorDefecto));
+    }
+
+    /**
+     * @return la definición a partir de la cual se compilaron estas reglas
+     */
+    public DefinicionReglas getDefinicion() {
+        return definicion;
+    }
+
+    private static int buscar(Patron[] patrones, String idCancion, String tipoReaccion, String nivel, int porDefecto) {
+        for (Patron patron : patrones) {
+            Integer valor = patron.buscar(idCancion, tipoReaccion, nivel);
+            if (valor != null) {
+                return valor;
+            }
+        }
+        return porDefecto;
+    }
+}
@@ -1,13 +1,28 @@
 package co.edu.unicauca.servidorPagos;
 
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ServidorPagosApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(ServidorPagosApplication.class, args);
 	}
 
+	/**
+	 * Con {@code spring.main.lazy-initialization=true} (perfil {@code arranque-rapido}) los beans
+	 * de la aplicación se siguen creando al arrancar, para que el motor de reglas cargue su
+	 * archivo y el primer pago no pague la creación de repositorios y servicios. Solo la
+	 * infraestructura que no se usa de inmediato se crea bajo demanda.
+	 */
+	@Bean
+	static LazyInitializationExcludeFilter componentesPropiosSinInicializacionPerezosa() {
+		return (nombre, definicion, tipo) -> tipo.getPackageName().startsWith("co.edu.unicauca");
+	}
+
 }
@@ -0,0 +1,122 @@
+package co.edu.unicauca.servidorPagos.Trazas;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identidad de un tramo dentro de una traza, tal como viaja entre servicios en la cabecera
+ * W3C {@code traceparent}: {@code 00-<idTraza 32 hex>-<idTramo 16 hex>-<banderas 2 hex>}.
+ * <p>
+ * La bandera de muestreo la decide el servidor de reacciones al crear la raíz de la traza, y la
+ * heredan todos sus tramos, incluidos los de este servidor.
+ */
+public final class ContextoTraza {
+
+    /**
+     * Nombre de la cabecera HTTP que transporta el contexto.
+     */
+    public static final String CABECERA = "traceparent";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String idTraza;
+    private final String idTramo;
+    private final boolean muestreado;
+
+    ContextoTraza(String idTraza, String idTramo, boolean muestreado) {
+        this.idTraza = idTraza;
+        this.idTramo = idTramo;
+        this.muestreado = muestreado;
+    }
+
+    public String getIdTraza() {
+        return idTraza;
+    }
+
+    public String getIdTramo() {
+        return idTramo;
+    }
+
+    public boolean isMuestreado() {
+        return muestreado;
+    }
+
+    /**
+     * @return el contexto de un tramo hijo: misma traza y decisión de muestreo, identificador nuevo
+     */
+    ContextoTraza hijo() {
+        return new ContextoTraza(idTraza, nuevoIdTramo(), muestreado);
+    }
+
+    /**
+     * @return el valor de la cabecera {@code traceparent}
+     */
+    public String aTraceparent() {
+        return "00-" + idTraza + "-" + idTramo + (muestreado ? "-01" : "-00");
+    }
+
+    /**
+     * Interpreta una cabecera {@code traceparent}.
+     *
+     * @param valor el valor recibido, o {@code null}
+     * @return el contexto, o {@code null} si falta o no es válido
+     */
+    public static ContextoTraza desdeTraceparent(String valor) {
+        if (valor == null || valor.length() != 55 || valor.charAt(2) != '-' || valor.charAt(35) != '-'
+                || valor.charAt(52) != '-' || !esHex(valor, 0, 2) || valor.startsWith("ff")) {
+            return null;
+        }
+        String idTraza = valor.substring(3, 35);
+        String idTramo = valor.substring(36, 52);
+        if (!esHex(idTraza, 0, 32) || !esHex(idTramo, 0, 16) || !esHex(valor, 53, 55)
+                || esCeros(idTraza) || esCeros(idTramo)) {
+            return null;
+        }
+        boolean muestreado = (Character.digit(valor.charAt(54), 16) & 1) == 1;
+        return new ContextoTraza(idTraza, idTramo, muestreado);
+    }
+
+    static ContextoTraza nuevaRaiz(boolean muestreado) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        char[] idTraza = new char[32];
+        escribirHex(idTraza, 0, aleatorio.nextLong());
+        escribirHex(idTraza, 16, aleatorio.nextLong() | 1);
+        return new ContextoTraza(new String(idTraza), nuevoIdTramo(), muestreado);
+    }
+
+    private static String nuevoIdTramo() {
+        char[] idTramo = new char[16];
+        escribirHex(idTramo, 0, ThreadLocalRandom.current().nextLong() | 1);
+        return new String(idTramo);
+    }
+
+    private static void escribirHex(char[] destino, int desde, long valor) {
+        for (int i = 15; i >= 0; i--) {
+            destino[desde + i] = HEX[(int) (valor & 0xF)];
+            valor >>>= 4;
+        }
+    }
+
+    private static boolean esHex(String texto, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean esCeros(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return aTraceparent();
+    }
+}
@@ -0,0 +1,143 @@
+package co.edu.unicauca.servidorPagos.Trazas;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Una etapa medida de una traza: su nombre, su padre, cuándo empezó, cuánto duró y algunos
+ * atributos. Los tramos muestreados se entregan al {@link Trazador} al terminar; los demás
+ * solo sirven para propagar el contexto.
+ * <p>
+ * Un tramo lo modifica un solo hilo a la vez y debe terminarse en el hilo donde se hizo actual.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class Tramo {
+
+    /**
+     * Tramo vacío para las etapas que ocurren fuera de una traza. No hace nada.
+     */
+    public static final Tramo NINGUNO = new Tramo(null, null, null, null, 0, false);
+
+    private final Trazador trazador;
+    private final String nombre;
+    private final ContextoTraza contexto;
+    private final String idPadre;
+    private final long inicioNanos;
+    private final boolean actual;
+
+    /**
+     * Contexto actual del hilo antes de este tramo, que se restaura al terminar.
+     */
+    private ContextoTraza anterior;
+    private long finNanos;
+    private Map<String, Object> atributos;
+    private String error;
+
+    Tramo(Trazador trazador, String nombre, ContextoTraza contexto, String idPadre, long inicioNanos, boolean actual) {
+        this.trazador = trazador;
+        this.nombre = nombre;
+        this.contexto = contexto;
+        this.idPadre = idPadre;
+        this.inicioNanos = inicioNanos;
+        this.actual = actual;
+    }
+
+    /**
+     * Agrega un atributo, solo si el tramo se muestrea.
+     *
+     * @return este tramo
+     */
+    public Tramo atributo(String clave, Object valor) {
+        if (contexto != null && contexto.isMuestreado()) {
+            if (atributos == null) {
+                atributos = new LinkedHashMap<>(4);
+            }
+            atributos.put(clave, valor);
+        }
+        return this;
+    }
+
+    /**
+     * Marca el tramo como fallido.
+     *
+     * @return este tramo
+     */
+    public Tramo error(Throwable causa) {
+        if (contexto != null && contexto.isMuestreado()) {
+            error = causa.getClass().getSimpleName() + ": " + causa.getMessage();
+        }
+        return this;
+    }
+
+    /**
+     * Termina el tramo: fija su duración, lo entrega para exportar si se muestrea y, si era el
+     * actual del hilo, restaura el contexto anterior.
+     */
+    public void terminar() {
+        terminar(System.nanoTime());
+    }
+
+    void terminar(long finNanos) {
+        if (contexto == null || this.finNanos != 0) {
+            return;
+        }
+        this.finNanos = finNanos;
+        if (actual) {
+            Trazador.restaurar(anterior);
+        }
+        if (contexto.isMuestreado()) {
+            trazador.exportar(this);
+        }
+    }
+
+    void setAnterior(ContextoTraza anterior) {
+        this.anterior = anterior;
+    }
+
+    /**
+     * @return el contexto del tramo, o {@code null} para {@link #NINGUNO}
+     */
+    @JsonIgnore
+    public ContextoTraza getContexto() {
+        return contexto;
+    }
+
+    public String getServicio() {
+        return contexto == null ? null : trazador.getServicio();
+    }
+
+    public String getIdTraza() {
+        return contexto == null ? null : contexto.getIdTraza();
+    }
+
+    public String getIdTramo() {
+        return contexto == null ? null : contexto.getIdTramo();
+    }
+
+    public String getIdPadre() {
+        return idPadre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getInicioEpochMicros() {
+        return contexto == null ? 0 : trazador.aEpochMicros(inicioNanos);
+    }
+
+    public long getDuracionMicros() {
+        return (finNanos - inicioNanos) / 1_000;
+    }
+
+    public Map<String, Object> getAtributos() {
+        return atributos;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
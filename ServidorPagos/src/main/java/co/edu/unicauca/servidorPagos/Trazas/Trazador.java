@@ -0,0 +1,301 @@
+package co.edu.unicauca.servidorPagos.Trazas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Trazas distribuidas ligeras de los pagos. Cada petición de token o de pago (REST o gRPC) continúa la
+ * traza de la reacción que recibe en {@code traceparent}, con la decisión de muestreo del servidor de
+ * reacciones; sin {@code traceparent} se decide aquí con probabilidad {@code pagos.trazas.muestreo}.
+ * <p>
+ * Los tramos terminados se encolan sin bloquear (si la cola está llena se descartan y se cuentan) y un
+ * hilo los exporta en lotes según {@code pagos.trazas.exportador}: {@code archivo} agrega una línea JSON
+ * por tramo a {@code pagos.trazas.archivo}; {@code memoria} solo los conserva. En ambos casos los
+ * últimos tramos quedan en un colector en memoria que se consulta en {@code /actuator/trazas}.
+ */
+@Component
+public class Trazador {
+
+    private static final ThreadLocal<ContextoTraza> ACTUAL = new ThreadLocal<>();
+
+    private final String servicio;
+    private final double muestreo;
+    private final boolean escribirArchivo;
+    private final Path archivo;
+    private final BlockingQueue<Tramo> cola;
+    private final int capacidadColector;
+
+    /**
+     * Últimos tramos exportados, del más antiguo al más reciente. Protegido por su monitor.
+     */
+    private final ArrayDeque<Tramo> colector;
+
+    private final AtomicLong exportados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * Relación entre {@link System#nanoTime()} y el reloj de pared, para fechar los tramos sin
+     * consultar el reloj en cada uno.
+     */
+    private final long baseNanos = System.nanoTime();
+    private final long baseEpochMicros = System.currentTimeMillis() * 1_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Thread exportador;
+    private volatile boolean detenido;
+
+    @Autowired
+    public Trazador(@Value("${pagos.trazas.muestreo:0.1}") double muestreo,
+                    @Value("${pagos.trazas.exportador:memoria}") String exportador,
+                    @Value("${pagos.trazas.archivo:trazas-pagos.jsonl}") String archivo,
+                    @Value("${pagos.trazas.capacidad-cola:8192}") int capacidadCola,
+                    @Value("${pagos.trazas.colector:2048}") int capacidadColector) {
+        this("pagos", muestreo, "archivo".equalsIgnoreCase(exportador), Path.of(archivo),
+                capacidadCola, capacidadColector);
+    }
+
+    Trazador(String servicio, double muestreo, boolean escribirArchivo, Path archivo, int capacidadCola,
+             int capacidadColector) {
+        this.servicio = servicio;
+        this.muestreo = muestreo;
+        this.escribirArchivo = escribirArchivo;
+        this.archivo = archivo;
+        this.cola = new ArrayBlockingQueue<>(capacidadCola);
+        this.capacidadColector = capacidadColector;
+        this.colector = new ArrayDeque<>(capacidadColector);
+    }
+
+    /**
+     * Arranca el hilo exportador.
+     */
+    @PostConstruct
+    void iniciarExportador() {
+        exportador = new Thread(this::exportarEnLotes, "trazas-exportador");
+        exportador.setDaemon(true);
+        exportador.start();
+    }
+
+    /**
+     * Detiene el exportador después de escribir los tramos pendientes.
+     */
+    @PreDestroy
+    void detenerExportador() throws InterruptedException {
+        detenido = true;
+        if (exportador != null) {
+            exportador.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * @return el contexto actual del hilo, o {@code null} si no está dentro de una traza
+     */
+    public static ContextoTraza actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Restaura el contexto anterior a un tramo.
+     */
+    static void restaurar(ContextoTraza anterior) {
+        if (anterior == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(anterior);
+        }
+    }
+
+    /**
+     * Abre el tramo de una petición recibida y lo hace actual hasta que termine.
+     *
+     * @param nombre      etapa
+     * @param traceparent la cabecera recibida, o {@code null} para empezar una traza aquí
+     * @return el tramo
+     */
+    public Tramo iniciarPeticion(String nombre, String traceparent) {
+        Tramo tramo = crearPeticion(nombre, traceparent, true);
+        tramo.setAnterior(ACTUAL.get());
+        ACTUAL.set(tramo.getContexto());
+        return tramo;
+    }
+
+    /**
+     * Abre el tramo de una petición que no se atiende de principio a fin en un mismo hilo (la
+     * variante reactiva). No lo hace actual: sus etapas síncronas se ejecutan con {@link #enContexto}
+     * y puede terminarse en cualquier hilo.
+     *
+     * @param nombre      etapa
+     * @param traceparent la cabecera recibida, o {@code null} para empezar una traza aquí
+     * @return el tramo
+     */
+    public Tramo iniciarPeticionDesligada(String nombre, String traceparent) {
+        return crearPeticion(nombre, traceparent, false);
+    }
+
+    private Tramo crearPeticion(String nombre, String traceparent, boolean actual) {
+        ContextoTraza padre = ContextoTraza.desdeTraceparent(traceparent);
+        if (padre != null) {
+            return new Tramo(this, nombre, padre.hijo(), padre.getIdTramo(), System.nanoTime(), actual);
+        }
+        boolean muestreado = muestreo >= 1 || (muestreo > 0 && ThreadLocalRandom.current().nextDouble() < muestreo);
+        return new Tramo(this, nombre, ContextoTraza.nuevaRaiz(muestreado), null, System.nanoTime(), actual);
+    }
+
+    /**
+     * Abre un tramo hijo del contexto actual y lo hace actual hasta que termine.
+     *
+     * @param nombre etapa
+     * @return el tramo, o {@link Tramo#NINGUNO} si no hay traza muestreada en curso
+     */
+    public Tramo iniciar(String nombre) {
+        ContextoTraza padre = ACTUAL.get();
+        if (padre == null || !padre.isMuestreado()) {
+            return Tramo.NINGUNO;
+        }
+        Tramo tramo = new Tramo(this, nombre, padre.hijo(), padre.getIdTramo(), System.nanoTime(), true);
+        tramo.setAnterior(padre);
+        ACTUAL.set(tramo.getContexto());
+        return tramo;
+    }
+
+    /**
+     * Abre un tramo hijo de {@code padre} sin hacerlo actual, para una etapa que no ocurre en un
+     * solo hilo (por ejemplo, una espera no bloqueante).
+     *
+     * @param nombre etapa
+     * @param padre  contexto del tramo padre, o {@code null}
+     * @return el tramo, o {@link Tramo#NINGUNO} si el padre no se muestrea
+     */
+    public Tramo iniciarDesligado(String nombre, ContextoTraza padre) {
+        if (padre == null || !padre.isMuestreado()) {
+            return Tramo.NINGUNO;
+        }
+        return new Tramo(this, nombre, padre.hijo(), padre.getIdTramo(), System.nanoTime(), false);
+    }
+
+    /**
+     * Ejecuta una etapa síncrona con {@code contexto} como contexto actual del hilo, para que sus
+     * tramos cuelguen de él, y restaura después el contexto anterior.
+     *
+     * @param contexto contexto de la traza, o {@code null}
+     * @param etapa    trabajo a ejecutar
+     * @return el resultado de la etapa
+     */
+    public <T> T enContexto(ContextoTraza contexto, Supplier<T> etapa) {
+        ContextoTraza anterior = ACTUAL.get();
+        ACTUAL.set(contexto);
+        try {
+            return etapa.get();
+        } finally {
+            restaurar(anterior);
+        }
+    }
+
+    void exportar(Tramo tramo) {
+        if (!cola.offer(tramo)) {
+            descartados.incrementAndGet();
+        }
+    }
+
+    private void exportarEnLotes() {
+        List<Tramo> lote = new ArrayList<>(256);
+        while (!detenido || !cola.isEmpty()) {
+            try {
+                Tramo primero = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, 255);
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException e) {
+                System.err.println("[SERVIDOR PAGOS] Error exportando " + lote.size() + " tramos: " + e.getMessage());
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribir(List<Tramo> lote) throws IOException {
+        if (escribirArchivo) {
+            try (BufferedWriter salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Tramo tramo : lote) {
+                    salida.write(objectMapper.writeValueAsString(tramo));
+                    salida.newLine();
+                }
+            }
+        }
+        synchronized (colector) {
+            for (Tramo tramo : lote) {
+                if (colector.size() == capacidadColector) {
+                    colector.pollFirst();
+                }
+                colector.addLast(tramo);
+            }
+        }
+        exportados.addAndGet(lote.size());
+    }
+
+    /**
+     * @param idTraza traza a buscar, o {@code null} para todas
+     * @return los tramos del colector en memoria, del más antiguo al más reciente
+     */
+    public List<Tramo> recientes(String idTraza) {
+        synchronized (colector) {
+            List<Tramo> tramos = new ArrayList<>(idTraza == null ? colector.size() : 16);
+            for (Tramo tramo : colector) {
+                if (idTraza == null || idTraza.equals(tramo.getIdTraza())) {
+                    tramos.add(tramo);
+                }
+            }
+            return tramos;
+        }
+    }
+
+    long aEpochMicros(long nanos) {
+        return baseEpochMicros + (nanos - baseNanos) / 1_000;
+    }
+
+    String getServicio() {
+        return servicio;
+    }
+
+    public double getMuestreo() {
+        return muestreo;
+    }
+
+    public long getExportados() {
+        return exportados.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public int getPendientes() {
+        return cola.size();
+    }
+}
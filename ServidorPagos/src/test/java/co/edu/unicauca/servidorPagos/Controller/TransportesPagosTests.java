@@ -0,0 +1,237 @@
+package co.edu.unicauca.servidorPagos.Controller;
+
+import co.edu.unicauca.pagos.grpc.PagosServiceGrpc;
+import co.edu.unicauca.pagos.grpc.estadoPago;
+import co.edu.unicauca.pagos.grpc.peticionPago;
+import co.edu.unicauca.pagos.grpc.respuestaPago;
+import co.edu.unicauca.servidorPagos.Config.ServidorGrpcPagos;
+import co.edu.unicauca.servidorPagos.Models.PagoRequest;
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import co.edu.unicauca.servidorPagos.Trazas.ContextoTraza;
+import co.edu.unicauca.servidorPagos.Trazas.Tramo;
+import co.edu.unicauca.servidorPagos.Trazas.Trazador;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara los transportes de pagos (REST con JSON, gRPC unario y sesión gRPC bidireccional)
+ * sobre la misma instancia, sin los errores simulados.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"pagos.grpc.puerto=0", "pagos.simulacion.error-cada=0"})
+class TransportesPagosTests {
+
+	private static final int HILOS = 16;
+	private static final int PAGOS = 2_000;
+
+	@LocalServerPort
+	private int puertoHttp;
+
+	@Autowired
+	private ServidorGrpcPagos servidorGrpc;
+
+	@Autowired
+	private Trazador trazador;
+
+	private final AtomicInteger secuencia = new AtomicInteger();
+	private RestTemplate rest;
+	private ManagedChannel canal;
+
+	@BeforeEach
+	void conectar() {
+		rest = new RestTemplate(new JdkClientHttpRequestFactory(
+				HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()));
+		canal = NettyChannelBuilder.forAddress("localhost", servidorGrpc.getPuerto()).usePlaintext().build();
+	}
+
+	@AfterEach
+	void desconectar() throws InterruptedException {
+		canal.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void laSesionBidireccionalRespondeCadaPagoPorSuCorrelacion() throws InterruptedException {
+		int pagos = 500;
+		AtomicLongArray respuestas = new AtomicLongArray(pagos);
+		CountDownLatch fin = new CountDownLatch(1);
+		StreamObserver<peticionPago> sesion = PagosServiceGrpc.newStub(canal).registrarPagos(new StreamObserver<>() {
+			@Override
+			public void onNext(respuestaPago respuesta) {
+				if (respuesta.getEstado() != estadoPago.ESTADO_DESCONOCIDO) {
+					respuestas.incrementAndGet((int) respuesta.getIdCorrelacion());
+				}
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				fin.countDown();
+			}
+
+			@Override
+			public void onCompleted() {
+				fin.countDown();
+			}
+		});
+		for (int i = 0; i < pagos; i++) {
+			sesion.onNext(peticionGrpc(i));
+		}
+		sesion.onCompleted();
+
+		assertTrue(fin.await(30, TimeUnit.SECONDS));
+		for (int i = 0; i < pagos; i++) {
+			assertEquals(1, respuestas.get(i), "correlación " + i);
+		}
+	}
+
+	@Test
+	void ambosTransportesContinuanLaTrazaDeLaReaccion() throws InterruptedException {
+		String idTraza = "4bf92f3577b34da6a3ce929d0e0e4736";
+		HttpHeaders cabeceras = new HttpHeaders();
+		cabeceras.set(ContextoTraza.CABECERA, "00-" + idTraza + "-00000000000000a1-01");
+		rest.postForObject("http://localhost:" + puertoHttp + "/api/pagos",
+				new HttpEntity<>(peticionRest(0), cabeceras), PagoResponse.class);
+		PagosServiceGrpc.newBlockingStub(canal).registrarPago(peticionGrpc(1).toBuilder()
+				.setTraceparent("00-" + idTraza + "-00000000000000b2-01").build());
+
+		List<Tramo> tramos = trazador.recientes(idTraza);
+		for (int i = 0; i < 100 && tramos.size() < 4; i++) {
+			Thread.sleep(50);
+			tramos = trazador.recientes(idTraza);
+		}
+		List<Tramo> pagos = tramos.stream().filter(t -> t.getNombre().equals("registrar-pago")).toList();
+		assertEquals(2, pagos.size());
+		assertEquals(List.of("00000000000000a1", "00000000000000b2"),
+				pagos.stream().map(Tramo::getIdPadre).sorted().toList());
+		assertEquals(2, tramos.stream().filter(t -> t.getNombre().equals("procesar-pago")
+				&& pagos.stream().anyMatch(p -> p.getIdTramo().equals(t.getIdPadre()))).count());
+	}
+
+	@Test
+	@Tag("benchmark")
+	void compararLatenciaYRendimientoFrenteARest() throws Exception {
+		PagosServiceGrpc.PagosServiceBlockingStub bloqueante = PagosServiceGrpc.newBlockingStub(canal);
+		IntConsumer pagoRest = i -> rest.postForObject("http://localhost:" + puertoHttp + "/api/pagos", peticionRest(i), PagoResponse.class);
+		IntConsumer pagoGrpc = i -> bloqueante.registrarPago(peticionGrpc(i));
+
+		// Calentamiento de ambos caminos.
+		medirSecuencial(pagoRest, 500);
+		medirSecuencial(pagoGrpc, 500);
+
+		long p50Rest = medirSecuencial(pagoRest, 1_000);
+		long p50Grpc = medirSecuencial(pagoGrpc, 1_000);
+		double porSegundoRest = medirConcurrente(pagoRest);
+		double porSegundoGrpc = medirConcurrente(pagoGrpc);
+		double porSegundoSesion = medirSesion(HILOS * 8);
+
+		System.out.printf("[PAGOS] Latencia p50: REST %d µs, gRPC %d µs%n", p50Rest / 1_000, p50Grpc / 1_000);
+		System.out.printf("[PAGOS] Pagos por segundo (%d en curso): REST %.0f, gRPC unario %.0f, sesión gRPC %.0f%n",
+				HILOS, porSegundoRest, porSegundoGrpc, porSegundoSesion);
+		assertTrue(porSegundoSesion > 0);
+	}
+
+	private long medirSecuencial(IntConsumer pago, int cantidad) {
+		long[] latencias = new long[cantidad];
+		for (int i = 0; i < cantidad; i++) {
+			long inicio = System.nanoTime();
+			pago.accept(secuencia.incrementAndGet());
+			latencias[i] = System.nanoTime() - inicio;
+		}
+		Arrays.sort(latencias);
+		return latencias[cantidad / 2];
+	}
+
+	private double medirConcurrente(IntConsumer pago) throws Exception {
+		ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+		try {
+			long inicio = System.nanoTime();
+			Future<?>[] tareas = new Future<?>[HILOS];
+			for (int h = 0; h < HILOS; h++) {
+				tareas[h] = hilos.submit(() -> {
+					for (int i = 0; i < PAGOS / HILOS; i++) {
+						pago.accept(secuencia.incrementAndGet());
+					}
+				});
+			}
+			for (Future<?> tarea : tareas) {
+				tarea.get();
+			}
+			return PAGOS / ((System.nanoTime() - inicio) / 1e9);
+		} finally {
+			hilos.shutdown();
+		}
+	}
+
+	/**
+	 * Envía los pagos por una sola sesión bidireccional con a lo sumo {@code enCurso} sin responder.
+	 */
+	private double medirSesion(int enCurso) throws InterruptedException {
+		Semaphore ventana = new Semaphore(enCurso);
+		CountDownLatch fin = new CountDownLatch(1);
+		long inicio = System.nanoTime();
+		StreamObserver<peticionPago> sesion = PagosServiceGrpc.newStub(canal).registrarPagos(new StreamObserver<>() {
+			@Override
+			public void onNext(respuestaPago respuesta) {
+				ventana.release();
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				fin.countDown();
+			}
+
+			@Override
+			public void onCompleted() {
+				fin.countDown();
+			}
+		});
+		for (int i = 0; i < PAGOS; i++) {
+			ventana.acquire();
+			sesion.onNext(peticionGrpc(secuencia.incrementAndGet()));
+		}
+		sesion.onCompleted();
+		assertTrue(fin.await(60, TimeUnit.SECONDS));
+		return PAGOS / ((System.nanoTime() - inicio) / 1e9);
+	}
+
+	private static PagoRequest peticionRest(int i) {
+		return new PagoRequest("rest-" + i, "usuario" + (i % 1_000), "cancion" + (i % 50), 0, null, "like");
+	}
+
+	private static peticionPago peticionGrpc(int i) {
+		return peticionPago.newBuilder()
+				.setIdCorrelacion(i)
+				.setToken("grpc-" + i)
+				.setNickname("usuario" + (i % 1_000))
+				.setIdCancion("cancion" + (i % 50))
+				.setTipoReaccion("like")
+				.build();
+	}
+}
@@ -0,0 +1,193 @@
+package co.edu.unicauca.servidorPagos.Controller;
+
+import co.edu.unicauca.servidorPagos.ServidorPagosApplication;
+import co.edu.unicauca.servidorPagos.Trazas.ContextoTraza;
+import co.edu.unicauca.servidorPagos.Trazas.Tramo;
+import co.edu.unicauca.servidorPagos.Trazas.Trazador;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara la variante con Tomcat (un hilo por petición) con la variante reactiva (perfil
+ * {@code reactivo}, WebFlux sobre Netty) con muchos pagos en curso y una latencia inyectada en cada
+ * pago, sin los errores simulados. Cada variante es una aplicación independiente en la misma JVM.
+ * <p>
+ * Con 200 hilos, Tomcat no pasa de 200 pagos por segundo con un segundo de latencia, tenga los
+ * núcleos que tenga; Netty llega hasta {@link #EN_CURSO} por segundo si la CPU alcanza.
+ */
+class VariantesServidorPagosTests {
+
+	private static final int LATENCIA_MS = 1_000;
+	private static final int EN_CURSO = 1_000;
+	private static final int PAGOS = 3_000;
+
+	private final HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	private final List<ConfigurableApplicationContext> contextos = new ArrayList<>();
+	private final AtomicInteger secuencia = new AtomicInteger();
+
+	@AfterEach
+	void cerrar() {
+		contextos.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Test
+	void laVarianteReactivaAtiendeLosMismosContratos() throws Exception {
+		ConfigurableApplicationContext reactiva = iniciar(true, 0, 0);
+		assertTrue(reactiva instanceof ReactiveWebServerApplicationContext);
+		String url = url(reactiva);
+		String idTraza = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+		HttpResponse<String> token = cliente.send(HttpRequest.newBuilder(URI.create(url + "/token"))
+				.POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, token.statusCode());
+		assertTrue(token.body().matches("\\{\"token\":\"[A-Za-z0-9_-]{22}\"}"), token.body());
+
+		HttpResponse<String> pago = cliente.send(HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/json")
+				.header(ContextoTraza.CABECERA, "00-" + idTraza + "-00000000000000a1-01")
+				.POST(HttpRequest.BodyPublishers.ofString(cuerpo("t1", "ana", "clave-1")))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, pago.statusCode());
+		assertTrue(pago.body().contains("\"estado\":\"ACEPTADO\""), pago.body());
+
+		// El mismo pago repetido con su clave devuelve el resultado anterior; sin clave, TOKEN_REPETIDO.
+		assertEquals(pago.body(), enviar(url, cuerpo("t1", "ana", "clave-1")).join().body());
+		assertTrue(enviar(url, cuerpo("t1", "ana", null)).join().body().contains("\"estado\":\"TOKEN_REPETIDO\""));
+
+		HttpResponse<String> historial = cliente.send(HttpRequest.newBuilder(URI.create(url + "/historial?nickname=ana"))
+				.GET().build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, historial.statusCode());
+		assertTrue(historial.body().contains("TOKEN_REPETIDO"), historial.body());
+		assertEquals(400, cliente.send(HttpRequest.newBuilder(URI.create(url + "/historial?tamano=0")).GET().build(),
+				HttpResponse.BodyHandlers.discarding()).statusCode());
+
+		List<Tramo> tramos = reactiva.getBean(Trazador.class).recientes(idTraza);
+		for (int i = 0; i < 100 && tramos.size() < 2; i++) {
+			Thread.sleep(50);
+			tramos = reactiva.getBean(Trazador.class).recientes(idTraza);
+		}
+		Tramo peticion = tramos.stream().filter(t -> t.getNombre().equals("registrar-pago")).findFirst().orElseThrow();
+		assertEquals("00000000000000a1", peticion.getIdPadre());
+		assertTrue(tramos.stream().anyMatch(t -> t.getNombre().equals("procesar-pago")
+				&& t.getIdPadre().equals(peticion.getIdTramo())));
+	}
+
+	@Test
+	void laRepeticionDeUnPagoAceptadoNoRecibeElErrorSimulado() {
+		for (boolean reactiva : new boolean[]{false, true}) {
+			// El segundo intento global es múltiplo de error-cada.
+			String url = url(iniciar(reactiva, 0, 2));
+
+			String aceptado = enviar(url, cuerpo("t1", "ana", "clave-1")).join().body();
+			assertTrue(aceptado.contains("\"estado\":\"ACEPTADO\""), aceptado);
+			assertEquals(aceptado, enviar(url, cuerpo("t1", "ana", "clave-1")).join().body());
+			assertTrue(enviar(url, cuerpo("t2", "ana", "clave-2")).join().body().contains("\"estado\":\"ACEPTADO\""));
+			assertTrue(enviar(url, cuerpo("t3", "ana", "clave-3")).join().body().contains("\"estado\":\"ERROR_SIMULADO\""));
+		}
+	}
+
+	@Test
+	@Tag("benchmark")
+	void compararTomcatYNettyConMuchosPagosEnCursoYLatencia() throws Exception {
+		double porSegundoTomcat = medir(iniciar(false, LATENCIA_MS, 0));
+		double porSegundoNetty = medir(iniciar(true, LATENCIA_MS, 0));
+
+		System.out.printf("[PAGOS] %d pagos, %d en curso, latencia %d ms: Tomcat %.0f pagos/s, Netty %.0f pagos/s%n",
+				PAGOS, EN_CURSO, LATENCIA_MS, porSegundoTomcat, porSegundoNetty);
+		assertTrue(porSegundoNetty > 0);
+	}
+
+	/**
+	 * Envía los pagos con a lo sumo {@link #EN_CURSO} sin responder, después de una ronda de
+	 * calentamiento que además deja abiertas las conexiones.
+	 *
+	 * @return pagos aceptados por segundo
+	 */
+	private double medir(ConfigurableApplicationContext contexto) throws Exception {
+		String url = url(contexto);
+		enviarTodos(url, EN_CURSO);
+		long inicio = System.nanoTime();
+		long[] latencias = enviarTodos(url, PAGOS);
+		double porSegundo = PAGOS / ((System.nanoTime() - inicio) / 1e9);
+		Arrays.sort(latencias);
+		System.out.printf("[PAGOS] %s: p50 %d ms, p99 %d ms%n",
+				contexto instanceof ReactiveWebServerApplicationContext ? "Netty" : "Tomcat",
+				latencias[PAGOS / 2] / 1_000_000, latencias[PAGOS * 99 / 100] / 1_000_000);
+		contexto.close();
+		return porSegundo;
+	}
+
+	private long[] enviarTodos(String url, int cantidad) throws InterruptedException {
+		Semaphore ventana = new Semaphore(EN_CURSO);
+		long[] latencias = new long[cantidad];
+		AtomicLong aceptados = new AtomicLong();
+		CompletableFuture<?>[] pagos = new CompletableFuture<?>[cantidad];
+		for (int i = 0; i < cantidad; i++) {
+			ventana.acquire();
+			int indice = i;
+			int n = secuencia.incrementAndGet();
+			long inicio = System.nanoTime();
+			pagos[i] = enviar(url, cuerpo("tok-" + n, "usuario" + n, null)).whenComplete((respuesta, error) -> {
+				latencias[indice] = System.nanoTime() - inicio;
+				if (error == null && respuesta.statusCode() == 200 && respuesta.body().contains("ACEPTADO")) {
+					aceptados.incrementAndGet();
+				}
+				ventana.release();
+			});
+		}
+		CompletableFuture.allOf(pagos).exceptionally(error -> null).join();
+		assertEquals(cantidad, aceptados.get());
+		return latencias;
+	}
+
+	private CompletableFuture<HttpResponse<String>> enviar(String url, String cuerpo) {
+		return cliente.sendAsync(HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+				.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private ConfigurableApplicationContext iniciar(boolean reactiva, int latenciaMs, int errorCada) {
+		// Como argumentos, para que prevalezcan sobre application.properties.
+		List<String> argumentos = new ArrayList<>(List.of("--server.port=0", "--pagos.grpc.puerto=0",
+				"--pagos.simulacion.error-cada=" + errorCada, "--pagos.simulacion.demora-error-ms=0",
+				"--pagos.simulacion.latencia-ms=" + latenciaMs));
+		if (reactiva) {
+			argumentos.add("--spring.profiles.active=reactivo");
+		}
+		ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ServidorPagosApplication.class)
+				.run(argumentos.toArray(String[]::new));
+		contextos.add(contexto);
+		return contexto;
+	}
+
+	private static String url(ConfigurableApplicationContext contexto) {
+		int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+		return "http://localhost:" + puerto + "/api/pagos";
+	}
+
+	private static String cuerpo(String token, String nickname, String clave) {
+		return "{\"token\":\"" + token + "\",\"nickname\":\"" + nickname + "\",\"idCancion\":\"c1\",\"valor\":0,"
+				+ "\"claveIdempotencia\":" + (clave == null ? "null" : "\"" + clave + "\"") + ",\"tipoReaccion\":\"like\"}";
+	}
+}
@@ -0,0 +1,68 @@
+package co.edu.unicauca.servidorPagos.Perfilado;
+
+import co.edu.unicauca.servidorPagos.Models.PagoRequest;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"pagos.grpc.puerto=0", "pagos.simulacion.error-cada=0", "pagos.perfilado.configuracion=default"})
+class PerfiladoEndpointTests {
+
+	@LocalServerPort
+	private int puerto;
+
+	private final RestTemplate rest = new RestTemplate();
+
+	@Test
+	void grabaLosPagosYDescargaElArchivoJfr() throws Exception {
+		String perfilado = "http://localhost:" + puerto + "/actuator/perfilado";
+		String pagos = "http://localhost:" + puerto + "/api/pagos";
+
+		ResponseEntity<Map> inicio = rest.postForEntity(perfilado, Map.of("segundos", 30), Map.class);
+		assertEquals("RUNNING", inicio.getBody().get("estado"));
+		HttpClientErrorException enCurso = assertThrows(HttpClientErrorException.class,
+				() -> rest.postForEntity(perfilado, Map.of(), Map.class));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, enCurso.getStatusCode());
+
+		String token = (String) rest.postForObject(pagos + "/token", null, Map.class).get("token");
+		rest.postForObject(pagos, new PagoRequest(token, "perfilado", "c1", 10, "clave-perfilado", "like"), Map.class);
+
+		byte[] jfr = rest.exchange(perfilado, HttpMethod.DELETE, null, byte[].class).getBody();
+		Path archivo = Files.createTempFile("prueba-", ".jfr");
+		try {
+			Files.write(archivo, jfr);
+			List<RecordedEvent> eventos = RecordingFile.readAllEvents(archivo).stream()
+					.filter(e -> e.getEventType().getName().startsWith("co.edu.unicauca.pagos."))
+					.toList();
+			assertTrue(eventos.stream().anyMatch(e -> e.getEventType().getName().endsWith("TokenEmitido")));
+			RecordedEvent pago = eventos.stream()
+					.filter(e -> e.getEventType().getName().endsWith("PagoRegistrado"))
+					.findFirst().orElseThrow();
+			assertEquals("perfilado", pago.getString("nickname"));
+			assertEquals("ACEPTADO", pago.getString("resultado"));
+		} finally {
+			Files.deleteIfExists(archivo);
+		}
+
+		HttpClientErrorException sinGrabacion = assertThrows(HttpClientErrorException.class,
+				() -> rest.exchange(perfilado, HttpMethod.DELETE, null, byte[].class));
+		assertEquals(HttpStatus.NOT_FOUND, sinGrabacion.getStatusCode());
+	}
+}
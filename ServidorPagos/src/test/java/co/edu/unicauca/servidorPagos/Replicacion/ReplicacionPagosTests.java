@@ -0,0 +1,199 @@
+package co.edu.unicauca.servidorPagos.Replicacion;
+
+import co.edu.unicauca.servidorPagos.Models.PagoRequest;
+import co.edu.unicauca.servidorPagos.Repository.PagosRepository;
+import co.edu.unicauca.servidorPagos.ServidorPagosApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Levanta un primario y su respaldo como dos aplicaciones independientes en la misma JVM, cada
+ * una con sus propios puertos y repositorios, y simula la caída del primario cerrándolo.
+ */
+class ReplicacionPagosTests {
+
+	private static final int PAGOS = 200;
+	private static final long PLAZO_PROMOCION_MS = 500;
+
+	private final RestTemplate rest = new RestTemplate();
+	private final List<ConfigurableApplicationContext> contextos = new ArrayList<>();
+
+	@AfterEach
+	void cerrar() {
+		contextos.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Test
+	void elRespaldoQuedaAlDiaYAtiendeAlCaerElPrimario() {
+		ConfigurableApplicationContext respaldo = iniciar("pagos.replicacion.rol=respaldo", "pagos.replicacion.puerto=0",
+				"pagos.replicacion.plazo-promocion-ms=" + PLAZO_PROMOCION_MS);
+		int puertoReplicacion = respaldo.getBean(ReplicacionPagos.class).getPuertoRespaldo();
+		ConfigurableApplicationContext primario = iniciar("pagos.replicacion.rol=primario",
+				"pagos.replicacion.respaldo=localhost:" + puertoReplicacion,
+				"pagos.replicacion.confirmacion=sincrona");
+		ReplicacionPagos replicacionPrimario = primario.getBean(ReplicacionPagos.class);
+		esperarConexion(replicacionPrimario);
+
+		String urlPrimario = url(primario);
+		String ultimoToken = null;
+		for (int i = 0; i < PAGOS; i++) {
+			ultimoToken = token(urlPrimario);
+			Map<?, ?> respuesta = rest.postForObject(urlPrimario,
+					new PagoRequest(ultimoToken, "usuario" + i, "c1", 1, "clave-" + i, "like"), Map.class);
+			assertEquals("ACEPTADO", respuesta.get("estado"));
+		}
+
+		// Con confirmación síncrona, cada respuesta llegó después de que el respaldo aplicara el pago.
+		PagosRepository repositorioPrimario = primario.getBean(PagosRepository.class);
+		PagosRepository repositorioRespaldo = respaldo.getBean(PagosRepository.class);
+		assertEquals(repositorioPrimario.copiarTotales(), repositorioRespaldo.copiarTotales());
+		assertTrue(repositorioRespaldo.esTokenUsado(ultimoToken));
+		Map<String, Object> estado = replicacionPrimario.estado();
+		assertEquals(0L, estado.get("esperasVencidas"));
+		System.out.println("[PRUEBA] Replicación de " + PAGOS + " pagos: " + estado.get("lotesEnviados")
+				+ " lotes, retraso último " + estado.get("retrasoUltimoMicros") + " µs, máximo "
+				+ estado.get("retrasoMaximoMicros") + " µs");
+
+		// Con el primario vivo, aunque ocioso, el respaldo no se promueve: rechaza el pago con 503.
+		String urlRespaldo = url(respaldo);
+		esperar(2 * PLAZO_PROMOCION_MS);
+		String tokenRespaldo = token(urlRespaldo);
+		HttpServerErrorException rechazo = assertThrows(HttpServerErrorException.class,
+				() -> rest.postForObject(urlRespaldo, new PagoRequest(tokenRespaldo, "usuario0", "c1", 1, null, "like"),
+						Map.class));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rechazo.getStatusCode());
+		assertNotNull(rechazo.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		assertEquals(false, respaldo.getBean(ReplicacionPagos.class).estado().get("promovido"));
+
+		// Cae el primario; el cliente reintenta el último pago, con la misma clave, en el respaldo,
+		// que lo acepta en cuanto el primario cumple el plazo sin replicar.
+		primario.close();
+		long inicio = System.nanoTime();
+		assertThrows(ResourceAccessException.class, () -> token(urlPrimario));
+		Map<?, ?> reintento = pagarHastaPromover(urlRespaldo,
+				new PagoRequest(ultimoToken, "usuario" + (PAGOS - 1), "c1", 1, "clave-" + (PAGOS - 1), "like"));
+		long conmutacionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+		System.out.println("[PRUEBA] Conmutación al respaldo: " + conmutacionMs + " ms");
+
+		assertEquals("ACEPTADO", reintento.get("estado"));
+		assertEquals(repositorioRespaldo.obtenerTotalUsuario("usuario" + (PAGOS - 1)),
+				((Number) reintento.get("totalAcumuladoUsuario")).intValue());
+		assertEquals(true, respaldo.getBean(ReplicacionPagos.class).estado().get("promovido"));
+
+		// Un pago nuevo sobre un token ya replicado se rechaza en el respaldo.
+		Map<?, ?> repetido = rest.postForObject(urlRespaldo,
+				new PagoRequest(ultimoToken, "usuario0", "c1", 1, null, "like"), Map.class);
+		assertEquals("TOKEN_REPETIDO", repetido.get("estado"));
+	}
+
+	@Test
+	void laInstantaneaLlevaLosResultadosIdempotentesAlRespaldo() throws IOException {
+		int puertoReplicacion;
+		try (ServerSocket libre = new ServerSocket(0)) {
+			puertoReplicacion = libre.getLocalPort();
+		}
+		// El primario atiende el pago antes de que exista el respaldo; este lo recibe solo en la instantánea.
+		ConfigurableApplicationContext primario = iniciar("pagos.replicacion.rol=primario",
+				"pagos.replicacion.respaldo=localhost:" + puertoReplicacion);
+		String urlPrimario = url(primario);
+		String token = token(urlPrimario);
+		PagoRequest pago = new PagoRequest(token, "ana", "c1", 1, "clave-ana", "like");
+		Map<?, ?> aceptado = rest.postForObject(urlPrimario, pago, Map.class);
+		assertEquals("ACEPTADO", aceptado.get("estado"));
+
+		ConfigurableApplicationContext respaldo = iniciar("pagos.replicacion.rol=respaldo",
+				"pagos.replicacion.puerto=" + puertoReplicacion,
+				"pagos.replicacion.plazo-promocion-ms=" + PLAZO_PROMOCION_MS);
+		esperarConexion(primario.getBean(ReplicacionPagos.class));
+		esperarInstantanea(respaldo.getBean(PagosRepository.class), token);
+
+		// Tras la conmutación, el reintento con la misma clave y el mismo token recibe su resultado.
+		primario.close();
+		Map<?, ?> reintento = pagarHastaPromover(url(respaldo), pago);
+		assertEquals(aceptado, reintento);
+	}
+
+	private ConfigurableApplicationContext iniciar(String... propiedades) {
+		// Como argumentos, para que prevalezcan sobre application.properties.
+		List<String> argumentos = new ArrayList<>(List.of("--server.port=0", "--pagos.grpc.puerto=0",
+				"--pagos.simulacion.error-cada=0"));
+		for (String propiedad : propiedades) {
+			argumentos.add("--" + propiedad);
+		}
+		ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ServidorPagosApplication.class)
+				.run(argumentos.toArray(String[]::new));
+		contextos.add(contexto);
+		return contexto;
+	}
+
+	private static String url(ConfigurableApplicationContext contexto) {
+		int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+		return "http://localhost:" + puerto + "/api/pagos";
+	}
+
+	private String token(String url) {
+		return (String) rest.postForObject(url + "/token", null, Map.class).get("token");
+	}
+
+	private Map<?, ?> pagarHastaPromover(String url, PagoRequest pago) {
+		long limite = System.currentTimeMillis() + 10 * PLAZO_PROMOCION_MS;
+		while (true) {
+			try {
+				return rest.postForObject(url, pago, Map.class);
+			} catch (HttpServerErrorException e) {
+				assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+				assertTrue(System.currentTimeMillis() < limite, "El respaldo no se promovió");
+				esperar(50);
+			}
+		}
+	}
+
+	private static void esperar(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void esperarInstantanea(PagosRepository repositorio, String token) {
+		long limite = System.currentTimeMillis() + 5_000;
+		while (!repositorio.esTokenUsado(token)) {
+			assertTrue(System.currentTimeMillis() < limite, "El respaldo no recibió la instantánea");
+			esperar(10);
+		}
+	}
+
+	private static void esperarConexion(ReplicacionPagos replicacion) {
+		long limite = System.currentTimeMillis() + 5_000;
+		while (!Boolean.TRUE.equals(replicacion.estado().get("conectado"))) {
+			assertTrue(System.currentTimeMillis() < limite, "El primario no se conectó al respaldo");
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
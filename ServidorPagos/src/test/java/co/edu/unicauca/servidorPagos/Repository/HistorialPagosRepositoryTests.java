@@ -0,0 +1,134 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PaginaHistorialPagos;
+import co.edu.unicauca.servidorPagos.Models.RegistroPago;
+import co.edu.unicauca.servidorPagos.Models.ResumenGasto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistorialPagosRepositoryTests {
+
+	@Test
+	void paginaDelMasRecienteAlMasAntiguoConFiltrosYRangoDeTiempo() {
+		HistorialPagosRepository historial = new HistorialPagosRepository();
+		for (int i = 0; i < 10_000; i++) {
+			historial.registrar(1_000L + i, "u" + (i % 10), "c" + (i % 7), 10,
+					i % 4 == 3 ? EstadoPago.ERROR_SIMULADO : EstadoPago.ACEPTADO);
+		}
+
+		PaginaHistorialPagos pagina = historial.consultar("u3", null, null, null, null, 1, 5);
+		assertEquals(1_000, pagina.getTotalElementos());
+		assertEquals(List.of(10_943L, 10_933L, 10_923L, 10_913L, 10_903L), marcas(pagina.getRegistros()));
+
+		// u3 y c5 a la vez: i = 3 (mod 10) y 5 (mod 7), es decir i = 33 (mod 70).
+		PaginaHistorialPagos combinada = historial.consultar("u3", "c5", null, 1_000L, 1_000L + 700, 0, 50);
+		assertEquals(List.of(1_663L, 1_593L, 1_523L, 1_453L, 1_383L, 1_313L, 1_243L, 1_173L, 1_103L, 1_033L),
+				marcas(combinada.getRegistros()));
+
+		PaginaHistorialPagos errores = historial.consultar(null, null, EstadoPago.ERROR_SIMULADO, 1_000L, 1_100L, 0, 3);
+		assertEquals(25, errores.getTotalElementos());
+		assertEquals(List.of(1_099L, 1_095L, 1_091L), marcas(errores.getRegistros()));
+
+		assertEquals(0, historial.consultar("desconocido", null, null, null, null, 0, 10).getTotalElementos());
+	}
+
+	@Test
+	void agregaElGastoPorCancionUsuarioYEstado() {
+		HistorialPagosRepository historial = new HistorialPagosRepository();
+		historial.registrar(1, "ana", "c1", 10, EstadoPago.ACEPTADO);
+		historial.registrar(2, "ana", "c1", 10, EstadoPago.ACEPTADO);
+		historial.registrar(3, "ana", "c2", 10, EstadoPago.ACEPTADO);
+		historial.registrar(4, "ana", "c2", 10, EstadoPago.LIMITE_SUPERADO);
+		historial.registrar(5, "luis", "c2", 10, EstadoPago.ACEPTADO);
+
+		List<ResumenGasto> porCancion = historial.resumir(HistorialPagosRepository.Agrupacion.CANCION, "ana", null, null, null);
+		assertEquals(List.of(new ResumenGasto("c1", 2, 2, 20), new ResumenGasto("c2", 2, 1, 10)), porCancion);
+
+		List<ResumenGasto> porUsuario = historial.resumir(HistorialPagosRepository.Agrupacion.USUARIO, null, "c2", 3L, null);
+		assertEquals(List.of(new ResumenGasto("ana", 2, 1, 10), new ResumenGasto("luis", 1, 1, 10)), porUsuario);
+
+		List<ResumenGasto> porEstado = historial.resumir(HistorialPagosRepository.Agrupacion.ESTADO, null, null, null, null);
+		assertEquals(List.of(new ResumenGasto("ACEPTADO", 4, 4, 40), new ResumenGasto("LIMITE_SUPERADO", 1, 0, 0)), porEstado);
+	}
+
+	@Test
+	void lasConsultasVenPrefijosConsistentesMientrasSeRegistranPagos() throws Exception {
+		consultarMientrasSeRegistran();
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkLatenciaDeConsultasConEscriturasConcurrentes() throws Exception {
+		long peorNanos = consultarMientrasSeRegistran();
+		System.out.println("[HISTORIAL] Peor latencia de consulta con escrituras concurrentes: "
+				+ TimeUnit.NANOSECONDS.toMicros(peorNanos) + " us");
+		assertTrue(peorNanos < TimeUnit.SECONDS.toNanos(1));
+	}
+
+	/**
+	 * Cuatro hilos registran pagos mientras otro consulta y resume sin pausa, verificando que cada
+	 * resultado sea consistente.
+	 *
+	 * @return la peor latencia de una consulta, en nanosegundos
+	 */
+	private static long consultarMientrasSeRegistran() throws Exception {
+		HistorialPagosRepository historial = new HistorialPagosRepository();
+		int escritores = 4;
+		int pagosPorEscritor = 50_000;
+		ExecutorService hilos = Executors.newFixedThreadPool(escritores + 1);
+		AtomicBoolean terminado = new AtomicBoolean();
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int e = 0; e < escritores; e++) {
+			String nickname = "u" + e;
+			tareas.add(hilos.submit(() -> {
+				for (int i = 0; i < pagosPorEscritor; i++) {
+					historial.registrar(nickname, "c" + (i % 100), 10, EstadoPago.ACEPTADO);
+				}
+			}));
+		}
+		Future<Long> lector = hilos.submit(() -> {
+			long peorNanos = 0;
+			while (!terminado.get()) {
+				long inicio = System.nanoTime();
+				PaginaHistorialPagos pagina = historial.consultar("u1", null, null, null, null, 0, 20);
+				List<ResumenGasto> resumen = historial.resumir(HistorialPagosRepository.Agrupacion.USUARIO, null, "c7", null, null);
+				peorNanos = Math.max(peorNanos, System.nanoTime() - inicio);
+				for (RegistroPago registro : pagina.getRegistros()) {
+					assertEquals("u1", registro.getNickname());
+				}
+				for (ResumenGasto grupo : resumen) {
+					assertEquals(grupo.getPagos() * 10, grupo.getTotalAceptado());
+				}
+			}
+			return peorNanos;
+		});
+		for (Future<?> tarea : tareas) {
+			tarea.get(30, TimeUnit.SECONDS);
+		}
+		terminado.set(true);
+		long peorNanos = lector.get(30, TimeUnit.SECONDS);
+		hilos.shutdown();
+
+		assertEquals(escritores * pagosPorEscritor, historial.tamano());
+		List<ResumenGasto> porUsuario = historial.resumir(HistorialPagosRepository.Agrupacion.USUARIO, null, null, null, null);
+		assertEquals(escritores, porUsuario.size());
+		porUsuario.forEach(grupo -> assertEquals(pagosPorEscritor, grupo.getPagos()));
+		return peorNanos;
+	}
+
+	private static List<Long> marcas(List<RegistroPago> registros) {
+		return registros.stream().map(RegistroPago::getMarcaTiempo).toList();
+	}
+}
@@ -0,0 +1,147 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.PagoResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultadosIdempotentesRepositoryTests {
+
+	@Test
+	void repeticionDevuelveElResultadoAlmacenadoSinRecalcular() {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(100, 60);
+		AtomicInteger calculos = new AtomicInteger();
+
+		PagoResponse primera = repositorio.obtenerOCalcular("k1", () -> aceptado(calculos.incrementAndGet()), r -> true);
+		PagoResponse segunda = repositorio.obtenerOCalcular("k1", () -> aceptado(calculos.incrementAndGet()), r -> true);
+
+		assertSame(primera, segunda);
+		assertEquals(1, calculos.get());
+	}
+
+	@Test
+	void resultadosNoAlmacenablesSeRecalculan() {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(100, 60);
+		AtomicInteger calculos = new AtomicInteger();
+
+		repositorio.obtenerOCalcular("k1", () -> {
+			calculos.incrementAndGet();
+			return new PagoResponse(EstadoPago.ERROR_SIMULADO, "error", 0);
+		}, r -> r.getEstado() != EstadoPago.ERROR_SIMULADO);
+		repositorio.obtenerOCalcular("k1", () -> aceptado(calculos.incrementAndGet()), r -> true);
+
+		assertEquals(2, calculos.get());
+	}
+
+	@Test
+	void peticionesConcurrentesConLaMismaClaveSeProcesanUnaVez() throws Exception {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(100, 60);
+		AtomicInteger calculos = new AtomicInteger();
+		CountDownLatch salida = new CountDownLatch(1);
+		ExecutorService hilos = Executors.newFixedThreadPool(8);
+		try {
+			Future<?>[] futuros = new Future<?>[8];
+			for (int i = 0; i < futuros.length; i++) {
+				futuros[i] = hilos.submit(() -> {
+					salida.await();
+					return repositorio.obtenerOCalcular("k1", () -> {
+						try {
+							Thread.sleep(50);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return aceptado(calculos.incrementAndGet());
+					}, r -> true);
+				});
+			}
+			salida.countDown();
+			for (Future<?> futuro : futuros) {
+				futuro.get(5, TimeUnit.SECONDS);
+			}
+		} finally {
+			hilos.shutdownNow();
+		}
+		assertEquals(1, calculos.get());
+	}
+
+	@Test
+	void laVarianteAsincronaEsperaAlPrimerIntentoSinRecalcularNiBloquear() {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(100, 60);
+		AtomicInteger calculos = new AtomicInteger();
+		CompletableFuture<PagoResponse> enCurso = new CompletableFuture<>();
+
+		CompletableFuture<PagoResponse> primero = repositorio.obtenerOCalcularAsincrono("k1", () -> {
+			calculos.incrementAndGet();
+			return enCurso;
+		}, r -> true);
+		CompletableFuture<PagoResponse> repetido = repositorio.obtenerOCalcularAsincrono("k1", () -> {
+			calculos.incrementAndGet();
+			return CompletableFuture.completedFuture(aceptado(99));
+		}, r -> true);
+		// Cancelar un intento no afecta al resultado compartido.
+		repetido.cancel(false);
+		CompletableFuture<PagoResponse> otro = repositorio.obtenerOCalcularAsincrono("k1",
+				() -> CompletableFuture.completedFuture(aceptado(99)), r -> true);
+
+		assertFalse(otro.isDone());
+		PagoResponse respuesta = aceptado(10);
+		enCurso.complete(respuesta);
+		assertSame(respuesta, primero.join());
+		assertSame(respuesta, otro.join());
+		assertEquals(1, calculos.get());
+	}
+
+	@Test
+	void laVarianteAsincronaOlvidaLaClaveSiElCalculoFalla() {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(100, 60);
+
+		CompletableFuture<PagoResponse> fallido = repositorio.obtenerOCalcularAsincrono("k1",
+				() -> CompletableFuture.failedFuture(new IllegalStateException("sin respaldo")), r -> true);
+		PagoResponse reintento = repositorio.obtenerOCalcularAsincrono("k1",
+				() -> CompletableFuture.completedFuture(aceptado(10)), r -> true).join();
+
+		assertTrue(fallido.isCompletedExceptionally());
+		assertEquals(10, reintento.getTotalAcumuladoUsuario());
+	}
+
+	@Test
+	void obtenerTerminadoNoEsperaALasClavesEnCalculo() {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(100, 60);
+		CompletableFuture<PagoResponse> enCurso = new CompletableFuture<>();
+		repositorio.obtenerOCalcularAsincrono("k1", () -> enCurso, r -> true);
+
+		assertNull(repositorio.obtenerTerminado("k1"));
+		assertNull(repositorio.obtenerTerminado("k2"));
+
+		PagoResponse respuesta = aceptado(10);
+		enCurso.complete(respuesta);
+		assertSame(respuesta, repositorio.obtenerTerminado("k1"));
+	}
+
+	@Test
+	void respetaLaCapacidadMaxima() {
+		ResultadosIdempotentesRepository repositorio = new ResultadosIdempotentesRepository(10, 60);
+		for (int i = 0; i < 100; i++) {
+			int valor = i;
+			repositorio.obtenerOCalcular("k" + i, () -> aceptado(valor), r -> true);
+		}
+		assertEquals(10, repositorio.tamano());
+	}
+
+	private static PagoResponse aceptado(int total) {
+		return new PagoResponse(EstadoPago.ACEPTADO, "ok", total);
+	}
+}
@@ -0,0 +1,219 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TotalesMapeadosTests {
+
+	private static final String NICKNAME_LARGO = "usuario-con-un-nickname-muy-largo-".repeat(3);
+
+	@TempDir
+	Path directorio;
+
+	@Test
+	void losTotalesSobrevivenAlReinicioYOtroProcesoLosLee() throws Exception {
+		Path archivo = directorio.resolve("totales.dat");
+		TotalesMapeados totales = TotalesMapeados.abrir(archivo, 1024);
+		totales.actualizar("ana", 30);
+		totales.actualizar("ñandú-😀", 20);
+		totales.actualizar(NICKNAME_LARGO, 10);
+		totales.actualizar(NICKNAME_LARGO + "x", 40);
+		totales.actualizar("ana", 50);
+		totales.cerrar();
+
+		TotalesMapeados reabiertos = TotalesMapeados.abrir(archivo, 1024);
+		assertEquals(50, reabiertos.obtener("ana"));
+		assertEquals(20, reabiertos.obtener("ñandú-😀"));
+		assertEquals(10, reabiertos.obtener(NICKNAME_LARGO));
+		assertEquals(40, reabiertos.obtener(NICKNAME_LARGO + "x"));
+		assertEquals(0, reabiertos.obtener("luis"));
+		assertEquals(Map.of("ana", 50, "ñandú-😀", 20, NICKNAME_LARGO, 10, NICKNAME_LARGO + "x", 40),
+				reabiertos.copiar());
+		assertThrows(IllegalStateException.class, () -> TotalesMapeados.abrir(archivo, 2048));
+
+		// Otro proceso abre el archivo solo para lectura mientras este lo sigue actualizando.
+		reabiertos.actualizar("ana", 70);
+		assertEquals("70", leerEnOtroProceso(archivo, "ana"));
+	}
+
+	@Test
+	void elNicknameVacioOcupaUnSoloRegistro() {
+		TotalesMapeados totales = TotalesMapeados.abrir(directorio.resolve("vacio.dat"), 16);
+		totales.actualizar("", 10);
+		totales.actualizar("", 25);
+		totales.actualizar("ana", 5);
+
+		assertEquals(25, totales.obtener(""));
+		assertEquals(2, totales.contarUsuarios());
+		assertEquals(Map.of("", 25, "ana", 5), totales.copiar());
+	}
+
+	@Test
+	void unNicknameLargoCortadoAlEscribirseNoImpideAbrirElArchivo() throws Exception {
+		Path archivo = directorio.resolve("cortado.dat");
+		TotalesMapeados totales = TotalesMapeados.abrir(archivo, 16);
+		totales.actualizar(NICKNAME_LARGO, 10);
+		totales.cerrar();
+		// El proceso terminó a mitad de registrar otro nickname largo, antes de reclamar su registro.
+		Files.write(archivo.resolveSibling("cortado.dat.largos"), new byte[]{0, 0, 0, 90, 'a', 'b'},
+				StandardOpenOption.APPEND);
+
+		TotalesMapeados reabiertos = TotalesMapeados.abrir(archivo, 16);
+		assertEquals(Map.of(NICKNAME_LARGO, 10), reabiertos.copiar());
+		reabiertos.actualizar(NICKNAME_LARGO + "y", 5);
+		reabiertos.cerrar();
+
+		assertEquals(Map.of(NICKNAME_LARGO, 10, NICKNAME_LARGO + "y", 5), TotalesMapeados.abrir(archivo, 16).copiar());
+	}
+
+	@Test
+	void insercionesConcurrentesNoDuplicanUsuarios() throws Exception {
+		TotalesMapeados totales = TotalesMapeados.abrir(directorio.resolve("concurrentes.dat"), 1 << 16);
+		int hilos = 4;
+		int usuarios = 20_000;
+		ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+		try {
+			List<Future<?>> futuros = new ArrayList<>();
+			for (int h = 0; h < hilos; h++) {
+				int desplazamiento = h * 1000;
+				// Cada hilo recorre los mismos usuarios desde un punto distinto.
+				futuros.add(ejecutor.submit(() -> {
+					for (int i = 0; i < usuarios; i++) {
+						int usuario = (i + desplazamiento) % usuarios;
+						totales.actualizar("usuario-" + usuario, usuario);
+					}
+				}));
+			}
+			for (Future<?> futuro : futuros) {
+				futuro.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			ejecutor.shutdownNow();
+		}
+
+		assertEquals(usuarios, totales.contarUsuarios());
+		for (int i = 0; i < usuarios; i++) {
+			assertEquals(i, totales.obtener("usuario-" + i));
+		}
+	}
+
+	/**
+	 * Dos millones de usuarios y diez millones de pagos, con totales en el heap y en el archivo
+	 * mapeado. Compara el heap retenido, las recolecciones durante los pagos y la pausa de una
+	 * recolección completa con todos los usuarios vivos.
+	 */
+	@Test
+	@Tag("benchmark")
+	void benchmarkHeapYPausasDeGc() {
+		int usuarios = 2_000_000;
+		int pagos = 10_000_000;
+		String[] nicknames = new String[usuarios];
+		for (int i = 0; i < usuarios; i++) {
+			nicknames[i] = "usuario-" + i;
+		}
+
+		System.out.printf("[BENCHMARK] Totales de %,d usuarios tras %,d pagos%n", usuarios, pagos);
+		Medicion memoria = medir(new TotalesAcumulados(), nicknames, pagos);
+		System.out.println("[BENCHMARK]   memoria (ConcurrentHashMap): " + memoria);
+		Medicion mapeado = medir(TotalesMapeados.abrir(directorio.resolve("benchmark.dat"), 1 << 22), nicknames, pagos);
+		System.out.println("[BENCHMARK]   mapeado (archivo fuera del heap): " + mapeado);
+
+		assertTrue(mapeado.heapRetenido < memoria.heapRetenido / 10,
+				"el almacén mapeado debería retener mucho menos heap");
+	}
+
+	private record Medicion(long heapRetenido, long recolecciones, long tiempoRecoleccionMs, long pausaCompletaMs,
+							long pagosPorSegundo) {
+
+		@Override
+		public String toString() {
+			return String.format("heap retenido=%,d KB, recolecciones durante los pagos=%d (%d ms), "
+							+ "recolección completa=%d ms, %,d pagos/s",
+					heapRetenido / 1024, recolecciones, tiempoRecoleccionMs, pausaCompletaMs, pagosPorSegundo);
+		}
+	}
+
+	private static Medicion medir(TotalesUsuarios totales, String[] nicknames, int pagos) {
+		long heapInicial = heapUsadoTrasRecolectar();
+		for (String nickname : nicknames) {
+			totales.actualizar(nickname, 10);
+		}
+
+		long[] gcInicial = estadoGc();
+		ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+		long inicio = System.nanoTime();
+		for (int i = 0; i < pagos; i++) {
+			String nickname = nicknames[aleatorio.nextInt(nicknames.length)];
+			totales.actualizar(nickname, totales.obtener(nickname) + 10);
+		}
+		long duracion = System.nanoTime() - inicio;
+		long[] gcFinal = estadoGc();
+
+		long inicioCompleta = System.nanoTime();
+		long heapFinal = heapUsadoTrasRecolectar();
+		long pausaCompletaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioCompleta);
+		totales.cerrar();
+		return new Medicion(heapFinal - heapInicial, gcFinal[0] - gcInicial[0], gcFinal[1] - gcInicial[1],
+				pausaCompletaMs, pagos * 1_000_000_000L / duracion);
+	}
+
+	private static long heapUsadoTrasRecolectar() {
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * @return número y tiempo acumulado de recolecciones de todos los recolectores
+	 */
+	private static long[] estadoGc() {
+		long[] estado = new long[2];
+		for (GarbageCollectorMXBean recolector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			estado[0] += Math.max(0, recolector.getCollectionCount());
+			estado[1] += Math.max(0, recolector.getCollectionTime());
+		}
+		return estado;
+	}
+
+	private static String leerEnOtroProceso(Path archivo, String nickname) throws IOException, InterruptedException {
+		String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+		Process proceso = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				LectorOtroProceso.class.getName(), archivo.toString(), nickname)
+				.redirectErrorStream(true)
+				.start();
+		assertTrue(proceso.waitFor(60, TimeUnit.SECONDS), "el proceso lector no terminó");
+		String salida = new String(proceso.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+		assertEquals(0, proceso.exitValue(), salida);
+		return salida;
+	}
+
+	/**
+	 * Proceso aparte que lee un total del archivo mapeado y lo imprime.
+	 */
+	static final class LectorOtroProceso {
+
+		public static void main(String[] args) {
+			System.out.println(TotalesMapeados.abrirLectura(Path.of(args[0])).obtener(args[1]));
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package co.edu.unicauca.servidorPagos.Repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TotalesVentanaDeslizanteTests {
+
+	private static final long HORA_MS = TimeUnit.HOURS.toMillis(1);
+
+	private final Object bloqueo = new Object();
+
+	@Test
+	void elGastoDejaDeContarAlSalirDeLaVentana() {
+		AtomicLong reloj = new AtomicLong();
+		TotalesVentanaDeslizante totales = new TotalesVentanaDeslizante(4 * HORA_MS, 4, reloj::get, n -> bloqueo);
+
+		totales.actualizar("ana", 30);
+		reloj.set(HORA_MS + HORA_MS / 2);
+		totales.actualizar("ana", 50);
+		totales.actualizar("luis", 10);
+		assertEquals(50, totales.obtener("ana"));
+
+		reloj.set(4 * HORA_MS - 1);
+		totales.vencer();
+		assertEquals(50, totales.obtener("ana"));
+
+		// La cubeta de la primera hora sale de la ventana; la de la segunda sigue.
+		reloj.set(4 * HORA_MS);
+		totales.vencer();
+		assertEquals(20, totales.obtener("ana"));
+		assertEquals(Map.of("ana", 20, "luis", 10), totales.copiar());
+
+		reloj.set(5 * HORA_MS);
+		totales.vencer();
+		assertEquals(0, totales.obtener("ana"));
+		assertEquals(0, totales.getUsuarios());
+	}
+
+	@Test
+	void losTotalesReplicadosSeAplicanComoDiferencia() {
+		AtomicLong reloj = new AtomicLong();
+		TotalesVentanaDeslizante totales = new TotalesVentanaDeslizante(2 * HORA_MS, 2, reloj::get, n -> bloqueo);
+
+		totales.actualizar("ana", 40);
+		totales.actualizar("ana", 30);
+		reloj.set(HORA_MS);
+		totales.actualizar("ana", 50);
+		assertEquals(50, totales.obtener("ana"));
+
+		reloj.set(2 * HORA_MS);
+		totales.vencer();
+		assertEquals(20, totales.obtener("ana"));
+	}
+
+	@Test
+	void laRuedaVenceCadaNodoEnSuTickAunqueBajeDeNivel() {
+		RuedaTemporizacion<NodoPrueba> rueda = new RuedaTemporizacion<>(0);
+		Random aleatorio = new Random(7);
+		Map<NodoPrueba, Long> esperados = new HashMap<>();
+		long horizonte = (long) RuedaTemporizacion.RANURAS * RuedaTemporizacion.RANURAS * RuedaTemporizacion.RANURAS;
+		for (int i = 0; i < 20_000; i++) {
+			NodoPrueba nodo = new NodoPrueba();
+			long vence = 1 + (long) (aleatorio.nextDouble() * horizonte);
+			rueda.agregar(nodo, vence);
+			esperados.put(nodo, vence);
+		}
+
+		long tick = 0;
+		while (!esperados.isEmpty()) {
+			// Avanza a saltos irregulares, como el vencimiento periódico.
+			tick += 1 + aleatorio.nextInt(700);
+			for (NodoPrueba nodo = rueda.avanzar(tick); nodo != null; nodo = nodo.siguiente) {
+				Long vence = esperados.remove(nodo);
+				assertTrue(vence != null && vence <= tick && vence > tick - 701, "vencimiento fuera de su salto");
+			}
+		}
+		assertNull(rueda.avanzar(tick + horizonte));
+	}
+
+	/**
+	 * Dos millones de usuarios gastan en la misma hora; cuando esa hora sale de la ventana diaria
+	 * vencen todos a la vez mientras otro hilo sigue verificando límites. Compara la latencia de la
+	 * verificación antes y durante el vencimiento.
+	 */
+	@Test
+	@Tag("benchmark")
+	void benchmarkLatenciaDelLimiteMientrasVenceLaVentana() throws Exception {
+		int usuarios = 2_000_000;
+		int limite = 50;
+		AtomicLong reloj = new AtomicLong();
+		Object[] bloqueos = new Object[64];
+		for (int i = 0; i < bloqueos.length; i++) {
+			bloqueos[i] = new Object();
+		}
+		TotalesVentanaDeslizante totales = new TotalesVentanaDeslizante(24 * HORA_MS, 24, reloj::get,
+				n -> bloqueos[n.hashCode() & (bloqueos.length - 1)]);
+		String[] nicknames = new String[usuarios];
+		for (int i = 0; i < usuarios; i++) {
+			nicknames[i] = "usuario-" + i;
+			synchronized (bloqueos[nicknames[i].hashCode() & (bloqueos.length - 1)]) {
+				totales.actualizar(nicknames[i], 10);
+			}
+		}
+
+		reloj.set(23 * HORA_MS + HORA_MS / 2);
+		long[] estable = new long[4_000_000];
+		long[] venciendo = new long[4_000_000];
+		int[] muestras = new int[2];
+		AtomicInteger fase = new AtomicInteger();
+		Thread verificador = new Thread(() -> {
+			ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+			while (fase.get() < 3) {
+				String nickname = nicknames[aleatorio.nextInt(nicknames.length)];
+				long inicio = System.nanoTime();
+				synchronized (bloqueos[nickname.hashCode() & (bloqueos.length - 1)]) {
+					int total = totales.obtener(nickname);
+					if (total + 10 <= limite) {
+						totales.actualizar(nickname, total + 10);
+					}
+				}
+				long latencia = System.nanoTime() - inicio;
+				int f = fase.get();
+				if (f == 1 && muestras[0] < estable.length) {
+					estable[muestras[0]++] = latencia;
+				} else if (f == 2 && muestras[1] < venciendo.length) {
+					venciendo[muestras[1]++] = latencia;
+				}
+			}
+		}, "verificador-limites");
+		verificador.start();
+
+		Thread.sleep(300);
+		fase.set(1);
+		Thread.sleep(500);
+		fase.set(2);
+		reloj.set(24 * HORA_MS);
+		long inicioVencer = System.nanoTime();
+		totales.vencer();
+		long vencerMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioVencer);
+		fase.set(3);
+		verificador.join();
+
+		System.out.printf("[BENCHMARK] Límite en ventana de 24 h con %,d usuarios; vencer la hora completa tomó %d ms%n",
+				usuarios, vencerMs);
+		imprimir("antes", estable, muestras[0]);
+		imprimir("durante", venciendo, muestras[1]);
+
+		// Solo quedan los usuarios que gastaron en la última media hora.
+		assertTrue(totales.getUsuarios() < usuarios / 2, "no vencieron las cubetas: " + totales.getUsuarios());
+		assertTrue(percentil(venciendo, muestras[1], 0.99) < TimeUnit.MILLISECONDS.toNanos(1),
+				"p99 de la verificación durante el vencimiento por encima de 1 ms");
+	}
+
+	private static void imprimir(String etiqueta, long[] latencias, int muestras) {
+		Arrays.sort(latencias, 0, muestras);
+		System.out.printf("[BENCHMARK]   verificación %-7s del vencimiento: %,d muestras, p50=%d ns, p99=%d ns, p99.9=%d ns, máx=%d ns%n",
+				etiqueta, muestras, percentil(latencias, muestras, 0.5), percentil(latencias, muestras, 0.99),
+				percentil(latencias, muestras, 0.999), muestras == 0 ? 0 : latencias[muestras - 1]);
+	}
+
+	/**
+	 * @param latencias arreglo ordenado en sus primeras {@code muestras} posiciones
+	 */
+	private static long percentil(long[] latencias, int muestras, double percentil) {
+		return muestras == 0 ? 0 : latencias[(int) Math.min(muestras - 1, muestras * percentil)];
+	}
+
+	private static final class NodoPrueba extends RuedaTemporizacion.Nodo<NodoPrueba> {
+	}
+}
@@ -0,0 +1,105 @@
+package co.edu.unicauca.servidorPagos.Service;
+
+import co.edu.unicauca.servidorPagos.Models.Arrendamiento;
+import co.edu.unicauca.servidorPagos.Models.DefinicionReglas;
+import co.edu.unicauca.servidorPagos.Models.EstadoPago;
+import co.edu.unicauca.servidorPagos.Models.LiquidacionArrendamiento;
+import co.edu.unicauca.servidorPagos.Models.ResultadoLiquidacion;
+import co.edu.unicauca.servidorPagos.Models.SolicitudArrendamiento;
+import co.edu.unicauca.servidorPagos.Replicacion.ReplicacionPagos;
+import co.edu.unicauca.servidorPagos.Repository.HistorialPagosRepository;
+import co.edu.unicauca.servidorPagos.Repository.PagosRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrendamientosServiceTests {
+
+	private final AtomicLong reloj = new AtomicLong(1_000);
+	private final PagosRepository pagosRepository = new PagosRepository();
+	private final HistorialPagosRepository historialPagos = new HistorialPagosRepository();
+	private ArrendamientosService servicio;
+
+	@BeforeEach
+	void crear() {
+		// Precio 10 y límite 50: caben cinco reacciones por usuario.
+		MotorReglasPagos motor = new MotorReglasPagos();
+		motor.actualizar(new DefinicionReglas(10, 50, Map.of(), List.of()));
+		servicio = new ArrendamientosService(reloj::get);
+		ReflectionTestUtils.setField(servicio, "pagosRepository", pagosRepository);
+		ReflectionTestUtils.setField(servicio, "historialPagos", historialPagos);
+		ReflectionTestUtils.setField(servicio, "motorReglas", motor);
+		ReflectionTestUtils.setField(servicio, "replicacionPagos", new ReplicacionPagos(pagosRepository,
+				null, "ninguno", "localhost:7070", 7070, "asincrona", 500, 512, 1024, 500, 3000));
+		ReflectionTestUtils.setField(servicio, "duracionMs", 30_000L);
+		ReflectionTestUtils.setField(servicio, "graciaMs", 5_000L);
+		ReflectionTestUtils.setField(servicio, "unidadesMaximas", 10);
+	}
+
+	@Test
+	void loArrendadoCuentaParaElLimiteDeLosDemasArrendamientos() {
+		Arrendamiento primero = servicio.conceder(new SolicitudArrendamiento("ana", "c1", "like", 3));
+		Arrendamiento segundo = servicio.conceder(new SolicitudArrendamiento("ana", "c2", "like", 3));
+		Arrendamiento tercero = servicio.conceder(new SolicitudArrendamiento("ana", "c3", "like", 3));
+
+		assertEquals(3, primero.getUnidades());
+		// Solo quedan $20 sin reservar.
+		assertEquals(2, segundo.getUnidades());
+		assertEquals(EstadoPago.LIMITE_SUPERADO, tercero.getEstado());
+		assertEquals(0, tercero.getUnidades());
+		assertEquals(50, pagosRepository.obtenerReservadoUsuario("ana"));
+		assertEquals(0, pagosRepository.obtenerTotalUsuario("ana"));
+	}
+
+	@Test
+	void liquidarEsIdempotenteYDevolverLiberaLoNoGastado() {
+		Arrendamiento arrendamiento = servicio.conceder(new SolicitudArrendamiento("ana", "c1", "like", 4));
+
+		servicio.liquidar(List.of(new LiquidacionArrendamiento(arrendamiento.getId(), 2, false)));
+		// Reenviar el mismo acumulado no cobra de nuevo.
+		List<ResultadoLiquidacion> repetida = servicio.liquidar(
+				List.of(new LiquidacionArrendamiento(arrendamiento.getId(), 2, false)));
+		assertEquals(2, repetida.get(0).getLiquidadas());
+		assertTrue(repetida.get(0).isVigente());
+		assertEquals(20, pagosRepository.obtenerTotalUsuario("ana"));
+		assertEquals(20, pagosRepository.obtenerReservadoUsuario("ana"));
+
+		List<ResultadoLiquidacion> cierre = servicio.liquidar(
+				List.of(new LiquidacionArrendamiento(arrendamiento.getId(), 3, true)));
+		assertEquals(3, cierre.get(0).getLiquidadas());
+		assertFalse(cierre.get(0).isVigente());
+		assertEquals(30, pagosRepository.obtenerTotalUsuario("ana"));
+		assertEquals(0, pagosRepository.obtenerReservadoUsuario("ana"));
+		assertEquals(3, historialPagos.tamano());
+
+		// Una liquidación tardía de un arrendamiento cerrado se ignora.
+		servicio.liquidar(List.of(new LiquidacionArrendamiento(arrendamiento.getId(), 4, false)));
+		assertEquals(30, pagosRepository.obtenerTotalUsuario("ana"));
+		assertEquals(0, servicio.cantidadVigentes());
+	}
+
+	@Test
+	void vencerLiberaLaReservaTrasLaGracia() {
+		Arrendamiento arrendamiento = servicio.conceder(new SolicitudArrendamiento("ana", "c1", "like", 5));
+		servicio.liquidar(List.of(new LiquidacionArrendamiento(arrendamiento.getId(), 1, false)));
+
+		reloj.addAndGet(30_000);
+		servicio.vencer();
+		assertEquals(1, servicio.cantidadVigentes());
+
+		reloj.addAndGet(5_000);
+		servicio.vencer();
+		assertEquals(0, servicio.cantidadVigentes());
+		assertEquals(10, pagosRepository.obtenerTotalUsuario("ana"));
+		assertEquals(0, pagosRepository.obtenerReservadoUsuario("ana"));
+		assertEquals(4, servicio.conceder(new SolicitudArrendamiento("ana", "c1", "like", 10)).getUnidades());
+	}
+}
@@ -0,0 +1,92 @@
+package co.edu.unicauca.servidorPagos.Service;
+
+import co.edu.unicauca.servidorPagos.Models.DefinicionRegla;
+import co.edu.unicauca.servidorPagos.Models.DefinicionReglas;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MotorReglasPagosTests {
+
+	@Test
+	void ganaLaReglaMasEspecifica() {
+		MotorReglasPagos motor = new MotorReglasPagos();
+		motor.actualizar(new DefinicionReglas(10, 50, Map.of("ana", "vip"), List.of(
+				new DefinicionRegla(null, null, "vip", null, 100),
+				new DefinicionRegla(null, "fire", null, 20, null),
+				new DefinicionRegla("cancion1", null, null, 5, null),
+				new DefinicionRegla("cancion1", "fire", null, 15, null),
+				new DefinicionRegla(null, "fire", "vip", 12, null))));
+
+		assertEquals(new ReglasCompiladas.Tarifa(10, 50), motor.evaluar("luis", "cancion9", "like"));
+		assertEquals(new ReglasCompiladas.Tarifa(20, 50), motor.evaluar("luis", "cancion9", "fire"));
+		assertEquals(new ReglasCompiladas.Tarifa(12, 100), motor.evaluar("ana", "cancion9", "fire"));
+		// Canción + tipo (dos criterios, con canción) gana a tipo + nivel.
+		assertEquals(new ReglasCompiladas.Tarifa(15, 100), motor.evaluar("ana", "cancion1", "fire"));
+		assertEquals(new ReglasCompiladas.Tarifa(5, 50), motor.evaluar("luis", "cancion1", "like"));
+	}
+
+	@Test
+	void unaDefinicionInvalidaNoReemplazaLasReglasVigentes() {
+		MotorReglasPagos motor = new MotorReglasPagos();
+		motor.actualizar(new DefinicionReglas(7, 30, Map.of(), List.of()));
+
+		assertThrows(IllegalArgumentException.class, () -> motor.actualizar(new DefinicionReglas(10, 50, Map.of(),
+				List.of(new DefinicionRegla("c1", null, null, null, null)))));
+		assertEquals(new ReglasCompiladas.Tarifa(7, 30), motor.evaluar("ana", "c1", "like"));
+	}
+
+	@Test
+	@Tag("benchmark")
+	void evaluarLasReglasCuestaPocoFrenteAUnPago() {
+		// 1.000 canciones con precio propio, 3 tipos, 2 niveles y miles de usuarios con nivel.
+		List<DefinicionRegla> reglas = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			reglas.add(new DefinicionRegla("cancion" + i, null, null, 5 + i % 10, null));
+			reglas.add(new DefinicionRegla("cancion" + i, "fire", null, 20, null));
+		}
+		reglas.add(new DefinicionRegla(null, "heart", null, 15, null));
+		reglas.add(new DefinicionRegla(null, null, "vip", null, 200));
+		Map<String, String> niveles = new HashMap<>();
+		for (int i = 0; i < 10_000; i += 3) {
+			niveles.put("usuario" + i, "vip");
+		}
+		MotorReglasPagos motor = new MotorReglasPagos();
+		motor.actualizar(new DefinicionReglas(10, 50, niveles, reglas));
+
+		String[] usuarios = new String[1024];
+		String[] canciones = new String[1024];
+		String[] tipos = {"like", "heart", "fire"};
+		for (int i = 0; i < usuarios.length; i++) {
+			usuarios[i] = "usuario" + (i * 7 % 10_000);
+			canciones[i] = "cancion" + (i * 13 % 1_500);
+		}
+
+		long acumulado = 0;
+		long mejorNanosPorEvaluacion = Long.MAX_VALUE;
+		for (int ronda = 0; ronda < 10; ronda++) {
+			int evaluaciones = 1_000_000;
+			long inicio = System.nanoTime();
+			for (int i = 0; i < evaluaciones; i++) {
+				int j = i & 1023;
+				ReglasCompiladas.Tarifa tarifa = motor.evaluar(usuarios[j], canciones[j], tipos[i % 3]);
+				acumulado += tarifa.precio() + tarifa.limite();
+			}
+			mejorNanosPorEvaluacion = Math.min(mejorNanosPorEvaluacion, (System.nanoTime() - inicio) / evaluaciones);
+		}
+
+		System.out.println("[REGLAS] Evaluación de reglas: " + mejorNanosPorEvaluacion + " ns por pago (control " + acumulado + ")");
+		// Un pago cuesta al menos una petición HTTP (cientos de microsegundos); evaluar las
+		// reglas debe ser varios órdenes de magnitud menor.
+		assertTrue(mejorNanosPorEvaluacion < TimeUnit.MICROSECONDS.toNanos(2), mejorNanosPorEvaluacion + " ns");
+	}
+}
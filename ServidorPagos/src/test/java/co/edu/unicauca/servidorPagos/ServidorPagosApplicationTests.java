@@ -3,7 +3,7 @@ package co.edu.unicauca.servidorPagos;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "pagos.grpc.puerto=0")
 class ServidorPagosApplicationTests {
 
 	@Test
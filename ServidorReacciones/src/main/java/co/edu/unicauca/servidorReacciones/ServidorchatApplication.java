@@ -1,15 +1,28 @@
 package co.edu.unicauca.servidorReacciones;
 
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableRetry
+@EnableScheduling
 public class ServidorchatApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(ServidorchatApplication.class, args);
 	}
 
+	/**
+	 * Con {@code spring.main.lazy-initialization=true} (perfil {@code arranque-rapido}) los beans
+	 * de la aplicación se siguen creando al arrancar: registran tareas programadas, listeners de
+	 * eventos STOMP, endpoints y métricas que deben existir antes de la primera petición. Solo la
+	 * infraestructura que no se usa de inmediato se crea bajo demanda.
+	 */
+	@Bean
+	static LazyInitializationExcludeFilter componentesPropiosSinInicializacionPerezosa() {
+		return (nombre, definicion, tipo) -> tipo.getPackageName().startsWith("co.edu.unicauca");
+	}
+
 }
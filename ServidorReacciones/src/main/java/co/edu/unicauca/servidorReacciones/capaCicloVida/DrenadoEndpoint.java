@@ -0,0 +1,44 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaCicloVida/DrenadoEndpoint.java
+
+package co.edu.unicauca.servidorReacciones.capaCicloVida;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Endpoint de actuator ({@code /actuator/drenado}) para drenar el servidor antes de un
+ * despliegue sin detener aún el proceso.
+ */
+@Component
+@Endpoint(id = "drenado")
+public class DrenadoEndpoint {
+
+    private final DrenadoServidor drenadoServidor;
+
+    public DrenadoEndpoint(DrenadoServidor drenadoServidor) {
+        this.drenadoServidor = drenadoServidor;
+    }
+
+    /**
+     * @return si el servidor está drenando
+     */
+    @ReadOperation
+    public Map<String, Object> estado() {
+        return Map.of("drenando", drenadoServidor.isDrenando());
+    }
+
+    /**
+     * Inicia el drenado y espera a que termine.
+     *
+     * @return si esta petición realizó el drenado (o ya estaba hecho)
+     */
+    @WriteOperation
+    public Map<String, Object> drenar() {
+        boolean realizado = drenadoServidor.drenar();
+        return Map.of("drenando", true, "realizadoAhora", realizado);
+    }
+}
@@ -0,0 +1,143 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaCicloVida/DrenadoServidor.java
+
+package co.edu.unicauca.servidorReacciones.capaCicloVida;
+
+import co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket.ColaSalidaSesion;
+import co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket.ColasSalidaSesiones;
+import co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket.ControlAdmision;
+import co.edu.unicauca.servidorReacciones.capaModelos.AvisoSistema;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.EjecutorSerialPorUsuario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drenado ordenado del servidor antes de apagarlo.
+ * <p>
+ * Pasos:
+ * <ol>
+ *   <li>Cierra la admisión: los nuevos handshakes reciben {@code 503}.</li>
+ *   <li>Espera a que terminen los pagos en curso (buzones de {@link EjecutorSerialPorUsuario}), de
+ *       modo que cada reacción ya cobrada llegue a difundirse o a notificarse.</li>
+ *   <li>Espera a que se vacíen las colas de salida de las sesiones.</li>
+ *   <li>Publica un {@link AvisoSistema} {@code RECONECTAR} en {@code /broker/sistema}; cada cliente
+ *       se reconecta tras una espera al azar y recupera los eventos perdidos con la repetición
+ *       por secuencia. El aviso va al final porque el cliente cierra su sesión en cuanto lo
+ *       recibe, y una notificación de pago enviada después ya no le llegaría.</li>
+ *   <li>Espera de nuevo las colas de salida, para que el aviso salga antes de detener el broker.</li>
+ * </ol>
+ * Se ejecuta al cerrar el contexto (antes de detener el broker y el servidor web, que con
+ * {@code server.shutdown=graceful} termina además las peticiones HTTP en curso) o bajo demanda
+ * con {@code POST /actuator/drenado}.
+ */
+@Component
+public class DrenadoServidor {
+
+    /**
+     * Destino de los avisos a todos los clientes.
+     */
+    public static final String DESTINO_SISTEMA = "/broker/sistema";
+
+    @Autowired
+    private ControlAdmision controlAdmision;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private EjecutorSerialPorUsuario pagosPorUsuario;
+
+    @Autowired
+    private ColasSalidaSesiones colasSalidaSesiones;
+
+    /**
+     * Espera máxima que se sugiere a los clientes antes de reconectarse.
+     */
+    @Value("${reacciones.drenado.espera-maxima-reconexion-ms:5000}")
+    private long esperaMaximaReconexionMs;
+
+    /**
+     * Tiempo máximo esperando a que terminen los pagos en curso.
+     */
+    @Value("${reacciones.drenado.espera-pagos-ms:20000}")
+    private long esperaPagosMs;
+
+    /**
+     * Tiempo máximo esperando a que se vacíen las colas de salida.
+     */
+    @Value("${reacciones.drenado.espera-colas-ms:2000}")
+    private long esperaColasMs;
+
+    private final AtomicBoolean drenando = new AtomicBoolean();
+
+    /**
+     * Drena el servidor. Solo la primera invocación tiene efecto.
+     *
+     * @return {@code true} si esta invocación realizó el drenado
+     */
+    public boolean drenar() {
+        if (!drenando.compareAndSet(false, true)) {
+            return false;
+        }
+        long inicio = System.nanoTime();
+        controlAdmision.cerrar();
+        System.out.println("[REACCIONES] Drenando servidor: se rechazan nuevas conexiones.");
+
+        boolean pagosTerminados = esperar(() -> pagosPorUsuario.getBuzonesActivos() == 0, esperaPagosMs);
+        esperar(this::colasVacias, esperaColasMs);
+
+        messagingTemplate.convertAndSend(DESTINO_SISTEMA, new AvisoSistema("RECONECTAR",
+                "El servidor de reacciones se está reiniciando. Reconectando...", esperaMaximaReconexionMs));
+        boolean colasVacias = esperar(this::colasVacias, esperaColasMs);
+        System.out.println("[REACCIONES] Drenado terminado en " + (System.nanoTime() - inicio) / 1_000_000 + " ms"
+                + (pagosTerminados ? "" : "; quedaron pagos sin terminar: " + pagosPorUsuario.getBuzonesActivos())
+                + (colasVacias ? "" : "; quedaron mensajes sin enviar en las colas de salida"));
+        return true;
+    }
+
+    /**
+     * @return {@code true} si el servidor está drenando o ya drenó
+     */
+    public boolean isDrenando() {
+        return drenando.get();
+    }
+
+    /**
+     * Drena al cerrar el contexto, antes de que se detengan los componentes de mensajería.
+     */
+    @EventListener(ContextClosedEvent.class)
+    void alCerrarContexto() {
+        drenar();
+    }
+
+    private boolean colasVacias() {
+        for (ColaSalidaSesion cola : colasSalidaSesiones.getColas()) {
+            if (cola.getPendientes() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean esperar(BooleanSupplier condicion, long maximoMs) {
+        long limite = System.nanoTime() + maximoMs * 1_000_000;
+        while (!condicion.getAsBoolean()) {
+            if (System.nanoTime() - limite >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaCicloVida/MedidorArranque.java
+
+package co.edu.unicauca.servidorReacciones.capaCicloVida;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mide el tiempo de arranque desde el inicio de la JVM: hasta que la aplicación está lista
+ * y hasta que atiende su primera petición HTTP (incluidos los handshakes WebSocket).
+ * <p>
+ * Los tiempos se imprimen en consola y se publican como
+ * {@code arranque.listo.ms} y {@code arranque.primera.peticion.ms} en {@code /actuator/metrics}.
+ */
+@Component
+public class MedidorArranque extends OncePerRequestFilter {
+
+    private volatile double listoMs = Double.NaN;
+    private volatile double primeraPeticionMs = Double.NaN;
+
+    public MedidorArranque(MeterRegistry meterRegistry) {
+        Gauge.builder("arranque.listo.ms", this, m -> m.listoMs)
+                .description("Milisegundos desde el inicio de la JVM hasta que la aplicación está lista")
+                .register(meterRegistry);
+        Gauge.builder("arranque.primera.peticion.ms", this, m -> m.primeraPeticionMs)
+                .description("Milisegundos desde el inicio de la JVM hasta la primera petición atendida")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void alEstarLista() {
+        listoMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("[REACCIONES] Aplicación lista " + (long) listoMs + " ms después de iniciar la JVM.");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (Double.isNaN(primeraPeticionMs)) {
+            registrarPrimeraPeticion(request.getRequestURI());
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private synchronized void registrarPrimeraPeticion(String ruta) {
+        if (Double.isNaN(primeraPeticionMs)) {
+            primeraPeticionMs = ManagementFactory.getRuntimeMXBean().getUptime();
+            System.out.println("[REACCIONES] Primera petición (" + ruta + ") " + (long) primeraPeticionMs
+                    + " ms después de iniciar la JVM.");
+        }
+    }
+}
@@ -0,0 +1,334 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/ColaEntradaPrioritaria.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cola del ejecutor del canal de entrada de STOMP con dos niveles: los cambios de presencia
+ * ({@code /app/reproducir} y {@code /app/detener}) esperan en el nivel alto, que se atiende
+ * primero, y el resto de las tramas (reacciones, repeticiones, filtros, suscripciones, conexiones)
+ * en el bajo. Dentro de cada nivel se conserva el orden de llegada.
+ * <p>
+ * Así, cuando llegan más reacciones de las que el ejecutor alcanza a atender, los cambios de
+ * presencia no esperan detrás de ellas. Un cambio de presencia no adelanta a las tramas que su
+ * misma sesión ya tiene en el nivel bajo (por ejemplo, su {@code CONNECT} o una suscripción): en
+ * ese caso espera en el nivel bajo detrás de ellas.
+ * <p>
+ * El nivel bajo está acotado para las tramas {@code SEND} de la aplicación: si ya tiene
+ * {@code capacidad} tareas, se rechazan y el ejecutor las descarta con {@link #descartar}, sin
+ * cobrar la reacción. Las tramas de control de la sesión ({@code CONNECT}, {@code SUBSCRIBE},
+ * {@code DISCONNECT}...) se admiten siempre; su número está acotado por las sesiones abiertas.
+ */
+public class ColaEntradaPrioritaria extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final String DESTINO_REPRODUCIR = "/app/reproducir";
+    private static final String DESTINO_DETENER = "/app/detener";
+    private static final String PREFIJO_APLICACION = "/app/";
+
+    private final int capacidad;
+
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private final Condition noVacia = bloqueo.newCondition();
+    private final ArrayDeque<Runnable> alta = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> baja = new ArrayDeque<>();
+
+    /**
+     * Tramas de cada sesión que esperan en el nivel bajo. Protegido por {@link #bloqueo}.
+     */
+    private final Map<String, Integer> bajaPorSesion = new HashMap<>();
+
+    /**
+     * Tramas rechazadas por tener el nivel bajo lleno. Protegido por {@link #bloqueo}.
+     */
+    private long descartadas;
+
+    /**
+     * @param capacidad tareas que admite el nivel bajo antes de rechazar tramas {@code SEND}
+     */
+    public ColaEntradaPrioritaria(int capacidad) {
+        this.capacidad = Math.max(1, capacidad);
+    }
+
+    /**
+     * @return {@code true} si la tarea entrega un play o un pause al controlador
+     */
+    static boolean esPrioritaria(Runnable tarea) {
+        if (!(tarea instanceof MessageHandlingRunnable trama)) {
+            return false;
+        }
+        String destino = SimpMessageHeaderAccessor.getDestination(trama.getMessage().getHeaders());
+        return DESTINO_REPRODUCIR.equals(destino) || DESTINO_DETENER.equals(destino);
+    }
+
+    /**
+     * @return {@code true} si la tarea entrega una trama {@code SEND} a la aplicación, que puede descartarse
+     */
+    static boolean esDescartable(Runnable tarea) {
+        if (!(tarea instanceof MessageHandlingRunnable trama)) {
+            return false;
+        }
+        MessageHeaders cabeceras = trama.getMessage().getHeaders();
+        String destino = SimpMessageHeaderAccessor.getDestination(cabeceras);
+        return SimpMessageHeaderAccessor.getMessageType(cabeceras) == SimpMessageType.MESSAGE
+                && destino != null && destino.startsWith(PREFIJO_APLICACION);
+    }
+
+    @Override
+    public boolean offer(Runnable tarea) {
+        if (tarea == null) {
+            throw new NullPointerException();
+        }
+        boolean prioritaria = esPrioritaria(tarea);
+        boolean descartable = !prioritaria && esDescartable(tarea);
+        String sesion = sesion(tarea);
+        bloqueo.lock();
+        try {
+            if (prioritaria && (sesion == null || !bajaPorSesion.containsKey(sesion))) {
+                alta.addLast(tarea);
+            } else if (descartable && baja.size() >= capacidad) {
+                return false;
+            } else {
+                baja.addLast(tarea);
+                if (sesion != null) {
+                    bajaPorSesion.merge(sesion, 1, Integer::sum);
+                }
+            }
+            noVacia.signal();
+            return true;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Manejador de rechazos del ejecutor: descarta las tramas que no cupieron en el nivel bajo y
+     * rechaza el resto (por ejemplo, las que llegan mientras el ejecutor se detiene).
+     *
+     * @param tarea    tarea rechazada
+     * @param ejecutor ejecutor que la rechazó
+     */
+    public void descartar(Runnable tarea, ThreadPoolExecutor ejecutor) {
+        if (ejecutor.isShutdown() || !esDescartable(tarea)) {
+            throw new RejectedExecutionException("Canal de entrada detenido o saturado: " + tarea);
+        }
+        long total;
+        bloqueo.lock();
+        try {
+            total = ++descartadas;
+        } finally {
+            bloqueo.unlock();
+        }
+        // Se registra la primera y luego cada mil, para no inundar la consola durante la saturación.
+        if (total == 1 || total % 1000 == 0) {
+            System.err.println("[REACCIONES] Canal de entrada saturado (" + capacidad
+                    + " tramas en espera): " + total + " tramas descartadas sin procesar");
+        }
+    }
+
+    @Override
+    public void put(Runnable tarea) {
+        offer(tarea);
+    }
+
+    @Override
+    public boolean offer(Runnable tarea, long espera, TimeUnit unidad) {
+        return offer(tarea);
+    }
+
+    @Override
+    public Runnable poll() {
+        bloqueo.lock();
+        try {
+            return extraer();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        bloqueo.lockInterruptibly();
+        try {
+            Runnable tarea;
+            while ((tarea = extraer()) == null) {
+                noVacia.await();
+            }
+            return tarea;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long espera, TimeUnit unidad) throws InterruptedException {
+        long restante = unidad.toNanos(espera);
+        bloqueo.lockInterruptibly();
+        try {
+            Runnable tarea;
+            while ((tarea = extraer()) == null) {
+                if (restante <= 0) {
+                    return null;
+                }
+                restante = noVacia.awaitNanos(restante);
+            }
+            return tarea;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        bloqueo.lock();
+        try {
+            return alta.isEmpty() ? baja.peekFirst() : alta.peekFirst();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        bloqueo.lock();
+        try {
+            return alta.size() + baja.size();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * @return lugares libres para tramas {@code SEND} en el nivel bajo
+     */
+    @Override
+    public int remainingCapacity() {
+        bloqueo.lock();
+        try {
+            return Math.max(0, capacidad - baja.size());
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object tarea) {
+        bloqueo.lock();
+        try {
+            if (alta.remove(tarea)) {
+                return true;
+            }
+            if (baja.remove(tarea)) {
+                salioDeBaja((Runnable) tarea);
+                return true;
+            }
+            return false;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> destino) {
+        return drainTo(destino, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> destino, int maximo) {
+        bloqueo.lock();
+        try {
+            int cantidad = 0;
+            Runnable tarea;
+            while (cantidad < maximo && (tarea = extraer()) != null) {
+                destino.add(tarea);
+                cantidad++;
+            }
+            return cantidad;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Recorre una copia de las tareas en el orden en que se atenderían.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        bloqueo.lock();
+        try {
+            List<Runnable> copia = new ArrayList<>(alta.size() + baja.size());
+            copia.addAll(alta);
+            copia.addAll(baja);
+            return copia.iterator();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * @return las tramas en espera en el nivel bajo
+     */
+    public int getEnEsperaBaja() {
+        bloqueo.lock();
+        try {
+            return baja.size();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * @return las tramas descartadas por tener el nivel bajo lleno
+     */
+    public long getDescartadas() {
+        bloqueo.lock();
+        try {
+            return descartadas;
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    private Runnable extraer() {
+        Runnable tarea = alta.pollFirst();
+        if (tarea != null) {
+            return tarea;
+        }
+        tarea = baja.pollFirst();
+        if (tarea != null) {
+            salioDeBaja(tarea);
+        }
+        return tarea;
+    }
+
+    private void salioDeBaja(Runnable tarea) {
+        String sesion = sesion(tarea);
+        if (sesion != null) {
+            bajaPorSesion.computeIfPresent(sesion, (clave, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+        }
+    }
+
+    private static String sesion(Runnable tarea) {
+        return tarea instanceof MessageHandlingRunnable trama
+                ? SimpMessageHeaderAccessor.getSessionId(trama.getMessage().getHeaders())
+                : null;
+    }
+}
@@ -0,0 +1,425 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/ColaSalidaSesion.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import co.edu.unicauca.servidorReacciones.capaPresencia.SuscripcionesMultiplexadas;
+import jakarta.websocket.Session;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sesión WebSocket con una cola de salida acotada y políticas de desborde por tipo de destino.
+ * <p>
+ * Los envíos nunca bloquean al hilo que publica (el pool de salida de STOMP): el mensaje se
+ * encola y un ejecutor compartido lo escribe en la sesión real. La escritura en la sesión real sí
+ * bloquea, así que el ejecutor crece cuando todos sus hilos están ocupados y un vigilante cierra la
+ * sesión cuyo envío lleva en curso más que el límite de tiempo ({@link #vigilar(long)}). En Tomcat,
+ * además, ese límite se fija como tiempo máximo del envío bloqueante de la sesión. De esta forma
+ * un cliente lento solo retrasa su propia cola y no la entrega a los demás.
+ * <p>
+ * Esta cola queda debajo del {@code ConcurrentWebSocketSessionDecorator} que agrega STOMP, cuyo
+ * envío siempre termina de inmediato; por eso los límites de tiempo y de buffer de envío se
+ * aplican aquí y no en ese decorador.
+ * <p>
+ * Políticas:
+ * <ul>
+ *   <li>Mensajes de canales públicos ({@code /broker/...}, reacciones y presencia) y eventos de
+ *       canciones entregados por la suscripción multiplexada
+ *       ({@link SuscripcionesMultiplexadas#DESTINO}): si la cola de descartables está llena se
+ *       descarta el más antiguo.</li>
+ *   <li>Cualquier otra trama (notificaciones privadas {@code /user/queue/...}, CONNECTED, RECEIPT,
+ *       ERROR, latidos): nunca se descarta.</li>
+ *   <li>Si el total pendiente supera el límite duro de mensajes o de bytes, o un envío
+ *       individual tarda más que el límite de tiempo, la sesión se cierra con
+ *       {@link CloseStatus#SESSION_NOT_RELIABLE}.</li>
+ * </ul>
+ * <p>
+ * Si la sesión negoció {@code permessage-deflate}, las tramas de texto pendientes más pequeñas que
+ * el tamaño mínimo de compresión se envían juntas en un solo mensaje WebSocket hasta alcanzarlo.
+ * Tomcat comprime cada mensaje por separado, con un vaciado de bloque al final, así que comprimir
+ * tramas de unos pocos bytes cuesta casi lo mismo que una grande y ahorra poco. Solo se agrupa lo
+ * que ya estaba en cola: un mensaje nunca espera a que lleguen otros. Los clientes STOMP separan
+ * las tramas de un mismo mensaje por su terminador nulo.
+ */
+public class ColaSalidaSesion extends WebSocketSessionDecorator {
+
+    /**
+     * Mensajes que se escriben como máximo antes de ceder el hilo a otras sesiones.
+     */
+    private static final int LOTE_DRENADO = 32;
+
+    private static final String PREFIJO_MESSAGE = "MESSAGE\n";
+    private static final String CABECERA_DESTINO_PUBLICO = "\ndestination:/broker/";
+    private static final String CABECERA_DESTINO_MULTIPLEXADO = "\ndestination:" + SuscripcionesMultiplexadas.DESTINO + "\n";
+
+    /**
+     * Propiedad de sesión con la que Tomcat acota, en milisegundos, un envío bloqueante.
+     */
+    static final String LIMITE_ENVIO_TOMCAT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final ArrayDeque<WebSocketMessage<?>> prioritarios = new ArrayDeque<>();
+    private final ArrayDeque<WebSocketMessage<?>> descartables = new ArrayDeque<>();
+
+    private final Executor ejecutor;
+    private final int capacidadDescartables;
+    private final int limiteDuro;
+    private final long limiteBytes;
+    private final long limiteTiempoEnvioNanos;
+    private final ColasSalidaSesiones colas;
+
+    /**
+     * Longitud, en caracteres, por debajo de la cual las tramas se agrupan antes de comprimirse;
+     * 0 si la sesión no negoció compresión o el agrupamiento está desactivado.
+     */
+    private final int tamanoMinimoCompresion;
+
+    /**
+     * Indica si hay una tarea de drenado programada o en curso. Protegido por {@code this}.
+     */
+    private boolean drenando;
+
+    /**
+     * Bytes de carga de los mensajes pendientes. Protegido por {@code this}.
+     */
+    private long bytesPendientes;
+
+    /**
+     * Momento, según {@link System#nanoTime()}, en que empezó el envío en curso a la sesión real;
+     * 0 si no hay ninguno.
+     */
+    private volatile long inicioEnvio;
+
+    private volatile boolean cerrada;
+
+    private volatile long descartados;
+    private volatile long enviados;
+
+    ColaSalidaSesion(WebSocketSession delegate, Executor ejecutor, int capacidadDescartables,
+                     int limiteDuro, long limiteBytes, long limiteTiempoEnvioNanos, int tamanoMinimoCompresion,
+                     ColasSalidaSesiones colas) {
+        super(delegate);
+        this.ejecutor = ejecutor;
+        this.capacidadDescartables = capacidadDescartables;
+        this.limiteDuro = limiteDuro;
+        this.limiteBytes = limiteBytes;
+        this.limiteTiempoEnvioNanos = limiteTiempoEnvioNanos;
+        this.tamanoMinimoCompresion = tamanoMinimoCompresion > 0 && negocioCompresion(delegate) ? tamanoMinimoCompresion : 0;
+        this.colas = colas;
+        acotarEnvioBloqueante(delegate, TimeUnit.NANOSECONDS.toMillis(limiteTiempoEnvioNanos));
+    }
+
+    /**
+     * Si la sesión es de Tomcat (WebSocket nativo o SockJS sobre WebSocket), acota su envío
+     * bloqueante al límite de tiempo, en lugar de los 20 s que espera por defecto, para que un
+     * socket detenido libere su hilo de escritura.
+     */
+    private static void acotarEnvioBloqueante(WebSocketSession sesion, long limiteMs) {
+        if (!(WebSocketSessionDecorator.unwrap(sesion) instanceof NativeWebSocketSession nativa)) {
+            return;
+        }
+        try {
+            Session sesionContenedor = nativa.getNativeSession(Session.class);
+            if (sesionContenedor != null) {
+                sesionContenedor.getUserProperties().put(LIMITE_ENVIO_TOMCAT, limiteMs);
+            }
+        } catch (IllegalStateException e) {
+            // Sesión SockJS cuyo transporte aún no está listo: no hay envío bloqueante que acotar.
+        }
+    }
+
+    /**
+     * @return {@code true} si la conexión acordó {@code permessage-deflate} con el cliente
+     */
+    private static boolean negocioCompresion(WebSocketSession sesion) {
+        try {
+            return sesion.getExtensions().stream()
+                    .anyMatch(extension -> EstrategiaCompresionWebSocket.PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()));
+        } catch (IllegalStateException e) {
+            // Sesión SockJS cuyo transporte aún no está listo: se trata como sin compresión.
+            return false;
+        }
+    }
+
+    /**
+     * Encola el mensaje aplicando la política de desborde y programa el drenado si hace falta.
+     */
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (cerrada) {
+            return;
+        }
+        boolean programar;
+        boolean excedida;
+        synchronized (this) {
+            if (esDescartable(message)) {
+                if (descartables.size() >= capacidadDescartables) {
+                    bytesPendientes -= descartables.pollFirst().getPayloadLength();
+                    descartados++;
+                    colas.registrarDescarte();
+                }
+                descartables.addLast(message);
+            } else {
+                prioritarios.addLast(message);
+            }
+            bytesPendientes += message.getPayloadLength();
+            excedida = prioritarios.size() + descartables.size() > limiteDuro || bytesPendientes > limiteBytes;
+            programar = !drenando && !excedida;
+            if (programar) {
+                drenando = true;
+            }
+        }
+        if (excedida) {
+            cerrarPorConsumidorLento("cola de salida por encima del límite duro (" + limiteDuro + " mensajes o "
+                    + limiteBytes + " bytes)");
+        } else if (programar) {
+            programarDrenado();
+        }
+    }
+
+    /**
+     * Entrega el drenado al ejecutor. Si el ejecutor lo rechaza porque ya no puede crear más
+     * hilos, la cola queda sin drenado programado y el vigilante lo reintenta.
+     */
+    private void programarDrenado() {
+        try {
+            ejecutor.execute(this::drenar);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                drenando = false;
+            }
+        }
+    }
+
+    /**
+     * Revisión periódica del vigilante de {@link ColasSalidaSesiones}: cierra la sesión si el
+     * envío en curso supera el límite de tiempo, aunque la escritura siga bloqueada, y reprograma
+     * el drenado si quedó pendiente tras un rechazo del ejecutor.
+     *
+     * @param ahora momento actual según {@link System#nanoTime()}
+     */
+    void vigilar(long ahora) {
+        if (cerrada) {
+            return;
+        }
+        long inicio = inicioEnvio;
+        if (inicio != 0 && ahora - inicio > limiteTiempoEnvioNanos) {
+            cerrarPorConsumidorLento("un envío lleva en curso más que el límite de tiempo");
+            return;
+        }
+        boolean programar;
+        synchronized (this) {
+            programar = !drenando && !cerrada && !(prioritarios.isEmpty() && descartables.isEmpty());
+            if (programar) {
+                drenando = true;
+            }
+        }
+        if (programar) {
+            programarDrenado();
+        }
+    }
+
+    /**
+     * Escribe en la sesión real los mensajes pendientes, primero los no descartables.
+     * Tras un lote cede el hilo reprogramándose, para repartir el ejecutor entre sesiones.
+     */
+    private void drenar() {
+        List<TextMessage> grupo = null;
+        for (int i = 0; i < LOTE_DRENADO; i++) {
+            WebSocketMessage<?> siguiente;
+            int tramas = 1;
+            synchronized (this) {
+                siguiente = extraerSiguiente();
+                if (siguiente == null || cerrada) {
+                    drenando = false;
+                    return;
+                }
+                if (tamanoMinimoCompresion > 0 && siguiente instanceof TextMessage texto
+                        && texto.getPayload().length() < tamanoMinimoCompresion) {
+                    grupo = extraerGrupo(texto, grupo);
+                    tramas = grupo.size();
+                }
+            }
+            if (tramas > 1) {
+                siguiente = unir(grupo);
+                colas.registrarAgrupadas(tramas);
+            }
+            long inicio = System.nanoTime();
+            inicioEnvio = inicio;
+            try {
+                getDelegate().sendMessage(siguiente);
+            } catch (IOException | RuntimeException e) {
+                cerrarPorConsumidorLento("error al enviar: " + e.getMessage());
+                return;
+            } finally {
+                inicioEnvio = 0;
+            }
+            enviados += tramas;
+            if (System.nanoTime() - inicio > limiteTiempoEnvioNanos) {
+                cerrarPorConsumidorLento("un envío superó el límite de tiempo");
+                return;
+            }
+        }
+        programarDrenado();
+    }
+
+    /**
+     * Extrae el siguiente mensaje pendiente, primero los no descartables. Debe llamarse con el
+     * monitor tomado.
+     */
+    private WebSocketMessage<?> extraerSiguiente() {
+        WebSocketMessage<?> siguiente = prioritarios.pollFirst();
+        if (siguiente == null) {
+            siguiente = descartables.pollFirst();
+        }
+        if (siguiente != null) {
+            bytesPendientes -= siguiente.getPayloadLength();
+        }
+        return siguiente;
+    }
+
+    /**
+     * Extrae, en el mismo orden en que se enviarían, las tramas de texto pendientes que caben
+     * junto a la primera hasta alcanzar el tamaño mínimo de compresión. Debe llamarse con el
+     * monitor tomado.
+     *
+     * @param primera primera trama del grupo, ya extraída
+     * @param grupo   lista a reutilizar, o {@code null}
+     * @return el grupo, con al menos la primera trama
+     */
+    private List<TextMessage> extraerGrupo(TextMessage primera, List<TextMessage> grupo) {
+        if (grupo == null) {
+            grupo = new ArrayList<>();
+        } else {
+            grupo.clear();
+        }
+        grupo.add(primera);
+        int longitud = primera.getPayload().length();
+        while (longitud < tamanoMinimoCompresion) {
+            ArrayDeque<WebSocketMessage<?>> origen = prioritarios.isEmpty() ? descartables : prioritarios;
+            if (!(origen.peekFirst() instanceof TextMessage texto)) {
+                break;
+            }
+            origen.pollFirst();
+            bytesPendientes -= texto.getPayloadLength();
+            grupo.add(texto);
+            longitud += texto.getPayload().length();
+        }
+        return grupo;
+    }
+
+    private static TextMessage unir(List<TextMessage> grupo) {
+        int longitud = 0;
+        for (TextMessage trama : grupo) {
+            longitud += trama.getPayload().length();
+        }
+        StringBuilder unido = new StringBuilder(longitud);
+        for (TextMessage trama : grupo) {
+            unido.append(trama.getPayload());
+        }
+        return new TextMessage(unido);
+    }
+
+    /**
+     * Vacía la cola y cierra la sesión real.
+     *
+     * @param motivo descripción para el log
+     */
+    private void cerrarPorConsumidorLento(String motivo) {
+        synchronized (this) {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            prioritarios.clear();
+            descartables.clear();
+            bytesPendientes = 0;
+            drenando = false;
+        }
+        colas.registrarDesconexion();
+        System.err.println("[REACCIONES] Cerrando sesión " + getId() + " por consumidor lento: " + motivo);
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            System.err.println("[REACCIONES] Error cerrando la sesión " + getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marca la cola como cerrada al terminar la sesión, liberando los mensajes pendientes.
+     */
+    void descartarPendientes() {
+        synchronized (this) {
+            cerrada = true;
+            prioritarios.clear();
+            descartables.clear();
+            bytesPendientes = 0;
+        }
+    }
+
+    /**
+     * @return número de mensajes pendientes de envío
+     */
+    public synchronized int getPendientes() {
+        return prioritarios.size() + descartables.size();
+    }
+
+    /**
+     * @return bytes de carga de los mensajes pendientes de envío
+     */
+    public synchronized long getBytesPendientes() {
+        return bytesPendientes;
+    }
+
+    public long getDescartados() {
+        return descartados;
+    }
+
+    public long getEnviados() {
+        return enviados;
+    }
+
+    public boolean isCerrada() {
+        return cerrada;
+    }
+
+    /**
+     * Una trama es descartable si es un MESSAGE dirigido a un canal público {@code /broker/...} o a
+     * la suscripción multiplexada de canciones, que lleva los mismos eventos. Solo se examinan las
+     * cabeceras, no el cuerpo.
+     *
+     * @param message la trama a clasificar
+     * @return {@code true} si puede descartarse ante desborde
+     */
+    static boolean esDescartable(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage texto)) {
+            return false;
+        }
+        String trama = texto.getPayload();
+        if (!trama.startsWith(PREFIJO_MESSAGE)) {
+            return false;
+        }
+        int finCabeceras = trama.indexOf("\n\n");
+        if (finCabeceras < 0) {
+            finCabeceras = trama.length();
+        }
+        return enCabeceras(trama, CABECERA_DESTINO_PUBLICO, finCabeceras)
+                || enCabeceras(trama, CABECERA_DESTINO_MULTIPLEXADO, finCabeceras);
+    }
+
+    private static boolean enCabeceras(String trama, String cabecera, int finCabeceras) {
+        int posicion = trama.indexOf(cabecera, PREFIJO_MESSAGE.length() - 1);
+        return posicion >= 0 && posicion < finCabeceras;
+    }
+}
@@ -0,0 +1,45 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/ColasSalidaEndpoint.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint de actuator ({@code /actuator/colassalida}) con la profundidad de la cola de salida
+ * de cada sesión WebSocket abierta.
+ */
+@Component
+@Endpoint(id = "colassalida")
+public class ColasSalidaEndpoint {
+
+    private final ColasSalidaSesiones colasSalidaSesiones;
+
+    public ColasSalidaEndpoint(ColasSalidaSesiones colasSalidaSesiones) {
+        this.colasSalidaSesiones = colasSalidaSesiones;
+    }
+
+    /**
+     * @return por cada sesión: usuario, mensajes y bytes pendientes, enviados y descartados
+     */
+    @ReadOperation
+    public Map<String, Map<String, Object>> colas() {
+        Map<String, Map<String, Object>> resultado = new LinkedHashMap<>();
+        for (ColaSalidaSesion cola : colasSalidaSesiones.getColas()) {
+            Principal usuario = cola.getPrincipal();
+            Map<String, Object> detalle = new LinkedHashMap<>();
+            detalle.put("usuario", usuario != null ? usuario.getName() : null);
+            detalle.put("pendientes", cola.getPendientes());
+            detalle.put("bytesPendientes", cola.getBytesPendientes());
+            detalle.put("enviados", cola.getEnviados());
+            detalle.put("descartados", cola.getDescartados());
+            resultado.put(cola.getId(), detalle);
+        }
+        return resultado;
+    }
+}
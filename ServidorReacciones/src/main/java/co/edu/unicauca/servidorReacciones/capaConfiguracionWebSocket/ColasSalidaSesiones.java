@@ -0,0 +1,195 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/ColasSalidaSesiones.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Administra las colas de salida acotadas ({@link ColaSalidaSesion}) de todas las sesiones WebSocket.
+ * <p>
+ * Se engancha como decorador del {@link WebSocketHandler} en
+ * {@link WebSocketConfig#configureWebSocketTransport}: cada sesión nueva se envuelve en su cola
+ * antes de llegar al manejador STOMP, y todas comparten un ejecutor de escritura. El ejecutor
+ * mantiene unos pocos hilos y crea más, hasta un máximo, cuando todos están bloqueados escribiendo
+ * a clientes lentos; un vigilante revisa las colas periódicamente y cierra las sesiones cuyo envío
+ * en curso supera el límite de tiempo, lo que acota cuánto retiene un cliente detenido a su hilo.
+ * <p>
+ * Publica en Micrometer el total de mensajes pendientes, la profundidad máxima entre sesiones,
+ * los hilos de escritura, los mensajes descartados, las tramas agrupadas antes de comprimirse y
+ * las desconexiones por consumidor lento. El detalle por sesión se consulta en el endpoint de
+ * actuator {@code /actuator/colassalida}.
+ */
+@Component
+public class ColasSalidaSesiones {
+
+    private final Map<String, ColaSalidaSesion> colasPorSesion = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor ejecutor;
+    private final ScheduledExecutorService vigilante;
+    private final int capacidadDescartables;
+    private final int limiteDuro;
+    private final long limiteBytes;
+    private final long limiteTiempoEnvioNanos;
+    private final int tamanoMinimoCompresion;
+
+    private final Counter descartados;
+    private final Counter agrupadas;
+    private final Counter desconexiones;
+
+    public ColasSalidaSesiones(MeterRegistry meterRegistry,
+                               @Value("${reacciones.websocket.cola-salida.capacidad-descartables:256}") int capacidadDescartables,
+                               @Value("${reacciones.websocket.cola-salida.limite-duro:1024}") int limiteDuro,
+                               @Value("${reacciones.websocket.limite-buffer-envio-kb:256}") int limiteBufferEnvioKb,
+                               @Value("${reacciones.websocket.cola-salida.hilos:4}") int hilos,
+                               @Value("${reacciones.websocket.cola-salida.hilos-maximos:64}") int hilosMaximos,
+                               @Value("${reacciones.websocket.limite-tiempo-envio-ms:5000}") long limiteTiempoEnvioMs,
+                               @Value("${reacciones.websocket.compresion.tamano-minimo-bytes:512}") int tamanoMinimoCompresion) {
+        this.capacidadDescartables = capacidadDescartables;
+        this.limiteDuro = limiteDuro;
+        this.limiteBytes = limiteBufferEnvioKb * 1024L;
+        this.limiteTiempoEnvioNanos = TimeUnit.MILLISECONDS.toNanos(limiteTiempoEnvioMs);
+        this.tamanoMinimoCompresion = tamanoMinimoCompresion;
+
+        // Sin cola propia: si no hay un hilo libre se crea otro, hasta el máximo; por encima se
+        // rechaza y el vigilante reprograma el drenado de esa sesión.
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.ejecutor = new ThreadPoolExecutor(hilos, Math.max(hilos, hilosMaximos), 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), tarea -> {
+            Thread hilo = new Thread(tarea, "ws-salida-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.vigilante = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "ws-salida-vigilante");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodoMs = Math.max(10, Math.min(100, limiteTiempoEnvioMs / 10));
+        vigilante.scheduleWithFixedDelay(this::vigilar, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("reacciones.websocket.cola-salida.pendientes", this, ColasSalidaSesiones::totalPendientes)
+                .description("Mensajes pendientes de envío sumando todas las sesiones")
+                .register(meterRegistry);
+        Gauge.builder("reacciones.websocket.cola-salida.profundidad-maxima", this, ColasSalidaSesiones::profundidadMaxima)
+                .description("Mayor número de mensajes pendientes en una sola sesión")
+                .register(meterRegistry);
+        Gauge.builder("reacciones.websocket.cola-salida.hilos", this, ColasSalidaSesiones::getHilosEscritura)
+                .description("Hilos de escritura vivos, incluidos los bloqueados en clientes lentos")
+                .register(meterRegistry);
+        this.descartados = Counter.builder("reacciones.websocket.cola-salida.descartados")
+                .description("Mensajes de canales públicos descartados por desborde")
+                .register(meterRegistry);
+        this.agrupadas = Counter.builder("reacciones.websocket.cola-salida.agrupadas")
+                .description("Tramas enviadas dentro de un mensaje agrupado antes de comprimirse")
+                .register(meterRegistry);
+        this.desconexiones = Counter.builder("reacciones.websocket.cola-salida.desconexiones")
+                .description("Sesiones cerradas por consumidor lento")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Envuelve el manejador para interponer la cola de salida en cada sesión.
+     *
+     * @param handler manejador original
+     * @return manejador decorado
+     */
+    public WebSocketHandler decorar(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                ColaSalidaSesion cola = new ColaSalidaSesion(session, ejecutor, capacidadDescartables,
+                        limiteDuro, limiteBytes, limiteTiempoEnvioNanos, tamanoMinimoCompresion, ColasSalidaSesiones.this);
+                colasPorSesion.put(session.getId(), cola);
+                super.afterConnectionEstablished(cola);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                ColaSalidaSesion cola = colasPorSesion.remove(session.getId());
+                if (cola != null) {
+                    cola.descartarPendientes();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * @return las colas de las sesiones abiertas
+     */
+    public Collection<ColaSalidaSesion> getColas() {
+        return colasPorSesion.values();
+    }
+
+    /**
+     * @return hilos de escritura vivos, incluidos los bloqueados en clientes lentos
+     */
+    public int getHilosEscritura() {
+        return ejecutor.getPoolSize();
+    }
+
+    private void vigilar() {
+        long ahora = System.nanoTime();
+        for (ColaSalidaSesion cola : colasPorSesion.values()) {
+            try {
+                cola.vigilar(ahora);
+            } catch (RuntimeException e) {
+                System.err.println("[REACCIONES] Error vigilando la cola de la sesión " + cola.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    void registrarDescarte() {
+        descartados.increment();
+    }
+
+    void registrarAgrupadas(int tramas) {
+        agrupadas.increment(tramas);
+    }
+
+    void registrarDesconexion() {
+        desconexiones.increment();
+    }
+
+    private double totalPendientes() {
+        long total = 0;
+        for (ColaSalidaSesion cola : colasPorSesion.values()) {
+            total += cola.getPendientes();
+        }
+        return total;
+    }
+
+    private double profundidadMaxima() {
+        int maxima = 0;
+        for (ColaSalidaSesion cola : colasPorSesion.values()) {
+            maxima = Math.max(maxima, cola.getPendientes());
+        }
+        return maxima;
+    }
+
+    @PreDestroy
+    void detener() {
+        vigilante.shutdownNow();
+        ejecutor.shutdown();
+    }
+}
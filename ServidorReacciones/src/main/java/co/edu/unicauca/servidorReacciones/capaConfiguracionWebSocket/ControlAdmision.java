@@ -0,0 +1,32 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/ControlAdmision.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Indica si el servidor admite nuevas conexiones WebSocket.
+ * <p>
+ * Se cierra al iniciar el drenado del servidor; desde ese momento
+ * {@link InterceptorAdmisionHandshakes} rechaza los handshakes con {@code 503}.
+ * No depende de otros beans para que la configuración WebSocket pueda usarlo sin ciclos.
+ */
+@Component
+public class ControlAdmision {
+
+    private volatile boolean cerrada;
+
+    /**
+     * Deja de admitir nuevas conexiones.
+     */
+    public void cerrar() {
+        cerrada = true;
+    }
+
+    /**
+     * @return {@code true} si se admiten nuevas conexiones
+     */
+    public boolean admite() {
+        return !cerrada;
+    }
+}
@@ -0,0 +1,171 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/ConvertidorMensajesCompactos.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import co.edu.unicauca.servidorReacciones.capaModelos.NotificacionPrivada;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Convertidor STOMP para un formato de cable compacto basado en un esquema posicional.
+ * <p>
+ * A diferencia de JSON, este formato no repite los nombres de los campos en cada trama:
+ * el primer carácter identifica el tipo de mensaje ({@code M} para {@link MensajeCancion},
+ * {@code N} para {@link NotificacionPrivada}) y a continuación cada campo se escribe en un
+ * orden fijo como {@code <longitud>:<valor>}, o {@code -} si el campo es nulo.
+ * <p>
+ * Ejemplo: {@code M7:Juanito7:cancion8:REACCION4:like}
+ * <p>
+ * Los {@link MensajeCancion} difundidos por el servidor llevan además su número de secuencia como
+ * quinto campo opcional: {@code M7:Juanito7:cancion8:REACCION4:like2:42}.
+ * <p>
+ * El formato es texto plano UTF-8 para que funcione también sobre SockJS, que solo transporta
+ * tramas de texto. Solo se aplica cuando la trama STOMP declara el encabezado
+ * {@code content-type: application/x-reacciones-compacto}; en cualquier otro caso se
+ * sigue usando JSON, que continúa siendo el formato por defecto.
+ *
+ * @see WebSocketConfig#configureMessageConverters(java.util.List)
+ */
+public class ConvertidorMensajesCompactos extends AbstractMessageConverter {
+
+    /**
+     * Tipo MIME con el que el cliente negocia el formato compacto.
+     */
+    public static final MimeType TIPO_COMPACTO = new MimeType("application", "x-reacciones-compacto");
+
+    private static final char ETIQUETA_MENSAJE_CANCION = 'M';
+    private static final char ETIQUETA_NOTIFICACION = 'N';
+    private static final char CAMPO_NULO = '-';
+
+    /**
+     * Crea el convertidor exigiendo coincidencia estricta del tipo de contenido, de modo que
+     * los mensajes sin {@code content-type} sigan siendo atendidos por el convertidor JSON.
+     */
+    public ConvertidorMensajesCompactos() {
+        super(TIPO_COMPACTO);
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MensajeCancion.class == clazz || NotificacionPrivada.class == clazz;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        Object payload = message.getPayload();
+        String texto = (payload instanceof byte[] bytes)
+                ? new String(bytes, StandardCharsets.UTF_8)
+                : payload.toString();
+
+        LectorCampos lector = new LectorCampos(texto);
+        char etiqueta = lector.leerEtiqueta();
+
+        if (etiqueta == ETIQUETA_MENSAJE_CANCION && targetClass == MensajeCancion.class) {
+            MensajeCancion mensaje = new MensajeCancion(lector.leerCampo(), lector.leerCampo(),
+                    lector.leerCampo(), lector.leerCampo());
+            if (lector.quedanCampos()) {
+                String secuencia = lector.leerCampo();
+                try {
+                    mensaje.setSecuencia(secuencia == null ? null : Long.valueOf(secuencia));
+                } catch (NumberFormatException e) {
+                    throw new MessageConversionException(message, "Secuencia inválida: " + secuencia, e);
+                }
+            }
+            return mensaje;
+        }
+        if (etiqueta == ETIQUETA_NOTIFICACION && targetClass == NotificacionPrivada.class) {
+            return new NotificacionPrivada(lector.leerCampo(), lector.leerCampo(), lector.leerCampo());
+        }
+        throw new MessageConversionException(message,
+                "Etiqueta '" + etiqueta + "' no corresponde a " + targetClass.getSimpleName());
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        StringBuilder sb = new StringBuilder(64);
+        if (payload instanceof MensajeCancion mensaje) {
+            sb.append(ETIQUETA_MENSAJE_CANCION);
+            escribirCampo(sb, mensaje.getNickname());
+            escribirCampo(sb, mensaje.getIdCancion());
+            escribirCampo(sb, mensaje.getTipo());
+            escribirCampo(sb, mensaje.getContenido());
+            if (mensaje.getSecuencia() != null) {
+                escribirCampo(sb, mensaje.getSecuencia().toString());
+            }
+        } else if (payload instanceof NotificacionPrivada notificacion) {
+            sb.append(ETIQUETA_NOTIFICACION);
+            escribirCampo(sb, notificacion.getTipo());
+            escribirCampo(sb, notificacion.getTitulo());
+            escribirCampo(sb, notificacion.getMensaje());
+        } else {
+            return null;
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void escribirCampo(StringBuilder sb, String valor) {
+        if (valor == null) {
+            sb.append(CAMPO_NULO);
+        } else {
+            sb.append(valor.length()).append(':').append(valor);
+        }
+    }
+
+    /**
+     * Cursor sencillo sobre el texto recibido que extrae los campos en orden.
+     */
+    private static final class LectorCampos {
+
+        private final String texto;
+        private int posicion;
+
+        LectorCampos(String texto) {
+            this.texto = texto;
+        }
+
+        char leerEtiqueta() {
+            if (texto.isEmpty()) {
+                throw new MessageConversionException("Trama compacta vacía");
+            }
+            return texto.charAt(posicion++);
+        }
+
+        boolean quedanCampos() {
+            return posicion < texto.length();
+        }
+
+        String leerCampo() {
+            if (posicion >= texto.length()) {
+                throw new MessageConversionException("Trama compacta truncada en la posición " + posicion);
+            }
+            if (texto.charAt(posicion) == CAMPO_NULO) {
+                posicion++;
+                return null;
+            }
+            int separador = texto.indexOf(':', posicion);
+            if (separador < 0) {
+                throw new MessageConversionException("Falta el separador de longitud en la posición " + posicion);
+            }
+            int longitud;
+            try {
+                longitud = Integer.parseInt(texto, posicion, separador, 10);
+            } catch (NumberFormatException e) {
+                throw new MessageConversionException("Longitud inválida en la posición " + posicion, e);
+            }
+            int inicio = separador + 1;
+            int fin = inicio + longitud;
+            if (longitud < 0 || fin > texto.length()) {
+                throw new MessageConversionException("Longitud de campo fuera de rango en la posición " + posicion);
+            }
+            posicion = fin;
+            return texto.substring(inicio, fin);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/EstrategiaCompresionWebSocket.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estrategia de actualización a WebSocket que decide cómo se negocia la compresión
+ * {@code permessage-deflate} (RFC 7692).
+ * <p>
+ * Tomcat acepta la extensión siempre que el cliente la ofrece y negocia a partir de la cabecera
+ * {@code Sec-WebSocket-Extensions} de la petición, sin consultar la lista que filtra Spring. Por
+ * eso esta estrategia reescribe esa cabecera antes de entregar la petición al contenedor:
+ * <ul>
+ *   <li>{@link ModoCompresion#DESACTIVADA}: retira la oferta; los mensajes viajan sin comprimir.</li>
+ *   <li>{@link ModoCompresion#SIN_CONTEXTO}: agrega {@code server_no_context_takeover}; cada mensaje
+ *       se comprime por separado y el diccionario se reinicia entre mensajes.</li>
+ *   <li>{@link ModoCompresion#CONTEXTO_COMPARTIDO}: deja la oferta como llega; los mensajes de una
+ *       conexión comparten la ventana de 32 KB, que es donde está la ganancia con tramas STOMP
+ *       pequeñas y repetitivas.</li>
+ * </ul>
+ * Compartir el contexto es seguro dentro de una conexión porque Tomcat escribe sus mensajes en
+ * orden con un único compresor; entre conexiones no, porque cada cliente descomprime con su propio
+ * estado. En cualquiera de los modos con compresión, Tomcat reserva un compresor por conexión.
+ */
+public class EstrategiaCompresionWebSocket extends TomcatRequestUpgradeStrategy {
+
+    static final String CABECERA_EXTENSIONES = "Sec-WebSocket-Extensions";
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String SIN_CONTEXTO_SERVIDOR = "server_no_context_takeover";
+
+    /**
+     * Modo de negociación de {@code permessage-deflate}.
+     */
+    public enum ModoCompresion {
+        DESACTIVADA,
+        SIN_CONTEXTO,
+        CONTEXTO_COMPARTIDO
+    }
+
+    private final ModoCompresion modo;
+
+    /**
+     * @param modo cómo negociar la compresión con los clientes que la ofrecen
+     */
+    public EstrategiaCompresionWebSocket(ModoCompresion modo) {
+        this.modo = modo;
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                          ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+        super.upgradeHttpToWebSocket(reescribirPeticion(request), response, endpointConfig, pathParams);
+    }
+
+    /**
+     * Envuelve la petición para que el contenedor vea las extensiones ya reescritas.
+     *
+     * @param request petición original del handshake
+     * @return la misma petición si el modo no cambia nada o no hay ofertas de extensiones
+     */
+    HttpServletRequest reescribirPeticion(HttpServletRequest request) {
+        if (modo == ModoCompresion.CONTEXTO_COMPARTIDO || request.getHeader(CABECERA_EXTENSIONES) == null) {
+            return request;
+        }
+        List<String> reescritas = new ArrayList<>();
+        for (Enumeration<String> valores = request.getHeaders(CABECERA_EXTENSIONES); valores.hasMoreElements(); ) {
+            String reescrita = reescribirExtensiones(valores.nextElement(), modo);
+            if (!reescrita.isEmpty()) {
+                reescritas.add(reescrita);
+            }
+        }
+        return new HttpServletRequestWrapper(request) {
+            @Override
+            public String getHeader(String nombre) {
+                if (CABECERA_EXTENSIONES.equalsIgnoreCase(nombre)) {
+                    return reescritas.isEmpty() ? null : reescritas.get(0);
+                }
+                return super.getHeader(nombre);
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String nombre) {
+                if (CABECERA_EXTENSIONES.equalsIgnoreCase(nombre)) {
+                    return Collections.enumeration(reescritas);
+                }
+                return super.getHeaders(nombre);
+            }
+        };
+    }
+
+    /**
+     * Reescribe un valor de {@code Sec-WebSocket-Extensions} según el modo. Las demás extensiones
+     * se conservan sin cambios.
+     *
+     * @param cabecera valor ofrecido por el cliente, p. ej. {@code permessage-deflate; client_max_window_bits}
+     * @param modo     modo de compresión
+     * @return el valor reescrito, vacío si no queda ninguna oferta
+     */
+    static String reescribirExtensiones(String cabecera, ModoCompresion modo) {
+        StringBuilder resultado = new StringBuilder(cabecera.length() + SIN_CONTEXTO_SERVIDOR.length() + 2);
+        for (String oferta : cabecera.split(",")) {
+            String limpia = oferta.trim();
+            if (limpia.isEmpty()) {
+                continue;
+            }
+            int finNombre = limpia.indexOf(';');
+            String nombre = (finNombre < 0 ? limpia : limpia.substring(0, finNombre)).trim();
+            if (PERMESSAGE_DEFLATE.equalsIgnoreCase(nombre)) {
+                if (modo == ModoCompresion.DESACTIVADA) {
+                    continue;
+                }
+                if (modo == ModoCompresion.SIN_CONTEXTO && !limpia.contains(SIN_CONTEXTO_SERVIDOR)) {
+                    limpia = limpia + "; " + SIN_CONTEXTO_SERVIDOR;
+                }
+            }
+            if (!resultado.isEmpty()) {
+                resultado.append(", ");
+            }
+            resultado.append(limpia);
+        }
+        return resultado.toString();
+    }
+}
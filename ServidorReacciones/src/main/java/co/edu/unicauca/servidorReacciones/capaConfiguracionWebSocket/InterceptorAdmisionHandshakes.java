@@ -0,0 +1,77 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/InterceptorAdmisionHandshakes.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Interceptor que pasa cada handshake WebSocket por un {@link LimitadorHandshakes}.
+ * <p>
+ * Si el limitador no admite la conexión, el handshake se rechaza con
+ * {@code 503 Service Unavailable} y una cabecera {@code Retry-After}, para que el cliente
+ * reintente más tarde en lugar de sumar carga durante una tormenta de reconexiones.
+ * <p>
+ * Durante el drenado del servidor ({@link ControlAdmision} cerrado) se rechazan todos los handshakes.
+ */
+public class InterceptorAdmisionHandshakes implements HandshakeInterceptor {
+
+    /**
+     * Limitador aplicado, o {@code null} para admitir todas las conexiones.
+     */
+    private final LimitadorHandshakes limitadorHandshakes;
+
+    /**
+     * Admisión global, o {@code null} si no se consulta.
+     */
+    private final ControlAdmision controlAdmision;
+
+    /**
+     * @param limitadorHandshakes limitador de tasa, o {@code null} para no limitar
+     */
+    public InterceptorAdmisionHandshakes(LimitadorHandshakes limitadorHandshakes) {
+        this(limitadorHandshakes, null);
+    }
+
+    /**
+     * @param limitadorHandshakes limitador de tasa, o {@code null} para no limitar
+     * @param controlAdmision     admisión global que se cierra al drenar, o {@code null}
+     */
+    public InterceptorAdmisionHandshakes(LimitadorHandshakes limitadorHandshakes, ControlAdmision controlAdmision) {
+        this.limitadorHandshakes = limitadorHandshakes;
+        this.controlAdmision = controlAdmision;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (controlAdmision != null && !controlAdmision.admite()) {
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return false;
+        }
+        long reintentarEnSegundos = limitadorHandshakes == null ? 0 : limitadorHandshakes.admitir();
+        if (reintentarEnSegundos == 0) {
+            return true;
+        }
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set("Retry-After", Long.toString(reintentarEnSegundos));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    /**
+     * @return el limitador aplicado, o {@code null} si no se limita la tasa
+     */
+    public LimitadorHandshakes getLimitadorHandshakes() {
+        return limitadorHandshakes;
+    }
+}
@@ -0,0 +1,78 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/LimitadorHandshakes.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador de tasa de handshakes WebSocket.
+ * <p>
+ * Funciona como un "token bucket" por reservas: cada handshake reserva el siguiente
+ * turno libre. Si el turno está disponible de inmediato (dentro de la ráfaga permitida)
+ * la conexión pasa; si no, el handshake se rechaza en el acto, sin esperar turno, y se
+ * informa cuándo queda libre el siguiente para que el cliente reintente entonces. Esperar
+ * dentro del handshake ocuparía un hilo del contenedor por cada conexión en cola, justo
+ * cuando una tormenta de reconexiones los necesita todos para atender al resto.
+ */
+public class LimitadorHandshakes {
+
+    private final long intervaloNanos;
+    private final long rafagaNanos;
+
+    /**
+     * Instante (en {@link System#nanoTime()}) a partir del cual queda libre el siguiente turno.
+     */
+    private long siguienteTurnoLibre;
+
+    private final AtomicLong admitidos = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+
+    /**
+     * Crea el limitador.
+     *
+     * @param handshakesPorSegundo tasa sostenida de handshakes admitidos
+     * @param rafaga               número de handshakes que pueden pasar de golpe
+     */
+    public LimitadorHandshakes(int handshakesPorSegundo, int rafaga) {
+        if (handshakesPorSegundo <= 0) {
+            throw new IllegalArgumentException("La tasa de handshakes debe ser positiva");
+        }
+        this.intervaloNanos = TimeUnit.SECONDS.toNanos(1) / handshakesPorSegundo;
+        this.rafagaNanos = intervaloNanos * Math.max(1, rafaga);
+        this.siguienteTurnoLibre = System.nanoTime() - rafagaNanos;
+    }
+
+    /**
+     * Intenta admitir un handshake sin bloquear.
+     *
+     * @return 0 si el handshake puede continuar; si debe rechazarse, los segundos sugeridos
+     *         al cliente en la cabecera {@code Retry-After} (al menos 1)
+     */
+    public long admitir() {
+        long espera;
+        synchronized (this) {
+            long ahora = System.nanoTime();
+            // La ráfaga se modela permitiendo que el turno libre quede en el pasado hasta rafagaNanos.
+            long turno = Math.max(siguienteTurnoLibre, ahora - rafagaNanos);
+            espera = turno + intervaloNanos - ahora;
+            if (espera <= 0) {
+                siguienteTurnoLibre = turno + intervaloNanos;
+            }
+        }
+        if (espera > 0) {
+            rechazados.incrementAndGet();
+            return Math.max(1, (espera + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+        admitidos.incrementAndGet();
+        return 0;
+    }
+
+    public long getAdmitidos() {
+        return admitidos.get();
+    }
+
+    public long getRechazados() {
+        return rechazados.get();
+    }
+}
@@ -0,0 +1,139 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaConfiguracionWebSocket/MetricasTransporte.java
+
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.session.PollingSockJsSession;
+import org.springframework.web.socket.sockjs.transport.session.StreamingSockJsSession;
+import org.springframework.web.socket.sockjs.transport.session.WebSocketServerSockJsSession;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas de sesiones WebSocket/STOMP clasificadas por tipo de transporte.
+ * <p>
+ * Permite ver cuánta carga sigue llegando por los transportes de respaldo de SockJS
+ * (streaming o polling HTTP, mucho más costosos para el servidor) frente al WebSocket nativo.
+ * Se publican en Micrometer, visibles en {@code /actuator/metrics}:
+ * <ul>
+ *   <li>{@code reacciones.websocket.sesiones.activas}: sesiones abiertas por transporte.</li>
+ *   <li>{@code reacciones.websocket.sesiones.total}: sesiones abiertas desde el arranque.</li>
+ *   <li>{@code reacciones.websocket.mensajes.entrantes}: tramas recibidas por transporte.</li>
+ * </ul>
+ * Se engancha como decorador del {@link WebSocketHandler} en
+ * {@link WebSocketConfig#configureWebSocketTransport}.
+ */
+@Component
+public class MetricasTransporte {
+
+    /**
+     * Transportes posibles de una sesión.
+     */
+    public enum TipoTransporte {
+        WEBSOCKET_NATIVO("websocket-nativo"),
+        SOCKJS_WEBSOCKET("sockjs-websocket"),
+        SOCKJS_STREAMING("sockjs-streaming"),
+        SOCKJS_POLLING("sockjs-polling");
+
+        private final String etiqueta;
+
+        TipoTransporte(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        public String getEtiqueta() {
+            return etiqueta;
+        }
+    }
+
+    private final Map<TipoTransporte, AtomicInteger> sesionesActivas = new EnumMap<>(TipoTransporte.class);
+    private final Map<TipoTransporte, Counter> sesionesTotales = new EnumMap<>(TipoTransporte.class);
+    private final Map<TipoTransporte, Counter> mensajesEntrantes = new EnumMap<>(TipoTransporte.class);
+
+    public MetricasTransporte(MeterRegistry meterRegistry) {
+        for (TipoTransporte tipo : TipoTransporte.values()) {
+            AtomicInteger activas = new AtomicInteger();
+            sesionesActivas.put(tipo, activas);
+            Gauge.builder("reacciones.websocket.sesiones.activas", activas, AtomicInteger::get)
+                    .tag("transporte", tipo.getEtiqueta())
+                    .register(meterRegistry);
+            sesionesTotales.put(tipo, Counter.builder("reacciones.websocket.sesiones.total")
+                    .tag("transporte", tipo.getEtiqueta())
+                    .register(meterRegistry));
+            mensajesEntrantes.put(tipo, Counter.builder("reacciones.websocket.mensajes.entrantes")
+                    .tag("transporte", tipo.getEtiqueta())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Envuelve el manejador de WebSocket para contabilizar sesiones y mensajes.
+     *
+     * @param handler manejador original
+     * @return manejador decorado
+     */
+    public WebSocketHandler decorar(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                TipoTransporte tipo = clasificar(session);
+                sesionesActivas.get(tipo).incrementAndGet();
+                sesionesTotales.get(tipo).increment();
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                mensajesEntrantes.get(clasificar(session)).increment();
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sesionesActivas.get(clasificar(session)).decrementAndGet();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * @param tipo transporte a consultar
+     * @return número de sesiones abiertas actualmente con ese transporte
+     */
+    public int getSesionesActivas(TipoTransporte tipo) {
+        return sesionesActivas.get(tipo).get();
+    }
+
+    /**
+     * Determina el transporte de una sesión según su implementación concreta,
+     * ignorando los decoradores que la envuelvan.
+     *
+     * @param sesion sesión a clasificar
+     * @return el tipo de transporte
+     */
+    static TipoTransporte clasificar(WebSocketSession sesion) {
+        WebSocketSession session = WebSocketSessionDecorator.unwrap(sesion);
+        if (session instanceof WebSocketServerSockJsSession) {
+            return TipoTransporte.SOCKJS_WEBSOCKET;
+        }
+        if (session instanceof StreamingSockJsSession) {
+            return TipoTransporte.SOCKJS_STREAMING;
+        }
+        if (session instanceof PollingSockJsSession) {
+            return TipoTransporte.SOCKJS_POLLING;
+        }
+        return TipoTransporte.WEBSOCKET_NATIVO;
+    }
+}
@@ -3,14 +3,19 @@
 package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
 
 import co.edu.unicauca.servidorReacciones.capaControladores.StompPrincipal;
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
 import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.RequestUpgradeStrategy;
 import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
-import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manejador personalizado para el "apretón de manos" (handshake) de la conexión WebSocket.
@@ -21,7 +26,14 @@ import java.util.UUID;
  * <p>
  * Su principal responsabilidad es extraer el {@code nickname} del usuario, que el cliente
  * envía como un parámetro de consulta en la URL de conexión (ej. {@code /ws?nickname=Juanito}).
- * Luego, crea un {@link StompPrincipal} con ese nickname.
+ * Luego, crea un {@link StompPrincipal} con ese nickname y su identificador entero
+ * asignado por el {@link RegistroIdentificadores}.
+ * <p>
+ * Como durante una tormenta de reconexiones (por ejemplo, tras un despliegue) el costo del
+ * handshake domina, el camino es deliberadamente liviano: el nickname se extrae recorriendo
+ * la cadena de consulta sin construir la URI completa, los nombres anónimos no usan
+ * {@code SecureRandom}, y la tasa de conexiones nuevas se acota antes de llegar aquí
+ * mediante {@link InterceptorAdmisionHandshakes}.
  * <p>
  * Este proceso es fundamental para que Spring pueda enrutar correctamente los mensajes
  * privados dirigidos a destinos {@code /user/...}.
@@ -31,6 +43,47 @@ import java.util.UUID;
  */
 public class UserHandshakeHandler extends DefaultHandshakeHandler {
 
+    private static final String PARAMETRO_NICKNAME = "nickname=";
+
+    /**
+     * Constante impar de mezcla; multiplicar por ella es una biyección sobre los enteros de 32 bits,
+     * por lo que los nombres anónimos no se repiten dentro del proceso aunque no parezcan secuenciales.
+     */
+    private static final int MEZCLA_ANONIMOS = 0x9E3779B9;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Contador de usuarios anónimos, iniciado en un valor aleatorio por proceso.
+     */
+    private static final AtomicInteger contadorAnonimos = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+
+    /**
+     * Registro donde se internan los nicknames al momento de conectarse.
+     */
+    private final RegistroIdentificadores registroIdentificadores;
+
+    /**
+     * Crea el manejador de handshake.
+     *
+     * @param registroIdentificadores registro compartido de identificadores de usuarios y canciones
+     */
+    public UserHandshakeHandler(RegistroIdentificadores registroIdentificadores) {
+        this.registroIdentificadores = registroIdentificadores;
+    }
+
+    /**
+     * Crea el manejador de handshake con una estrategia de actualización propia.
+     *
+     * @param registroIdentificadores registro compartido de identificadores de usuarios y canciones
+     * @param estrategia              estrategia de actualización del contenedor, p. ej.
+     *                                {@link EstrategiaCompresionWebSocket}
+     */
+    public UserHandshakeHandler(RegistroIdentificadores registroIdentificadores, RequestUpgradeStrategy estrategia) {
+        super(estrategia);
+        this.registroIdentificadores = registroIdentificadores;
+    }
+
     /**
      * Determina el usuario asociado a una sesión WebSocket durante el handshake.
      * <p>
@@ -47,30 +100,90 @@ public class UserHandshakeHandler extends DefaultHandshakeHandler {
      */
     @Override
     protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler, Map<String, Object> attributes) {
-        System.out.println("\n--- [DEBUG] Iniciando Handshake para nueva conexión WebSocket ---");
-        System.out.println("URI de la petición: " + request.getURI());
-
         String nickname = null;
         try {
-            // Se utiliza UriComponentsBuilder para parsear de forma segura los parámetros de la URL.
-            nickname = UriComponentsBuilder.fromUri(request.getURI())
-                    .build()
-                    .getQueryParams()
-                    .getFirst("nickname");
-        } catch (Exception e) {
-            System.err.println("No se pudo parsear el nickname desde la URI: " + e.getMessage());
+            nickname = extraerNickname(cadenaDeConsulta(request));
+        } catch (IllegalArgumentException e) {
+            System.err.println("No se pudo decodificar el nickname desde la URI: " + e.getMessage());
         }
 
-        if (nickname == null || nickname.trim().isEmpty()) {
-            System.err.println("[DEBUG] Parámetro 'nickname' NO encontrado en la URL. Asignando usuario anónimo.");
-            nickname = "anon-" + UUID.randomUUID().toString().substring(0, 8);
-        } else {
-            System.out.println("[DEBUG] Parámetro 'nickname' encontrado: '" + nickname + "'. Creando Principal.");
+        if (nickname == null || nickname.isBlank()) {
+            nickname = generarNombreAnonimo();
         }
 
-        System.out.println("--- [DEBUG] Fin del Handshake ---\n");
-        
-        // Se crea y devuelve el objeto Principal que Spring utilizará internamente.
-        return new StompPrincipal(nickname);
+        // Se crea y devuelve el objeto Principal que Spring utilizará internamente. El identificador
+        // se devuelve al registro cuando se cierra la sesión (ReaccionesController#procesarDesconexion).
+        return new StompPrincipal(nickname, registroIdentificadores.adquirirUsuario(nickname));
+    }
+
+    /**
+     * Obtiene la cadena de consulta cruda, evitando construir la URI cuando la petición es de Servlet.
+     *
+     * @param request La solicitud de handshake.
+     * @return la cadena de consulta sin decodificar, o {@code null} si no hay.
+     */
+    private static String cadenaDeConsulta(ServerHttpRequest request) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            return servletRequest.getServletRequest().getQueryString();
+        }
+        return request.getURI().getRawQuery();
+    }
+
+    /**
+     * Extrae el valor del parámetro {@code nickname} recorriendo la cadena de consulta una sola vez.
+     * <p>
+     * Solo se crea la cadena resultante; la decodificación URL se aplica únicamente si el valor
+     * contiene caracteres codificados ({@code %} o {@code +}).
+     *
+     * @param consulta la cadena de consulta cruda (sin el {@code ?}), puede ser {@code null}
+     * @return el nickname decodificado, o {@code null} si el parámetro no está presente
+     * @throws IllegalArgumentException si el valor contiene una secuencia de escape inválida
+     */
+    static String extraerNickname(String consulta) {
+        if (consulta == null) {
+            return null;
+        }
+        int desde = 0;
+        int longitud = consulta.length();
+        while (desde < longitud) {
+            int inicio = consulta.indexOf(PARAMETRO_NICKNAME, desde);
+            if (inicio < 0) {
+                return null;
+            }
+            if (inicio == 0 || consulta.charAt(inicio - 1) == '&') {
+                int inicioValor = inicio + PARAMETRO_NICKNAME.length();
+                int finValor = consulta.indexOf('&', inicioValor);
+                if (finValor < 0) {
+                    finValor = longitud;
+                }
+                boolean codificado = false;
+                for (int i = inicioValor; i < finValor; i++) {
+                    char c = consulta.charAt(i);
+                    if (c == '%' || c == '+') {
+                        codificado = true;
+                        break;
+                    }
+                }
+                String valor = consulta.substring(inicioValor, finValor);
+                return codificado ? URLDecoder.decode(valor, StandardCharsets.UTF_8) : valor;
+            }
+            desde = inicio + PARAMETRO_NICKNAME.length();
+        }
+        return null;
+    }
+
+    /**
+     * Genera un nombre anónimo de 8 dígitos hexadecimales sin bloquear en {@code SecureRandom}.
+     *
+     * @return un nombre de la forma {@code anon-xxxxxxxx}, único dentro del proceso
+     */
+    static String generarNombreAnonimo() {
+        int valor = contadorAnonimos.getAndIncrement() * MEZCLA_ANONIMOS;
+        char[] nombre = {'a', 'n', 'o', 'n', '-', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int i = nombre.length - 1; i >= 5; i--) {
+            nombre[i] = HEX[valor & 0xF];
+            valor >>>= 4;
+        }
+        return new String(nombre);
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,24 @@
 package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
 
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
+import co.edu.unicauca.servidorReacciones.capaTrazas.InterceptorTrazas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Configuración central del soporte WebSocket/STOMP del servidor de reacciones.
@@ -12,15 +26,83 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * <p>Responsabilidades principales:</p>
  * <ul>
  *   <li>Habilitar el uso de STOMP sobre WebSocket en la aplicación Spring.</li>
- *   <li>Definir el endpoint WebSocket al que se conecta el cliente web.</li>
+ *   <li>Definir los endpoints WebSocket a los que se conecta el cliente web:
+ *       {@code /ws} con SockJS y {@code /ws-nativo} con WebSocket puro.</li>
+ *   <li>Acotar buffers, tiempos y tamaños de envío para desconectar a los consumidores lentos.</li>
  *   <li>Registrar un HandshakeHandler para identificar a los usuarios por su nickname.</li>
+ *   <li>Elegir cómo se negocia la compresión {@code permessage-deflate}.</li>
+ *   <li>Rechazar nuevos handshakes mientras el servidor se drena.</li>
  *   <li>Configurar el broker de mensajes interno y los prefijos de destino.</li>
+ *   <li>Registrar el formato de cable compacto como alternativa a JSON.</li>
+ *   <li>Marcar la llegada de las reacciones para sus trazas.</li>
+ *   <li>Atender play y pause antes que las reacciones en el canal de entrada.</li>
  * </ul>
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /**
+     * Registro de identificadores compartido con el controlador, usado por el
+     * handshake para internar el nickname de cada sesión.
+     */
+    @Autowired
+    private RegistroIdentificadores registroIdentificadores;
+
+    /**
+     * Tasa sostenida de handshakes por segundo; un valor de 0 desactiva el limitador.
+     */
+    @Value("${reacciones.handshake.tasa-por-segundo:500}")
+    private int handshakesPorSegundo;
+
+    /**
+     * Handshakes que pueden llegar de golpe por encima de la tasa sostenida.
+     */
+    @Value("${reacciones.handshake.rafaga:200}")
+    private int rafagaHandshakes;
+
+    /**
+     * Métricas de sesiones por tipo de transporte (nativo o respaldo de SockJS).
+     */
+    @Autowired
+    private MetricasTransporte metricasTransporte;
+
+    /**
+     * Colas de salida acotadas por sesión, que aíslan a los consumidores lentos.
+     */
+    @Autowired
+    private ColasSalidaSesiones colasSalidaSesiones;
+
+    /**
+     * Admisión global de conexiones, que se cierra al drenar el servidor.
+     */
+    @Autowired
+    private ControlAdmision controlAdmision;
+
+    /**
+     * Tramas que pueden esperar en el nivel bajo del canal de entrada antes de descartar reacciones.
+     */
+    @Value("${reacciones.entrada.capacidad-cola:10000}")
+    private int capacidadColaEntrada;
+
+    /**
+     * Tamaño máximo de un mensaje STOMP entrante, en KB.
+     */
+    @Value("${reacciones.websocket.tamano-maximo-mensaje-kb:64}")
+    private int tamanoMaximoMensajeKb;
+
+    /**
+     * Tamaño del buffer de mensajes de texto del contenedor, en KB.
+     */
+    @Value("${reacciones.websocket.buffer-texto-contenedor-kb:16}")
+    private int bufferTextoContenedorKb;
+
+    /**
+     * Cómo se negocia {@code permessage-deflate} con los clientes que la ofrecen.
+     */
+    @Value("${reacciones.websocket.compresion.modo:CONTEXTO_COMPARTIDO}")
+    private EstrategiaCompresionWebSocket.ModoCompresion modoCompresion;
+
     /**
      * Registra los endpoints STOMP a los que se conectarán los clientes
      * para establecer la comunicación WebSocket.
@@ -29,15 +111,81 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // El manejador y el limitador se comparten entre ambos endpoints.
+        UserHandshakeHandler handshakeHandler = new UserHandshakeHandler(registroIdentificadores,
+                new EstrategiaCompresionWebSocket(modoCompresion));
+        InterceptorAdmisionHandshakes interceptorAdmision = crearInterceptorAdmision();
+
         // Endpoint principal WebSocket para el cliente web.
         registry.addEndpoint("/ws")
                 // **CLAVE**: Registra el manejador que asocia el nickname del usuario
                 // con la sesión WebSocket, permitiendo el envío de mensajes privados.
-                .setHandshakeHandler(new UserHandshakeHandler())
+                .setHandshakeHandler(handshakeHandler)
+                // Acota la tasa de handshakes con una cola de admisión (tormentas de reconexión).
+                .addInterceptors(interceptorAdmision)
                 // Permite conexiones desde cualquier origen (CORS)
                 .setAllowedOriginPatterns("*")
                 // Habilita SockJS para compatibilidad con navegadores antiguos.
                 .withSockJS();
+
+        // Endpoint WebSocket puro para clientes modernos: sin el framing de SockJS,
+        // sin peticiones /info ni transportes de respaldo por HTTP streaming o polling.
+        registry.addEndpoint("/ws-nativo")
+                .setHandshakeHandler(handshakeHandler)
+                .addInterceptors(interceptorAdmision)
+                .setAllowedOriginPatterns("*");
+    }
+
+    /**
+     * Ajusta los límites del transporte WebSocket de cada sesión.
+     * <p>
+     * Si una sesión no consume sus mensajes a tiempo (supera el límite de tiempo de envío o
+     * acumula más datos pendientes que el límite de buffer), se cierra en lugar de seguir
+     * acumulando mensajes en memoria sin límite. Cada sesión escribe a través de su
+     * {@link ColaSalidaSesion}, que aplica esos límites y las políticas de desborde por tipo de
+     * destino. No se fijan {@code setSendTimeLimit} ni {@code setSendBufferSizeLimit}: el
+     * decorador de STOMP al que se aplican escribe en la cola, que nunca bloquea, así que no
+     * tendrían efecto.
+     *
+     * @param registration registro de la configuración del transporte
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration
+                .setMessageSizeLimit(tamanoMaximoMensajeKb * 1024)
+                .addDecoratorFactory(metricasTransporte::decorar)
+                .addDecoratorFactory(colasSalidaSesiones::decorar);
+    }
+
+    /**
+     * Ajusta los buffers de mensajes del contenedor WebSocket de Tomcat.
+     * <p>
+     * Se configuran como parámetros de contexto porque Tomcat los lee al crear su
+     * contenedor WebSocket; los mensajes de reacciones son pequeños, así que no se
+     * necesitan buffers grandes por sesión.
+     *
+     * @return el personalizador de la fábrica de Tomcat
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> personalizarContenedorWebSocket() {
+        String tamanoBuffer = Integer.toString(bufferTextoContenedorKb * 1024);
+        return factory -> factory.addContextCustomizers(context -> {
+            context.addParameter("org.apache.tomcat.websocket.textBufferSize", tamanoBuffer);
+            context.addParameter("org.apache.tomcat.websocket.binaryBufferSize", tamanoBuffer);
+        });
+    }
+
+    /**
+     * Crea el interceptor de admisión de handshakes a partir de la configuración.
+     *
+     * @return el interceptor; si la tasa configurada es 0 solo rechaza conexiones durante el drenado
+     */
+    private InterceptorAdmisionHandshakes crearInterceptorAdmision() {
+        if (handshakesPorSegundo <= 0) {
+            return new InterceptorAdmisionHandshakes(null, controlAdmision);
+        }
+        return new InterceptorAdmisionHandshakes(new LimitadorHandshakes(handshakesPorSegundo, rafagaHandshakes),
+                controlAdmision);
     }
 
     /**
@@ -61,4 +209,48 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // El cliente se suscribirá a "/user/queue/notificaciones".
         config.setUserDestinationPrefix("/user");
     }
-}
\ No newline at end of file
+
+    /**
+     * Registra el {@link InterceptorTrazas}, que marca cada reacción al entrar al canal de entrada,
+     * antes de esperar turno en su ejecutor.
+     * <p>
+     * El ejecutor del canal usa una {@link ColaEntradaPrioritaria}: con el canal saturado de
+     * reacciones, los eventos de play y pause se atienden primero, y las tramas que no caben en la
+     * cola se descartan. Conserva el tamaño de hilos que Spring usa por defecto (dos por procesador)
+     * y lo fija también como máximo: con una cola acotada, un máximo mayor haría que el ejecutor
+     * creara un hilo por cada trama rechazada en vez de descartarla.
+     *
+     * @param registration registro del canal de entrada
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new InterceptorTrazas());
+        ColaEntradaPrioritaria cola = new ColaEntradaPrioritaria(capacidadColaEntrada);
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor() {
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+                return cola;
+            }
+        };
+        ejecutor.setThreadNamePrefix("clientInboundChannel-");
+        ejecutor.setRejectedExecutionHandler(cola::descartar);
+        int hilos = Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor(ejecutor).corePoolSize(hilos).maxPoolSize(hilos);
+    }
+
+    /**
+     * Agrega el convertidor del formato compacto a la lista de convertidores de mensajes.
+     * <p>
+     * El convertidor solo actúa cuando la trama declara el {@code content-type}
+     * {@link ConvertidorMensajesCompactos#TIPO_COMPACTO}; al devolver {@code true} se conservan
+     * los convertidores por defecto, de modo que JSON sigue siendo el formato predeterminado.
+     *
+     * @param messageConverters lista de convertidores a la que se agregan los personalizados
+     * @return {@code true} para registrar también los convertidores por defecto
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new ConvertidorMensajesCompactos());
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaControladores/EstadisticasController.java
+
+package co.edu.unicauca.servidorReacciones.capaControladores;
+
+import co.edu.unicauca.servidorReacciones.capaEstadisticas.EstadisticasReacciones;
+import co.edu.unicauca.servidorReacciones.capaModelos.EstadisticaCancion;
+import co.edu.unicauca.servidorReacciones.capaModelos.ResumenEstadisticas;
+import co.edu.unicauca.servidorReacciones.capaPresencia.CanalCancion;
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controlador REST de las estadísticas en vivo.
+ *
+ * <p>Expone por HTTP el mismo resumen que se publica periódicamente en
+ * {@code /broker/estadisticas}, y las estadísticas de una canción concreta.</p>
+ */
+@RestController
+@RequestMapping("/api/estadisticas")
+@CrossOrigin(origins = "*")
+public class EstadisticasController {
+
+    @Autowired
+    private EstadisticasReacciones estadisticasReacciones;
+
+    @Autowired
+    private RegistroIdentificadores registroIdentificadores;
+
+    /**
+     * <p>Método: {@code GET}</p>
+     * <p>Ruta: {@code /api/estadisticas}</p>
+     *
+     * @return canciones en tendencia y reacciones por segundo por tipo
+     */
+    @GetMapping
+    public ResponseEntity<ResumenEstadisticas> resumen() {
+        return ResponseEntity.ok(estadisticasReacciones.resumen());
+    }
+
+    /**
+     * <p>Método: {@code GET}</p>
+     * <p>Ruta: {@code /api/estadisticas/canciones/{idCancion}}</p>
+     *
+     * @param idCancion identificador de la canción
+     * @return oyentes actuales, reacciones por segundo y puntuación de tendencia de la canción,
+     *         o 404 si la canción no ha tenido actividad
+     */
+    @GetMapping("/canciones/{idCancion}")
+    public ResponseEntity<EstadisticaCancion> cancion(@PathVariable String idCancion) {
+        CanalCancion canal = registroIdentificadores.buscarCanal(idCancion);
+        if (canal == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(estadisticasReacciones.estadistica(canal));
+    }
+}
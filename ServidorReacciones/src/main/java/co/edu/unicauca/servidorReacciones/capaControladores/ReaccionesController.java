@@ -2,20 +2,57 @@
 
 package co.edu.unicauca.servidorReacciones.capaControladores;
 
+import co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket.ConvertidorMensajesCompactos;
+import co.edu.unicauca.servidorReacciones.capaEstadisticas.EstadisticasReacciones;
+import co.edu.unicauca.servidorReacciones.capaModelos.FiltroCanciones;
 import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
 import co.edu.unicauca.servidorReacciones.capaModelos.NotificacionPrivada;
+import co.edu.unicauca.servidorReacciones.capaModelos.SolicitudRepeticion;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.EjecutorSerialPorUsuario;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.LimitadorConcurrenciaPagos;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.PagosClientService;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import co.edu.unicauca.servidorReacciones.capaPerfilado.EventoCambioPresencia;
+import co.edu.unicauca.servidorReacciones.capaPerfilado.EventoDifusion;
+import co.edu.unicauca.servidorReacciones.capaPerfilado.EventoReaccionRecibida;
+import co.edu.unicauca.servidorReacciones.capaPresencia.CanalCancion;
+import co.edu.unicauca.servidorReacciones.capaPresencia.HistorialCanciones;
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
+import co.edu.unicauca.servidorReacciones.capaPresencia.SesionMultiplexada;
+import co.edu.unicauca.servidorReacciones.capaPresencia.SuscripcionesMultiplexadas;
+import co.edu.unicauca.servidorReacciones.capaTrazas.ContextoTraza;
+import co.edu.unicauca.servidorReacciones.capaTrazas.InterceptorTrazas;
+import co.edu.unicauca.servidorReacciones.capaTrazas.Tramo;
+import co.edu.unicauca.servidorReacciones.capaTrazas.Trazador;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
-import java.util.Collections;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Controlador principal para gestionar las interacciones en tiempo real a través de WebSockets.
@@ -28,7 +65,12 @@ import java.util.concurrent.ConcurrentHashMap;
  *     <li>Orquestar la validación de pagos para cada reacción a través de {@link PagosClientService}.</li>
  *     <li>Distribuir los eventos (broadcast) a los canales de cada canción.</li>
  *     <li>Enviar notificaciones privadas a usuarios específicos en caso de errores o límites alcanzados.</li>
+ *     <li>Repetir los eventos recientes de una canción a quien se une tarde o se reconecta.</li>
+ *     <li>Alimentar las estadísticas en vivo con cada reacción aceptada.</li>
+ *     <li>Entregar los eventos de varias canciones por una única suscripción multiplexada por sesión.</li>
  * </ul>
+ * Las reacciones recibidas, los cambios de presencia y las difusiones emiten además eventos de
+ * JDK Flight Recorder, que solo se registran durante una grabación ({@code /actuator/perfilado}).
  *
  */
 @Controller
@@ -47,11 +89,87 @@ public class ReaccionesController {
     private PagosClientService pagosClientService;
 
     /**
-     * Estructura de datos en memoria para mantener un registro de los usuarios
-     * activos por cada canal de canción.
-     * La clave es el ID de la canción y el valor es un conjunto de nicknames.
+     * Buzones por usuario en los que se ejecutan los pagos: en orden para cada nickname
+     * y en paralelo entre nicknames distintos.
      */
-    private final Map<String, Set<String>> usuariosPorCancion = new ConcurrentHashMap<>();
+    @Autowired
+    private EjecutorSerialPorUsuario pagosPorUsuario;
+
+    /**
+     * Límite adaptativo de reacciones en curso; las que lo superan se descartan al llegar.
+     */
+    @Autowired
+    private LimitadorConcurrenciaPagos limitadorConcurrencia;
+
+    /**
+     * Registro de identificadores enteros de canciones y usuarios. Cada {@link CanalCancion}
+     * mantiene en memoria los usuarios activos del canal y su destino STOMP precalculado.
+     */
+    @Autowired
+    private RegistroIdentificadores registroIdentificadores;
+
+    /**
+     * Eventos recientes de cada canción, con su número de secuencia.
+     */
+    @Autowired
+    private HistorialCanciones historialCanciones;
+
+    /**
+     * Estadísticas en vivo: reacciones por segundo y canciones en tendencia.
+     */
+    @Autowired
+    private EstadisticasReacciones estadisticasReacciones;
+
+    /**
+     * Filtros de canciones de las suscripciones multiplexadas, con su índice canción → sesiones.
+     */
+    @Autowired
+    private SuscripcionesMultiplexadas suscripcionesMultiplexadas;
+
+    /**
+     * Trazas de las reacciones, desde la llegada de la trama hasta la difusión.
+     */
+    @Autowired
+    private Trazador trazador;
+
+    /**
+     * Canal de salida hacia los clientes, usado para repetir eventos directamente
+     * en la suscripción que los pidió y para las entregas multiplexadas.
+     */
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    /**
+     * Formato de cable usado para los broadcasts a los canales de canción.
+     * Valores: {@code json} (por defecto) o {@code compacto}.
+     */
+    @Value("${reacciones.stomp.formato-difusion:json}")
+    private String formatoDifusion;
+
+    /**
+     * Cabeceras calculadas una sola vez a partir de {@link #formatoDifusion}.
+     * Es {@code null} cuando se usa JSON, el formato por defecto.
+     */
+    private Map<String, Object> cabecerasDifusion;
+
+    /**
+     * Tipo de contenido de las tramas que se envían sin pasar por el broker (repeticiones y
+     * entregas multiplexadas), igual al de los broadcasts.
+     */
+    private MimeType tipoDifusion = MimeTypeUtils.APPLICATION_JSON;
+
+    /**
+     * Resuelve las cabeceras de broadcast según el formato configurado.
+     */
+    @PostConstruct
+    void inicializarFormatoDifusion() {
+        if ("compacto".equalsIgnoreCase(formatoDifusion)) {
+            cabecerasDifusion = Map.of(MessageHeaders.CONTENT_TYPE, ConvertidorMensajesCompactos.TIPO_COMPACTO);
+            tipoDifusion = ConvertidorMensajesCompactos.TIPO_COMPACTO;
+        }
+        System.out.println("[REACCIONES] Formato de difusión: " + (cabecerasDifusion == null ? "json" : "compacto"));
+    }
 
     /**
      * Maneja los mensajes enviados por el cliente al destino STOMP {@code /app/reproducir}.
@@ -60,12 +178,15 @@ public class ReaccionesController {
      * los demás suscriptores de ese canal que un nuevo usuario ha comenzado a escuchar.
      *
      * @param mensaje El {@link MensajeCancion} que contiene el nickname del usuario y el ID de la canción.
+     * @param principal El usuario de la sesión, con su identificador entero ya asignado.
      */
     @MessageMapping("/reproducir")
-    public void procesarInicioReproduccion(@Payload MensajeCancion mensaje) {
+    public void procesarInicioReproduccion(@Payload MensajeCancion mensaje, Principal principal) {
         System.out.println("EVENTO PLAY: " + mensaje);
-        registrarUsuarioEnCancion(mensaje.getIdCancion(), mensaje.getNickname());
-        broadcastACanalCancion(mensaje);
+        CanalCancion canal = registroIdentificadores.canal(mensaje.getIdCancion());
+        registrarUsuarioEnCancion(canal, resolverIdUsuario(mensaje.getNickname(), principal));
+        EventoCambioPresencia.registrar(mensaje.getNickname(), canal.getIdCancion(), "PLAY", canal.getCantidadOyentes());
+        broadcastACanalCancion(canal, mensaje);
     }
 
     /**
@@ -75,43 +196,128 @@ public class ReaccionesController {
      * suscriptores que el usuario ha pausado la reproducción.
      *
      * @param mensaje El {@link MensajeCancion} que contiene el nickname del usuario y el ID de la canción.
+     * @param principal El usuario de la sesión, con su identificador entero ya asignado.
      */
     @MessageMapping("/detener")
-    public void procesarFinReproduccion(@Payload MensajeCancion mensaje) {
+    public void procesarFinReproduccion(@Payload MensajeCancion mensaje, Principal principal) {
         System.out.println("EVENTO PAUSE: " + mensaje);
-        eliminarUsuarioDeCancion(mensaje.getIdCancion(), mensaje.getNickname());
-        broadcastACanalCancion(mensaje);
+        CanalCancion canal = registroIdentificadores.buscarCanal(mensaje.getIdCancion());
+        if (canal == null) {
+            // Nadie escucha la canción: no hay oyente que quitar ni suscriptores a quien avisar.
+            return;
+        }
+        eliminarUsuarioDeCancion(canal, resolverIdUsuario(mensaje.getNickname(), principal));
+        EventoCambioPresencia.registrar(mensaje.getNickname(), canal.getIdCancion(), "PAUSE", canal.getCantidadOyentes());
+        broadcastACanalCancion(canal, mensaje);
     }
 
     /**
      * Maneja las reacciones enviadas por el cliente al destino STOMP {@code /app/reaccionar}.
      * <p>
-     * Orquesta la validación del pago. Si el pago es exitoso, la reacción se distribuye (broadcast)
-     * a todos los usuarios del canal. Si falla (por límite de saldo o error técnico), se envía una
-     * notificación privada de vuelta al usuario que originó la reacción.
+     * El pago se encola en el buzón del usuario y se procesa fuera del hilo de entrada de STOMP:
+     * las reacciones de un mismo nickname se pagan una tras otra, en el orden en que llegaron,
+     * aunque el cliente las haya enviado por hilos distintos. Si el usuario ya tiene demasiadas
+     * reacciones pendientes, la nueva se rechaza con una notificación privada.
+     * <p>
+     * Antes de encolarla, la reacción debe obtener lugar en el {@link LimitadorConcurrenciaPagos}.
+     * Si el servidor está al límite de reacciones en curso, se descarta de inmediato, también
+     * con una notificación privada, en vez de esperar tras las demás.
      *
      * @param mensaje El {@link MensajeCancion} que contiene los detalles de la reacción.
+     * @param tipoContenido El {@code content-type} de la trama recibida; las notificaciones privadas
+     *                      se responden en el mismo formato.
+     * @param llegadaNanos Instante en que llegó la trama, marcado por el {@link InterceptorTrazas}.
+     * @param contextoCliente Contexto de traza enviado por el cliente en {@code traceparent}, si lo hay.
      */
     @MessageMapping("/reaccionar")
-    public void procesarReaccion(@Payload MensajeCancion mensaje) {
+    public void procesarReaccion(@Payload MensajeCancion mensaje,
+                                 @Header(name = MessageHeaders.CONTENT_TYPE, required = false) MimeType tipoContenido,
+                                 @Header(name = InterceptorTrazas.LLEGADA, required = false) Long llegadaNanos,
+                                 @Header(name = InterceptorTrazas.CONTEXTO, required = false) ContextoTraza contextoCliente) {
         System.out.println("EVENTO REACCION (" + mensaje.getContenido() + "): " + mensaje);
 
+        long ahora = System.nanoTime();
+        long llegada = llegadaNanos != null ? llegadaNanos : ahora;
+        Tramo reaccion = trazador.iniciarRaiz("reaccion", contextoCliente, llegada)
+                .atributo("nickname", mensaje.getNickname())
+                .atributo("cancion", mensaje.getIdCancion())
+                .atributo("tipo", mensaje.getContenido());
+        trazador.registrar("cola-entrada", reaccion.getContexto(), llegada, ahora);
+
+        if (!limitadorConcurrencia.intentarAdquirir()) {
+            EventoReaccionRecibida.registrar(mensaje.getNickname(), mensaje.getIdCancion(), mensaje.getContenido(), false);
+            reaccion.atributo("resultado", "descartada").terminar();
+            System.err.println("[REACCIONES] Reacción de " + mensaje.getNickname() + " descartada: "
+                    + limitadorConcurrencia.getEnCurso() + " reacciones en curso (límite "
+                    + limitadorConcurrencia.getLimite() + ")");
+            enviarNotificacionPrivada(
+                mensaje.getNickname(),
+                tipoContenido,
+                "ERROR_PAGO",
+                "Servidor Ocupado",
+                "Hay demasiadas reacciones en proceso. Tu reacción no se cobró; inténtalo de nuevo en unos segundos."
+            );
+            return;
+        }
+        // Se marca antes de encolar: el tramo "buzon-usuario" mide lo que la reacción espera tras las
+        // anteriores del mismo usuario, que no se vería si el instante se tomara al ejecutarla.
+        long encoladaNanos = System.nanoTime();
+        boolean encolada = pagosPorUsuario.ejecutar(mensaje.getNickname(), () -> {
+            try {
+                pagarReaccion(mensaje, tipoContenido, reaccion, encoladaNanos);
+            } finally {
+                limitadorConcurrencia.liberar();
+            }
+        });
+        EventoReaccionRecibida.registrar(mensaje.getNickname(), mensaje.getIdCancion(), mensaje.getContenido(), encolada);
+        if (!encolada) {
+            limitadorConcurrencia.liberar();
+            reaccion.atributo("resultado", "buzon-lleno").terminar();
+            System.err.println("[REACCIONES] Demasiadas reacciones pendientes para " + mensaje.getNickname());
+            enviarNotificacionPrivada(
+                mensaje.getNickname(),
+                tipoContenido,
+                "ERROR_PAGO",
+                "Demasiadas Reacciones",
+                "Tienes muchas reacciones pendientes de pago. Espera un momento antes de enviar más."
+            );
+        }
+    }
+
+    /**
+     * Orquesta la validación del pago de una reacción. Si el pago es exitoso, la reacción se
+     * distribuye (broadcast) a todos los usuarios del canal. Si falla (por límite de saldo o error
+     * técnico), se envía una notificación privada de vuelta al usuario que originó la reacción.
+     *
+     * @param mensaje El {@link MensajeCancion} que contiene los detalles de la reacción.
+     * @param tipoContenido El formato en que se responden las notificaciones privadas.
+     * @param reaccion El tramo raíz de la traza de la reacción, que se termina aquí.
+     * @param encoladaNanos Instante en que la reacción entró al buzón del usuario.
+     */
+    private void pagarReaccion(MensajeCancion mensaje, MimeType tipoContenido, Tramo reaccion, long encoladaNanos) {
+        trazador.registrar("buzon-usuario", reaccion.getContexto(), encoladaNanos, System.nanoTime());
+        ContextoTraza anterior = Trazador.activar(reaccion.getContexto());
         try {
             PagoResponse pagoResponse = pagosClientService.procesarPagoParaReaccion(mensaje);
+            reaccion.atributo("resultado", pagoResponse.getEstado());
 
             switch (pagoResponse.getEstado()) {
                 case ACEPTADO:
                     System.out.println("[REACCIONES] Pago ACEPTADO. Reenviando reacción al canal.");
-                    broadcastACanalCancion(mensaje);
+                    CanalCancion canal = registroIdentificadores.canal(mensaje.getIdCancion());
+                    estadisticasReacciones.registrarReaccion(canal, mensaje.getContenido());
+                    broadcastACanalCancion(canal, mensaje);
                     break;
 
                 case LIMITE_SUPERADO:
                     System.out.println("[REACCIONES] LIMITE_SUPERADO para " + mensaje.getNickname());
                     enviarNotificacionPrivada(
                         mensaje.getNickname(),
+                        tipoContenido,
                         "LIMITE_ALCANZADO",
                         "Saldo Insuficiente",
-                        "Has alcanzado el límite de $50 en reacciones."
+                        "Has alcanzado tu límite de gasto en reacciones (acumulado: $"
+                                + pagoResponse.getTotalAcumuladoUsuario() + ")."
                     );
                     break;
                 
@@ -121,6 +327,7 @@ public class ReaccionesController {
                                    ". Mensaje: " + pagoResponse.getMensaje());
                     enviarNotificacionPrivada(
                         mensaje.getNickname(),
+                        tipoContenido,
                         "ERROR_PAGO",
                         "Error en la Reacción",
                         pagoResponse.getMensaje()
@@ -128,27 +335,228 @@ public class ReaccionesController {
                     break;
             }
         } catch (Exception e) {
+            reaccion.error(e);
             // Este bloque se activa si todos los reintentos en PagosClientService fallan.
             System.err.println("[REACCIONES] FALLO DEFINITIVO tras reintentos para " + mensaje.getNickname() +
                                ". Error: " + e.getMessage());
             enviarNotificacionPrivada(
                 mensaje.getNickname(),
+                tipoContenido,
                 "ERROR_PAGO",
                 "Error en el Servidor",
                 "No se pudo procesar tu reacción en este momento. Inténtalo de nuevo más tarde."
             );
+        } finally {
+            Trazador.restaurar(anterior);
+            reaccion.terminar();
+        }
+    }
+
+    /**
+     * Maneja las peticiones de repetición enviadas al destino STOMP {@code /app/repeticion}.
+     * <p>
+     * Responde en {@code /user/queue/repeticion} con la lista de eventos recientes de la canción:
+     * desde la secuencia indicada o, si no se indica, los últimos N.
+     *
+     * @param solicitud La canción y el punto desde el que se quieren recibir los eventos.
+     * @param principal El usuario que hace la petición.
+     */
+    @MessageMapping("/repeticion")
+    public void procesarSolicitudRepeticion(@Payload SolicitudRepeticion solicitud, Principal principal) {
+        if (principal == null || solicitud.getIdCancion() == null) {
+            return;
+        }
+        CanalCancion canal = registroIdentificadores.buscarCanal(solicitud.getIdCancion());
+        List<MensajeCancion> eventos = canal == null
+                ? List.of()
+                : buscarEventos(canal, solicitud.getDesde(), solicitud.getUltimos());
+        System.out.println("[REACCIONES] Repitiendo " + eventos.size() + " eventos de " + solicitud.getIdCancion()
+                + " a " + principal.getName());
+        messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/repeticion", eventos);
+    }
+
+    /**
+     * Maneja los cambios de filtro enviados al destino STOMP {@code /app/canciones/filtro}.
+     * <p>
+     * Agrega, quita o reemplaza las canciones que la sesión recibe por su suscripción a
+     * {@code /user/queue/canciones}. El filtro puede definirse antes o después de suscribirse.
+     *
+     * @param filtro La operación y las canciones afectadas.
+     * @param idSesion La sesión STOMP que envía el cambio.
+     */
+    @MessageMapping("/canciones/filtro")
+    public void procesarFiltroCanciones(@Payload FiltroCanciones filtro,
+                                        @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String idSesion) {
+        if (filtro.getCanciones() == null) {
+            return;
+        }
+        SuscripcionesMultiplexadas.Operacion operacion;
+        try {
+            operacion = filtro.getOperacion() == null
+                    ? SuscripcionesMultiplexadas.Operacion.REEMPLAZAR
+                    : SuscripcionesMultiplexadas.Operacion.valueOf(filtro.getOperacion().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("[REACCIONES] Operación de filtro inválida: " + filtro.getOperacion());
+            return;
+        }
+        Set<String> resultado = suscripcionesMultiplexadas.actualizarFiltro(idSesion, operacion, filtro.getCanciones());
+        System.out.println("[REACCIONES] Filtro multiplexado de " + idSesion + " (" + operacion + "): " + resultado);
+    }
+
+    /**
+     * Atiende las suscripciones a un canal de canción que piden repetición con las cabeceras
+     * {@code repetir-desde} (secuencia) o {@code repetir-ultimos} (cantidad).
+     * <p>
+     * Los eventos se envían directamente a esa suscripción, antes que los nuevos eventos del canal,
+     * con el mismo formato de la difusión. El cliente descarta por secuencia los que ya tenía.
+     * <p>
+     * También registra las suscripciones multiplexadas a {@code /user/queue/canciones}.
+     *
+     * @param evento El evento de suscripción publicado por Spring.
+     */
+    @EventListener
+    public void procesarSuscripcion(SessionSubscribeEvent evento) {
+        StompHeaderAccessor cabeceras = StompHeaderAccessor.wrap(evento.getMessage());
+        String destino = cabeceras.getDestination();
+        if (SuscripcionesMultiplexadas.DESTINO.equals(destino)) {
+            suscripcionesMultiplexadas.registrarSuscripcion(cabeceras.getSessionId(), cabeceras.getSubscriptionId());
+            return;
+        }
+        String desde = cabeceras.getFirstNativeHeader("repetir-desde");
+        String ultimos = cabeceras.getFirstNativeHeader("repetir-ultimos");
+        if (destino == null || !destino.startsWith(CanalCancion.PREFIJO_DESTINO) || (desde == null && ultimos == null)) {
+            return;
+        }
+        // Suscribirse no crea el canal: si la canción no tiene actividad reciente no hay nada que repetir.
+        CanalCancion canal = registroIdentificadores.buscarCanal(destino.substring(CanalCancion.PREFIJO_DESTINO.length()));
+        if (canal == null) {
+            return;
+        }
+        List<MensajeCancion> eventos;
+        try {
+            eventos = buscarEventos(canal,
+                    desde != null ? Long.valueOf(desde) : null,
+                    ultimos != null ? Integer.valueOf(ultimos) : null);
+        } catch (NumberFormatException e) {
+            System.err.println("[REACCIONES] Cabecera de repetición inválida en " + destino + ": " + e.getMessage());
+            return;
+        }
+        for (MensajeCancion mensaje : eventos) {
+            SimpMessageHeaderAccessor salida = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            salida.setSessionId(cabeceras.getSessionId());
+            salida.setSubscriptionId(cabeceras.getSubscriptionId());
+            salida.setDestination(destino);
+            salida.setContentType(tipoDifusion);
+            salida.setLeaveMutable(true);
+            Message<?> trama = messagingTemplate.getMessageConverter().toMessage(mensaje, salida.getMessageHeaders());
+            if (trama != null) {
+                clientOutboundChannel.send(trama);
+            }
+        }
+    }
+
+    /**
+     * Da de baja la suscripción multiplexada cuando el cliente la cancela.
+     *
+     * @param evento El evento de cancelación publicado por Spring.
+     */
+    @EventListener
+    public void procesarCancelacionSuscripcion(SessionUnsubscribeEvent evento) {
+        StompHeaderAccessor cabeceras = StompHeaderAccessor.wrap(evento.getMessage());
+        suscripcionesMultiplexadas.cancelarSuscripcion(cabeceras.getSessionId(), cabeceras.getSubscriptionId());
+    }
+
+    /**
+     * Quita del índice multiplexado las sesiones que se desconectan y devuelve al registro el
+     * identificador del usuario, que con su última sesión deja de figurar como oyente.
+     * <p>
+     * Spring puede publicar el evento más de una vez por sesión; el {@link StompPrincipal}
+     * garantiza que el identificador se libere una sola vez.
+     *
+     * @param evento El evento de desconexión publicado por Spring.
+     */
+    @EventListener
+    public void procesarDesconexion(SessionDisconnectEvent evento) {
+        suscripcionesMultiplexadas.eliminarSesion(evento.getSessionId());
+        if (evento.getUser() instanceof StompPrincipal principal && principal.liberar()) {
+            registroIdentificadores.liberarUsuario(principal.getId(), principal.getName());
+        }
+    }
+
+    /**
+     * Busca los eventos a repetir de un canal.
+     *
+     * @param canal El canal de la canción.
+     * @param desde Primera secuencia a devolver, o {@code null}.
+     * @param ultimos Cantidad de eventos recientes si no se indica {@code desde}, o {@code null} para todos los guardados.
+     * @return Los eventos, en orden de secuencia.
+     */
+    private List<MensajeCancion> buscarEventos(CanalCancion canal, Long desde, Integer ultimos) {
+        int capacidad = historialCanciones.getCapacidadPorCancion();
+        if (desde != null) {
+            return historialCanciones.desde(canal, desde, capacidad);
         }
+        return historialCanciones.ultimos(canal, ultimos != null ? Math.min(ultimos, capacidad) : capacidad);
     }
 
     /**
      * Envía un mensaje a todos los clientes suscritos al canal de una canción específica.
+     * Antes de enviarlo le asigna su secuencia y lo guarda en el historial del canal. Después lo
+     * entrega a las sesiones multiplexadas que siguen la canción.
      *
+     * @param canal El canal de la canción, con su destino ya calculado.
      * @param mensaje El {@link MensajeCancion} a difundir.
      */
-    private void broadcastACanalCancion(MensajeCancion mensaje) {
-        String destino = "/broker/canciones/" + mensaje.getIdCancion();
-        System.out.println("Enviando broadcast a: " + destino);
-        messagingTemplate.convertAndSend(destino, mensaje);
+    private void broadcastACanalCancion(CanalCancion canal, MensajeCancion mensaje) {
+        Tramo difusion = trazador.iniciar("difusion");
+        EventoDifusion evento = new EventoDifusion();
+        evento.begin();
+        int multiplexadas = 0;
+        try {
+            historialCanciones.publicar(canal, mensaje);
+            String destino = canal.getDestino();
+            System.out.println("Enviando broadcast a: " + destino);
+            messagingTemplate.convertAndSend(destino, mensaje, cabecerasDifusion);
+            SesionMultiplexada[] sesiones = canal.getSesionesMultiplexadas();
+            multiplexadas = sesiones.length;
+            difusion.atributo("multiplexadas", multiplexadas);
+            if (sesiones.length > 0) {
+                entregarMultiplexado(sesiones, mensaje);
+            }
+        } finally {
+            difusion.terminar();
+            evento.terminar(canal.getIdCancion(), canal.getCantidadOyentes(), multiplexadas);
+        }
+    }
+
+    /**
+     * Entrega un evento a las suscripciones multiplexadas interesadas, directamente en el canal de
+     * salida de cada sesión. El mensaje se serializa una sola vez y la carga se comparte entre todas
+     * las tramas.
+     *
+     * @param sesiones Las sesiones cuyo filtro incluye la canción del evento.
+     * @param mensaje El evento a entregar.
+     */
+    private void entregarMultiplexado(SesionMultiplexada[] sesiones, MensajeCancion mensaje) {
+        SimpMessageHeaderAccessor plantilla = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        plantilla.setContentType(tipoDifusion);
+        Message<?> serializado = messagingTemplate.getMessageConverter().toMessage(mensaje, plantilla.getMessageHeaders());
+        if (serializado == null) {
+            return;
+        }
+        for (SesionMultiplexada sesion : sesiones) {
+            String idSuscripcion = sesion.getIdSuscripcion();
+            if (idSuscripcion == null) {
+                continue;
+            }
+            SimpMessageHeaderAccessor salida = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            salida.setSessionId(sesion.getIdSesion());
+            salida.setSubscriptionId(idSuscripcion);
+            salida.setDestination(SuscripcionesMultiplexadas.DESTINO);
+            salida.setContentType(tipoDifusion);
+            salida.setLeaveMutable(true);
+            clientOutboundChannel.send(MessageBuilder.createMessage(serializado.getPayload(), salida.getMessageHeaders()));
+        }
     }
 
     /**
@@ -158,44 +566,74 @@ public class ReaccionesController {
      * suscrito a {@code /user/queue/notificaciones} para recibir estos mensajes.
      *
      * @param nickname El nickname del usuario destino.
+     * @param formato El formato en el que el usuario envió su trama, o {@code null} para usar JSON.
      * @param tipo Un identificador para que el cliente clasifique la notificación (ej. "ERROR_PAGO").
      * @param titulo Un título breve para la notificación.
      * @param mensaje El cuerpo detallado de la notificación.
      */
-    private void enviarNotificacionPrivada(String nickname, String tipo, String titulo, String mensaje) {
+    private void enviarNotificacionPrivada(String nickname, MimeType formato, String tipo, String titulo, String mensaje) {
         String destino = "/queue/notificaciones";
         NotificacionPrivada notificacion = new NotificacionPrivada(tipo, titulo, mensaje);
         System.out.println("Enviando notificación privada a " + nickname + " en " + destino + ": " + notificacion);
-        messagingTemplate.convertAndSendToUser(nickname, destino, notificacion);
+        Map<String, Object> cabeceras = ConvertidorMensajesCompactos.TIPO_COMPACTO.equalsTypeAndSubtype(formato)
+                ? Map.of(MessageHeaders.CONTENT_TYPE, ConvertidorMensajesCompactos.TIPO_COMPACTO)
+                : null;
+        messagingTemplate.convertAndSendToUser(nickname, destino, notificacion, cabeceras);
+    }
+
+    /**
+     * Obtiene el identificador entero del usuario que envía un mensaje.
+     * <p>
+     * Si el nickname del mensaje coincide con el de la sesión, se usa el identificador asignado
+     * durante el handshake; en caso contrario se busca entre los usuarios conectados, sin asignar
+     * identificadores a nicknames que no tienen sesión.
+     *
+     * @param nickname El nickname indicado en el mensaje.
+     * @param principal El usuario de la sesión STOMP, si existe.
+     * @return El identificador entero del usuario, o -1 si no está conectado o su sesión ya se cerró.
+     */
+    private int resolverIdUsuario(String nickname, Principal principal) {
+        if (principal instanceof StompPrincipal stompPrincipal && stompPrincipal.getName().equals(nickname)) {
+            return stompPrincipal.isLiberado() ? -1 : stompPrincipal.getId();
+        }
+        return registroIdentificadores.buscarIdUsuario(nickname);
     }
 
     /**
      * Registra un usuario en el conjunto de oyentes de una canción.
      *
-     * @param idCancion El identificador del canal de la canción.
-     * @param nickname El nickname del usuario a registrar.
+     * @param canal El canal de la canción.
+     * @param idUsuario El identificador entero del usuario a registrar, o -1 si no está conectado.
      */
-    private void registrarUsuarioEnCancion(String idCancion, String nickname) {
-        usuariosPorCancion
-                .computeIfAbsent(idCancion, k -> Collections.newSetFromMap(new ConcurrentHashMap<>()))
-                .add(nickname);
-        System.out.println("Usuarios activos en " + idCancion + ": " + usuariosPorCancion.get(idCancion));
+    private void registrarUsuarioEnCancion(CanalCancion canal, int idUsuario) {
+        if (idUsuario >= 0) {
+            registroIdentificadores.agregarOyente(canal, idUsuario);
+        }
+        System.out.println("Usuarios activos en " + canal.getIdCancion() + ": " + nicknamesDeOyentes(canal));
     }
 
     /**
      * Elimina a un usuario del conjunto de oyentes de una canción.
      *
-     * @param idCancion El identificador del canal de la canción.
-     * @param nickname El nickname del usuario a eliminar.
+     * @param canal El canal de la canción.
+     * @param idUsuario El identificador entero del usuario a eliminar, o -1 si no está conectado.
      */
-    private void eliminarUsuarioDeCancion(String idCancion, String nickname) {
-        Set<String> usuarios = usuariosPorCancion.get(idCancion);
-        if (usuarios != null) {
-            usuarios.remove(nickname);
-            if (usuarios.isEmpty()) {
-                usuariosPorCancion.remove(idCancion);
-            }
+    private void eliminarUsuarioDeCancion(CanalCancion canal, int idUsuario) {
+        if (idUsuario >= 0) {
+            registroIdentificadores.quitarOyente(canal, idUsuario);
         }
-        System.out.println("Usuarios activos en " + idCancion + ": " + usuariosPorCancion.getOrDefault(idCancion, Collections.emptySet()));
+        System.out.println("Usuarios activos en " + canal.getIdCancion() + ": " + nicknamesDeOyentes(canal));
+    }
+
+    /**
+     * Traduce los oyentes de un canal a sus nicknames, solo para los mensajes de consola.
+     *
+     * @param canal El canal de la canción.
+     * @return Una representación legible de los oyentes.
+     */
+    private String nicknamesDeOyentes(CanalCancion canal) {
+        return Arrays.toString(Arrays.stream(canal.copiarOyentes())
+                .mapToObj(registroIdentificadores::nickname)
+                .toArray());
     }
-}
\ No newline at end of file
+}
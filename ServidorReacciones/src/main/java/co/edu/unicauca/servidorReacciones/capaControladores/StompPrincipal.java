@@ -3,6 +3,7 @@
 package co.edu.unicauca.servidorReacciones.capaControladores;
 
 import java.security.Principal;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Representa a un usuario autenticado dentro del contexto de una sesión WebSocket/STOMP.
@@ -28,14 +29,27 @@ public class StompPrincipal implements Principal {
      */
     private final String name;
 
+    /**
+     * Identificador entero compacto del usuario, asignado por
+     * {@link co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores} durante el handshake.
+     */
+    private final int id;
+
+    /**
+     * Indica si el identificador ya se devolvió al registro al cerrar la sesión.
+     */
+    private final AtomicBoolean liberado = new AtomicBoolean();
+
     /**
      * Construye una nueva instancia de StompPrincipal.
      *
      * @param name El nombre del usuario (nickname) que será asociado a la sesión WebSocket.
      *             No debe ser nulo.
+     * @param id   El identificador entero del usuario en el registro de identificadores.
      */
-    public StompPrincipal(String name) {
+    public StompPrincipal(String name, int id) {
         this.name = name;
+        this.id = id;
     }
 
     /**
@@ -50,4 +64,33 @@ public class StompPrincipal implements Principal {
     public String getName() {
         return name;
     }
-}
\ No newline at end of file
+
+    /**
+     * Devuelve el identificador entero del usuario, que evita volver a resolver
+     * el nickname en cada mensaje.
+     *
+     * @return El identificador entero asociado a esta sesión.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Marca el identificador como devuelto al registro. Spring puede publicar más de un
+     * {@code SessionDisconnectEvent} por sesión; solo la primera llamada devuelve {@code true}.
+     *
+     * @return {@code true} si es la primera vez que se libera
+     */
+    public boolean liberar() {
+        return liberado.compareAndSet(false, true);
+    }
+
+    /**
+     * Indica si la sesión ya se cerró y su identificador pudo haberse asignado a otro usuario.
+     *
+     * @return {@code true} si el identificador ya se liberó
+     */
+    public boolean isLiberado() {
+        return liberado.get();
+    }
+}
@@ -0,0 +1,67 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaEstadisticas/ContadorVentanaDeslizante.java
+
+package co.edu.unicauca.servidorReacciones.capaEstadisticas;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Contador de eventos en una ventana de tiempo deslizante, dividida en cubetas.
+ * <p>
+ * Cada cubeta recuerda a qué periodo pertenece; al registrar un evento en una cubeta de un
+ * periodo viejo, se reinicia. Registrar cuesta O(1) y no hay tareas de limpieza: las cubetas
+ * caducadas simplemente no se suman al consultar.
+ */
+public class ContadorVentanaDeslizante {
+
+    private final long[] cuentas;
+    private final long[] periodos;
+    private final long duracionCubetaMs;
+    private final LongSupplier relojMs;
+
+    /**
+     * @param cubetas          número de cubetas de la ventana
+     * @param duracionCubetaMs duración de cada cubeta; la ventana dura {@code cubetas * duracionCubetaMs}
+     * @param relojMs          fuente del tiempo actual en milisegundos
+     */
+    public ContadorVentanaDeslizante(int cubetas, long duracionCubetaMs, LongSupplier relojMs) {
+        this.cuentas = new long[cubetas];
+        this.periodos = new long[cubetas];
+        this.duracionCubetaMs = duracionCubetaMs;
+        this.relojMs = relojMs;
+        java.util.Arrays.fill(periodos, -1);
+    }
+
+    /**
+     * Registra un evento en el instante actual.
+     */
+    public synchronized void incrementar() {
+        long periodo = relojMs.getAsLong() / duracionCubetaMs;
+        int indice = (int) (periodo % cuentas.length);
+        if (periodos[indice] != periodo) {
+            periodos[indice] = periodo;
+            cuentas[indice] = 0;
+        }
+        cuentas[indice]++;
+    }
+
+    /**
+     * @return eventos registrados dentro de la ventana
+     */
+    public synchronized long total() {
+        long periodoActual = relojMs.getAsLong() / duracionCubetaMs;
+        long total = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            if (periodos[i] > periodoActual - cuentas.length) {
+                total += cuentas[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return tasa media de eventos por segundo dentro de la ventana
+     */
+    public double porSegundo() {
+        return total() * 1000.0 / (cuentas.length * duracionCubetaMs);
+    }
+}
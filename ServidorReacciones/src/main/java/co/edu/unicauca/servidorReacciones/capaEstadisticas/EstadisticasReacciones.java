@@ -0,0 +1,179 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaEstadisticas/EstadisticasReacciones.java
+
+package co.edu.unicauca.servidorReacciones.capaEstadisticas;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.EstadisticaCancion;
+import co.edu.unicauca.servidorReacciones.capaModelos.ResumenEstadisticas;
+import co.edu.unicauca.servidorReacciones.capaPresencia.CanalCancion;
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Estadísticas en vivo de popularidad de canciones y reacciones.
+ * <p>
+ * Cada reacción aceptada se registra en O(1): un contador de ventana deslizante por canción, otro
+ * por tipo de reacción, uno global y el sketch {@link TendenciasCountMin} que mantiene las K
+ * canciones en tendencia. Los oyentes actuales se leen de {@link CanalCancion#getCantidadOyentes()},
+ * que ya se mantiene en cada play/pause, así que nunca se recorren los conjuntos de oyentes.
+ * <p>
+ * El resumen se publica periódicamente en {@code /broker/estadisticas} y se consulta por REST en
+ * {@code /api/estadisticas}.
+ */
+@Component
+public class EstadisticasReacciones {
+
+    /**
+     * Destino STOMP en el que se publica el resumen.
+     */
+    public static final String DESTINO = "/broker/estadisticas";
+
+    /**
+     * Tipos de reacción distintos que se contabilizan por separado; el resto se agrupa en {@link #OTRO_TIPO}.
+     * Acota la memoria frente a clientes que envíen tipos arbitrarios.
+     */
+    private static final int MAXIMO_TIPOS = 16;
+
+    private static final String OTRO_TIPO = "otro";
+
+    @Autowired
+    private RegistroIdentificadores registroIdentificadores;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private final int cubetas;
+    private final long duracionCubetaMs;
+    private final LongSupplier relojMs;
+    private final TendenciasCountMin tendencias;
+
+    /**
+     * Contadores de las canciones con reacciones en la ventana; {@link #decaer()} quita los vacíos.
+     */
+    private final Map<Integer, ContadorVentanaDeslizante> porCancion = new ConcurrentHashMap<>();
+    private final Map<String, ContadorVentanaDeslizante> porTipo = new ConcurrentHashMap<>();
+    private final ContadorVentanaDeslizante global;
+
+    @Autowired
+    public EstadisticasReacciones(@Value("${reacciones.estadisticas.ventana-segundos:10}") int ventanaSegundos,
+                                  @Value("${reacciones.estadisticas.top-k:10}") int k) {
+        this(ventanaSegundos, 1000, k, System::currentTimeMillis);
+    }
+
+    /**
+     * @param cubetas          cubetas de las ventanas deslizantes
+     * @param duracionCubetaMs duración de cada cubeta
+     * @param k                canciones en tendencia a mantener
+     * @param relojMs          fuente del tiempo (las pruebas la sustituyen)
+     */
+    EstadisticasReacciones(int cubetas, long duracionCubetaMs, int k, LongSupplier relojMs) {
+        this.cubetas = cubetas;
+        this.duracionCubetaMs = duracionCubetaMs;
+        this.relojMs = relojMs;
+        this.tendencias = new TendenciasCountMin(4, 2048, k);
+        this.global = nuevoContador();
+    }
+
+    /**
+     * Registra una reacción aceptada.
+     *
+     * @param canal canal de la canción
+     * @param tipo  tipo de reacción (contenido del mensaje)
+     */
+    public void registrarReaccion(CanalCancion canal, String tipo) {
+        // Se incrementa dentro de compute para no sumar en un contador que decaer() acaba de quitar.
+        porCancion.compute(canal.getId(), (id, contador) -> {
+            ContadorVentanaDeslizante actual = contador != null ? contador : nuevoContador();
+            actual.incrementar();
+            return actual;
+        });
+        contadorTipo(tipo).incrementar();
+        global.incrementar();
+        tendencias.registrar(canal.getId());
+    }
+
+    /**
+     * @return resumen con las canciones en tendencia y las tasas por tipo
+     */
+    public ResumenEstadisticas resumen() {
+        List<EstadisticaCancion> top = new ArrayList<>();
+        for (TendenciasCountMin.Tendencia tendencia : tendencias.top()) {
+            CanalCancion canal = registroIdentificadores.canal(tendencia.id());
+            if (canal != null) {
+                top.add(estadistica(canal, tendencia.estimacion()));
+            }
+        }
+        Map<String, Double> tasasPorTipo = new TreeMap<>();
+        porTipo.forEach((tipo, contador) -> tasasPorTipo.put(tipo, contador.porSegundo()));
+        return new ResumenEstadisticas(relojMs.getAsLong(), top, tasasPorTipo, global.porSegundo());
+    }
+
+    /**
+     * @param canal canal de la canción
+     * @return estadísticas actuales de la canción
+     */
+    public EstadisticaCancion estadistica(CanalCancion canal) {
+        return estadistica(canal, tendencias.estimar(canal.getId()));
+    }
+
+    /**
+     * Publica el resumen en {@link #DESTINO}.
+     */
+    @Scheduled(fixedRateString = "${reacciones.estadisticas.periodo-publicacion-ms:2000}")
+    public void publicar() {
+        messagingTemplate.convertAndSend(DESTINO, resumen());
+    }
+
+    /**
+     * Reduce a la mitad las puntuaciones de tendencia, para que el ranking refleje la actividad reciente,
+     * y quita los contadores de las canciones sin reacciones en la ventana. Sin esto el mapa crecería con
+     * cada canción que alguna vez recibió una reacción, y un identificador de canal reutilizado
+     * heredaría el contador de la canción anterior.
+     */
+    @Scheduled(fixedRateString = "${reacciones.estadisticas.periodo-decaimiento-ms:30000}")
+    public void decaer() {
+        tendencias.decaer();
+        for (Integer id : porCancion.keySet()) {
+            porCancion.computeIfPresent(id, (clave, contador) -> contador.total() == 0 ? null : contador);
+        }
+    }
+
+    /**
+     * @return canciones con contador de reacciones
+     */
+    int cantidadContadoresCancion() {
+        return porCancion.size();
+    }
+
+    private EstadisticaCancion estadistica(CanalCancion canal, long puntuacion) {
+        ContadorVentanaDeslizante contador = porCancion.get(canal.getId());
+        return new EstadisticaCancion(canal.getIdCancion(), canal.getCantidadOyentes(),
+                contador != null ? contador.porSegundo() : 0.0, puntuacion);
+    }
+
+    private ContadorVentanaDeslizante contadorTipo(String tipo) {
+        String clave = tipo == null || tipo.isBlank() ? OTRO_TIPO : tipo;
+        ContadorVentanaDeslizante contador = porTipo.get(clave);
+        if (contador != null) {
+            return contador;
+        }
+        if (porTipo.size() >= MAXIMO_TIPOS) {
+            clave = OTRO_TIPO;
+        }
+        return porTipo.computeIfAbsent(clave, t -> nuevoContador());
+    }
+
+    private ContadorVentanaDeslizante nuevoContador() {
+        return new ContadorVentanaDeslizante(cubetas, duracionCubetaMs, relojMs);
+    }
+}
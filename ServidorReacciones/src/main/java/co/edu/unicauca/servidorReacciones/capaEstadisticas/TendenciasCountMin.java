@@ -0,0 +1,152 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaEstadisticas/TendenciasCountMin.java
+
+package co.edu.unicauca.servidorReacciones.capaEstadisticas;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Elementos más frecuentes (heavy hitters) de un flujo de identificadores enteros, con memoria fija.
+ * <p>
+ * Combina un sketch Count-Min, que estima la frecuencia de cualquier identificador con
+ * {@code profundidad x ancho} contadores sin importar cuántos distintos haya, con un montículo de
+ * mínimos de tamaño K que conserva los candidatos con mayor estimación. Cada evento cuesta
+ * O(profundidad + K), constante respecto del número de canciones.
+ * <p>
+ * Para que el ranking refleje la tendencia y no el total histórico, {@link #decaer()} divide a la
+ * mitad todos los contadores; se invoca periódicamente, fuera del camino de los eventos.
+ */
+public class TendenciasCountMin {
+
+    /**
+     * Identificador con su frecuencia estimada.
+     */
+    public record Tendencia(int id, long estimacion) {
+    }
+
+    private static final class Candidato {
+        private final int id;
+        private long estimacion;
+
+        private Candidato(int id, long estimacion) {
+            this.id = id;
+            this.estimacion = estimacion;
+        }
+    }
+
+    private final long[][] contadores;
+    private final int mascaraAncho;
+    private final int k;
+
+    private final Map<Integer, Candidato> candidatos = new HashMap<>();
+    private final PriorityQueue<Candidato> minimos = new PriorityQueue<>(Comparator.comparingLong(c -> c.estimacion));
+
+    /**
+     * @param profundidad número de filas (funciones hash) del sketch
+     * @param ancho       contadores por fila; se redondea a potencia de dos
+     * @param k           número de elementos más frecuentes a mantener
+     */
+    public TendenciasCountMin(int profundidad, int ancho, int k) {
+        int anchoPotencia = Integer.highestOneBit(Math.max(2, ancho - 1)) << 1;
+        this.contadores = new long[profundidad][anchoPotencia];
+        this.mascaraAncho = anchoPotencia - 1;
+        this.k = k;
+    }
+
+    /**
+     * Registra una ocurrencia del identificador y actualiza el top-K.
+     *
+     * @param id identificador (por ejemplo, el id entero de una canción)
+     * @return la frecuencia estimada tras registrar la ocurrencia
+     */
+    public synchronized long registrar(int id) {
+        // Actualización conservadora: solo se incrementan las celdas que tienen el mínimo,
+        // lo que reduce la sobreestimación por colisiones.
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < contadores.length; fila++) {
+            minimo = Math.min(minimo, contadores[fila][celda(id, fila)]);
+        }
+        for (int fila = 0; fila < contadores.length; fila++) {
+            int celda = celda(id, fila);
+            if (contadores[fila][celda] == minimo) {
+                contadores[fila][celda]++;
+            }
+        }
+        long estimacion = minimo + 1;
+
+        Candidato candidato = candidatos.get(id);
+        if (candidato != null) {
+            minimos.remove(candidato);
+            candidato.estimacion = estimacion;
+            minimos.add(candidato);
+        } else if (minimos.size() < k) {
+            candidato = new Candidato(id, estimacion);
+            candidatos.put(id, candidato);
+            minimos.add(candidato);
+        } else if (estimacion > minimos.peek().estimacion) {
+            Candidato desplazado = minimos.poll();
+            candidatos.remove(desplazado.id);
+            candidato = new Candidato(id, estimacion);
+            candidatos.put(id, candidato);
+            minimos.add(candidato);
+        }
+        return estimacion;
+    }
+
+    /**
+     * @param id identificador a consultar
+     * @return frecuencia estimada (nunca menor que la real desde el último decaimiento)
+     */
+    public synchronized long estimar(int id) {
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < contadores.length; fila++) {
+            minimo = Math.min(minimo, contadores[fila][celda(id, fila)]);
+        }
+        return minimo;
+    }
+
+    /**
+     * Divide a la mitad todos los contadores y estimaciones; los candidatos que llegan a cero salen del top-K.
+     */
+    public synchronized void decaer() {
+        for (long[] fila : contadores) {
+            for (int i = 0; i < fila.length; i++) {
+                fila[i] >>= 1;
+            }
+        }
+        // Dividir a la mitad conserva el orden del montículo.
+        for (Candidato candidato : candidatos.values()) {
+            candidato.estimacion >>= 1;
+        }
+        while (!minimos.isEmpty() && minimos.peek().estimacion == 0) {
+            candidatos.remove(minimos.poll().id);
+        }
+    }
+
+    /**
+     * @return los elementos más frecuentes, de mayor a menor estimación
+     */
+    public synchronized List<Tendencia> top() {
+        List<Tendencia> resultado = new ArrayList<>(minimos.size());
+        for (Candidato candidato : minimos) {
+            resultado.add(new Tendencia(candidato.id, candidato.estimacion));
+        }
+        resultado.sort(Comparator.comparingLong(Tendencia::estimacion).reversed());
+        return resultado;
+    }
+
+    private int celda(int id, int fila) {
+        // Mezcla de 32 bits (fmix de MurmurHash3) con una semilla distinta por fila.
+        int h = id * 0x9E3779B9 + fila * 0x85EBCA6B;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & mascaraAncho;
+    }
+}
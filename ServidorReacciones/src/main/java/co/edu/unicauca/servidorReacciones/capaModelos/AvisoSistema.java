@@ -0,0 +1,33 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaModelos/AvisoSistema.java
+
+package co.edu.unicauca.servidorReacciones.capaModelos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Aviso del servidor a todos los clientes, publicado en {@code /broker/sistema}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvisoSistema {
+
+    /**
+     * Tipo de aviso. {@code RECONECTAR}: el servidor se está drenando y el cliente
+     * debe reconectarse (a otra instancia o a esta tras reiniciarse).
+     */
+    private String tipo;
+
+    /**
+     * Mensaje para mostrar al usuario.
+     */
+    private String mensaje;
+
+    /**
+     * Cada cliente espera un tiempo al azar entre 0 y este valor antes de reconectarse,
+     * para que no lo hagan todos a la vez.
+     */
+    private long esperaMaximaMs;
+}
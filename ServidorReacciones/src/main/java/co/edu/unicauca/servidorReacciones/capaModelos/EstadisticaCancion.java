@@ -0,0 +1,36 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaModelos/EstadisticaCancion.java
+
+package co.edu.unicauca.servidorReacciones.capaModelos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estadísticas en vivo de una canción.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaCancion {
+
+    /**
+     * Identificador de la canción.
+     */
+    private String idCancion;
+
+    /**
+     * Usuarios que la están escuchando en este momento.
+     */
+    private int oyentes;
+
+    /**
+     * Reacciones aceptadas por segundo, promediadas en la ventana deslizante.
+     */
+    private double reaccionesPorSegundo;
+
+    /**
+     * Puntuación de tendencia: reacciones estimadas, con decaimiento exponencial en el tiempo.
+     */
+    private long puntuacionTendencia;
+}
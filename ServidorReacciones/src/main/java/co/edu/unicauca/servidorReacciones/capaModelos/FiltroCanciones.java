@@ -0,0 +1,31 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaModelos/FiltroCanciones.java
+
+package co.edu.unicauca.servidorReacciones.capaModelos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cambio del filtro de canciones de una suscripción multiplexada, enviado a {@code /app/canciones/filtro}.
+ * <p>
+ * La operación puede ser {@code AGREGAR}, {@code QUITAR} o {@code REEMPLAZAR} (por defecto);
+ * esta última deja como filtro exactamente las canciones indicadas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroCanciones {
+
+    /**
+     * Operación a aplicar sobre el filtro actual.
+     */
+    private String operacion;
+
+    /**
+     * Identificadores de las canciones afectadas.
+     */
+    private List<String> canciones;
+}
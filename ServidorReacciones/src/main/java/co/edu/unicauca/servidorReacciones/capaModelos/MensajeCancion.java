@@ -16,7 +16,8 @@ import lombok.Data;
  * </ul>
  * 
  * Esta clase se serializa/deserializa automáticamente a JSON cuando
- * viaja por WebSocket/STOMP entre el cliente y el servidor.
+ * viaja por WebSocket/STOMP entre el cliente y el servidor, o al formato
+ * compacto si la trama declara {@code content-type: application/x-reacciones-compacto}.
  */
 @Data
 public class MensajeCancion {
@@ -52,6 +53,13 @@ public class MensajeCancion {
      */
     private String contenido;
 
+    /**
+     * Número de secuencia asignado por el servidor al difundir el evento en el canal de la
+     * canción. Es creciente dentro de cada canción y permite a un cliente pedir la repetición
+     * de los eventos que se perdió. Es {@code null} en los mensajes que envía el cliente.
+     */
+    private Long secuencia;
+
     /**
      * Constructor por defecto requerido para la deserialización JSON.
      */
@@ -79,6 +87,7 @@ public class MensajeCancion {
         return "MensajeCancion{nickname='" + nickname +
                 "', idCancion='" + idCancion +
                 "', tipo='" + tipo +
-                "', contenido='" + contenido + "'}";
+                "', contenido='" + contenido +
+                "', secuencia=" + secuencia + "}";
     }
 }
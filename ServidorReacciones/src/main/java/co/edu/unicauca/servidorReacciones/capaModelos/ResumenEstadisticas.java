@@ -0,0 +1,40 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaModelos/ResumenEstadisticas.java
+
+package co.edu.unicauca.servidorReacciones.capaModelos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumen de estadísticas que se publica en {@code /broker/estadisticas} y se devuelve
+ * por {@code GET /api/estadisticas}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenEstadisticas {
+
+    /**
+     * Momento en que se calculó el resumen (epoch en milisegundos).
+     */
+    private long marcaTiempo;
+
+    /**
+     * Canciones en tendencia, de mayor a menor puntuación.
+     */
+    private List<EstadisticaCancion> tendencias;
+
+    /**
+     * Reacciones aceptadas por segundo de cada tipo (like, heart, fire...).
+     */
+    private Map<String, Double> reaccionesPorSegundoPorTipo;
+
+    /**
+     * Reacciones aceptadas por segundo en todas las canciones.
+     */
+    private double reaccionesPorSegundo;
+}
@@ -0,0 +1,35 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaModelos/SolicitudRepeticion.java
+
+package co.edu.unicauca.servidorReacciones.capaModelos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Petición de un cliente para recibir de nuevo los eventos recientes de una canción,
+ * enviada a {@code /app/repeticion}.
+ * <p>
+ * Si se indica {@code desde}, se devuelven los eventos con secuencia mayor o igual a ese valor
+ * (reconexión); si no, los últimos {@code ultimos} eventos (oyente que llega tarde).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitudRepeticion {
+
+    /**
+     * Identificador de la canción.
+     */
+    private String idCancion;
+
+    /**
+     * Primera secuencia que se quiere recibir, normalmente la última recibida más uno.
+     */
+    private Long desde;
+
+    /**
+     * Cantidad de eventos recientes a recibir cuando no se indica {@code desde}.
+     */
+    private Integer ultimos;
+}
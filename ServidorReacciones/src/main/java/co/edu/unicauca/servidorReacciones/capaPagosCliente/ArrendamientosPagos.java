@@ -0,0 +1,517 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/ArrendamientosPagos.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.Arrendamiento;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.EstadoPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.LiquidacionArrendamiento;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.ResultadoLiquidacion;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.SolicitudArrendamiento;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Arrendamientos de presupuesto del servidor de pagos ({@code /api/pagos/arrendamientos}).
+ * <p>
+ * Con {@code pagos.arrendamiento.habilitado}, la primera reacción de un usuario de un tipo en una
+ * canción arrienda varias reacciones ({@code pagos.arrendamiento.unidades}); las siguientes se
+ * aprueban localmente, sin viaje al servidor de pagos, mientras queden unidades y el arrendamiento
+ * siga vigente. Lo gastado se liquida en lotes cada {@code periodo-liquidacion-ms}, informando el
+ * acumulado de cada arrendamiento, así que repetir una liquidación fallida no cobra dos veces.
+ * <p>
+ * El límite del usuario sigue siendo estricto: el servidor de pagos reserva lo arrendado. Por eso,
+ * si se niega un arrendamiento, se devuelven primero los demás arrendamientos del usuario (sus
+ * unidades sin usar vuelven al presupuesto) y se pide una vez más. Los arrendamientos también se
+ * devuelven al agotarse, al acercarse su vencimiento ({@code margen-ms} antes, para que la última
+ * liquidación llegue a tiempo), al desconectarse el usuario y al detener el servidor.
+ * <p>
+ * Las liquidaciones periódicas corren en un hilo propio, no en el planificador de Spring que
+ * comparten las tareas {@code @Scheduled}, y cada petición tiene plazos de conexión y de lectura
+ * ({@code plazo-conexion-ms}, {@code plazo-lectura-ms}): un servidor de pagos lento no detiene las
+ * demás tareas ni deja colgado el buzón del usuario que pide un arrendamiento.
+ * <p>
+ * Solo viaja por REST, con su propio cliente HTTP, sea cual sea {@code pagos.transporte}, y solo
+ * contra el servidor principal: los arrendamientos vigentes no se replican. En cuanto el
+ * {@link TransportePagos} conmuta al respaldo se abandonan los arrendamientos en uso y las
+ * liquidaciones pendientes, que el respaldo no conoce, y las reacciones vuelven al flujo normal de
+ * pagos; así no se aprueba nada contra un presupuesto reservado en el principal caído.
+ */
+@Component
+public class ArrendamientosPagos {
+
+    private final boolean habilitado;
+    private final String url;
+    private final int unidadesPorArrendamiento;
+    private final long margenMs;
+    private final RestTemplate restTemplate;
+    private final LongSupplier relojMs;
+    private final BooleanSupplier conmutado;
+    private volatile boolean abandonados;
+
+    /**
+     * Hilo de las liquidaciones periódicas, o {@code null} si están deshabilitadas (y en las pruebas,
+     * que llaman a {@link #liquidar()} directamente).
+     */
+    private ScheduledExecutorService liquidador;
+
+    /**
+     * Arrendamientos en uso por usuario, canción y tipo de reacción.
+     */
+    private final Map<String, ArrendamientoLocal> locales = new ConcurrentHashMap<>();
+
+    /**
+     * Arrendamientos cerrados cuya liquidación final aún no confirma el servidor de pagos.
+     */
+    private final Queue<ArrendamientoLocal> porDevolver = new ConcurrentLinkedQueue<>();
+
+    private final Counter aprobadasLocalmente;
+    private final Counter concedidos;
+    private final Counter denegados;
+    private final Counter fallidos;
+
+    @Autowired
+    public ArrendamientosPagos(@Value("${pagos.arrendamiento.habilitado:false}") boolean habilitado,
+                               @Value("${pagos.arrendamiento.url:http://localhost:6000/api/pagos/arrendamientos}") String url,
+                               @Value("${pagos.arrendamiento.unidades:5}") int unidadesPorArrendamiento,
+                               @Value("${pagos.arrendamiento.margen-ms:5000}") long margenMs,
+                               @Value("${pagos.arrendamiento.periodo-liquidacion-ms:500}") long periodoLiquidacionMs,
+                               @Value("${pagos.arrendamiento.plazo-conexion-ms:500}") long plazoConexionMs,
+                               @Value("${pagos.arrendamiento.plazo-lectura-ms:2000}") long plazoLecturaMs,
+                               MeterRegistry meterRegistry, TransportePagos transportePagos) {
+        this(habilitado, url, unidadesPorArrendamiento, margenMs, meterRegistry,
+                crearRestTemplate(plazoConexionMs, plazoLecturaMs),
+                System::currentTimeMillis, transportePagos::isConmutadoAlRespaldo);
+        if (habilitado) {
+            liquidador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "arrendamientos-liquidacion");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            liquidador.scheduleWithFixedDelay(this::liquidarSinFallar, periodoLiquidacionMs, periodoLiquidacionMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    ArrendamientosPagos(boolean habilitado, String url, int unidadesPorArrendamiento, long margenMs,
+                        MeterRegistry meterRegistry, RestTemplate restTemplate, LongSupplier relojMs,
+                        BooleanSupplier conmutado) {
+        this.habilitado = habilitado;
+        this.url = url;
+        this.unidadesPorArrendamiento = unidadesPorArrendamiento;
+        this.margenMs = margenMs;
+        this.restTemplate = restTemplate;
+        this.relojMs = relojMs;
+        this.conmutado = conmutado;
+        aprobadasLocalmente = Counter.builder("reacciones.pagos.arrendamientos")
+                .tag("resultado", "aprobada-local").register(meterRegistry);
+        concedidos = Counter.builder("reacciones.pagos.arrendamientos")
+                .tag("resultado", "concedido").register(meterRegistry);
+        denegados = Counter.builder("reacciones.pagos.arrendamientos")
+                .tag("resultado", "denegado").register(meterRegistry);
+        fallidos = Counter.builder("reacciones.pagos.arrendamientos")
+                .tag("resultado", "error").register(meterRegistry);
+        Gauge.builder("reacciones.pagos.arrendamientos.vigentes", locales, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Arrendamiento recibido del servidor de pagos y lo aprobado con él.
+     */
+    private static final class ArrendamientoLocal {
+
+        /**
+         * Valor de {@link #consumidas} una vez cerrado el arrendamiento.
+         */
+        private static final int CERRADO = Integer.MAX_VALUE;
+
+        private final String id;
+        private final String nickname;
+        private final int precio;
+        private final int unidades;
+        private final long usableHastaMs;
+        private final int totalInicial;
+
+        /**
+         * Reacciones aprobadas, o {@link #CERRADO}. Cerrar con {@code getAndSet} garantiza que
+         * ninguna aprobación concurrente quede fuera de la liquidación final.
+         */
+        private final AtomicInteger consumidas = new AtomicInteger();
+
+        /**
+         * Reacciones ya confirmadas por el servidor de pagos.
+         */
+        private volatile int informadas;
+
+        /**
+         * Reacciones aprobadas al cerrar, para la liquidación final.
+         */
+        private volatile int finales;
+
+        private ArrendamientoLocal(Arrendamiento arrendamiento, String nickname, long usableHastaMs) {
+            this.id = arrendamiento.getId();
+            this.nickname = nickname;
+            this.precio = arrendamiento.getPrecio();
+            this.unidades = arrendamiento.getUnidades();
+            this.usableHastaMs = usableHastaMs;
+            this.totalInicial = arrendamiento.getTotalAcumuladoUsuario();
+        }
+
+        /**
+         * @return las reacciones aprobadas incluida esta, o 0 si no quedan unidades o está cerrado
+         */
+        private int tomar() {
+            while (true) {
+                int actuales = consumidas.get();
+                if (actuales >= unidades) {
+                    return 0;
+                }
+                if (consumidas.compareAndSet(actuales, actuales + 1)) {
+                    return actuales + 1;
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} si este llamado cerró el arrendamiento
+         */
+        private boolean cerrar() {
+            int actuales = consumidas.getAndSet(CERRADO);
+            if (actuales == CERRADO) {
+                return false;
+            }
+            finales = actuales;
+            return true;
+        }
+    }
+
+    /**
+     * Intenta aprobar una reacción con un arrendamiento, sin pasar por el flujo de pago normal.
+     *
+     * @param mensaje la reacción
+     * @return la respuesta del pago (ACEPTADO si se aprobó localmente, LIMITE_SUPERADO si el servidor de
+     * pagos negó el arrendamiento aun tras devolver los demás del usuario), o {@code null} si los
+     * arrendamientos están deshabilitados, se conmutó al respaldo o el servidor de pagos no respondió;
+     * en ese caso la reacción debe pagarse por el flujo normal
+     */
+    public PagoResponse intentarAprobar(MensajeCancion mensaje) {
+        if (!habilitado || abandonarTrasConmutacion()) {
+            return null;
+        }
+        String clave = mensaje.getNickname() + "|" + mensaje.getIdCancion() + "|" + mensaje.getContenido();
+        ArrendamientoLocal local = locales.get(clave);
+        if (local != null) {
+            if (local.usableHastaMs > relojMs.getAsLong()) {
+                int aprobadas = local.tomar();
+                if (aprobadas > 0) {
+                    aprobadasLocalmente.increment();
+                    return respuestaAceptada(local, aprobadas);
+                }
+            }
+            // Agotado o por vencer: se devuelve en la próxima liquidación.
+            cerrarLocal(clave, local);
+        }
+
+        Arrendamiento arrendamiento;
+        long solicitadoMs = relojMs.getAsLong();
+        try {
+            arrendamiento = arrendar(mensaje);
+            if (arrendamiento.getEstado() != EstadoPago.ACEPTADO && devolverDelUsuario(mensaje.getNickname())) {
+                solicitadoMs = relojMs.getAsLong();
+                arrendamiento = arrendar(mensaje);
+            }
+        } catch (RestClientException e) {
+            fallidos.increment();
+            System.err.println("[REACCIONES] No se pudo arrendar presupuesto para " + mensaje.getNickname()
+                    + ": " + e.getMessage());
+            return null;
+        }
+        if (arrendamiento.getEstado() != EstadoPago.ACEPTADO) {
+            denegados.increment();
+            PagoResponse respuesta = new PagoResponse();
+            respuesta.setEstado(EstadoPago.LIMITE_SUPERADO);
+            respuesta.setMensaje("Presupuesto agotado: no se concedió el arrendamiento.");
+            respuesta.setTotalAcumuladoUsuario(arrendamiento.getTotalAcumuladoUsuario());
+            return respuesta;
+        }
+
+        concedidos.increment();
+        // El plazo se cuenta desde el envío de la solicitud, así que nunca supera al del servidor.
+        ArrendamientoLocal nuevo = new ArrendamientoLocal(arrendamiento, mensaje.getNickname(),
+                solicitadoMs + arrendamiento.getDuracionMs() - margenMs);
+        int aprobadas = nuevo.tomar();
+        ArrendamientoLocal anterior = locales.put(clave, nuevo);
+        if (anterior != null) {
+            cerrarLocal(clave, anterior);
+        }
+        aprobadasLocalmente.increment();
+        return respuestaAceptada(nuevo, aprobadas);
+    }
+
+    /**
+     * Informa al servidor de pagos lo gastado desde la última liquidación y devuelve los
+     * arrendamientos cerrados o por vencer.
+     */
+    public void liquidar() {
+        if (!habilitado || abandonarTrasConmutacion()) {
+            return;
+        }
+        long ahora = relojMs.getAsLong();
+        locales.forEach((clave, local) -> {
+            if (local.usableHastaMs <= ahora || local.consumidas.get() >= local.unidades) {
+                cerrarLocal(clave, local);
+            }
+        });
+
+        List<ArrendamientoLocal> enviados = new ArrayList<>();
+        List<LiquidacionArrendamiento> liquidaciones = new ArrayList<>();
+        ArrendamientoLocal cerrado;
+        while ((cerrado = porDevolver.poll()) != null) {
+            enviados.add(cerrado);
+            liquidaciones.add(new LiquidacionArrendamiento(cerrado.id, cerrado.finales, true));
+        }
+        int cerrados = enviados.size();
+        for (ArrendamientoLocal local : locales.values()) {
+            int consumidas = local.consumidas.get();
+            if (consumidas != ArrendamientoLocal.CERRADO && consumidas > local.informadas) {
+                enviados.add(local);
+                liquidaciones.add(new LiquidacionArrendamiento(local.id, consumidas, false));
+            }
+        }
+        if (liquidaciones.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<ResultadoLiquidacion> resultados = enviarLiquidaciones(liquidaciones);
+            for (int i = 0; i < enviados.size() && i < resultados.size(); i++) {
+                enviados.get(i).informadas = resultados.get(i).getLiquidadas();
+            }
+        } catch (RestClientException e) {
+            // El acumulado se reenvía en la próxima liquidación.
+            System.err.println("[REACCIONES] Error liquidando " + liquidaciones.size()
+                    + " arrendamientos: " + e.getMessage());
+            porDevolver.addAll(enviados.subList(0, cerrados));
+        }
+    }
+
+    /**
+     * Devuelve los arrendamientos del usuario que se desconecta.
+     *
+     * @param evento El evento de desconexión publicado por Spring.
+     */
+    @EventListener
+    public void procesarDesconexion(SessionDisconnectEvent evento) {
+        if (habilitado && evento.getUser() != null) {
+            cerrarDelUsuario(evento.getUser().getName());
+        }
+    }
+
+    /**
+     * Devuelve todos los arrendamientos antes de detener el servidor.
+     */
+    @PreDestroy
+    void devolverTodos() {
+        if (liquidador != null) {
+            liquidador.shutdown();
+            try {
+                liquidador.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (habilitado) {
+            locales.forEach(this::cerrarLocal);
+            liquidar();
+        }
+    }
+
+    /**
+     * Si se conmutó al respaldo, cierra los arrendamientos en uso y descarta sus liquidaciones, una
+     * sola vez.
+     *
+     * @return {@code true} si se conmutó al respaldo
+     */
+    private boolean abandonarTrasConmutacion() {
+        if (abandonados) {
+            return true;
+        }
+        if (!conmutado.getAsBoolean()) {
+            return false;
+        }
+        synchronized (this) {
+            if (!abandonados) {
+                abandonados = true;
+                locales.forEach(this::cerrarLocal);
+                int sinLiquidar = 0;
+                ArrendamientoLocal cerrado;
+                while ((cerrado = porDevolver.poll()) != null) {
+                    sinLiquidar += Math.max(0, cerrado.finales - cerrado.informadas);
+                }
+                System.err.println("[REACCIONES] Pagos conmutados al respaldo: se dejan de usar los arrendamientos"
+                        + " (" + sinLiquidar + " reacciones aprobadas quedan sin liquidar)");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return número de arrendamientos en uso
+     */
+    public int cantidadVigentes() {
+        return locales.size();
+    }
+
+    private static RestTemplate crearRestTemplate(long plazoConexionMs, long plazoLecturaMs) {
+        JdkClientHttpRequestFactory fabrica = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(plazoConexionMs))
+                .build());
+        fabrica.setReadTimeout(Duration.ofMillis(plazoLecturaMs));
+        return new RestTemplate(fabrica);
+    }
+
+    /**
+     * Liquidación periódica: una excepción inesperada cancelaría las siguientes ejecuciones.
+     */
+    private void liquidarSinFallar() {
+        try {
+            liquidar();
+        } catch (RuntimeException e) {
+            System.err.println("[REACCIONES] Error inesperado liquidando arrendamientos: " + e);
+        }
+    }
+
+    private Arrendamiento arrendar(MensajeCancion mensaje) throws RestClientException {
+        Arrendamiento arrendamiento = restTemplate.postForObject(url, new SolicitudArrendamiento(
+                mensaje.getNickname(), mensaje.getIdCancion(), mensaje.getContenido(), unidadesPorArrendamiento),
+                Arrendamiento.class);
+        if (arrendamiento == null) {
+            throw new RestClientException("La respuesta del servidor de pagos fue nula.");
+        }
+        return arrendamiento;
+    }
+
+    private List<ResultadoLiquidacion> enviarLiquidaciones(List<LiquidacionArrendamiento> liquidaciones)
+            throws RestClientException {
+        List<ResultadoLiquidacion> resultados = restTemplate.exchange(url + "/liquidaciones", HttpMethod.POST,
+                new HttpEntity<>(liquidaciones), new ParameterizedTypeReference<List<ResultadoLiquidacion>>() {
+                }).getBody();
+        if (resultados == null) {
+            throw new RestClientException("La respuesta del servidor de pagos fue nula.");
+        }
+        return resultados;
+    }
+
+    /**
+     * Cierra los arrendamientos del usuario y los devuelve de inmediato, junto con los suyos que
+     * esperaban liquidación, para que sus unidades sin usar vuelvan a su presupuesto antes de pedir
+     * otro. Solo se envían los de este usuario: los demás siguen en la liquidación periódica, que no
+     * debe correr en el buzón de quien pide el arrendamiento.
+     *
+     * @return {@code true} si había alguno que devolver y el servidor de pagos confirmó la devolución
+     */
+    private boolean devolverDelUsuario(String nickname) {
+        List<ArrendamientoLocal> devueltos = new ArrayList<>();
+        for (Map.Entry<String, ArrendamientoLocal> entrada : locales.entrySet()) {
+            ArrendamientoLocal local = entrada.getValue();
+            if (local.nickname.equals(nickname) && cerrar(entrada.getKey(), local)) {
+                devueltos.add(local);
+            }
+        }
+        for (ArrendamientoLocal pendiente : porDevolver) {
+            // remove() solo tiene éxito en un hilo: la liquidación periódica no lo envía también.
+            if (pendiente.nickname.equals(nickname) && porDevolver.remove(pendiente)) {
+                devueltos.add(pendiente);
+            }
+        }
+        if (devueltos.isEmpty()) {
+            return false;
+        }
+        List<LiquidacionArrendamiento> liquidaciones = new ArrayList<>(devueltos.size());
+        for (ArrendamientoLocal local : devueltos) {
+            liquidaciones.add(new LiquidacionArrendamiento(local.id, local.finales, true));
+        }
+        try {
+            List<ResultadoLiquidacion> resultados = enviarLiquidaciones(liquidaciones);
+            for (int i = 0; i < devueltos.size() && i < resultados.size(); i++) {
+                devueltos.get(i).informadas = resultados.get(i).getLiquidadas();
+            }
+            return true;
+        } catch (RestClientException e) {
+            // La liquidación periódica los reintenta.
+            System.err.println("[REACCIONES] Error devolviendo los arrendamientos de " + nickname
+                    + ": " + e.getMessage());
+            porDevolver.addAll(devueltos);
+            return false;
+        }
+    }
+
+    private boolean cerrarDelUsuario(String nickname) {
+        boolean alguno = false;
+        for (Map.Entry<String, ArrendamientoLocal> entrada : locales.entrySet()) {
+            if (entrada.getValue().nickname.equals(nickname)) {
+                alguno |= cerrarLocal(entrada.getKey(), entrada.getValue());
+            }
+        }
+        return alguno;
+    }
+
+    private boolean cerrarLocal(String clave, ArrendamientoLocal local) {
+        if (!cerrar(clave, local)) {
+            return false;
+        }
+        porDevolver.add(local);
+        return true;
+    }
+
+    /**
+     * Cierra el arrendamiento sin encolarlo para la liquidación.
+     *
+     * @return {@code true} si este llamado lo cerró
+     */
+    private boolean cerrar(String clave, ArrendamientoLocal local) {
+        locales.remove(clave, local);
+        return local.cerrar();
+    }
+
+    /**
+     * Respuesta de una reacción aprobada localmente. El total es una estimación: el del usuario al
+     * conceder el arrendamiento más lo aprobado con él.
+     */
+    private static PagoResponse respuestaAceptada(ArrendamientoLocal local, int aprobadas) {
+        PagoResponse respuesta = new PagoResponse();
+        respuesta.setEstado(EstadoPago.ACEPTADO);
+        respuesta.setMensaje("Aprobado con el arrendamiento " + local.id);
+        respuesta.setTotalAcumuladoUsuario(local.totalInicial + aprobadas * local.precio);
+        return respuesta;
+    }
+}
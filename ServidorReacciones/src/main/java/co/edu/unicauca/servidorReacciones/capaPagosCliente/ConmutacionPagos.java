@@ -0,0 +1,102 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/ConmutacionPagos.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+/**
+ * Decide cuándo un transporte de pagos pasa del servidor principal al respaldo de la replicación.
+ * <p>
+ * Un solo rechazo de conexión no basta: el principal puede estar reiniciando su escucha o perder
+ * una conexión suelta. Se conmuta cuando el principal lleva {@code pagos.conmutacion.plazo-ms}
+ * rechazando conexiones sin responder nada entre medio. Aun así, el respaldo solo acepta pagos
+ * cuando deja de recibir la replicación del primario; mientras tanto los rechaza y, si todavía no
+ * aceptó ninguno, se vuelve al principal. En cuanto el respaldo acepta un pago se ha promovido, y
+ * desde entonces no se vuelve.
+ */
+final class ConmutacionPagos {
+
+    private final String principal;
+    private final String respaldo;
+    private final long plazoNanos;
+
+    private volatile boolean enRespaldo;
+
+    /**
+     * {@code true} desde que el respaldo aceptó un pago; ya no se vuelve al principal.
+     */
+    private volatile boolean respaldoPromovido;
+
+    /**
+     * Inicio de la racha actual de rechazos del principal. Protegidos por {@code this}.
+     */
+    private boolean fallando;
+    private long primerFalloNanos;
+
+    /**
+     * @param principal descripción del principal, para los registros
+     * @param respaldo  descripción del respaldo, para los registros
+     * @param plazoMs   tiempo que el principal debe rechazar conexiones antes de conmutar
+     */
+    ConmutacionPagos(String principal, String respaldo, long plazoMs) {
+        this.principal = principal;
+        this.respaldo = respaldo;
+        this.plazoNanos = plazoMs * 1_000_000L;
+    }
+
+    boolean isEnRespaldo() {
+        return enRespaldo;
+    }
+
+    /**
+     * El principal respondió: termina la racha de rechazos.
+     */
+    void respondioPrincipal() {
+        if (fallando) {
+            synchronized (this) {
+                fallando = false;
+            }
+        }
+    }
+
+    /**
+     * El principal rechazó una conexión.
+     *
+     * @return {@code true} si ya se conmutó al respaldo y la petición debe repetirse allí
+     */
+    synchronized boolean rechazoPrincipal() {
+        if (enRespaldo) {
+            return true;
+        }
+        long ahora = System.nanoTime();
+        if (!fallando) {
+            fallando = true;
+            primerFalloNanos = ahora;
+        }
+        if (ahora - primerFalloNanos < plazoNanos) {
+            return false;
+        }
+        enRespaldo = true;
+        System.err.println("[REACCIONES] El servidor de pagos " + principal + " no acepta conexiones desde hace "
+                + (ahora - primerFalloNanos) / 1_000_000 + " ms; se conmuta al respaldo " + respaldo);
+        return true;
+    }
+
+    /**
+     * El respaldo aceptó un pago, así que se promovió.
+     */
+    void aceptoRespaldo() {
+        respaldoPromovido = true;
+    }
+
+    /**
+     * El respaldo no está disponible o aún no puede promoverse: si nunca aceptó un pago, se vuelve
+     * al principal.
+     */
+    synchronized void rechazoRespaldo() {
+        if (enRespaldo && !respaldoPromovido) {
+            enRespaldo = false;
+            fallando = false;
+            System.err.println("[REACCIONES] El respaldo " + respaldo
+                    + " no acepta pagos todavía; se vuelve al servidor de pagos " + principal);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/EjecutorSerialPorUsuario.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta las tareas de pago de cada usuario en orden estricto, una tras otra, mientras que las
+ * de usuarios distintos corren en paralelo.
+ * <p>
+ * Cada nickname tiene un buzón (estilo actor) con sus tareas pendientes. Los buzones no tienen hilo
+ * propio: cuando un buzón recibe trabajo se programa en un pool compartido, ejecuta sus tareas en
+ * orden y, al quedar vacío, se elimina del mapa. Así la memoria depende de los usuarios con pagos en
+ * curso, no de todos los que alguna vez reaccionaron.
+ * <p>
+ * Como dos pagos del mismo usuario nunca se solapan, la verificación del límite y la actualización
+ * del total en el servidor de pagos no compiten entre sí, y las respuestas llegan al usuario en el
+ * mismo orden en que envió sus reacciones.
+ */
+@Component
+public class EjecutorSerialPorUsuario {
+
+    /**
+     * Tareas que ejecuta un buzón antes de ceder el hilo a otros buzones.
+     */
+    private static final int LOTE = 16;
+
+    /**
+     * Cola de tareas de un usuario. El campo {@code programado} solo se modifica dentro de
+     * {@code buzones.compute}, que serializa los cambios por clave.
+     */
+    private final class Buzon implements Runnable {
+        private final String nickname;
+        private final Queue<Runnable> tareas = new ConcurrentLinkedQueue<>();
+        private int pendientes;
+        private boolean programado;
+
+        private Buzon(String nickname) {
+            this.nickname = nickname;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < LOTE; i++) {
+                Runnable tarea = tareas.poll();
+                if (tarea == null) {
+                    break;
+                }
+                try {
+                    tarea.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[REACCIONES] Error en tarea de pago de " + nickname + ": " + e.getMessage());
+                } finally {
+                    buzones.computeIfPresent(nickname, (clave, buzon) -> {
+                        buzon.pendientes--;
+                        return buzon;
+                    });
+                }
+            }
+            // Si quedan tareas se reprograma al final del pool; si no, el buzón se elimina.
+            Buzon restante = buzones.compute(nickname, (clave, buzon) -> {
+                if (buzon.tareas.isEmpty()) {
+                    buzon.programado = false;
+                    return null;
+                }
+                return buzon;
+            });
+            if (restante != null) {
+                ejecutor.execute(this);
+            }
+        }
+    }
+
+    private final Map<String, Buzon> buzones = new ConcurrentHashMap<>();
+    private final ExecutorService ejecutor;
+    private final int maximoPendientesPorUsuario;
+
+    public EjecutorSerialPorUsuario(MeterRegistry meterRegistry,
+                                    @Value("${reacciones.pagos.hilos:64}") int hilos,
+                                    @Value("${reacciones.pagos.pendientes-por-usuario:50}") int maximoPendientesPorUsuario) {
+        this.maximoPendientesPorUsuario = maximoPendientesPorUsuario;
+        AtomicInteger numeroHilo = new AtomicInteger();
+        this.ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "pagos-usuario-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        Gauge.builder("reacciones.pagos.buzones.activos", buzones, Map::size)
+                .description("Usuarios con pagos pendientes o en curso")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola una tarea en el buzón del usuario.
+     *
+     * @param nickname usuario al que pertenece la tarea
+     * @param tarea    trabajo a ejecutar después de las tareas previas del mismo usuario
+     * @return {@code false} si el usuario ya tiene el máximo de tareas pendientes y la tarea se rechazó
+     */
+    public boolean ejecutar(String nickname, Runnable tarea) {
+        boolean[] programar = new boolean[1];
+        boolean[] aceptada = new boolean[1];
+        Buzon buzon = buzones.compute(nickname, (clave, existente) -> {
+            Buzon actual = existente != null ? existente : new Buzon(clave);
+            if (actual.pendientes >= maximoPendientesPorUsuario) {
+                return existente;
+            }
+            actual.tareas.add(tarea);
+            actual.pendientes++;
+            aceptada[0] = true;
+            if (!actual.programado) {
+                actual.programado = true;
+                programar[0] = true;
+            }
+            return actual;
+        });
+        if (programar[0]) {
+            ejecutor.execute(buzon);
+        }
+        return aceptada[0];
+    }
+
+    /**
+     * @return número de usuarios con tareas pendientes o en curso
+     */
+    public int getBuzonesActivos() {
+        return buzones.size();
+    }
+
+    @PreDestroy
+    void detener() {
+        ejecutor.shutdown();
+    }
+}
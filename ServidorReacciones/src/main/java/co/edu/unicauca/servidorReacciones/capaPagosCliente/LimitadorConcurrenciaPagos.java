@@ -0,0 +1,178 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/LimitadorConcurrenciaPagos.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Límite adaptativo de reacciones en curso (AIMD), delante de los buzones de pago.
+ * <p>
+ * Una reacción ocupa un lugar desde que el controlador la admite hasta que termina su pago, con
+ * reintentos incluidos. Si no hay lugar, el controlador la descarta de inmediato en vez de
+ * encolarla: cuando el servidor de pagos se pone lento, la espera no crece para todos.
+ * <p>
+ * El límite se ajusta con cada envío de pago ({@link #registrarRtt}):
+ * <ul>
+ *   <li>Baja multiplicando por {@code factor-reduccion} si el envío falla por comunicación o si su
+ *       RTT supera {@code tolerancia-rtt} veces el RTT de referencia. Baja a lo sumo una vez por
+ *       RTT de referencia, para que una ráfaga de respuestas lentas no lo lleve al mínimo de golpe.</li>
+ *   <li>Sube en uno si el envío fue sano y el límite está en uso (al menos la mitad ocupada).</li>
+ * </ul>
+ * El RTT de referencia es un promedio móvil lento de los RTT sanos, así que una lentitud
+ * sostenida termina siendo la nueva referencia y el límite vuelve a crecer.
+ * <p>
+ * Métricas en {@code /actuator/metrics}: {@code reacciones.concurrencia.limite},
+ * {@code reacciones.concurrencia.en-curso} y {@code reacciones.concurrencia.descartadas}.
+ */
+@Component
+public class LimitadorConcurrenciaPagos {
+
+    /**
+     * Muestras que pondera el promedio móvil del RTT de referencia.
+     */
+    private static final int VENTANA_REFERENCIA = 500;
+
+    /**
+     * Muestras necesarias antes de juzgar un RTT contra la referencia.
+     */
+    private static final int MUESTRAS_CALENTAMIENTO = 20;
+
+    private final boolean habilitado;
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final double toleranciaRtt;
+    private final double factorReduccion;
+    private final LongSupplier relojNanos;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final Counter descartadas;
+
+    /**
+     * Límite exacto; el entero se publica aparte para que {@link #intentarAdquirir} no bloquee.
+     * Protegidos por {@code this}.
+     */
+    private double limite;
+    private double rttReferenciaNanos;
+    private long muestras;
+    private long ultimaReduccionNanos;
+    private long reducciones;
+
+    private volatile int limiteActual;
+
+    @Autowired
+    public LimitadorConcurrenciaPagos(MeterRegistry meterRegistry,
+                                      @Value("${reacciones.concurrencia.habilitado:true}") boolean habilitado,
+                                      @Value("${reacciones.concurrencia.limite-inicial:256}") int limiteInicial,
+                                      @Value("${reacciones.concurrencia.limite-minimo:16}") int limiteMinimo,
+                                      @Value("${reacciones.concurrencia.limite-maximo:4096}") int limiteMaximo,
+                                      @Value("${reacciones.concurrencia.tolerancia-rtt:2.0}") double toleranciaRtt,
+                                      @Value("${reacciones.concurrencia.factor-reduccion:0.9}") double factorReduccion) {
+        this(meterRegistry, habilitado, limiteInicial, limiteMinimo, limiteMaximo, toleranciaRtt, factorReduccion,
+                System::nanoTime);
+    }
+
+    LimitadorConcurrenciaPagos(MeterRegistry meterRegistry, boolean habilitado, int limiteInicial, int limiteMinimo,
+                               int limiteMaximo, double toleranciaRtt, double factorReduccion,
+                               LongSupplier relojNanos) {
+        this.relojNanos = relojNanos;
+        this.habilitado = habilitado;
+        this.limiteMinimo = Math.max(1, limiteMinimo);
+        this.limiteMaximo = Math.max(this.limiteMinimo, limiteMaximo);
+        this.toleranciaRtt = toleranciaRtt;
+        this.factorReduccion = factorReduccion;
+        this.limite = Math.min(this.limiteMaximo, Math.max(this.limiteMinimo, limiteInicial));
+        this.limiteActual = (int) limite;
+        Gauge.builder("reacciones.concurrencia.limite", this, LimitadorConcurrenciaPagos::getLimite)
+                .description("Reacciones en curso admitidas por el límite adaptativo")
+                .register(meterRegistry);
+        Gauge.builder("reacciones.concurrencia.en-curso", enCurso, AtomicInteger::get)
+                .description("Reacciones admitidas cuyo pago no ha terminado")
+                .register(meterRegistry);
+        this.descartadas = Counter.builder("reacciones.concurrencia.descartadas")
+                .description("Reacciones descartadas por superar el límite de concurrencia")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ocupa un lugar para una reacción si hay alguno libre.
+     *
+     * @return {@code false} si la reacción debe descartarse; en ese caso no se llama a {@link #liberar}
+     */
+    public boolean intentarAdquirir() {
+        if (!habilitado) {
+            enCurso.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= limiteActual) {
+                descartadas.increment();
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera el lugar de una reacción admitida, cuando su pago terminó o no llegó a encolarse.
+     */
+    public void liberar() {
+        enCurso.decrementAndGet();
+    }
+
+    /**
+     * Ajusta el límite con el resultado de un envío al servidor de pagos.
+     *
+     * @param rttNanos duración del envío
+     * @param fallo    {@code true} si el envío falló por comunicación (sin respuesta)
+     */
+    public void registrarRtt(long rttNanos, boolean fallo) {
+        if (!habilitado) {
+            return;
+        }
+        synchronized (this) {
+            boolean lento = false;
+            if (!fallo) {
+                muestras++;
+                if (muestras == 1) {
+                    rttReferenciaNanos = rttNanos;
+                }
+                lento = muestras > MUESTRAS_CALENTAMIENTO && rttNanos > toleranciaRtt * rttReferenciaNanos;
+                rttReferenciaNanos += (rttNanos - rttReferenciaNanos) / VENTANA_REFERENCIA;
+            }
+            if (fallo || lento) {
+                long ahora = relojNanos.getAsLong();
+                if (reducciones == 0 || ahora - ultimaReduccionNanos >= rttReferenciaNanos) {
+                    ultimaReduccionNanos = ahora;
+                    reducciones++;
+                    limite = Math.max(limiteMinimo, limite * factorReduccion);
+                }
+            } else if (enCurso.get() * 2 >= limite) {
+                limite = Math.min(limiteMaximo, limite + 1);
+            }
+            limiteActual = (int) limite;
+        }
+    }
+
+    public int getLimite() {
+        return limiteActual;
+    }
+
+    public int getEnCurso() {
+        return enCurso.get();
+    }
+
+    public long getDescartadas() {
+        return (long) descartadas.count();
+    }
+}
@@ -4,120 +4,292 @@ package co.edu.unicauca.servidorReacciones.capaPagosCliente;
 
 import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.exceptions.PagoSimuladoFallidoException;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.ContextoPago;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.EstadoPago;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoRequest;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
 import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.TokenResponse;
+import co.edu.unicauca.servidorReacciones.capaPerfilado.EventoIntentoPago;
+import co.edu.unicauca.servidorReacciones.capaTrazas.Tramo;
+import co.edu.unicauca.servidorReacciones.capaTrazas.Trazador;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Cliente HTTP para comunicarse con el microservicio de Pagos.
+ * Cliente para comunicarse con el microservicio de Pagos.
  * <p>
  * Esta clase orquesta el procesamiento de pagos para las reacciones de los usuarios,
- * implementando una política de reintentos robusta utilizando Spring Retry ({@code @Retryable})
- * para manejar fallos transitorios, como errores de red o errores simulados por el servidor de pagos.
+ * reintentando con Spring Retry los fallos transitorios, como errores de red o errores simulados por
+ * el servidor de pagos. Cuántas veces y con qué espera se reintenta lo decide en tiempo de ejecución la
+ * {@link PoliticaReintentosAdaptativa}, a partir de las latencias y fallos observados.
+ * <p>
+ * Cada reacción lleva una clave de idempotencia que se conserva en todos sus reintentos, junto con
+ * el token obtenido en el primer intento. Así, si un pago se registró pero su respuesta se perdió,
+ * el reintento recibe el mismo resultado en lugar de cobrar de nuevo al usuario.
+ * <p>
+ * Opcionalmente ({@code pagos.cobertura.habilitada}) cada intento se cubre con una segunda petición:
+ * si el pago no responde dentro de un plazo derivado de la latencia observada (por defecto el p95),
+ * se envía la misma petición, con la misma clave, al destino secundario. Gana la primera respuesta y la
+ * otra se cancela. Las coberturas están limitadas por un {@link PresupuestoSolicitudesExtra}, para no
+ * duplicar la carga cuando el servidor de pagos está caído.
+ * <p>
+ * Las llamadas viajan por el {@link TransportePagos} configurado ({@code pagos.transporte}):
+ * REST con JSON o una sesión gRPC bidireccional.
  * <p>
- * Utiliza un patrón de autoinyección ({@code @Lazy}) para asegurar que las llamadas a métodos
- * anotados con {@code @Retryable} sean interceptadas por el proxy de AOP de Spring,
- * incluso cuando se invocan desde la misma clase, evitando así el problema de la autoinvocación.
+ * Si están habilitados los {@link ArrendamientosPagos}, las reacciones se aprueban primero con el
+ * presupuesto arrendado y solo las que no pueden aprobarse así siguen el flujo anterior.
+ * <p>
+ * Cada etapa queda en la traza de la reacción ({@link Trazador}): el pago completo, cada intento,
+ * la espera antes de cada reintento, el token y cada envío, que lleva la cabecera {@code traceparent}.
+ * Cada intento emite también un {@link EventoIntentoPago} de JDK Flight Recorder con su número y resultado.
  */
 @Service
 public class PagosClientService {
 
-    private static final String BASE_URL_PAGOS = "http://localhost:6000/api/pagos";
-    private static final int MAX_INTENTOS = 4; // 1 intento inicial + 3 reintentos
-    private static final long ESPERA_INICIAL_MS = 1500L;
-    private static final double MULTIPLICADOR_BACKOFF = 1.5;
+    /**
+     * Transporte de las llamadas: REST (por defecto) o gRPC.
+     */
+    @Autowired
+    private TransportePagos transportePagos;
+
+    /**
+     * Presupuesto arrendado para aprobar reacciones sin un viaje por pago.
+     */
+    @Autowired
+    private ArrendamientosPagos arrendamientosPagos;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private Trazador trazador;
 
     /**
-     * Referencia al propio proxy del servicio, inyectado de forma perezosa.
-     * Es crucial para evitar dependencias circulares y para asegurar que las llamadas
-     * internas a métodos {@code @Retryable} sean interceptadas por Spring AOP.
+     * Límite adaptativo de reacciones en curso, que se ajusta con el RTT de cada envío de pago.
      */
     @Autowired
-    @Lazy
-    private PagosClientService self;
+    private LimitadorConcurrenciaPagos limitadorConcurrencia;
+
+    /**
+     * Activa las peticiones de cobertura.
+     */
+    @Value("${pagos.cobertura.habilitada:false}")
+    private boolean coberturaHabilitada;
+
+    /**
+     * Percentil de la latencia observada que se usa como plazo antes de cubrir.
+     */
+    @Value("${pagos.cobertura.percentil:0.95}")
+    private double percentilCobertura;
+
+    /**
+     * Plazo usado mientras la ventana de latencias aún no tiene suficientes muestras.
+     */
+    @Value("${pagos.cobertura.plazo-inicial-ms:500}")
+    private long plazoInicialMs;
+
+    /**
+     * Plazo mínimo, para no cubrir peticiones que simplemente compiten por CPU.
+     */
+    @Value("${pagos.cobertura.plazo-minimo-ms:20}")
+    private long plazoMinimoMs;
+
+    /**
+     * Proporción máxima de coberturas respecto de las peticiones de pago.
+     */
+    @Value("${pagos.cobertura.presupuesto:0.1}")
+    private double proporcionCoberturas;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Latencias de las respuestas sanas (distintas de ERROR_SIMULADO) del servidor de pagos.
+     */
+    private VentanaLatencias latencias;
+
+    private PresupuestoSolicitudesExtra presupuestoCoberturas;
+    private ExecutorService ejecutorCoberturas;
+    private Counter coberturasLanzadas;
+    private Counter coberturasGanadas;
+    private Counter coberturasDenegadas;
+
+    /**
+     * Prefijo de las claves de idempotencia, distinto en cada arranque del proceso para
+     * que las claves no coincidan con las de una ejecución anterior.
+     */
+    private final String prefijoClaves = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * Secuencia de reacciones procesadas, parte de la clave de idempotencia.
+     */
+    private final AtomicLong secuenciaReacciones = new AtomicLong();
+
+    /**
+     * Política de reintentos ajustable en caliente desde actuator.
+     */
+    @Autowired
+    private PoliticaReintentosAdaptativa politicaReintentos;
+
+    /**
+     * Plantilla de Spring Retry que aplica la política a cada reacción.
+     */
+    private RetryTemplate plantillaReintentos;
+
+    /**
+     * Prepara la plantilla de reintentos y la ventana de latencias, el presupuesto, el ejecutor
+     * y las métricas de las coberturas.
+     */
+    @PostConstruct
+    void inicializar() {
+        plantillaReintentos = politicaReintentos.crearPlantilla();
+        latencias = new VentanaLatencias(512, 16, percentilCobertura);
+        presupuestoCoberturas = new PresupuestoSolicitudesExtra(proporcionCoberturas, 10);
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ejecutorCoberturas = Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "pagos-cobertura-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        coberturasLanzadas = Counter.builder("reacciones.pagos.coberturas")
+                .tag("resultado", "lanzada").register(meterRegistry);
+        coberturasGanadas = Counter.builder("reacciones.pagos.coberturas")
+                .tag("resultado", "ganada").register(meterRegistry);
+        coberturasDenegadas = Counter.builder("reacciones.pagos.coberturas")
+                .tag("resultado", "sin-presupuesto").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void detenerCobertura() {
+        ejecutorCoberturas.shutdownNow();
+    }
 
     /**
      * Orquesta el proceso completo de pago para una reacción.
      * <p>
-     * Este es el punto de entrada principal. Delega la ejecución al método {@code realizarIntentoDePago}
-     * a través de la referencia {@code self} para garantizar que la lógica de reintentos de Spring se active.
+     * Este es el punto de entrada principal. Si la reacción puede aprobarse con un arrendamiento de
+     * presupuesto, responde sin más. Si no, deriva la clave de idempotencia de la reacción y ejecuta
+     * {@code realizarIntentoDePago} con la plantilla de reintentos; si la política deja de reintentar,
+     * responde con {@code recuperarDeFalloDePago}.
      *
      * @param mensaje El objeto {@link MensajeCancion} que contiene los detalles de la reacción (usuario, canción).
      * @return Un objeto {@link PagoResponse} con el resultado final de la transacción.
      */
     public PagoResponse procesarPagoParaReaccion(MensajeCancion mensaje) {
         System.out.println("[REACCIONES] Iniciando procesamiento de pago para " + mensaje.getNickname());
-        return self.realizarIntentoDePago(mensaje);
+        Tramo pago = trazador.iniciar("pago");
+        try {
+            PagoResponse aprobada = arrendamientosPagos.intentarAprobar(mensaje);
+            if (aprobada != null) {
+                System.out.println("[REACCIONES] Pago resuelto con arrendamiento. Estado final: " + aprobada.getEstado());
+                pago.atributo("arrendamiento", true).atributo("estado", aprobada.getEstado());
+                return aprobada;
+            }
+            ContextoPago contexto = new ContextoPago(crearClaveIdempotencia(mensaje));
+            PagoResponse respuesta = plantillaReintentos.execute(
+                    intento -> realizarIntentoDePago(mensaje, contexto, intento.getRetryCount() + 1),
+                    intento -> recuperarDeFalloDePago(intento.getLastThrowable(), mensaje, intento.getRetryCount()));
+            pago.atributo("estado", respuesta.getEstado());
+            return respuesta;
+        } finally {
+            pago.terminar();
+        }
     }
 
     /**
-     * Realiza un intento completo de procesar un pago, incluyendo la obtención de un nuevo token.
+     * Realiza un intento completo de procesar un pago.
      * <p>
-     * Este método contiene la lógica central que será reintentada en caso de fallo. La obtención de un
-     * nuevo token en cada ejecución es fundamental para que los reintentos no fallen por usar un token
-     * ya visto ({@link EstadoPago#TOKEN_REPETIDO}).
+     * Este método contiene la lógica central que será reintentada en caso de fallo. El token solo se
+     * solicita en el primer intento y se reutiliza después: el servidor de pagos busca el resultado
+     * ya terminado de la clave de idempotencia antes de simular errores, así que un reintento de un
+     * pago ya registrado devuelve su resultado original en lugar de fallar con
+     * {@link EstadoPago#TOKEN_REPETIDO}, y un pago que falló con {@link EstadoPago#ERROR_SIMULADO}
+     * no llegó a consumir el token. Un reintento que llega mientras la clave aún está en cálculo sí
+     * puede recibir el error simulado, y se reintenta como cualquier otro.
      * <p>
-     * La anotación {@code @Retryable} configura a Spring para reintentar este método si lanza
-     * {@link RestClientException} o {@link PagoSimuladoFallidoException}.
+     * La plantilla de reintentos vuelve a ejecutar este método si lanza {@link RestClientException}
+     * o {@link PagoSimuladoFallidoException} y la {@link PoliticaReintentosAdaptativa} lo permite.
      *
      * @param mensaje El objeto {@link MensajeCancion} con los datos de la reacción.
+     * @param contexto La clave de idempotencia y el token compartidos por todos los intentos de la reacción.
+     * @param numeroIntento Número del intento, desde 1.
      * @return Un {@link PagoResponse} si el pago se procesa (con estado ACEPTADO, LIMITE_SUPERADO, etc.).
      * @throws PagoSimuladoFallidoException Si el servidor de pagos responde explícitamente con {@link EstadoPago#ERROR_SIMULADO}.
      * @throws RestClientException Si ocurre un error de comunicación con el servidor de pagos.
      */
-    @Retryable(
-        value = { RestClientException.class, PagoSimuladoFallidoException.class },
-        maxAttempts = MAX_INTENTOS,
-        backoff = @Backoff(delay = ESPERA_INICIAL_MS, multiplier = MULTIPLICADOR_BACKOFF)
-    )
-    public PagoResponse realizarIntentoDePago(MensajeCancion mensaje) throws PagoSimuladoFallidoException, RestClientException {
-        System.out.println("[REACCIONES] Realizando intento de pago para: " + mensaje.getNickname());
-
-        // 1. Solicitar un NUEVO token en CADA intento.
-        TokenResponse tokenResponse = solicitarToken();
-        if (tokenResponse == null || tokenResponse.getToken() == null) {
-            System.err.println("[REACCIONES] No se pudo obtener token. Lanzando excepción para reintento.");
-            throw new RestClientException("No se pudo obtener un token desde el servidor de pagos");
+    private PagoResponse realizarIntentoDePago(MensajeCancion mensaje, ContextoPago contexto, int numeroIntento)
+            throws PagoSimuladoFallidoException, RestClientException {
+        if (contexto.getFinIntentoNanos() != 0) {
+            trazador.registrar("espera-reintento", Trazador.actual(), contexto.getFinIntentoNanos(), System.nanoTime());
+        }
+        Tramo intento = trazador.iniciar("intento-pago").atributo("intento", numeroIntento);
+        EventoIntentoPago evento = new EventoIntentoPago();
+        evento.begin();
+        String resultado = null;
+        try {
+            PagoResponse respuesta = intentarPago(mensaje, contexto);
+            resultado = respuesta.getEstado().name();
+            return respuesta;
+        } catch (RuntimeException e) {
+            intento.error(e);
+            resultado = e instanceof PagoSimuladoFallidoException
+                    ? EstadoPago.ERROR_SIMULADO.name()
+                    : e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            intento.terminar();
+            evento.terminar(mensaje.getNickname(), mensaje.getIdCancion(), numeroIntento, resultado);
+            contexto.setFinIntentoNanos(System.nanoTime());
+        }
+    }
+
+    /**
+     * Cuerpo de un intento de pago: token (solo el primero), petición y validación de la respuesta.
+     */
+    private PagoResponse intentarPago(MensajeCancion mensaje, ContextoPago contexto)
+            throws PagoSimuladoFallidoException, RestClientException {
+        System.out.println("[REACCIONES] Realizando intento de pago para: " + mensaje.getNickname()
+                + " (clave " + contexto.getClaveIdempotencia() + ")");
+
+        // 1. Solicitar un token solo si esta reacción aún no tiene uno.
+        if (contexto.getToken() == null) {
+            TokenResponse tokenResponse = solicitarToken();
+            if (tokenResponse == null || tokenResponse.getToken() == null) {
+                System.err.println("[REACCIONES] No se pudo obtener token. Lanzando excepción para reintento.");
+                throw new RestClientException("No se pudo obtener un token desde el servidor de pagos");
+            }
+            contexto.setToken(tokenResponse.getToken());
+            System.out.println("[REACCIONES] Token para esta reacción: " + tokenResponse.getToken());
         }
-        System.out.println("[REACCIONES] Token nuevo para este intento: " + tokenResponse.getToken());
 
-        // 2. Construir la petición de pago con el nuevo token.
+        // 2. Construir la petición de pago con el token y la clave de idempotencia de la reacción.
         PagoRequest pagoRequest = new PagoRequest(
-                tokenResponse.getToken(),
+                contexto.getToken(),
                 mensaje.getNickname(),
                 mensaje.getIdCancion(),
-                10
-        );
-
-        // 3. Enviar la petición de pago al servidor.
-        HttpEntity<PagoRequest> requestEntity = new HttpEntity<>(pagoRequest);
-        ResponseEntity<PagoResponse> response = restTemplate.exchange(
-                BASE_URL_PAGOS,
-                HttpMethod.POST,
-                requestEntity,
-                PagoResponse.class
+                contexto.getClaveIdempotencia(),
+                mensaje.getContenido()
         );
 
-        PagoResponse pagoResponse = response.getBody();
-
-        if (pagoResponse == null) {
-            throw new RestClientException("La respuesta del servidor de pagos fue nula.");
-        }
+        // 3. Enviar la petición de pago al servidor, con cobertura si está habilitada.
+        PagoResponse pagoResponse = coberturaHabilitada
+                ? enviarPagoConCobertura(pagoRequest)
+                : enviarPago(false, pagoRequest);
 
         if (pagoResponse.getEstado() == EstadoPago.ERROR_SIMULADO) {
             System.out.println("[REACCIONES] Servidor devolvió ERROR_SIMULADO. Mensaje: " + pagoResponse.getMensaje());
@@ -129,36 +301,171 @@ public class PagosClientService {
     }
 
     /**
-     * Método de recuperación (fallback) que se ejecuta si todos los reintentos de {@code realizarIntentoDePago} fracasan.
+     * Envía una petición de pago y registra su resultado en la política de reintentos y en el
+     * límite de concurrencia y, si la respuesta es sana, su latencia para las coberturas.
+     *
+     * @param cobertura {@code true} para enviarla por el destino secundario de las coberturas.
+     * @param pagoRequest La petición a enviar.
+     * @return La respuesta del servidor de pagos, nunca {@code null}.
+     * @throws RestClientException Si falla la comunicación o la respuesta llega vacía.
+     */
+    private PagoResponse enviarPago(boolean cobertura, PagoRequest pagoRequest) throws RestClientException {
+        Tramo envio = trazador.iniciar("registrar-pago").atributo("cobertura", cobertura);
+        long inicio = System.nanoTime();
+        PagoResponse pagoResponse;
+        try {
+            pagoResponse = transportePagos.enviarPago(pagoRequest, cobertura);
+        } catch (RestClientException e) {
+            long duracion = System.nanoTime() - inicio;
+            politicaReintentos.registrarResultado(duracion, true);
+            // La perdedora de una cobertura se interrumpe: no indica sobrecarga.
+            if (!Thread.currentThread().isInterrupted()) {
+                limitadorConcurrencia.registrarRtt(duracion, true);
+            }
+            envio.error(e).terminar();
+            throw e;
+        }
+        envio.atributo("estado", pagoResponse.getEstado()).terminar();
+        long duracion = System.nanoTime() - inicio;
+        boolean fallo = pagoResponse.getEstado() == EstadoPago.ERROR_SIMULADO;
+        politicaReintentos.registrarResultado(duracion, fallo);
+        if (!fallo) {
+            latencias.registrar(duracion);
+            limitadorConcurrencia.registrarRtt(duracion, false);
+        }
+        return pagoResponse;
+    }
+
+    /**
+     * Envía la petición de pago y, si no responde dentro del plazo de cobertura, envía la misma
+     * petición al destino secundario. Devuelve la primera respuesta sana y cancela la otra petición.
+     * <p>
+     * Ambas peticiones comparten token y clave de idempotencia, así que el servidor de pagos
+     * registra el pago una sola vez aunque las dos lleguen a procesarse.
+     *
+     * @param pagoRequest La petición a enviar.
+     * @return La primera respuesta sana o, si ambas fallan, la última respuesta recibida.
+     * @throws RestClientException Si ninguna petición obtuvo respuesta.
+     */
+    private PagoResponse enviarPagoConCobertura(PagoRequest pagoRequest) throws RestClientException {
+        presupuestoCoberturas.registrarSolicitud();
+        CompletionService<PagoResponse> respuestas = new ExecutorCompletionService<>(ejecutorCoberturas);
+        Future<PagoResponse> primaria = respuestas.submit(Trazador.envolver(() -> enviarPago(false, pagoRequest)));
+        Future<PagoResponse> cobertura = null;
+        try {
+            Future<PagoResponse> terminada = respuestas.poll(plazoCobertura(), TimeUnit.NANOSECONDS);
+            int pendientes = 1;
+            if (terminada == null) {
+                if (presupuestoCoberturas.intentarConsumir()) {
+                    System.out.println("[REACCIONES] Pago sin respuesta dentro del plazo. Enviando cobertura"
+                            + " (clave " + pagoRequest.getClaveIdempotencia() + ")");
+                    coberturasLanzadas.increment();
+                    cobertura = respuestas.submit(Trazador.envolver(() -> enviarPago(true, pagoRequest)));
+                    pendientes = 2;
+                } else {
+                    coberturasDenegadas.increment();
+                }
+                terminada = respuestas.take();
+            }
+
+            PagoResponse ultimaRespuesta = null;
+            RestClientException ultimoError = null;
+            while (true) {
+                pendientes--;
+                try {
+                    PagoResponse respuesta = terminada.get();
+                    if (respuesta.getEstado() != EstadoPago.ERROR_SIMULADO) {
+                        if (terminada == cobertura) {
+                            coberturasGanadas.increment();
+                        }
+                        return respuesta;
+                    }
+                    ultimaRespuesta = respuesta;
+                } catch (ExecutionException e) {
+                    ultimoError = e.getCause() instanceof RestClientException causa
+                            ? causa
+                            : new RestClientException("Error enviando el pago", e.getCause());
+                }
+                if (pendientes == 0) {
+                    break;
+                }
+                terminada = respuestas.take();
+            }
+            if (ultimaRespuesta != null) {
+                return ultimaRespuesta;
+            }
+            throw ultimoError;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrumpido esperando la respuesta del servidor de pagos", e);
+        } finally {
+            // Cancela la petición perdedora; sobre una terminada no tiene efecto.
+            primaria.cancel(true);
+            if (cobertura != null) {
+                cobertura.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Calcula el plazo tras el cual se cubre una petición de pago: el percentil configurado de la
+     * latencia observada, acotado por el plazo mínimo, o el plazo inicial si aún no hay muestras.
+     *
+     * @return el plazo en nanosegundos
+     */
+    private long plazoCobertura() {
+        if (latencias.getCantidad() < 20) {
+            return TimeUnit.MILLISECONDS.toNanos(plazoInicialMs);
+        }
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(plazoMinimoMs), latencias.percentil(0));
+    }
+
+    /**
+     * Método de recuperación (fallback) que se ejecuta cuando la política deja de reintentar
+     * {@code realizarIntentoDePago}, por agotar los intentos o el presupuesto de reintentos.
      * <p>
-     * Anotado con {@code @Recover}, este método previene que una excepción no controlada se propague,
-     * registrando el fallo definitivo y devolviendo una respuesta de error estandarizada.
+     * Previene que una excepción no controlada se propague, registrando el fallo definitivo
+     * y devolviendo una respuesta de error estandarizada.
      *
      * @param e La excepción final que causó el cese de los reintentos.
-     * @param mensaje Los argumentos originales del método {@code @Retryable} fallido.
+     * @param mensaje La reacción cuyo pago falló.
+     * @param intentos Número de intentos realizados.
      * @return Un {@link PagoResponse} con estado {@link EstadoPago#ERROR_SIMULADO} indicando el fallo definitivo.
      */
-    @Recover
-    public PagoResponse recuperarDeFalloDePago(Exception e, MensajeCancion mensaje) {
+    private PagoResponse recuperarDeFalloDePago(Throwable e, MensajeCancion mensaje, int intentos) {
         System.err.println("[REACCIONES] FALLO DEFINITIVO: Se agotaron los reintentos para el pago de "
                 + mensaje.getNickname() + ". Error final: " + e.getMessage());
-        return crearRespuestaDeFallo("No se pudo completar el pago tras " + MAX_INTENTOS + " intentos.");
+        return crearRespuestaDeFallo("No se pudo completar el pago tras " + intentos + " intentos.");
+    }
+
+    /**
+     * Deriva la clave de idempotencia de una reacción: usuario, canción y un número de secuencia
+     * único dentro del proceso, para que dos reacciones iguales del mismo usuario sean pagos distintos.
+     *
+     * @param mensaje La reacción a pagar.
+     * @return La clave de idempotencia de la reacción.
+     */
+    private String crearClaveIdempotencia(MensajeCancion mensaje) {
+        return mensaje.getNickname() + "|" + mensaje.getIdCancion() + "|"
+                + prefijoClaves + "-" + secuenciaReacciones.incrementAndGet();
     }
 
     /**
-     * Realiza una llamada HTTP POST para obtener un nuevo token del servidor de pagos.
+     * Solicita un nuevo token al servidor de pagos por el transporte configurado.
      *
      * @return Un objeto {@link TokenResponse} si la solicitud es exitosa, o {@code null} si ocurre un error de comunicación.
      */
     private TokenResponse solicitarToken() {
+        Tramo token = trazador.iniciar("token");
         try {
             System.out.println("[REACCIONES] Solicitando token al servidor de pagos...");
-            ResponseEntity<TokenResponse> response = restTemplate.postForEntity(
-                    BASE_URL_PAGOS + "/token", null, TokenResponse.class);
-            return response.getBody();
+            return transportePagos.solicitarToken();
         } catch (RestClientException e) {
+            token.error(e);
             System.err.println("[REACCIONES] Error de comunicación al solicitar token: " + e.getMessage());
             return null;
+        } finally {
+            token.terminar();
         }
     }
 
@@ -0,0 +1,307 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/PoliticaReintentosAdaptativa.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.exceptions.PagoSimuladoFallidoException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryPolicy;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+import org.springframework.retry.context.RetryContextSupport;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Política de reintentos de los pagos, configurable en caliente y adaptada a la salud observada
+ * del servidor de pagos.
+ * <p>
+ * Sustituye a la configuración fija de {@code @Retryable} (intentos, espera inicial y multiplicador constantes):
+ * <ul>
+ *   <li><b>Espera con jitter decorrelacionado</b>: cada espera se elige al azar entre la espera base
+ *       y el triple de la espera anterior, acotada por la espera máxima. Los clientes que fallaron a
+ *       la vez no reintentan a la vez.</li>
+ *   <li><b>Espera base adaptativa</b>: es al menos el doble de la latencia mediana observada y crece
+ *       con la tasa de fallos reciente, así que un servidor lento o sobrecargado recibe los
+ *       reintentos más espaciados.</li>
+ *   <li><b>Presupuesto de reintentos</b>: un {@link PresupuestoSolicitudesExtra} compartido por
+ *       todo el cliente limita los reintentos a una proporción de las reacciones. Cuando el servidor
+ *       falla casi siempre, el presupuesto se agota y los pagos fallan rápido en lugar de
+ *       multiplicar la carga (tormenta de reintentos).</li>
+ * </ul>
+ * Se consulta y reconfigura mediante el endpoint de actuator {@code /actuator/reintentospagos}.
+ */
+@Component
+public class PoliticaReintentosAdaptativa {
+
+    /**
+     * Atributo del contexto de reintentos que guarda si el último fallo puede reintentarse.
+     */
+    private static final String REINTENTO_PERMITIDO = "reacciones.reintentoPermitido";
+
+    /**
+     * Número de resultados recientes sobre los que se calcula la tasa de fallos.
+     */
+    private static final int TAMANO_VENTANA_FALLOS = 200;
+
+    private volatile int maxIntentos;
+    private volatile long esperaBaseMs;
+    private volatile long esperaMaximaMs;
+
+    private final PresupuestoSolicitudesExtra presupuesto;
+    private final VentanaLatencias latencias = new VentanaLatencias(256, 16, 0.5);
+
+    /**
+     * Resultados recientes (fallo o no) en un arreglo circular. Protegido por {@code this}.
+     */
+    private final boolean[] fallosRecientes = new boolean[TAMANO_VENTANA_FALLOS];
+    private int siguienteResultado;
+    private int cantidadResultados;
+    private int cantidadFallos;
+
+    public PoliticaReintentosAdaptativa(@Value("${pagos.reintentos.max-intentos:4}") int maxIntentos,
+                                        @Value("${pagos.reintentos.espera-base-ms:1500}") long esperaBaseMs,
+                                        @Value("${pagos.reintentos.espera-maxima-ms:10000}") long esperaMaximaMs,
+                                        @Value("${pagos.reintentos.presupuesto:0.1}") double proporcionReintentos) {
+        this.maxIntentos = maxIntentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.presupuesto = new PresupuestoSolicitudesExtra(proporcionReintentos, 10);
+    }
+
+    /**
+     * Crea una plantilla de reintentos que aplica esta política.
+     *
+     * @return la plantilla, con esperas reales entre intentos
+     */
+    public RetryTemplate crearPlantilla() {
+        return crearPlantilla(new ThreadWaitSleeper());
+    }
+
+    /**
+     * Crea una plantilla de reintentos que aplica esta política con el {@link Sleeper} indicado.
+     *
+     * @param sleeper mecanismo de espera entre intentos (las pruebas lo sustituyen)
+     * @return la plantilla
+     */
+    RetryTemplate crearPlantilla(Sleeper sleeper) {
+        RetryTemplate plantilla = new RetryTemplate();
+        plantilla.setRetryPolicy(new PoliticaConPresupuesto());
+        plantilla.setBackOffPolicy(new EsperaDecorrelacionada(sleeper));
+        return plantilla;
+    }
+
+    /**
+     * Registra el resultado de una petición al servidor de pagos.
+     *
+     * @param nanos duración de la petición
+     * @param fallo {@code true} si terminó en ERROR_SIMULADO o en error de comunicación
+     */
+    public void registrarResultado(long nanos, boolean fallo) {
+        if (!fallo) {
+            latencias.registrar(nanos);
+        }
+        synchronized (this) {
+            if (cantidadResultados == fallosRecientes.length) {
+                if (fallosRecientes[siguienteResultado]) {
+                    cantidadFallos--;
+                }
+            } else {
+                cantidadResultados++;
+            }
+            fallosRecientes[siguienteResultado] = fallo;
+            if (fallo) {
+                cantidadFallos++;
+            }
+            siguienteResultado = (siguienteResultado + 1) % fallosRecientes.length;
+        }
+    }
+
+    /**
+     * @return proporción de fallos entre los resultados recientes (0 si no hay datos)
+     */
+    public synchronized double getTasaFallos() {
+        return cantidadResultados == 0 ? 0.0 : (double) cantidadFallos / cantidadResultados;
+    }
+
+    /**
+     * Espera base actual: la configurada o el doble de la latencia mediana, la mayor de ambas,
+     * multiplicada por {@code 1 + 3 * tasaFallos} y acotada por la espera máxima.
+     *
+     * @return la espera base en milisegundos
+     */
+    public long getEsperaBaseEfectivaMs() {
+        long latenciaMedianaMs = TimeUnit.NANOSECONDS.toMillis(latencias.percentil(0));
+        long base = Math.max(esperaBaseMs, 2 * latenciaMedianaMs);
+        return Math.min(esperaMaximaMs, Math.round(base * (1 + 3 * getTasaFallos())));
+    }
+
+    /**
+     * Calcula la siguiente espera con jitter decorrelacionado.
+     *
+     * @param esperaAnteriorMs espera anterior, o 0 antes del primer reintento
+     * @return la espera en milisegundos
+     */
+    long siguienteEsperaMs(long esperaAnteriorMs) {
+        long base = getEsperaBaseEfectivaMs();
+        long anterior = Math.max(base, esperaAnteriorMs);
+        long superior = Math.max(base + 1, anterior * 3);
+        return Math.min(esperaMaximaMs, ThreadLocalRandom.current().nextLong(base, superior));
+    }
+
+    public int getMaxIntentos() {
+        return maxIntentos;
+    }
+
+    public void setMaxIntentos(int maxIntentos) {
+        configurar(maxIntentos, null, null, null);
+    }
+
+    public long getEsperaBaseMs() {
+        return esperaBaseMs;
+    }
+
+    public void setEsperaBaseMs(long esperaBaseMs) {
+        configurar(null, esperaBaseMs, null, null);
+    }
+
+    public long getEsperaMaximaMs() {
+        return esperaMaximaMs;
+    }
+
+    public void setEsperaMaximaMs(long esperaMaximaMs) {
+        configurar(null, null, esperaMaximaMs, null);
+    }
+
+    public double getProporcionReintentos() {
+        return presupuesto.getProporcion();
+    }
+
+    public void setProporcionReintentos(double proporcionReintentos) {
+        configurar(null, null, null, proporcionReintentos);
+    }
+
+    /**
+     * Cambia a la vez los parámetros indicados; los {@code null} conservan su valor. Si la
+     * combinación resultante no es válida no cambia ninguno.
+     *
+     * @throws IllegalArgumentException si {@code maxIntentos}, alguna espera o la proporción son
+     *                                  negativos, o si la espera base supera a la máxima
+     */
+    public synchronized void configurar(Integer maxIntentos, Long esperaBaseMs, Long esperaMaximaMs,
+                                        Double proporcionReintentos) {
+        int nuevoMaxIntentos = maxIntentos != null ? maxIntentos : this.maxIntentos;
+        long nuevaEsperaBaseMs = esperaBaseMs != null ? esperaBaseMs : this.esperaBaseMs;
+        long nuevaEsperaMaximaMs = esperaMaximaMs != null ? esperaMaximaMs : this.esperaMaximaMs;
+        if (nuevoMaxIntentos < 0) {
+            throw new IllegalArgumentException("maxIntentos no puede ser negativo: " + nuevoMaxIntentos);
+        }
+        if (nuevaEsperaBaseMs < 0 || nuevaEsperaBaseMs > nuevaEsperaMaximaMs) {
+            throw new IllegalArgumentException("esperaBaseMs debe estar entre 0 y esperaMaximaMs ("
+                    + nuevaEsperaMaximaMs + "): " + nuevaEsperaBaseMs);
+        }
+        if (proporcionReintentos != null && !(proporcionReintentos >= 0)) {
+            throw new IllegalArgumentException("proporcionReintentos no puede ser negativa: " + proporcionReintentos);
+        }
+        this.maxIntentos = nuevoMaxIntentos;
+        this.esperaBaseMs = nuevaEsperaBaseMs;
+        this.esperaMaximaMs = nuevaEsperaMaximaMs;
+        if (proporcionReintentos != null) {
+            presupuesto.setProporcion(proporcionReintentos);
+        }
+    }
+
+    public long getReintentosConcedidos() {
+        return presupuesto.getConcedidas();
+    }
+
+    public long getReintentosDenegados() {
+        return presupuesto.getDenegadas();
+    }
+
+    private static boolean esReintentable(Throwable error) {
+        return error instanceof RestClientException || error instanceof PagoSimuladoFallidoException;
+    }
+
+    /**
+     * Decide si un fallo se reintenta. La decisión se toma una sola vez por fallo, en
+     * {@link #registerThrowable}, porque {@link RetryTemplate} consulta {@link #canRetry}
+     * varias veces por intento y el presupuesto solo debe consumirse una.
+     */
+    private final class PoliticaConPresupuesto implements RetryPolicy {
+
+        @Override
+        public RetryContext open(RetryContext parent) {
+            presupuesto.registrarSolicitud();
+            return new RetryContextSupport(parent);
+        }
+
+        @Override
+        public void close(RetryContext context) {
+        }
+
+        @Override
+        public void registerThrowable(RetryContext context, Throwable throwable) {
+            ((RetryContextSupport) context).registerThrowable(throwable);
+            boolean permitido = false;
+            if (esReintentable(throwable) && context.getRetryCount() < maxIntentos) {
+                permitido = presupuesto.intentarConsumir();
+                if (!permitido) {
+                    System.out.println("[REACCIONES] Presupuesto de reintentos agotado. No se reintenta el pago.");
+                }
+            }
+            context.setAttribute(REINTENTO_PERMITIDO, permitido);
+        }
+
+        @Override
+        public boolean canRetry(RetryContext context) {
+            return context.getLastThrowable() == null
+                    || Boolean.TRUE.equals(context.getAttribute(REINTENTO_PERMITIDO));
+        }
+    }
+
+    /**
+     * Espera entre intentos con jitter decorrelacionado sobre la espera base adaptativa.
+     */
+    private final class EsperaDecorrelacionada implements BackOffPolicy {
+
+        private final Sleeper sleeper;
+
+        private EsperaDecorrelacionada(Sleeper sleeper) {
+            this.sleeper = sleeper;
+        }
+
+        /**
+         * Espera usada en el intento anterior de una misma reacción.
+         */
+        private static final class EstadoEspera implements BackOffContext {
+            private long anteriorMs;
+        }
+
+        @Override
+        public BackOffContext start(RetryContext context) {
+            return new EstadoEspera();
+        }
+
+        @Override
+        public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+            EstadoEspera estado = (EstadoEspera) backOffContext;
+            long espera = siguienteEsperaMs(estado.anteriorMs);
+            estado.anteriorMs = espera;
+            System.out.println("[REACCIONES] Reintentando el pago en " + espera + " ms");
+            try {
+                sleeper.sleep(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BackOffInterruptedException("Espera entre reintentos interrumpida", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/PresupuestoSolicitudesExtra.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+/**
+ * Presupuesto de solicitudes adicionales (coberturas o reintentos) hacia el servidor de pagos.
+ * <p>
+ * Cada solicitud original deposita {@code proporcion} créditos, hasta un máximo acumulado; cada
+ * solicitud extra consume un crédito entero. Así las solicitudes extra nunca superan, en promedio,
+ * esa proporción de las originales: si el servidor de pagos está caído o saturado, el cliente no
+ * multiplica la carga que le envía.
+ */
+public class PresupuestoSolicitudesExtra {
+
+    private volatile double proporcion;
+    private final double maximoAcumulado;
+    private double creditos;
+
+    private long concedidas;
+    private long denegadas;
+
+    /**
+     * @param proporcion      créditos depositados por cada solicitud original (por ejemplo 0.1 = 10%)
+     * @param maximoAcumulado créditos máximos que pueden acumularse en periodos tranquilos
+     */
+    public PresupuestoSolicitudesExtra(double proporcion, double maximoAcumulado) {
+        this.proporcion = proporcion;
+        this.maximoAcumulado = maximoAcumulado;
+        this.creditos = maximoAcumulado;
+    }
+
+    /**
+     * Registra una solicitud original, que aporta créditos al presupuesto.
+     */
+    public synchronized void registrarSolicitud() {
+        creditos = Math.min(maximoAcumulado, creditos + proporcion);
+    }
+
+    /**
+     * Intenta consumir un crédito para una solicitud extra.
+     *
+     * @return {@code true} si la solicitud extra está permitida
+     */
+    public synchronized boolean intentarConsumir() {
+        if (creditos >= 1.0) {
+            creditos -= 1.0;
+            concedidas++;
+            return true;
+        }
+        denegadas++;
+        return false;
+    }
+
+    public double getProporcion() {
+        return proporcion;
+    }
+
+    public void setProporcion(double proporcion) {
+        this.proporcion = proporcion;
+    }
+
+    public synchronized long getConcedidas() {
+        return concedidas;
+    }
+
+    public synchronized long getDenegadas() {
+        return denegadas;
+    }
+}
@@ -0,0 +1,69 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/ReintentosPagosEndpoint.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoint de actuator ({@code /actuator/reintentospagos}) para consultar y ajustar en caliente
+ * la {@link PoliticaReintentosAdaptativa}.
+ * <p>
+ * Un {@code POST} con cualquier subconjunto de {@code maxIntentos}, {@code esperaBaseMs},
+ * {@code esperaMaximaMs} y {@code proporcionReintentos} cambia solo esos valores. Si el
+ * resultado no es válido (valores negativos o espera base mayor que la máxima) responde {@code 400}
+ * y no cambia ninguno.
+ */
+@Component
+@Endpoint(id = "reintentospagos")
+public class ReintentosPagosEndpoint {
+
+    private final PoliticaReintentosAdaptativa politica;
+
+    public ReintentosPagosEndpoint(PoliticaReintentosAdaptativa politica) {
+        this.politica = politica;
+    }
+
+    /**
+     * @return la configuración vigente y el estado observado de la política
+     */
+    @ReadOperation
+    public Map<String, Object> politica() {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("maxIntentos", politica.getMaxIntentos());
+        resultado.put("esperaBaseMs", politica.getEsperaBaseMs());
+        resultado.put("esperaMaximaMs", politica.getEsperaMaximaMs());
+        resultado.put("proporcionReintentos", politica.getProporcionReintentos());
+        resultado.put("esperaBaseEfectivaMs", politica.getEsperaBaseEfectivaMs());
+        resultado.put("tasaFallos", politica.getTasaFallos());
+        resultado.put("reintentosConcedidos", politica.getReintentosConcedidos());
+        resultado.put("reintentosDenegados", politica.getReintentosDenegados());
+        return resultado;
+    }
+
+    /**
+     * Cambia los parámetros indicados; los omitidos conservan su valor.
+     *
+     * @return la configuración resultante, o {@code 400} con el motivo si no es válida
+     */
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> configurar(@Nullable Integer maxIntentos,
+                                                               @Nullable Long esperaBaseMs,
+                                                               @Nullable Long esperaMaximaMs,
+                                                               @Nullable Double proporcionReintentos) {
+        try {
+            politica.configurar(maxIntentos, esperaBaseMs, esperaMaximaMs, proporcionReintentos);
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        System.out.println("[REACCIONES] Política de reintentos de pagos reconfigurada: " + politica());
+        return new WebEndpointResponse<>(politica());
+    }
+}
@@ -0,0 +1,44 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/TransportePagos.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoRequest;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.TokenResponse;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Transporte de las llamadas al servidor de pagos. Se elige con {@code pagos.transporte}:
+ * <ul>
+ *   <li>{@code rest} (por defecto): JSON sobre HTTP/1.1, {@link TransportePagosRest}.</li>
+ *   <li>{@code grpc}: Protobuf sobre una sesión gRPC bidireccional, {@link TransportePagosGrpc}.</li>
+ * </ul>
+ * Los fallos de comunicación de cualquier transporte se informan como {@link RestClientException},
+ * que es lo que reintenta la {@link PoliticaReintentosAdaptativa} y lo que cubre {@link PagosClientService}.
+ */
+public interface TransportePagos {
+
+    /**
+     * Solicita un token de pago nuevo.
+     *
+     * @return el token generado, nunca {@code null}
+     * @throws RestClientException si falla la comunicación
+     */
+    TokenResponse solicitarToken() throws RestClientException;
+
+    /**
+     * Envía una petición de pago.
+     *
+     * @param pagoRequest la petición
+     * @param cobertura   {@code true} si es la petición de cobertura, que viaja por el destino
+     *                    secundario (otra conexión), o por el respaldo si ya se conmutó a él
+     * @return la respuesta del servidor de pagos, nunca {@code null}
+     * @throws RestClientException si falla la comunicación o no hay respuesta
+     */
+    PagoResponse enviarPago(PagoRequest pagoRequest, boolean cobertura) throws RestClientException;
+
+    /**
+     * @return {@code true} si los pagos van al respaldo de la replicación en lugar del principal
+     */
+    boolean isConmutadoAlRespaldo();
+}
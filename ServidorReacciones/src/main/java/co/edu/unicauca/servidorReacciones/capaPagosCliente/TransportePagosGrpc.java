@@ -0,0 +1,384 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/TransportePagosGrpc.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.pagos.grpc.PagosServiceGrpc;
+import co.edu.unicauca.pagos.grpc.peticionPago;
+import co.edu.unicauca.pagos.grpc.peticionToken;
+import co.edu.unicauca.pagos.grpc.respuestaPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.EstadoPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoRequest;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.TokenResponse;
+import co.edu.unicauca.servidorReacciones.capaTrazas.ContextoTraza;
+import co.edu.unicauca.servidorReacciones.capaTrazas.Trazador;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Transporte gRPC de los pagos ({@code src/main/proto/pagos.proto}).
+ * <p>
+ * Los tokens se piden con la llamada unaria {@code obtenerToken}. Los pagos viajan por una sesión
+ * bidireccional {@code registrarPagos} que se abre una vez por destino y se comparte entre todos
+ * los hilos de pago: cada petición lleva un {@code idCorrelacion} y el hilo que la envió espera su
+ * respuesta, que puede llegar en otro orden. Así muchos pagos comparten una sola conexión HTTP/2,
+ * sin abrir una petición HTTP/1.1 por pago ni interpretar JSON.
+ * <p>
+ * Los pagos sin responder de cada sesión están acotados por {@code pagos.grpc.ventana}; el
+ * servidor, a su vez, solo acepta los pagos que puede procesar y el control de flujo de HTTP/2
+ * frena al cliente si se adelanta. Si la sesión se cae, sus pagos pendientes fallan con
+ * {@link RestClientException} (y se reintentan con la misma clave de idempotencia) y el siguiente
+ * pago abre una sesión nueva.
+ * <p>
+ * Las coberturas viajan por un segundo canal ({@code pagos.grpc.destino-cobertura}, por defecto
+ * el mismo destino con otra conexión), o por el del respaldo si ya se conmutó a él.
+ * <p>
+ * Si se configura {@code pagos.grpc.destino-respaldo} (el respaldo de la replicación de pagos) y el
+ * principal responde {@code UNAVAILABLE} durante {@code pagos.conmutacion.plazo-ms}, la llamada se
+ * repite en el respaldo y, desde entonces, todo se envía allí (ver {@link ConmutacionPagos}). Si el
+ * respaldo también responde {@code UNAVAILABLE} antes de aceptar ningún pago, se vuelve al principal;
+ * los pagos que el respaldo rechaza por seguir recibiendo la replicación llegan como
+ * {@code ERROR_SIMULADO} y se reintentan allí mismo.
+ * <p>
+ * El contexto de traza del hilo viaja en el campo {@code traceparent} de cada petición, porque los
+ * pagos de una sesión comparten una sola llamada y sus metadatos.
+ */
+@Component
+@ConditionalOnProperty(name = "pagos.transporte", havingValue = "grpc")
+public class TransportePagosGrpc implements TransportePagos {
+
+    private final CanalPagos principal;
+    private final CanalPagos cobertura;
+    private final long plazoMs;
+
+    /**
+     * Canal del respaldo, o {@code null} si no hay respaldo.
+     */
+    private final CanalPagos respaldo;
+
+    private final ConmutacionPagos conmutacion;
+
+    @Autowired
+    public TransportePagosGrpc(@Value("${pagos.grpc.destino:localhost:6565}") String destino,
+                               @Value("${pagos.grpc.destino-cobertura:${pagos.grpc.destino:localhost:6565}}") String destinoCobertura,
+                               @Value("${pagos.grpc.destino-respaldo:}") String destinoRespaldo,
+                               @Value("${pagos.grpc.plazo-ms:10000}") long plazoMs,
+                               @Value("${pagos.grpc.ventana:64}") int ventana,
+                               @Value("${pagos.conmutacion.plazo-ms:2000}") long plazoConmutacionMs) {
+        this(NettyChannelBuilder.forTarget(destino).usePlaintext().build(),
+                NettyChannelBuilder.forTarget(destinoCobertura).usePlaintext().build(),
+                destinoRespaldo.isBlank() ? null : NettyChannelBuilder.forTarget(destinoRespaldo).usePlaintext().build(),
+                plazoMs, ventana, plazoConmutacionMs);
+    }
+
+    TransportePagosGrpc(ManagedChannel principal, ManagedChannel cobertura, long plazoMs, int ventana) {
+        this(principal, cobertura, null, plazoMs, ventana, 0);
+    }
+
+    TransportePagosGrpc(ManagedChannel principal, ManagedChannel cobertura, ManagedChannel respaldo,
+                        long plazoMs, int ventana, long plazoConmutacionMs) {
+        this.principal = new CanalPagos(principal, ventana);
+        this.cobertura = new CanalPagos(cobertura, ventana);
+        this.respaldo = respaldo == null ? null : new CanalPagos(respaldo, ventana);
+        this.plazoMs = plazoMs;
+        this.conmutacion = new ConmutacionPagos(principal.authority(),
+                respaldo == null ? null : respaldo.authority(), plazoConmutacionMs);
+    }
+
+    @Override
+    public TokenResponse solicitarToken() throws RestClientException {
+        return conConmutacion(false, CanalPagos::token);
+    }
+
+    @Override
+    public PagoResponse enviarPago(PagoRequest pagoRequest, boolean cobertura) throws RestClientException {
+        if (cobertura) {
+            return (conmutacion.isEnRespaldo() ? respaldo : this.cobertura).pagar(pagoRequest);
+        }
+        // El pago lleva su clave de idempotencia: si el principal alcanzó a replicarlo antes de
+        // caer, el respaldo responde lo mismo sin cobrarlo de nuevo.
+        return conConmutacion(true, canal -> canal.pagar(pagoRequest));
+    }
+
+    @Override
+    public boolean isConmutadoAlRespaldo() {
+        return conmutacion.isEnRespaldo();
+    }
+
+    /**
+     * Ejecuta una llamada en el canal vigente. Si el principal respondió {@code UNAVAILABLE} y con
+     * ello se cumplió el plazo de conmutación, la repite una vez en el respaldo.
+     *
+     * @param pago {@code true} si la llamada es un pago, que promueve al respaldo si lo acepta
+     */
+    private <T> T conConmutacion(boolean pago, Function<CanalPagos, T> llamada) throws RestClientException {
+        if (respaldo != null && conmutacion.isEnRespaldo()) {
+            return enRespaldo(pago, llamada);
+        }
+        T respuesta;
+        try {
+            respuesta = llamada.apply(principal);
+        } catch (RestClientException e) {
+            if (respaldo == null || Thread.currentThread().isInterrupted() || !esNoDisponible(e)
+                    || !conmutacion.rechazoPrincipal()) {
+                throw e;
+            }
+            return enRespaldo(pago, llamada);
+        }
+        conmutacion.respondioPrincipal();
+        return respuesta;
+    }
+
+    private <T> T enRespaldo(boolean pago, Function<CanalPagos, T> llamada) throws RestClientException {
+        T respuesta;
+        try {
+            respuesta = llamada.apply(respaldo);
+        } catch (RestClientException e) {
+            if (esNoDisponible(e)) {
+                conmutacion.rechazoRespaldo();
+            }
+            throw e;
+        }
+        // Un ERROR_SIMULADO puede ser el rechazo de un respaldo que aún no se promueve.
+        if (pago && ((PagoResponse) respuesta).getEstado() != EstadoPago.ERROR_SIMULADO) {
+            conmutacion.aceptoRespaldo();
+        }
+        return respuesta;
+    }
+
+    private static boolean esNoDisponible(RestClientException error) {
+        return Status.fromThrowable(error).getCode() == Status.Code.UNAVAILABLE;
+    }
+
+    @PreDestroy
+    void cerrar() {
+        principal.cerrar();
+        cobertura.cerrar();
+        if (respaldo != null) {
+            respaldo.cerrar();
+        }
+    }
+
+    /**
+     * Canal hacia un destino de pagos con su sesión bidireccional actual.
+     */
+    private final class CanalPagos {
+
+        private final ManagedChannel canal;
+        private final PagosServiceGrpc.PagosServiceStub stub;
+
+        /**
+         * Pagos enviados sin respuesta. Cada permiso se devuelve al quitar el pago de
+         * {@link SesionPagos#pendientes}, sea por respuesta, plazo vencido o sesión caída.
+         */
+        private final Semaphore ventana;
+        private final AtomicLong correlaciones = new AtomicLong();
+
+        /**
+         * Sesión en uso, o {@code null} antes del primer pago. Protegido por {@code this}.
+         */
+        private SesionPagos sesion;
+
+        private CanalPagos(ManagedChannel canal, int ventana) {
+            this.canal = canal;
+            this.stub = PagosServiceGrpc.newStub(canal);
+            this.ventana = new Semaphore(ventana);
+        }
+
+        private TokenResponse token() throws RestClientException {
+            try {
+                ContextoTraza traza = Trazador.actual();
+                TokenResponse tokenResponse = new TokenResponse();
+                tokenResponse.setToken(PagosServiceGrpc.newBlockingStub(canal)
+                        .withDeadlineAfter(plazoMs, TimeUnit.MILLISECONDS)
+                        .obtenerToken(traza == null
+                                ? peticionToken.getDefaultInstance()
+                                : peticionToken.newBuilder().setTraceparent(traza.aTraceparent()).build())
+                        .getToken());
+                return tokenResponse;
+            } catch (StatusRuntimeException e) {
+                throw new RestClientException("Error gRPC solicitando token: " + e.getStatus(), e);
+            }
+        }
+
+        private PagoResponse pagar(PagoRequest pagoRequest) throws RestClientException {
+            try {
+                if (!ventana.tryAcquire(plazoMs, TimeUnit.MILLISECONDS)) {
+                    throw new RestClientException("Demasiados pagos gRPC sin respuesta");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestClientException("Interrumpido esperando turno para enviar el pago", e);
+            }
+            long idCorrelacion = correlaciones.incrementAndGet();
+            CompletableFuture<respuestaPago> respuesta = new CompletableFuture<>();
+            SesionPagos actual = sesionActiva();
+            actual.pendientes.put(idCorrelacion, respuesta);
+            try {
+                if (actual.cerrada) {
+                    throw new RestClientException("La sesión gRPC de pagos se cerró", actual.error);
+                }
+                actual.enviar(aPeticion(idCorrelacion, pagoRequest));
+                return aPagoResponse(respuesta.get(plazoMs, TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                throw new RestClientException("Error gRPC enviando el pago: " + e.getCause().getMessage(), e.getCause());
+            } catch (TimeoutException e) {
+                throw new RestClientException("Sin respuesta gRPC al pago en " + plazoMs + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestClientException("Interrumpido esperando la respuesta del servidor de pagos", e);
+            } catch (StatusRuntimeException e) {
+                throw new RestClientException("Error gRPC enviando el pago: " + e.getStatus(), e);
+            } finally {
+                actual.quitar(idCorrelacion);
+            }
+        }
+
+        private synchronized SesionPagos sesionActiva() {
+            if (sesion == null || sesion.cerrada) {
+                sesion = new SesionPagos(this);
+                stub.registrarPagos(sesion);
+            }
+            return sesion;
+        }
+
+        private void cerrar() {
+            SesionPagos actual;
+            synchronized (this) {
+                actual = sesion;
+            }
+            if (actual != null) {
+                actual.terminar();
+            }
+            canal.shutdown();
+        }
+    }
+
+    /**
+     * Sesión bidireccional de pagos. Las escrituras en {@code salida} se serializan con el
+     * monitor de la instancia, porque un stream de gRPC no admite llamadas concurrentes.
+     */
+    private static final class SesionPagos implements ClientResponseObserver<peticionPago, respuestaPago> {
+
+        private final CanalPagos canalPagos;
+        private final Map<Long, CompletableFuture<respuestaPago>> pendientes = new ConcurrentHashMap<>();
+        private ClientCallStreamObserver<peticionPago> salida;
+        private volatile boolean cerrada;
+
+        /**
+         * Error con que se cayó la sesión, o {@code null}; permite reconocer un {@code UNAVAILABLE}.
+         */
+        private volatile Throwable error;
+
+        private SesionPagos(CanalPagos canalPagos) {
+            this.canalPagos = canalPagos;
+        }
+
+        @Override
+        public synchronized void beforeStart(ClientCallStreamObserver<peticionPago> salida) {
+            this.salida = salida;
+        }
+
+        private synchronized void enviar(peticionPago peticion) {
+            salida.onNext(peticion);
+        }
+
+        private synchronized void terminar() {
+            if (!cerrada) {
+                cerrada = true;
+                salida.onCompleted();
+            }
+        }
+
+        /**
+         * Quita un pago de los pendientes y devuelve su permiso de la ventana, una sola vez.
+         */
+        private CompletableFuture<respuestaPago> quitar(long idCorrelacion) {
+            CompletableFuture<respuestaPago> pendiente = pendientes.remove(idCorrelacion);
+            if (pendiente != null) {
+                canalPagos.ventana.release();
+            }
+            return pendiente;
+        }
+
+        @Override
+        public void onNext(respuestaPago respuesta) {
+            CompletableFuture<respuestaPago> pendiente = pendientes.get(respuesta.getIdCorrelacion());
+            if (pendiente != null) {
+                pendiente.complete(respuesta);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            cerrada = true;
+            System.err.println("[REACCIONES] Sesión gRPC de pagos caída: " + error.getMessage());
+            pendientes.values().forEach(pendiente -> pendiente.completeExceptionally(error));
+        }
+
+        @Override
+        public void onCompleted() {
+            cerrada = true;
+            RestClientException cierre = new RestClientException("El servidor de pagos cerró la sesión gRPC");
+            pendientes.values().forEach(pendiente -> pendiente.completeExceptionally(cierre));
+        }
+    }
+
+    private static peticionPago aPeticion(long idCorrelacion, PagoRequest pagoRequest) {
+        peticionPago.Builder peticion = peticionPago.newBuilder().setIdCorrelacion(idCorrelacion);
+        if (pagoRequest.getToken() != null) {
+            peticion.setToken(pagoRequest.getToken());
+        }
+        if (pagoRequest.getNickname() != null) {
+            peticion.setNickname(pagoRequest.getNickname());
+        }
+        if (pagoRequest.getIdCancion() != null) {
+            peticion.setIdCancion(pagoRequest.getIdCancion());
+        }
+        if (pagoRequest.getClaveIdempotencia() != null) {
+            peticion.setClaveIdempotencia(pagoRequest.getClaveIdempotencia());
+        }
+        if (pagoRequest.getTipoReaccion() != null) {
+            peticion.setTipoReaccion(pagoRequest.getTipoReaccion());
+        }
+        ContextoTraza traza = Trazador.actual();
+        if (traza != null) {
+            peticion.setTraceparent(traza.aTraceparent());
+        }
+        return peticion.build();
+    }
+
+    private static PagoResponse aPagoResponse(respuestaPago respuesta) {
+        PagoResponse pagoResponse = new PagoResponse();
+        pagoResponse.setEstado(switch (respuesta.getEstado()) {
+            case ACEPTADO -> EstadoPago.ACEPTADO;
+            case TOKEN_REPETIDO -> EstadoPago.TOKEN_REPETIDO;
+            case LIMITE_SUPERADO -> EstadoPago.LIMITE_SUPERADO;
+            default -> EstadoPago.ERROR_SIMULADO;
+        });
+        pagoResponse.setMensaje(respuesta.getMensaje());
+        pagoResponse.setTotalAcumuladoUsuario(respuesta.getTotalAcumuladoUsuario());
+        return pagoResponse;
+    }
+}
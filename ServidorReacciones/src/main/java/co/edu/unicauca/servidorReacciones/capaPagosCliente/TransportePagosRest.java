@@ -0,0 +1,183 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/TransportePagosRest.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoRequest;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.TokenResponse;
+import co.edu.unicauca.servidorReacciones.capaTrazas.ContextoTraza;
+import co.edu.unicauca.servidorReacciones.capaTrazas.Trazador;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.function.Function;
+
+/**
+ * Transporte REST de los pagos: {@code POST /api/pagos/token} y {@code POST /api/pagos} con JSON.
+ * El contexto de traza del hilo viaja en la cabecera {@code traceparent}.
+ * <p>
+ * Si se configura {@code pagos.url-respaldo} (el respaldo de la replicación de pagos) y el servidor
+ * principal rechaza conexiones durante {@code pagos.conmutacion.plazo-ms}, la petición se repite en
+ * el respaldo y, desde entonces, todo se envía allí, también las coberturas (ver {@link ConmutacionPagos}).
+ * Los demás errores no conmutan, porque el principal sigue vivo; tampoco una petición interrumpida,
+ * que es la perdedora de una cobertura. Si el respaldo responde 503 porque el primario aún le
+ * replica, y todavía no aceptó ningún pago, se vuelve al principal.
+ */
+@Component
+@ConditionalOnProperty(name = "pagos.transporte", havingValue = "rest", matchIfMissing = true)
+public class TransportePagosRest implements TransportePagos {
+
+    private static final String BASE_URL_PAGOS = "http://localhost:6000/api/pagos";
+
+    /**
+     * Cliente HTTP basado en {@link HttpClient}: reutiliza conexiones y aborta la petición cuando
+     * se interrumpe el hilo que la envía, lo que permite cancelar la petición perdedora de una cobertura.
+     */
+    private final RestTemplate restTemplate;
+
+    private final String urlPrincipal;
+
+    /**
+     * URL del respaldo, o {@code null} si no hay respaldo.
+     */
+    private final String urlRespaldo;
+
+    /**
+     * URL a la que se envían las coberturas mientras no se conmute: otra instancia de pagos o, por
+     * defecto, la misma (la cobertura viaja entonces por otra conexión).
+     */
+    private final String urlSecundaria;
+
+    private final ConmutacionPagos conmutacion;
+
+    @Autowired
+    public TransportePagosRest(@Value("${pagos.url:" + BASE_URL_PAGOS + "}") String urlPrincipal,
+                               @Value("${pagos.url-respaldo:}") String urlRespaldo,
+                               @Value("${pagos.cobertura.url-secundaria:" + BASE_URL_PAGOS + "}") String urlSecundaria,
+                               @Value("${pagos.conmutacion.plazo-ms:2000}") long plazoConmutacionMs) {
+        this(new RestTemplate(new JdkClientHttpRequestFactory(
+                        HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())),
+                urlPrincipal, urlRespaldo, urlSecundaria, plazoConmutacionMs);
+    }
+
+    TransportePagosRest(RestTemplate restTemplate, String urlPrincipal, String urlRespaldo, String urlSecundaria,
+                        long plazoConmutacionMs) {
+        this.restTemplate = restTemplate;
+        this.urlPrincipal = urlPrincipal;
+        this.urlRespaldo = urlRespaldo == null || urlRespaldo.isBlank() ? null : urlRespaldo;
+        this.urlSecundaria = urlSecundaria;
+        this.conmutacion = new ConmutacionPagos(urlPrincipal, this.urlRespaldo, plazoConmutacionMs);
+    }
+
+    @Override
+    public TokenResponse solicitarToken() throws RestClientException {
+        return conConmutacion(false, url -> {
+            ResponseEntity<TokenResponse> response = restTemplate.postForEntity(
+                    url + "/token", new HttpEntity<>(cabecerasTraza()), TokenResponse.class);
+            if (response.getBody() == null) {
+                throw new RestClientException("La respuesta del servidor de pagos fue nula.");
+            }
+            return response.getBody();
+        });
+    }
+
+    @Override
+    public PagoResponse enviarPago(PagoRequest pagoRequest, boolean cobertura) throws RestClientException {
+        if (cobertura) {
+            return pagar(conmutacion.isEnRespaldo() ? urlRespaldo : urlSecundaria, pagoRequest);
+        }
+        return conConmutacion(true, url -> pagar(url, pagoRequest));
+    }
+
+    @Override
+    public boolean isConmutadoAlRespaldo() {
+        return conmutacion.isEnRespaldo();
+    }
+
+    private PagoResponse pagar(String url, PagoRequest pagoRequest) {
+        ResponseEntity<PagoResponse> response = restTemplate.exchange(
+                url,
+                HttpMethod.POST,
+                new HttpEntity<>(pagoRequest, cabecerasTraza()),
+                PagoResponse.class
+        );
+        if (response.getBody() == null) {
+            throw new RestClientException("La respuesta del servidor de pagos fue nula.");
+        }
+        return response.getBody();
+    }
+
+    /**
+     * Ejecuta una petición en el destino vigente. Si el principal rechazó la conexión y con ello se
+     * cumplió el plazo de conmutación, la repite una vez en el respaldo. Los pagos llevan su clave de
+     * idempotencia, así que repetirlos es seguro.
+     *
+     * @param pago {@code true} si la petición es un pago, que promueve al respaldo si lo acepta
+     */
+    private <T> T conConmutacion(boolean pago, Function<String, T> peticion) {
+        if (urlRespaldo != null && conmutacion.isEnRespaldo()) {
+            return enRespaldo(pago, peticion);
+        }
+        T respuesta;
+        try {
+            respuesta = peticion.apply(urlPrincipal);
+        } catch (ResourceAccessException e) {
+            if (urlRespaldo == null || Thread.currentThread().isInterrupted() || !esConexionRechazada(e)
+                    || !conmutacion.rechazoPrincipal()) {
+                throw e;
+            }
+            return enRespaldo(pago, peticion);
+        }
+        conmutacion.respondioPrincipal();
+        return respuesta;
+    }
+
+    private <T> T enRespaldo(boolean pago, Function<String, T> peticion) {
+        T respuesta;
+        try {
+            respuesta = peticion.apply(urlRespaldo);
+        } catch (HttpServerErrorException.ServiceUnavailable e) {
+            conmutacion.rechazoRespaldo();
+            throw e;
+        }
+        if (pago) {
+            conmutacion.aceptoRespaldo();
+        }
+        return respuesta;
+    }
+
+    private static boolean esConexionRechazada(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConnectException || causa instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return la cabecera {@code traceparent} del contexto actual, o ninguna fuera de una traza
+     */
+    private static HttpHeaders cabecerasTraza() {
+        HttpHeaders cabeceras = new HttpHeaders();
+        ContextoTraza traza = Trazador.actual();
+        if (traza != null) {
+            cabeceras.set(ContextoTraza.CABECERA, traza.aTraceparent());
+        }
+        return cabeceras;
+    }
+}
@@ -0,0 +1,84 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPagosCliente/VentanaLatencias.java
+
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import java.util.Arrays;
+
+/**
+ * Ventana deslizante con las últimas latencias observadas de las llamadas al servidor de pagos.
+ * <p>
+ * Guarda las muestras en un arreglo circular de tamaño fijo y calcula percentiles sobre ellas.
+ * El ordenamiento se hace a lo sumo una vez cada {@code recalcularCada} muestras, de modo que
+ * consultar un percentil en cada petición no cuesta más que leer un campo.
+ */
+public class VentanaLatencias {
+
+    private final long[] muestras;
+    private final int recalcularCada;
+    private final double[] percentiles;
+
+    private int siguiente;
+    private int cantidad;
+    private int muestrasDesdeCalculo;
+
+    /**
+     * Percentiles calculados por última vez, en el mismo orden que {@link #percentiles}.
+     */
+    private volatile long[] ultimosValores;
+
+    /**
+     * @param tamano         número de muestras que conserva la ventana
+     * @param recalcularCada cada cuántas muestras nuevas se recalculan los percentiles
+     * @param percentiles    percentiles a mantener, entre 0 y 1 (por ejemplo 0.5 y 0.95)
+     */
+    public VentanaLatencias(int tamano, int recalcularCada, double... percentiles) {
+        this.muestras = new long[tamano];
+        this.recalcularCada = Math.max(1, recalcularCada);
+        this.percentiles = percentiles.clone();
+        this.ultimosValores = new long[percentiles.length];
+    }
+
+    /**
+     * Registra una latencia observada.
+     *
+     * @param nanos latencia en nanosegundos
+     */
+    public void registrar(long nanos) {
+        long[] ordenadas = null;
+        synchronized (this) {
+            muestras[siguiente] = nanos;
+            siguiente = (siguiente + 1) % muestras.length;
+            if (cantidad < muestras.length) {
+                cantidad++;
+            }
+            if (++muestrasDesdeCalculo >= recalcularCada) {
+                muestrasDesdeCalculo = 0;
+                ordenadas = Arrays.copyOf(muestras, cantidad);
+            }
+        }
+        if (ordenadas != null) {
+            Arrays.sort(ordenadas);
+            long[] valores = new long[percentiles.length];
+            for (int i = 0; i < percentiles.length; i++) {
+                int indice = (int) Math.min(ordenadas.length - 1, Math.floor(percentiles[i] * ordenadas.length));
+                valores[i] = ordenadas[indice];
+            }
+            ultimosValores = valores;
+        }
+    }
+
+    /**
+     * @param indice posición del percentil en el orden con que se creó la ventana
+     * @return el último valor calculado de ese percentil, en nanosegundos (0 si aún no hay datos)
+     */
+    public long percentil(int indice) {
+        return ultimosValores[indice];
+    }
+
+    /**
+     * @return número de muestras disponibles en la ventana
+     */
+    public synchronized int getCantidad() {
+        return cantidad;
+    }
+}
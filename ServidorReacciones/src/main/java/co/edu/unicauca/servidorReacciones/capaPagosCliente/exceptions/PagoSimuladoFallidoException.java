@@ -6,7 +6,7 @@ package co.edu.unicauca.servidorReacciones.capaPagosCliente.exceptions;
  * Excepción específica que se lanza cuando el servidor de pagos
  * devuelve un estado de ERROR_SIMULADO.
  *
- * Esto permite que el mecanismo de @Retryable se active específicamente
+ * Esto permite que la política de reintentos se active específicamente
  * para este caso de fallo controlado, además de los errores de red.
  */
 public class PagoSimuladoFallidoException extends RuntimeException {
@@ -0,0 +1,49 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Arrendamiento concedido (o denegado) sobre el presupuesto de un usuario.
+ *
+ * <p>Mientras está vigente, {@code unidades * precio} pesos quedan reservados: cuentan para
+ * el límite del usuario en cualquier otro pago o arrendamiento. Lo gastado se informa con
+ * {@link LiquidacionArrendamiento}; lo no gastado se libera al devolverlo o al vencer.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Arrendamiento {
+
+    /**
+     * Identificador del arrendamiento, o {@code null} si se denegó.
+     */
+    private String id;
+
+    /**
+     * ACEPTADO si se concedió al menos una unidad; LIMITE_SUPERADO si no queda presupuesto.
+     */
+    private EstadoPago estado;
+
+    /**
+     * Precio de cada reacción según las reglas vigentes al conceder.
+     */
+    private int precio;
+
+    /**
+     * Reacciones concedidas.
+     */
+    private int unidades;
+
+    /**
+     * Milisegundos de vigencia desde la respuesta. Es relativo para no depender de que los
+     * relojes de ambos servidores coincidan.
+     */
+    private long duracionMs;
+
+    /**
+     * Total gastado por el usuario al conceder, sin contar lo reservado.
+     */
+    private int totalAcumuladoUsuario;
+}
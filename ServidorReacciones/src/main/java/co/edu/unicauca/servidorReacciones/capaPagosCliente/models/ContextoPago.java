@@ -0,0 +1,31 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente.models;
+
+import lombok.Data;
+
+/**
+ * Estado compartido por todos los intentos de pago de una misma reacción.
+ *
+ * <p>Se crea una sola vez por reacción, antes de los reintentos, y conserva la
+ * clave de idempotencia y el token obtenido, de modo que un reintento no genere
+ * un cobro distinto ni solicite un token nuevo al servidor de pagos.</p>
+ */
+@Data
+public class ContextoPago {
+
+    /**
+     * Clave de idempotencia derivada de la reacción; es la misma en todos los intentos.
+     */
+    private final String claveIdempotencia;
+
+    /**
+     * Token obtenido del servidor de pagos, reutilizado entre intentos.
+     * Es nulo hasta que se obtiene el primero.
+     */
+    private String token;
+
+    /**
+     * Fin del último intento según {@link System#nanoTime()}, o 0 antes del primero. Marca el
+     * inicio de la espera antes del siguiente reintento en la traza de la reacción.
+     */
+    private long finIntentoNanos;
+}
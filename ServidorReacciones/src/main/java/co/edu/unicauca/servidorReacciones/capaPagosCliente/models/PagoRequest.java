@@ -29,7 +29,13 @@ public class PagoRequest {
     private String idCancion;
 
     /**
-     * Valor monetario de la reacción (en el requerimiento: 10).
+     * Clave de idempotencia de la reacción, igual en todos sus reintentos.
      */
-    private int valor;
+    private String claveIdempotencia;
+
+    /**
+     * Tipo de reacción (like, heart, fire...). El servidor de pagos fija el precio
+     * según sus reglas para la canción, el tipo de reacción y el nivel del usuario.
+     */
+    private String tipoReaccion;
 }
@@ -0,0 +1,35 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Petición del servidor de reacciones para arrendar parte del presupuesto de un usuario
+ * y aprobar localmente sus próximas reacciones de un mismo tipo en una canción.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitudArrendamiento {
+
+    /**
+     * Usuario cuyo presupuesto se reserva.
+     */
+    private String nickname;
+
+    /**
+     * Canción de las reacciones que se aprobarán con el arrendamiento.
+     */
+    private String idCancion;
+
+    /**
+     * Tipo de reacción; junto con la canción y el usuario determina el precio.
+     */
+    private String tipoReaccion;
+
+    /**
+     * Reacciones que se quieren reservar. El servidor puede conceder menos.
+     */
+    private int unidades;
+}
@@ -0,0 +1,48 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPerfilado/EventoCambioPresencia.java
+
+package co.edu.unicauca.servidorReacciones.capaPerfilado;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: un usuario empezó ({@code PLAY}) o dejó ({@code PAUSE}) de escuchar una canción.
+ */
+@Name("co.edu.unicauca.reacciones.CambioPresencia")
+@Label("Cambio de presencia")
+@Category("Reacciones")
+@Description("Un usuario se unió o dejó el canal de una canción")
+@StackTrace(false)
+public class EventoCambioPresencia extends Event {
+
+    @Label("Nickname")
+    String nickname;
+
+    @Label("Canción")
+    String cancion;
+
+    @Label("Acción")
+    String accion;
+
+    @Label("Oyentes")
+    @Description("Usuarios escuchando la canción después del cambio")
+    int oyentes;
+
+    /**
+     * Emite el evento si la grabación en curso lo incluye; sin grabación no cuesta casi nada.
+     */
+    public static void registrar(String nickname, String cancion, String accion, int oyentes) {
+        EventoCambioPresencia evento = new EventoCambioPresencia();
+        if (evento.shouldCommit()) {
+            evento.nickname = nickname;
+            evento.cancion = cancion;
+            evento.accion = accion;
+            evento.oyentes = oyentes;
+            evento.commit();
+        }
+    }
+}
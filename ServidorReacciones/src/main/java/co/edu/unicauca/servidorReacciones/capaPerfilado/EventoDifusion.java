@@ -0,0 +1,44 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPerfilado/EventoDifusion.java
+
+package co.edu.unicauca.servidorReacciones.capaPerfilado;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: difusión de un evento al canal de una canción y a sus suscripciones multiplexadas.
+ */
+@Name("co.edu.unicauca.reacciones.Difusion")
+@Label("Difusión a canal")
+@Category("Reacciones")
+@Description("Publicación de un evento en el canal de una canción")
+@StackTrace(false)
+public class EventoDifusion extends Event {
+
+    @Label("Canción")
+    String cancion;
+
+    @Label("Oyentes")
+    @Description("Usuarios escuchando la canción al difundir")
+    int oyentes;
+
+    @Label("Sesiones multiplexadas")
+    int multiplexadas;
+
+    /**
+     * Cierra la difusión, iniciada con {@link #begin()}, y la emite si supera el umbral de la grabación.
+     */
+    public void terminar(String cancion, int oyentes, int multiplexadas) {
+        end();
+        if (shouldCommit()) {
+            this.cancion = cancion;
+            this.oyentes = oyentes;
+            this.multiplexadas = multiplexadas;
+            commit();
+        }
+    }
+}
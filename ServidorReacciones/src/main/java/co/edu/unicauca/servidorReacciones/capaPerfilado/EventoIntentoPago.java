@@ -0,0 +1,50 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPerfilado/EventoIntentoPago.java
+
+package co.edu.unicauca.servidorReacciones.capaPerfilado;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: un intento de pago de una reacción, con su número dentro de los reintentos y su resultado.
+ * Dura lo que tarda el intento completo (token, petición y validación).
+ */
+@Name("co.edu.unicauca.reacciones.IntentoPago")
+@Label("Intento de pago")
+@Category("Reacciones")
+@Description("Un intento de pago de una reacción contra el servidor de pagos")
+@StackTrace(false)
+public class EventoIntentoPago extends Event {
+
+    @Label("Nickname")
+    String nickname;
+
+    @Label("Canción")
+    String cancion;
+
+    @Label("Intento")
+    @Description("Número del intento, desde 1")
+    int intento;
+
+    @Label("Resultado")
+    @Description("Estado devuelto por el servidor de pagos, o la excepción que provoca el reintento")
+    String resultado;
+
+    /**
+     * Cierra el intento, iniciado con {@link #begin()}, y lo emite si supera el umbral de la grabación.
+     */
+    public void terminar(String nickname, String cancion, int intento, String resultado) {
+        end();
+        if (shouldCommit()) {
+            this.nickname = nickname;
+            this.cancion = cancion;
+            this.intento = intento;
+            this.resultado = resultado;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPerfilado/EventoReaccionRecibida.java
+
+package co.edu.unicauca.servidorReacciones.capaPerfilado;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR: llegó una reacción a {@code /app/reaccionar} y se intentó encolar en el buzón del usuario.
+ */
+@Name("co.edu.unicauca.reacciones.ReaccionRecibida")
+@Label("Reacción recibida")
+@Category("Reacciones")
+@Description("Una reacción llegó por STOMP y se encoló (o no) para su pago")
+@StackTrace(false)
+public class EventoReaccionRecibida extends Event {
+
+    @Label("Nickname")
+    String nickname;
+
+    @Label("Canción")
+    String cancion;
+
+    @Label("Tipo")
+    String tipo;
+
+    @Label("Encolada")
+    @Description("false si el buzón del usuario estaba lleno")
+    boolean encolada;
+
+    /**
+     * Emite el evento si la grabación en curso lo incluye; sin grabación no cuesta casi nada.
+     */
+    public static void registrar(String nickname, String cancion, String tipo, boolean encolada) {
+        EventoReaccionRecibida evento = new EventoReaccionRecibida();
+        if (evento.shouldCommit()) {
+            evento.nickname = nickname;
+            evento.cancion = cancion;
+            evento.tipo = tipo;
+            evento.encolada = encolada;
+            evento.commit();
+        }
+    }
+}
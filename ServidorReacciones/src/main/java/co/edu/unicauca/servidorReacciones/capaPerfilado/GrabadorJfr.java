@@ -0,0 +1,133 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPerfilado/GrabadorJfr.java
+
+package co.edu.unicauca.servidorReacciones.capaPerfilado;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grabaciones de JDK Flight Recorder bajo demanda, con duración acotada.
+ * <p>
+ * Sin grabación en curso, los eventos propios ({@link EventoReaccionRecibida}, {@link EventoIntentoPago},
+ * {@link EventoDifusion}, {@link EventoCambioPresencia}) quedan deshabilitados y su costo en las rutas
+ * calientes es prácticamente nulo. Una grabación usa la configuración de JFR indicada en
+ * {@code reacciones.perfilado.configuracion} ({@code default} o {@code profile}) más los eventos propios,
+ * y se detiene sola al cumplir su duración; sus datos se conservan hasta que se descargan.
+ * <p>
+ * Solo hay una grabación a la vez.
+ */
+@Component
+public class GrabadorJfr {
+
+    private static final List<Class<? extends Event>> EVENTOS_PROPIOS = List.of(
+            EventoReaccionRecibida.class, EventoIntentoPago.class, EventoDifusion.class, EventoCambioPresencia.class);
+
+    private final String configuracion;
+    private final Duration duracionPorDefecto;
+    private final Duration duracionMaxima;
+
+    /**
+     * Grabación actual o ya detenida sin descargar, o {@code null}. Protegida por el monitor de este objeto.
+     */
+    private Recording grabacion;
+    private Instant inicio;
+
+    @Autowired
+    public GrabadorJfr(@Value("${reacciones.perfilado.configuracion:profile}") String configuracion,
+                       @Value("${reacciones.perfilado.duracion-por-defecto-s:60}") long duracionPorDefectoS,
+                       @Value("${reacciones.perfilado.duracion-maxima-s:600}") long duracionMaximaS) {
+        this.configuracion = configuracion;
+        this.duracionPorDefecto = Duration.ofSeconds(duracionPorDefectoS);
+        this.duracionMaxima = Duration.ofSeconds(duracionMaximaS);
+    }
+
+    /**
+     * Inicia una grabación, descartando la anterior si ya terminó y no se descargó.
+     *
+     * @param segundos duración pedida, o {@code null} para la duración por defecto; se limita a la máxima
+     * @return {@code false} si ya hay una grabación en curso
+     */
+    public synchronized boolean iniciar(Integer segundos) throws IOException, ParseException {
+        if (grabacion != null && grabacion.getState() == RecordingState.RUNNING) {
+            return false;
+        }
+        cerrar();
+        Duration duracion = segundos == null ? duracionPorDefecto : Duration.ofSeconds(Math.max(1, segundos));
+        if (duracion.compareTo(duracionMaxima) > 0) {
+            duracion = duracionMaxima;
+        }
+        Recording nueva = new Recording(Configuration.getConfiguration(configuracion));
+        nueva.setName("reacciones-perfilado");
+        for (Class<? extends Event> evento : EVENTOS_PROPIOS) {
+            nueva.enable(evento);
+        }
+        nueva.setToDisk(true);
+        nueva.setDuration(duracion);
+        nueva.start();
+        grabacion = nueva;
+        inicio = Instant.now();
+        System.out.println("[REACCIONES] Grabación JFR iniciada (" + configuracion + ", " + duracion.toSeconds() + " s)");
+        return true;
+    }
+
+    /**
+     * Detiene la grabación si sigue en curso y la vuelca en un archivo temporal.
+     *
+     * @return el archivo {@code .jfr}, que el llamador debe borrar, o {@code null} si no había grabación
+     */
+    public synchronized Path detener() throws IOException {
+        if (grabacion == null) {
+            return null;
+        }
+        try {
+            if (grabacion.getState() == RecordingState.RUNNING) {
+                grabacion.stop();
+            }
+            Path archivo = Files.createTempFile("reacciones-", ".jfr");
+            grabacion.dump(archivo);
+            System.out.println("[REACCIONES] Grabación JFR detenida: " + Files.size(archivo) + " bytes");
+            return archivo;
+        } finally {
+            cerrar();
+        }
+    }
+
+    /**
+     * @return si hay grabación, su estado, inicio y duración
+     */
+    public synchronized Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("estado", grabacion == null ? "SIN_GRABACION" : grabacion.getState().name());
+        if (grabacion != null) {
+            estado.put("inicio", inicio.toString());
+            estado.put("duracionSegundos", grabacion.getDuration().toSeconds());
+            estado.put("configuracion", configuracion);
+        }
+        return estado;
+    }
+
+    @PreDestroy
+    synchronized void cerrar() {
+        if (grabacion != null) {
+            grabacion.close();
+            grabacion = null;
+            inicio = null;
+        }
+    }
+}
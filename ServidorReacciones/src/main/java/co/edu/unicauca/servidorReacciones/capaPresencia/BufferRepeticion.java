@@ -0,0 +1,77 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/BufferRepeticion.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Anillo de tamaño fijo con los eventos más recientes de una canción, sin bloqueos.
+ * <p>
+ * Cada evento ocupa la posición {@code secuencia & mascara}, así que escribir es un único
+ * {@link AtomicReferenceArray#set} y no hace falta un índice compartido: la secuencia ya la
+ * reparte el {@link CanalCancion}. Al leer, un evento solo se devuelve si su secuencia coincide
+ * con la buscada; si la posición ya fue sobrescrita por uno más nuevo, ese evento se perdió.
+ */
+public class BufferRepeticion {
+
+    private final AtomicReferenceArray<MensajeCancion> eventos;
+    private final int mascara;
+
+    /**
+     * Momento de la última escritura, usado para elegir qué buffer liberar al superar el límite global.
+     */
+    private volatile long ultimaEscrituraNanos = System.nanoTime();
+
+    /**
+     * @param capacidad número de eventos a conservar; debe ser potencia de dos
+     */
+    BufferRepeticion(int capacidad) {
+        if (Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser potencia de dos: " + capacidad);
+        }
+        this.eventos = new AtomicReferenceArray<>(capacidad);
+        this.mascara = capacidad - 1;
+    }
+
+    /**
+     * Guarda un evento que ya tiene asignada su secuencia.
+     *
+     * @param mensaje evento a guardar
+     */
+    void guardar(MensajeCancion mensaje) {
+        eventos.set((int) (mensaje.getSecuencia() & mascara), mensaje);
+        ultimaEscrituraNanos = System.nanoTime();
+    }
+
+    /**
+     * Copia los eventos guardados con secuencia entre {@code desde} y {@code hasta}, en orden.
+     * Las secuencias ya sobrescritas, o reservadas pero aún no escritas, se omiten.
+     *
+     * @param desde primera secuencia buscada
+     * @param hasta última secuencia buscada
+     * @return los eventos encontrados
+     */
+    List<MensajeCancion> copiar(long desde, long hasta) {
+        long inicio = Math.max(desde, hasta - eventos.length() + 1);
+        List<MensajeCancion> resultado = new ArrayList<>((int) Math.max(0, hasta - inicio + 1));
+        for (long secuencia = inicio; secuencia <= hasta; secuencia++) {
+            MensajeCancion evento = eventos.get((int) (secuencia & mascara));
+            if (evento != null && evento.getSecuencia() == secuencia) {
+                resultado.add(evento);
+            }
+        }
+        return resultado;
+    }
+
+    public int getCapacidad() {
+        return eventos.length();
+    }
+
+    long getUltimaEscrituraNanos() {
+        return ultimaEscrituraNanos;
+    }
+}
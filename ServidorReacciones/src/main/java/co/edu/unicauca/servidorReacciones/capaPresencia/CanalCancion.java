@@ -0,0 +1,239 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/CanalCancion.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado en memoria del canal de una canción, identificado por un entero compacto.
+ * <p>
+ * Cada canal se crea una sola vez en {@link RegistroIdentificadores} y se reutiliza en cada mensaje,
+ * de modo que el destino STOMP ({@code /broker/canciones/{idCancion}}) se construye una única vez
+ * y los oyentes se guardan como identificadores enteros de usuario en un {@link BitSet},
+ * sin crear objetos por cada evento de presencia.
+ * <p>
+ * El canal también reparte las secuencias de sus eventos y referencia su {@link BufferRepeticion},
+ * que administra {@link HistorialCanciones}, y guarda las sesiones multiplexadas que lo siguen
+ * (índice invertido de {@link SuscripcionesMultiplexadas}).
+ * <p>
+ * Cuando el canal queda sin oyentes, sin sesiones multiplexadas y sin actividad durante un tiempo,
+ * {@link RecolectorCanales} lo retira del registro; un canal retirado no vuelve a usarse.
+ */
+public class CanalCancion {
+
+    /**
+     * Prefijo de los destinos públicos de cada canción.
+     */
+    public static final String PREFIJO_DESTINO = "/broker/canciones/";
+
+    /**
+     * Identificador entero asignado por el registro.
+     */
+    private final int id;
+
+    /**
+     * Identificador original de la canción enviado por el cliente.
+     */
+    private final String idCancion;
+
+    /**
+     * Destino STOMP del canal, calculado una sola vez.
+     */
+    private final String destino;
+
+    /**
+     * Identificadores enteros de los usuarios que escuchan la canción.
+     * Protegido por el monitor de esta instancia.
+     */
+    private final BitSet oyentes = new BitSet();
+
+    /**
+     * Cantidad de bits activos en {@link #oyentes}, mantenida para no recorrer el conjunto.
+     */
+    private int cantidadOyentes;
+
+    /**
+     * Última secuencia asignada a un evento del canal. No se reinicia aunque se libere el buffer,
+     * para que los clientes puedan seguir comparando secuencias.
+     */
+    private final AtomicLong secuencia = new AtomicLong();
+
+    /**
+     * Eventos recientes del canal, o {@code null} si aún no tiene o fue liberado.
+     */
+    private volatile BufferRepeticion repeticion;
+
+    /**
+     * Sesiones multiplexadas cuyo filtro incluye esta canción. Se copia al modificarse (pocas veces)
+     * para que cada broadcast lo recorra sin bloqueo; las escrituras usan el monitor de la instancia.
+     */
+    private volatile SesionMultiplexada[] sesionesMultiplexadas = SesionMultiplexada.NINGUNA;
+
+    /**
+     * Instante ({@link System#nanoTime()}) de la última vez que se pidió el canal por su nombre.
+     * Protegido por el monitor de esta instancia, igual que {@link #retirado}.
+     */
+    private long ultimaActividadNanos;
+    private boolean retirado;
+
+    CanalCancion(int id, String idCancion) {
+        this.id = id;
+        this.idCancion = idCancion;
+        this.destino = PREFIJO_DESTINO + idCancion;
+        this.ultimaActividadNanos = System.nanoTime();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getIdCancion() {
+        return idCancion;
+    }
+
+    public String getDestino() {
+        return destino;
+    }
+
+    /**
+     * @return la siguiente secuencia de evento del canal
+     */
+    long siguienteSecuencia() {
+        return secuencia.incrementAndGet();
+    }
+
+    /**
+     * @return la última secuencia asignada, o 0 si el canal aún no tuvo eventos
+     */
+    public long getUltimaSecuencia() {
+        return secuencia.get();
+    }
+
+    BufferRepeticion getRepeticion() {
+        return repeticion;
+    }
+
+    void setRepeticion(BufferRepeticion repeticion) {
+        this.repeticion = repeticion;
+    }
+
+    /**
+     * @return las sesiones multiplexadas interesadas en el canal; el arreglo no debe modificarse
+     */
+    public SesionMultiplexada[] getSesionesMultiplexadas() {
+        return sesionesMultiplexadas;
+    }
+
+    synchronized void agregarSesionMultiplexada(SesionMultiplexada sesion) {
+        SesionMultiplexada[] actuales = sesionesMultiplexadas;
+        for (SesionMultiplexada actual : actuales) {
+            if (actual == sesion) {
+                return;
+            }
+        }
+        SesionMultiplexada[] nuevas = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevas[actuales.length] = sesion;
+        sesionesMultiplexadas = nuevas;
+    }
+
+    synchronized void quitarSesionMultiplexada(SesionMultiplexada sesion) {
+        SesionMultiplexada[] actuales = sesionesMultiplexadas;
+        for (int i = 0; i < actuales.length; i++) {
+            if (actuales[i] == sesion) {
+                if (actuales.length == 1) {
+                    sesionesMultiplexadas = SesionMultiplexada.NINGUNA;
+                    return;
+                }
+                SesionMultiplexada[] nuevas = new SesionMultiplexada[actuales.length - 1];
+                System.arraycopy(actuales, 0, nuevas, 0, i);
+                System.arraycopy(actuales, i + 1, nuevas, i, actuales.length - i - 1);
+                sesionesMultiplexadas = nuevas;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marca el canal como activo, para que el recolector no lo retire.
+     *
+     * @return {@code false} si el canal ya fue retirado y debe crearse otro
+     */
+    synchronized boolean tocar() {
+        if (retirado) {
+            return false;
+        }
+        ultimaActividadNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Retira el canal si no tiene oyentes ni sesiones multiplexadas y no tuvo actividad desde
+     * {@code limiteNanos}.
+     *
+     * @param limiteNanos instante ({@link System#nanoTime()}) desde el que no debe haber actividad
+     * @return {@code true} si el canal quedó retirado
+     */
+    synchronized boolean retirarSiInactivo(long limiteNanos) {
+        if (!retirado && cantidadOyentes == 0 && sesionesMultiplexadas.length == 0
+                && ultimaActividadNanos - limiteNanos <= 0) {
+            retirado = true;
+        }
+        return retirado;
+    }
+
+    /**
+     * @return {@code true} si el canal fue retirado del registro
+     */
+    public synchronized boolean isRetirado() {
+        return retirado;
+    }
+
+    /**
+     * Registra a un usuario como oyente del canal.
+     *
+     * @param idUsuario identificador entero del usuario
+     * @return {@code true} si el usuario no estaba registrado
+     */
+    public synchronized boolean agregarOyente(int idUsuario) {
+        if (oyentes.get(idUsuario)) {
+            return false;
+        }
+        oyentes.set(idUsuario);
+        cantidadOyentes++;
+        return true;
+    }
+
+    /**
+     * Elimina a un usuario de los oyentes del canal.
+     *
+     * @param idUsuario identificador entero del usuario
+     * @return {@code true} si el usuario estaba registrado
+     */
+    public synchronized boolean quitarOyente(int idUsuario) {
+        if (!oyentes.get(idUsuario)) {
+            return false;
+        }
+        oyentes.clear(idUsuario);
+        cantidadOyentes--;
+        return true;
+    }
+
+    /**
+     * @return número actual de oyentes, en O(1)
+     */
+    public synchronized int getCantidadOyentes() {
+        return cantidadOyentes;
+    }
+
+    /**
+     * Copia los identificadores de los oyentes actuales. Pensado para consultas
+     * puntuales (logs, estadísticas), no para el camino de cada mensaje.
+     *
+     * @return arreglo con los identificadores enteros de los oyentes
+     */
+    public synchronized int[] copiarOyentes() {
+        return oyentes.stream().toArray();
+    }
+}
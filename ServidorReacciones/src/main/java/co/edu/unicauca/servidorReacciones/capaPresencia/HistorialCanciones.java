@@ -0,0 +1,133 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/HistorialCanciones.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Historial reciente de eventos de cada canción, para que los oyentes que llegan tarde o se
+ * reconectan recuperen lo que se perdieron sin pedir el estado completo.
+ * <p>
+ * Cada evento difundido recibe una secuencia creciente de su {@link CanalCancion} y se guarda en el
+ * {@link BufferRepeticion} del canal. La memoria está acotada en dos niveles:
+ * <ul>
+ *   <li>Por canal: cada buffer guarda como máximo {@code capacidad-por-cancion} eventos.</li>
+ *   <li>En total: solo existen buffers para {@code eventos-totales / capacidad-por-cancion}
+ *       canciones; al superarse, se libera el buffer de la canción con actividad más antigua.</li>
+ * </ul>
+ * Los buffers se crean al publicar el primer evento de una canción, no al registrar el canal.
+ */
+@Component
+public class HistorialCanciones {
+
+    private final int capacidadPorCancion;
+    private final int maximoBuffers;
+
+    /**
+     * Canales que tienen buffer asignado. Protegido por {@code this}; solo se usa al crear o liberar buffers.
+     */
+    private final List<CanalCancion> canalesConBuffer = new ArrayList<>();
+
+    public HistorialCanciones(@Value("${reacciones.repeticion.capacidad-por-cancion:64}") int capacidadPorCancion,
+                              @Value("${reacciones.repeticion.eventos-totales:65536}") int eventosTotales) {
+        this.capacidadPorCancion = Integer.highestOneBit(Math.max(1, capacidadPorCancion - 1)) << 1;
+        this.maximoBuffers = Math.max(1, eventosTotales / this.capacidadPorCancion);
+    }
+
+    /**
+     * Asigna al evento la siguiente secuencia del canal y lo guarda en su historial.
+     *
+     * @param canal   canal de la canción
+     * @param mensaje evento a difundir; se modifica su secuencia
+     */
+    public void publicar(CanalCancion canal, MensajeCancion mensaje) {
+        mensaje.setSecuencia(canal.siguienteSecuencia());
+        BufferRepeticion buffer = canal.getRepeticion();
+        if (buffer == null) {
+            buffer = asignarBuffer(canal);
+        }
+        buffer.guardar(mensaje);
+    }
+
+    /**
+     * Devuelve los eventos guardados a partir de una secuencia.
+     *
+     * @param canal  canal de la canción
+     * @param desde  primera secuencia que se quiere recibir
+     * @param maximo número máximo de eventos (se devuelven los más recientes)
+     * @return los eventos disponibles, en orden de secuencia
+     */
+    public List<MensajeCancion> desde(CanalCancion canal, long desde, int maximo) {
+        BufferRepeticion buffer = canal.getRepeticion();
+        if (buffer == null || maximo <= 0) {
+            return Collections.emptyList();
+        }
+        long ultima = canal.getUltimaSecuencia();
+        return buffer.copiar(Math.max(desde, ultima - maximo + 1), ultima);
+    }
+
+    /**
+     * Devuelve los últimos eventos guardados.
+     *
+     * @param canal    canal de la canción
+     * @param cantidad número de eventos
+     * @return los eventos disponibles, en orden de secuencia
+     */
+    public List<MensajeCancion> ultimos(CanalCancion canal, int cantidad) {
+        return desde(canal, 1, cantidad);
+    }
+
+    public int getCapacidadPorCancion() {
+        return capacidadPorCancion;
+    }
+
+    /**
+     * @return número de canciones con buffer asignado
+     */
+    public synchronized int getCantidadBuffers() {
+        return canalesConBuffer.size();
+    }
+
+    /**
+     * Libera el buffer de un canal retirado del registro.
+     *
+     * @param canal canal de la canción
+     */
+    public synchronized void liberar(CanalCancion canal) {
+        if (canalesConBuffer.remove(canal)) {
+            canal.setRepeticion(null);
+        }
+    }
+
+    /**
+     * Crea el buffer de un canal, liberando antes el de la canción menos activa si se alcanzó
+     * el límite global.
+     */
+    private synchronized BufferRepeticion asignarBuffer(CanalCancion canal) {
+        BufferRepeticion existente = canal.getRepeticion();
+        if (existente != null) {
+            return existente;
+        }
+        if (canalesConBuffer.size() >= maximoBuffers) {
+            int menosActivo = 0;
+            for (int i = 1; i < canalesConBuffer.size(); i++) {
+                if (canalesConBuffer.get(i).getRepeticion().getUltimaEscrituraNanos()
+                        - canalesConBuffer.get(menosActivo).getRepeticion().getUltimaEscrituraNanos() < 0) {
+                    menosActivo = i;
+                }
+            }
+            CanalCancion liberado = canalesConBuffer.remove(menosActivo);
+            liberado.setRepeticion(null);
+        }
+        BufferRepeticion buffer = new BufferRepeticion(capacidadPorCancion);
+        canal.setRepeticion(buffer);
+        canalesConBuffer.add(canal);
+        return buffer;
+    }
+}
@@ -0,0 +1,102 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/RecolectorCanales.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Retira del {@link RegistroIdentificadores} los canales de canciones que ya nadie usa, para que
+ * los identificadores inventados por los clientes no acumulen canales y buffers de repetición.
+ * <p>
+ * Un canal se retira cuando lleva {@code reacciones.canales.inactividad-ms} sin que se pida por su
+ * nombre, no tiene oyentes ni sesiones multiplexadas y ninguna sesión STOMP está suscrita a su
+ * destino. Esto último evita retirar el canal de quien solo observa la canción: al recrearlo sus
+ * secuencias volverían a empezar y el cliente descartaría eventos nuevos como repetidos.
+ */
+@Component
+public class RecolectorCanales {
+
+    private final RegistroIdentificadores registroIdentificadores;
+    private final HistorialCanciones historialCanciones;
+    private final Supplier<Set<String>> destinosSuscritos;
+    private final long inactividadNanos;
+
+    @Autowired
+    public RecolectorCanales(RegistroIdentificadores registroIdentificadores,
+                             HistorialCanciones historialCanciones,
+                             SimpUserRegistry usuariosStomp,
+                             @Value("${reacciones.canales.inactividad-ms:600000}") long inactividadMs) {
+        this(registroIdentificadores, historialCanciones, () -> destinosSuscritos(usuariosStomp), inactividadMs);
+    }
+
+    /**
+     * @param destinosSuscritos destinos de canción con al menos una suscripción STOMP (las pruebas lo sustituyen)
+     */
+    RecolectorCanales(RegistroIdentificadores registroIdentificadores,
+                      HistorialCanciones historialCanciones,
+                      Supplier<Set<String>> destinosSuscritos,
+                      long inactividadMs) {
+        this.registroIdentificadores = registroIdentificadores;
+        this.historialCanciones = historialCanciones;
+        this.destinosSuscritos = destinosSuscritos;
+        this.inactividadNanos = inactividadMs * 1_000_000L;
+    }
+
+    /**
+     * Recorre los canales y retira los inactivos, liberando su buffer de repetición.
+     *
+     * @return cantidad de canales retirados
+     */
+    @Scheduled(fixedDelayString = "${reacciones.canales.periodo-recoleccion-ms:60000}")
+    public int recolectar() {
+        long limite = System.nanoTime() - inactividadNanos;
+        Set<String> suscritos = null;
+        int retirados = 0;
+        for (CanalCancion canal : registroIdentificadores.canales()) {
+            if (canal.getCantidadOyentes() > 0 || canal.getSesionesMultiplexadas().length > 0) {
+                continue;
+            }
+            if (suscritos == null) {
+                suscritos = destinosSuscritos.get();
+            }
+            if (!suscritos.contains(canal.getDestino()) && registroIdentificadores.retirarCanal(canal, limite)) {
+                historialCanciones.liberar(canal);
+                retirados++;
+            }
+        }
+        if (retirados > 0) {
+            System.out.println("[REACCIONES] Canales inactivos retirados: " + retirados
+                    + " (quedan " + registroIdentificadores.cantidadCanales() + ")");
+        }
+        return retirados;
+    }
+
+    /**
+     * Reúne en una sola pasada los destinos de canción a los que hay alguna sesión suscrita.
+     */
+    private static Set<String> destinosSuscritos(SimpUserRegistry usuariosStomp) {
+        Set<String> destinos = new HashSet<>();
+        for (SimpUser usuario : usuariosStomp.getUsers()) {
+            for (SimpSession sesion : usuario.getSessions()) {
+                for (SimpSubscription suscripcion : sesion.getSubscriptions()) {
+                    String destino = suscripcion.getDestination();
+                    if (destino != null && destino.startsWith(CanalCancion.PREFIJO_DESTINO)) {
+                        destinos.add(destino);
+                    }
+                }
+            }
+        }
+        return destinos;
+    }
+}
@@ -0,0 +1,296 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/RegistroIdentificadores.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro que asigna identificadores enteros compactos a las canciones y a los usuarios.
+ * <p>
+ * Los identificadores de canción y los nicknames llegan como cadenas libres en cada mensaje.
+ * Este registro los resuelve una sola vez: las canciones a un {@link CanalCancion} (con su destino
+ * STOMP precalculado) y los usuarios a un entero que se asigna durante el handshake y viaja en el
+ * {@link co.edu.unicauca.servidorReacciones.capaControladores.StompPrincipal}.
+ * <p>
+ * Los identificadores son densos (0, 1, 2, ...), lo que permite guardarlos en arreglos y en
+ * {@link java.util.BitSet} en lugar de mapas de cadenas. Para que el registro no crezca con cada
+ * nickname o canción que un cliente invente, los identificadores se liberan y se reutilizan, los
+ * más antiguos primero:
+ * <ul>
+ *   <li>Un usuario se libera cuando se cierra su última sesión ({@link #liberarUsuario}); antes se
+ *       le quita de los canales que escuchaba, para que su identificador no aparezca como oyente
+ *       de otro usuario que lo reciba después.</li>
+ *   <li>Un canal se retira cuando lleva un tiempo sin actividad, sin oyentes ni sesiones
+ *       multiplexadas ({@link #retirarCanal}, que invoca {@link RecolectorCanales}). Si la canción
+ *       vuelve a tener actividad se crea un canal nuevo, cuyas secuencias empiezan otra vez en 1.</li>
+ * </ul>
+ * Las consultas que no deben crear nada, como las repeticiones, usan {@link #buscarCanal}.
+ */
+@Component
+public class RegistroIdentificadores {
+
+    /**
+     * Usuario con identificador asignado y los canales que escucha.
+     */
+    private static final class Usuario {
+        private final int id;
+        private final String nickname;
+
+        /**
+         * Sesiones abiertas con este nickname. Protegido por el registro.
+         */
+        private int sesiones;
+
+        /**
+         * Canales en que figura como oyente; protegido por el monitor de la instancia, igual que
+         * {@link #liberado}.
+         */
+        private final Set<CanalCancion> canales = new HashSet<>();
+        private boolean liberado;
+
+        private Usuario(int id, String nickname) {
+            this.id = id;
+            this.nickname = nickname;
+        }
+    }
+
+    private final Map<String, CanalCancion> canalesPorNombre = new ConcurrentHashMap<>();
+    private final Map<String, Usuario> usuariosPorNombre = new ConcurrentHashMap<>();
+
+    /**
+     * Canales indexados por su identificador entero. Se reemplaza (copia) solo al crecer.
+     */
+    private volatile CanalCancion[] canalesPorId = new CanalCancion[16];
+
+    /**
+     * Usuarios indexados por su identificador entero. Se reemplaza (copia) solo al crecer.
+     */
+    private volatile Usuario[] usuariosPorId = new Usuario[64];
+
+    /**
+     * Identificadores liberados, en el orden en que se liberaron. Protegidos por el registro.
+     */
+    private final ArrayDeque<Integer> idsCanalLibres = new ArrayDeque<>();
+    private final ArrayDeque<Integer> idsUsuarioLibres = new ArrayDeque<>();
+
+    private int siguienteIdCanal;
+    private int siguienteIdUsuario;
+
+    /**
+     * Obtiene (o crea si no existe) el canal de una canción y lo marca como activo.
+     *
+     * @param idCancion identificador de la canción enviado por el cliente
+     * @return el canal asociado, la misma instancia para el mismo identificador mientras no se retire
+     */
+    public CanalCancion canal(String idCancion) {
+        CanalCancion canal = canalesPorNombre.get(idCancion);
+        return canal != null && canal.tocar() ? canal : registrarCanal(idCancion);
+    }
+
+    /**
+     * Obtiene el canal de una canción sin crearlo.
+     *
+     * @param idCancion identificador de la canción
+     * @return el canal, o {@code null} si la canción no tiene actividad reciente
+     */
+    public CanalCancion buscarCanal(String idCancion) {
+        return canalesPorNombre.get(idCancion);
+    }
+
+    /**
+     * Obtiene un canal por su identificador entero.
+     *
+     * @param id identificador entero del canal
+     * @return el canal, o {@code null} si no existe
+     */
+    public CanalCancion canal(int id) {
+        CanalCancion[] canales = canalesPorId;
+        return id >= 0 && id < canales.length ? canales[id] : null;
+    }
+
+    /**
+     * @return vista de los canales registrados, para recorrerlos sin bloquear el registro
+     */
+    public Collection<CanalCancion> canales() {
+        return Collections.unmodifiableCollection(canalesPorNombre.values());
+    }
+
+    /**
+     * Retira un canal si sigue sin oyentes ni sesiones multiplexadas y sin actividad desde
+     * {@code inactivoDesdeNanos}, y libera su identificador.
+     *
+     * @param canal              canal a retirar
+     * @param inactivoDesdeNanos instante ({@link System#nanoTime()}) desde el que no debe haber actividad
+     * @return {@code true} si se retiró
+     */
+    public synchronized boolean retirarCanal(CanalCancion canal, long inactivoDesdeNanos) {
+        if (canalesPorNombre.get(canal.getIdCancion()) != canal || !canal.retirarSiInactivo(inactivoDesdeNanos)) {
+            return false;
+        }
+        canalesPorNombre.remove(canal.getIdCancion());
+        canalesPorId[canal.getId()] = null;
+        idsCanalLibres.add(canal.getId());
+        return true;
+    }
+
+    /**
+     * Asigna (o reutiliza, si el nickname ya tiene sesiones) el identificador de un usuario y cuenta
+     * una sesión más. Cada llamada debe corresponderse con un {@link #liberarUsuario}.
+     *
+     * @param nickname nickname del usuario
+     * @return identificador entero del usuario
+     */
+    public synchronized int adquirirUsuario(String nickname) {
+        Usuario usuario = usuariosPorNombre.get(nickname);
+        if (usuario == null) {
+            Integer libre = idsUsuarioLibres.poll();
+            int id = libre != null ? libre : siguienteIdUsuario++;
+            Usuario[] usuarios = usuariosPorId;
+            if (id >= usuarios.length) {
+                usuarios = Arrays.copyOf(usuarios, usuarios.length * 2);
+            }
+            usuario = new Usuario(id, nickname);
+            usuarios[id] = usuario;
+            usuariosPorId = usuarios;
+            usuariosPorNombre.put(nickname, usuario);
+        }
+        usuario.sesiones++;
+        return usuario.id;
+    }
+
+    /**
+     * Descuenta una sesión del usuario. Con la última lo quita de los canales que escuchaba y
+     * libera su identificador.
+     *
+     * @param id       identificador devuelto por {@link #adquirirUsuario}
+     * @param nickname nickname con que se adquirió
+     * @return {@code true} si el identificador quedó libre
+     */
+    public synchronized boolean liberarUsuario(int id, String nickname) {
+        Usuario usuario = usuario(id);
+        if (usuario == null || !usuario.nickname.equals(nickname) || --usuario.sesiones > 0) {
+            return false;
+        }
+        synchronized (usuario) {
+            usuario.liberado = true;
+            for (CanalCancion canal : usuario.canales) {
+                canal.quitarOyente(id);
+            }
+            usuario.canales.clear();
+        }
+        usuariosPorNombre.remove(nickname);
+        usuariosPorId[id] = null;
+        idsUsuarioLibres.add(id);
+        return true;
+    }
+
+    /**
+     * Busca el identificador de un usuario conectado, sin asignarlo.
+     *
+     * @param nickname nickname del usuario
+     * @return identificador entero del usuario, o -1 si no tiene sesiones abiertas
+     */
+    public int buscarIdUsuario(String nickname) {
+        Usuario usuario = usuariosPorNombre.get(nickname);
+        return usuario != null ? usuario.id : -1;
+    }
+
+    /**
+     * Traduce un identificador entero de usuario a su nickname.
+     *
+     * @param id identificador entero del usuario
+     * @return el nickname, o {@code null} si el identificador no está asignado
+     */
+    public String nickname(int id) {
+        Usuario usuario = usuario(id);
+        return usuario != null ? usuario.nickname : null;
+    }
+
+    /**
+     * Registra a un usuario conectado como oyente de un canal.
+     *
+     * @param canal     canal de la canción
+     * @param idUsuario identificador entero del usuario
+     * @return {@code true} si el usuario no estaba registrado; {@code false} también si ya se liberó
+     */
+    public boolean agregarOyente(CanalCancion canal, int idUsuario) {
+        Usuario usuario = usuario(idUsuario);
+        if (usuario == null) {
+            return false;
+        }
+        synchronized (usuario) {
+            if (usuario.liberado) {
+                return false;
+            }
+            usuario.canales.add(canal);
+            return canal.agregarOyente(idUsuario);
+        }
+    }
+
+    /**
+     * Elimina a un usuario conectado de los oyentes de un canal.
+     *
+     * @param canal     canal de la canción
+     * @param idUsuario identificador entero del usuario
+     * @return {@code true} si el usuario estaba registrado
+     */
+    public boolean quitarOyente(CanalCancion canal, int idUsuario) {
+        Usuario usuario = usuario(idUsuario);
+        if (usuario == null) {
+            return false;
+        }
+        synchronized (usuario) {
+            if (usuario.liberado) {
+                return false;
+            }
+            usuario.canales.remove(canal);
+            return canal.quitarOyente(idUsuario);
+        }
+    }
+
+    /**
+     * @return cantidad de canales registrados
+     */
+    public int cantidadCanales() {
+        return canalesPorNombre.size();
+    }
+
+    /**
+     * @return cantidad de usuarios con sesiones abiertas
+     */
+    public int cantidadUsuarios() {
+        return usuariosPorNombre.size();
+    }
+
+    private Usuario usuario(int id) {
+        Usuario[] usuarios = usuariosPorId;
+        return id >= 0 && id < usuarios.length ? usuarios[id] : null;
+    }
+
+    private synchronized CanalCancion registrarCanal(String idCancion) {
+        CanalCancion existente = canalesPorNombre.get(idCancion);
+        if (existente != null && existente.tocar()) {
+            return existente;
+        }
+        Integer libre = idsCanalLibres.poll();
+        int id = libre != null ? libre : siguienteIdCanal++;
+        CanalCancion canal = new CanalCancion(id, idCancion);
+        CanalCancion[] canales = canalesPorId;
+        if (id >= canales.length) {
+            canales = Arrays.copyOf(canales, canales.length * 2);
+        }
+        canales[id] = canal;
+        canalesPorId = canales;
+        canalesPorNombre.put(idCancion, canal);
+        return canal;
+    }
+}
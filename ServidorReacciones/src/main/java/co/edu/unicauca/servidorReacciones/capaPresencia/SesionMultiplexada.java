@@ -0,0 +1,65 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/SesionMultiplexada.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sesión STOMP que recibe los eventos de varias canciones por una única suscripción
+ * ({@link SuscripcionesMultiplexadas#DESTINO}).
+ * <p>
+ * Guarda el identificador de la suscripción, necesario para entregarle las tramas directamente,
+ * y su filtro de canciones. El filtro es la fuente de verdad; el índice invertido en cada
+ * {@link CanalCancion} se mantiene a partir de él.
+ */
+public class SesionMultiplexada {
+
+    static final SesionMultiplexada[] NINGUNA = new SesionMultiplexada[0];
+
+    private final String idSesion;
+
+    /**
+     * Suscripción por la que se entregan los eventos, o {@code null} si la sesión definió su filtro
+     * pero aún no se suscribió.
+     */
+    private volatile String idSuscripcion;
+
+    /**
+     * Canciones que sigue la sesión. Protegido por el monitor de esta instancia.
+     */
+    final Set<CanalCancion> canales = new HashSet<>();
+
+    /**
+     * Se activa al eliminar la sesión, para que un cambio de filtro concurrente no la vuelva a
+     * indexar. Protegido por el monitor de esta instancia.
+     */
+    boolean cerrada;
+
+    SesionMultiplexada(String idSesion) {
+        this.idSesion = idSesion;
+    }
+
+    public String getIdSesion() {
+        return idSesion;
+    }
+
+    public String getIdSuscripcion() {
+        return idSuscripcion;
+    }
+
+    void setIdSuscripcion(String idSuscripcion) {
+        this.idSuscripcion = idSuscripcion;
+    }
+
+    /**
+     * @return identificadores de las canciones que sigue la sesión
+     */
+    public synchronized Set<String> copiarFiltro() {
+        Set<String> filtro = new HashSet<>();
+        for (CanalCancion canal : canales) {
+            filtro.add(canal.getIdCancion());
+        }
+        return filtro;
+    }
+}
@@ -0,0 +1,153 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaPresencia/SuscripcionesMultiplexadas.java
+
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suscripciones multiplexadas: una sola suscripción STOMP por sesión que recibe los eventos de todas
+ * las canciones de su filtro.
+ * <p>
+ * Un cliente que sigue muchas canciones (un panel o una vista de moderación) necesitaría una
+ * suscripción a {@code /broker/canciones/{id}} por canción, y el broker simple compara el destino de
+ * cada envío con todas ellas. En su lugar, el cliente se suscribe una vez a {@link #DESTINO} y ajusta
+ * su filtro con {@code /app/canciones/filtro}.
+ * <p>
+ * El enrutamiento usa un índice invertido: cada {@link CanalCancion} guarda las sesiones interesadas,
+ * así que entregar un evento cuesta lo mismo que el número de sesiones que lo siguen, sin importar
+ * cuántas suscripciones existan en total.
+ */
+@Component
+public class SuscripcionesMultiplexadas {
+
+    /**
+     * Destino al que se suscriben los clientes multiplexados.
+     */
+    public static final String DESTINO = "/user/queue/canciones";
+
+    /**
+     * Cambios posibles del filtro de una sesión.
+     */
+    public enum Operacion {
+        AGREGAR, QUITAR, REEMPLAZAR
+    }
+
+    private final Map<String, SesionMultiplexada> sesiones = new ConcurrentHashMap<>();
+    private final RegistroIdentificadores registroIdentificadores;
+    private final int maximoCancionesPorSesion;
+
+    public SuscripcionesMultiplexadas(RegistroIdentificadores registroIdentificadores,
+                                      @Value("${reacciones.multiplexado.maximo-canciones-por-sesion:500}") int maximoCancionesPorSesion) {
+        this.registroIdentificadores = registroIdentificadores;
+        this.maximoCancionesPorSesion = maximoCancionesPorSesion;
+    }
+
+    /**
+     * Asocia a la sesión la suscripción por la que recibirá los eventos de su filtro.
+     *
+     * @param idSesion      sesión STOMP
+     * @param idSuscripcion suscripción a {@link #DESTINO}
+     */
+    public void registrarSuscripcion(String idSesion, String idSuscripcion) {
+        sesiones.computeIfAbsent(idSesion, SesionMultiplexada::new).setIdSuscripcion(idSuscripcion);
+    }
+
+    /**
+     * Modifica el filtro de canciones de una sesión. Las canciones que superen el máximo por sesión
+     * se ignoran.
+     *
+     * @param idSesion   sesión STOMP
+     * @param operacion  cambio a aplicar
+     * @param canciones  identificadores de las canciones
+     * @return las canciones que sigue la sesión después del cambio
+     */
+    public Set<String> actualizarFiltro(String idSesion, Operacion operacion, List<String> canciones) {
+        List<CanalCancion> canales = new ArrayList<>(canciones.size());
+        for (String idCancion : canciones) {
+            if (idCancion != null && !idCancion.isBlank()) {
+                canales.add(registroIdentificadores.canal(idCancion));
+            }
+        }
+        SesionMultiplexada sesion = sesiones.computeIfAbsent(idSesion, SesionMultiplexada::new);
+        synchronized (sesion) {
+            if (sesion.cerrada) {
+                return Set.of();
+            }
+            if (operacion == Operacion.REEMPLAZAR) {
+                Set<CanalCancion> nuevos = new HashSet<>(canales);
+                for (CanalCancion canal : new ArrayList<>(sesion.canales)) {
+                    if (!nuevos.contains(canal)) {
+                        sesion.canales.remove(canal);
+                        canal.quitarSesionMultiplexada(sesion);
+                    }
+                }
+            }
+            if (operacion == Operacion.QUITAR) {
+                for (CanalCancion canal : canales) {
+                    if (sesion.canales.remove(canal)) {
+                        canal.quitarSesionMultiplexada(sesion);
+                    }
+                }
+            } else {
+                for (CanalCancion canal : canales) {
+                    if (sesion.canales.size() >= maximoCancionesPorSesion && !sesion.canales.contains(canal)) {
+                        System.err.println("[REACCIONES] La sesión " + idSesion + " alcanzó el máximo de "
+                                + maximoCancionesPorSesion + " canciones multiplexadas");
+                        break;
+                    }
+                    if (sesion.canales.add(canal)) {
+                        canal.agregarSesionMultiplexada(sesion);
+                    }
+                }
+            }
+            return sesion.copiarFiltro();
+        }
+    }
+
+    /**
+     * Elimina la sesión y la quita del índice de todas sus canciones.
+     *
+     * @param idSesion sesión STOMP que se desconectó o canceló su suscripción
+     */
+    public void eliminarSesion(String idSesion) {
+        SesionMultiplexada sesion = sesiones.remove(idSesion);
+        if (sesion == null) {
+            return;
+        }
+        synchronized (sesion) {
+            sesion.cerrada = true;
+            for (CanalCancion canal : sesion.canales) {
+                canal.quitarSesionMultiplexada(sesion);
+            }
+            sesion.canales.clear();
+        }
+    }
+
+    /**
+     * Elimina la sesión solo si la suscripción cancelada es la multiplexada.
+     *
+     * @param idSesion      sesión STOMP
+     * @param idSuscripcion suscripción cancelada
+     */
+    public void cancelarSuscripcion(String idSesion, String idSuscripcion) {
+        SesionMultiplexada sesion = sesiones.get(idSesion);
+        if (sesion != null && idSuscripcion != null && idSuscripcion.equals(sesion.getIdSuscripcion())) {
+            eliminarSesion(idSesion);
+        }
+    }
+
+    /**
+     * @return número de sesiones con filtro o suscripción multiplexada
+     */
+    public int getCantidadSesiones() {
+        return sesiones.size();
+    }
+}
@@ -0,0 +1,51 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaTrazas/InterceptorTrazas.java
+
+package co.edu.unicauca.servidorReacciones.capaTrazas;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+
+/**
+ * Marca las tramas {@code SEND /app/reaccionar} al entrar al canal de entrada de STOMP, todavía en
+ * el hilo del WebSocket y antes de la cola del ejecutor de entrada. El controlador usa la marca
+ * para abrir la traza desde la llegada y medir la espera en esa cola.
+ * <p>
+ * Si el cliente envió una cabecera STOMP {@code traceparent}, la traza continúa la suya.
+ */
+public class InterceptorTrazas implements ChannelInterceptor {
+
+    /**
+     * Cabecera con el instante de llegada según {@link System#nanoTime()}.
+     */
+    public static final String LLEGADA = "reacciones.trazas.llegada";
+
+    /**
+     * Cabecera con el {@link ContextoTraza} enviado por el cliente, si lo hay.
+     */
+    public static final String CONTEXTO = "reacciones.trazas.contexto";
+
+    private static final String DESTINO_REACCIONES = "/app/reaccionar";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor cabeceras = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (cabeceras == null || cabeceras.getCommand() != StompCommand.SEND
+                || !DESTINO_REACCIONES.equals(cabeceras.getDestination())) {
+            return message;
+        }
+        long llegada = System.nanoTime();
+        // Si las cabeceras siguen siendo mutables se marcan en el sitio; si no, se copian.
+        StompHeaderAccessor marcado = cabeceras.isMutable() ? cabeceras : StompHeaderAccessor.wrap(message);
+        marcado.setHeader(LLEGADA, llegada);
+        ContextoTraza remoto = ContextoTraza.desdeTraceparent(cabeceras.getFirstNativeHeader(ContextoTraza.CABECERA));
+        if (remoto != null) {
+            marcado.setHeader(CONTEXTO, remoto);
+        }
+        return marcado == cabeceras ? message : MessageBuilder.createMessage(message.getPayload(), marcado.getMessageHeaders());
+    }
+}
@@ -0,0 +1,302 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaTrazas/Trazador.java
+
+package co.edu.unicauca.servidorReacciones.capaTrazas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trazas distribuidas ligeras de las reacciones: desde que llega la trama {@code /app/reaccionar}
+ * hasta la difusión, pasando por el buzón del usuario, cada intento de pago y sus esperas, el token
+ * y el registro del pago en el servidor de pagos, que continúa la traza con la cabecera
+ * {@code traceparent}.
+ * <p>
+ * <b>Muestreo en la cabeza</b>: la raíz decide con probabilidad {@code reacciones.trazas.muestreo}
+ * (o hereda la decisión del {@code traceparent} recibido) y todos los tramos la respetan. Una traza
+ * no muestreada solo cuesta generar su contexto; sus etapas internas usan {@link Tramo#NINGUNO}.
+ * <p>
+ * <b>Exportación asíncrona</b>: los tramos terminados se encolan sin bloquear (si la cola está llena
+ * se descartan y se cuentan) y un hilo los escribe en lotes según {@code reacciones.trazas.exportador}:
+ * {@code archivo} agrega una línea JSON por tramo a {@code reacciones.trazas.archivo}; {@code memoria}
+ * solo los conserva. En ambos casos los últimos tramos quedan en un colector en memoria que se consulta
+ * en {@code /actuator/trazas}.
+ * <p>
+ * El contexto actual de cada hilo vive en un {@link ThreadLocal}; al saltar de hilo se propaga con
+ * {@link #envolver} o con {@link #activar}/{@link #restaurar}.
+ */
+@Component
+public class Trazador {
+
+    private static final ThreadLocal<ContextoTraza> ACTUAL = new ThreadLocal<>();
+
+    private final String servicio;
+    private final double muestreo;
+    private final boolean escribirArchivo;
+    private final Path archivo;
+    private final BlockingQueue<Tramo> cola;
+    private final int capacidadColector;
+
+    /**
+     * Últimos tramos exportados, del más antiguo al más reciente. Protegido por su monitor.
+     */
+    private final ArrayDeque<Tramo> colector;
+
+    private final AtomicLong exportados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * Relación entre {@link System#nanoTime()} y el reloj de pared, para fechar los tramos sin
+     * consultar el reloj en cada uno.
+     */
+    private final long baseNanos = System.nanoTime();
+    private final long baseEpochMicros = System.currentTimeMillis() * 1_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Thread exportador;
+    private volatile boolean detenido;
+
+    @Autowired
+    public Trazador(@Value("${reacciones.trazas.muestreo:0.1}") double muestreo,
+                    @Value("${reacciones.trazas.exportador:memoria}") String exportador,
+                    @Value("${reacciones.trazas.archivo:trazas-reacciones.jsonl}") String archivo,
+                    @Value("${reacciones.trazas.capacidad-cola:8192}") int capacidadCola,
+                    @Value("${reacciones.trazas.colector:2048}") int capacidadColector) {
+        this("reacciones", muestreo, "archivo".equalsIgnoreCase(exportador), Path.of(archivo),
+                capacidadCola, capacidadColector);
+    }
+
+    Trazador(String servicio, double muestreo, boolean escribirArchivo, Path archivo, int capacidadCola,
+             int capacidadColector) {
+        this.servicio = servicio;
+        this.muestreo = muestreo;
+        this.escribirArchivo = escribirArchivo;
+        this.archivo = archivo;
+        this.cola = new ArrayBlockingQueue<>(capacidadCola);
+        this.capacidadColector = capacidadColector;
+        this.colector = new ArrayDeque<>(capacidadColector);
+    }
+
+    /**
+     * Arranca el hilo exportador.
+     */
+    @PostConstruct
+    void iniciarExportador() {
+        exportador = new Thread(this::exportarEnLotes, "trazas-exportador");
+        exportador.setDaemon(true);
+        exportador.start();
+    }
+
+    /**
+     * Detiene el exportador después de escribir los tramos pendientes.
+     */
+    @PreDestroy
+    void detenerExportador() throws InterruptedException {
+        detenido = true;
+        if (exportador != null) {
+            exportador.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * @return el contexto actual del hilo, o {@code null} si no está dentro de una traza
+     */
+    public static ContextoTraza actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Hace actual un contexto en este hilo, por ejemplo al continuar una traza en otro hilo.
+     *
+     * @return el contexto anterior, que se debe pasar a {@link #restaurar}
+     */
+    public static ContextoTraza activar(ContextoTraza contexto) {
+        ContextoTraza anterior = ACTUAL.get();
+        ACTUAL.set(contexto);
+        return anterior;
+    }
+
+    /**
+     * Restaura el contexto que devolvió {@link #activar}.
+     */
+    public static void restaurar(ContextoTraza anterior) {
+        if (anterior == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(anterior);
+        }
+    }
+
+    /**
+     * Abre la raíz de una traza sin hacerla actual, porque suele terminar en otro hilo.
+     *
+     * @param nombre       etapa
+     * @param padreRemoto  contexto recibido del cliente, o {@code null} para decidir el muestreo aquí
+     * @param inicioNanos  inicio según {@link System#nanoTime()}, que puede ser anterior a ahora
+     * @return el tramo raíz
+     */
+    public Tramo iniciarRaiz(String nombre, ContextoTraza padreRemoto, long inicioNanos) {
+        if (padreRemoto != null) {
+            return new Tramo(this, nombre, padreRemoto.hijo(), padreRemoto.getIdTramo(), inicioNanos, false);
+        }
+        boolean muestreado = muestreo >= 1 || (muestreo > 0 && ThreadLocalRandom.current().nextDouble() < muestreo);
+        return new Tramo(this, nombre, ContextoTraza.nuevaRaiz(muestreado), null, inicioNanos, false);
+    }
+
+    /**
+     * Abre un tramo hijo del contexto actual y lo hace actual hasta que termine.
+     *
+     * @param nombre etapa
+     * @return el tramo, o {@link Tramo#NINGUNO} si no hay traza muestreada en curso
+     */
+    public Tramo iniciar(String nombre) {
+        ContextoTraza padre = ACTUAL.get();
+        if (padre == null || !padre.isMuestreado()) {
+            return Tramo.NINGUNO;
+        }
+        Tramo tramo = new Tramo(this, nombre, padre.hijo(), padre.getIdTramo(), System.nanoTime(), true);
+        tramo.setAnterior(padre);
+        ACTUAL.set(tramo.getContexto());
+        return tramo;
+    }
+
+    /**
+     * Registra una etapa ya transcurrida, como una espera en cola medida a posteriori.
+     *
+     * @param nombre      etapa
+     * @param padre       contexto padre, o {@code null}
+     * @param inicioNanos inicio según {@link System#nanoTime()}
+     * @param finNanos    fin según {@link System#nanoTime()}
+     */
+    public void registrar(String nombre, ContextoTraza padre, long inicioNanos, long finNanos) {
+        if (padre != null && padre.isMuestreado()) {
+            new Tramo(this, nombre, padre.hijo(), padre.getIdTramo(), inicioNanos, false).terminar(finNanos);
+        }
+    }
+
+    /**
+     * Propaga el contexto actual a una tarea que correrá en otro hilo.
+     */
+    public static <T> Callable<T> envolver(Callable<T> tarea) {
+        ContextoTraza contexto = ACTUAL.get();
+        if (contexto == null) {
+            return tarea;
+        }
+        return () -> {
+            ContextoTraza anterior = activar(contexto);
+            try {
+                return tarea.call();
+            } finally {
+                restaurar(anterior);
+            }
+        };
+    }
+
+    void exportar(Tramo tramo) {
+        if (!cola.offer(tramo)) {
+            descartados.incrementAndGet();
+        }
+    }
+
+    private void exportarEnLotes() {
+        List<Tramo> lote = new ArrayList<>(256);
+        while (!detenido || !cola.isEmpty()) {
+            try {
+                Tramo primero = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, 255);
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException e) {
+                System.err.println("[REACCIONES] Error exportando " + lote.size() + " tramos: " + e.getMessage());
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribir(List<Tramo> lote) throws IOException {
+        if (escribirArchivo) {
+            try (BufferedWriter salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Tramo tramo : lote) {
+                    salida.write(objectMapper.writeValueAsString(tramo));
+                    salida.newLine();
+                }
+            }
+        }
+        synchronized (colector) {
+            for (Tramo tramo : lote) {
+                if (colector.size() == capacidadColector) {
+                    colector.pollFirst();
+                }
+                colector.addLast(tramo);
+            }
+        }
+        exportados.addAndGet(lote.size());
+    }
+
+    /**
+     * @param idTraza traza a buscar, o {@code null} para todas
+     * @return los tramos del colector en memoria, del más antiguo al más reciente
+     */
+    public List<Tramo> recientes(String idTraza) {
+        synchronized (colector) {
+            List<Tramo> tramos = new ArrayList<>(idTraza == null ? colector.size() : 16);
+            for (Tramo tramo : colector) {
+                if (idTraza == null || idTraza.equals(tramo.getIdTraza())) {
+                    tramos.add(tramo);
+                }
+            }
+            return tramos;
+        }
+    }
+
+    long aEpochMicros(long nanos) {
+        return baseEpochMicros + (nanos - baseNanos) / 1_000;
+    }
+
+    String getServicio() {
+        return servicio;
+    }
+
+    public double getMuestreo() {
+        return muestreo;
+    }
+
+    public long getExportados() {
+        return exportados.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public int getPendientes() {
+        return cola.size();
+    }
+}
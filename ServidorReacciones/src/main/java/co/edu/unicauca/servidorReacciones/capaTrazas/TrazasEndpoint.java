@@ -0,0 +1,56 @@
+// Ubicación: co/edu/unicauca/servidorReacciones/capaTrazas/TrazasEndpoint.java
+
+package co.edu.unicauca.servidorReacciones.capaTrazas;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Colector de trazas en proceso ({@code /actuator/trazas}): el estado del exportador y los últimos
+ * tramos exportados. {@code /actuator/trazas/{idTraza}} devuelve los tramos de una traza; los del
+ * servidor de pagos se consultan con el mismo identificador en su propio {@code /actuator/trazas}.
+ */
+@Component
+@Endpoint(id = "trazas")
+public class TrazasEndpoint {
+
+    /**
+     * Tramos recientes que se incluyen en el resumen.
+     */
+    private static final int TRAMOS_RESUMEN = 200;
+
+    private final Trazador trazador;
+
+    public TrazasEndpoint(Trazador trazador) {
+        this.trazador = trazador;
+    }
+
+    /**
+     * @return el muestreo, los contadores del exportador y los tramos más recientes
+     */
+    @ReadOperation
+    public Map<String, Object> resumen() {
+        List<Tramo> tramos = trazador.recientes(null);
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("muestreo", trazador.getMuestreo());
+        resultado.put("exportados", trazador.getExportados());
+        resultado.put("descartados", trazador.getDescartados());
+        resultado.put("pendientes", trazador.getPendientes());
+        resultado.put("tramos", tramos.subList(Math.max(0, tramos.size() - TRAMOS_RESUMEN), tramos.size()));
+        return resultado;
+    }
+
+    /**
+     * @return los tramos de la traza que siguen en el colector, en orden de exportación
+     */
+    @ReadOperation
+    public List<Tramo> traza(@Selector String idTraza) {
+        return trazador.recientes(idTraza);
+    }
+}
@@ -0,0 +1,129 @@
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColaEntradaPrioritariaTests {
+
+	@Test
+	void atiendePlayYPauseAntesQueLasReaccionesEncoladas() throws InterruptedException {
+		ColaEntradaPrioritaria cola = new ColaEntradaPrioritaria(100);
+		Runnable reaccion1 = trama("s1", "/app/reaccionar");
+		Runnable reaccion2 = trama("s1", "/app/reaccionar");
+		Runnable play = trama("s2", "/app/reproducir");
+		Runnable pause = trama("s3", "/app/detener");
+		Runnable repeticion = trama("s4", "/app/repeticion");
+		Runnable otra = () -> { };
+
+		cola.offer(reaccion1);
+		cola.offer(play);
+		cola.offer(reaccion2);
+		cola.offer(repeticion);
+		cola.offer(pause);
+		cola.offer(otra);
+
+		assertEquals(6, cola.size());
+		assertEquals(4, cola.getEnEsperaBaja());
+		assertSame(play, cola.take());
+		assertSame(pause, cola.take());
+		assertSame(reaccion1, cola.poll());
+		assertSame(reaccion2, cola.poll(10, TimeUnit.MILLISECONDS));
+		assertSame(repeticion, cola.take());
+		assertSame(otra, cola.take());
+		assertNull(cola.poll(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void unPlayNoAdelantaALasTramasPreviasDeSuSesion() {
+		ColaEntradaPrioritaria cola = new ColaEntradaPrioritaria(100);
+		Runnable suscripcion = trama("s1", SimpMessageType.SUBSCRIBE, "/broker/canciones/c1");
+		Runnable reaccion = trama("s2", "/app/reaccionar");
+		Runnable play = trama("s1", "/app/reproducir");
+		Runnable pauseTrasReaccion = trama("s2", "/app/detener");
+		Runnable playSinEspera = trama("s3", "/app/reproducir");
+
+		cola.offer(suscripcion);
+		cola.offer(reaccion);
+		cola.offer(play);
+		cola.offer(pauseTrasReaccion);
+		cola.offer(playSinEspera);
+
+		assertSame(playSinEspera, cola.poll());
+		assertSame(suscripcion, cola.poll());
+		assertSame(reaccion, cola.poll());
+		assertSame(play, cola.poll());
+		assertSame(pauseTrasReaccion, cola.poll());
+
+		Runnable playTrasVaciar = trama("s1", "/app/reproducir");
+		cola.offer(trama("s2", "/app/reaccionar"));
+		cola.offer(playTrasVaciar);
+		assertSame(playTrasVaciar, cola.poll());
+	}
+
+	@Test
+	void descartaLasTramasQueNoCabenSinRechazarLasDeControl() {
+		ColaEntradaPrioritaria cola = new ColaEntradaPrioritaria(2);
+		assertTrue(cola.offer(trama("s1", "/app/reaccionar")));
+		assertTrue(cola.offer(trama("s1", "/app/reaccionar")));
+		assertEquals(0, cola.remainingCapacity());
+
+		Runnable sobrante = trama("s1", "/app/reaccionar");
+		assertFalse(cola.offer(sobrante));
+		assertTrue(cola.offer(trama("s2", SimpMessageType.CONNECT, null)));
+		assertTrue(cola.offer(trama("s3", "/app/reproducir")));
+
+		ThreadPoolExecutor ejecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+		try {
+			cola.descartar(sobrante, ejecutor);
+			assertEquals(1, cola.getDescartadas());
+			assertThrows(RejectedExecutionException.class,
+					() -> cola.descartar(trama("s2", SimpMessageType.DISCONNECT, null), ejecutor));
+		} finally {
+			ejecutor.shutdownNow();
+		}
+		assertEquals(4, cola.size());
+	}
+
+	private static Runnable trama(String sesion, String destino) {
+		return trama(sesion, SimpMessageType.MESSAGE, destino);
+	}
+
+	private static Runnable trama(String sesion, SimpMessageType tipo, String destino) {
+		SimpMessageHeaderAccessor cabeceras = SimpMessageHeaderAccessor.create(tipo);
+		cabeceras.setSessionId(sesion);
+		cabeceras.setDestination(destino);
+		Message<byte[]> mensaje = MessageBuilder.createMessage(new byte[0], cabeceras.getMessageHeaders());
+		return new MessageHandlingRunnable() {
+			@Override
+			public Message<?> getMessage() {
+				return mensaje;
+			}
+
+			@Override
+			public MessageHandler getMessageHandler() {
+				return m -> { };
+			}
+
+			@Override
+			public void run() {
+			}
+		};
+	}
+}
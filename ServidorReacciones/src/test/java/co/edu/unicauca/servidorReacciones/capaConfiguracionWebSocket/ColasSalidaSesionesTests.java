@@ -0,0 +1,425 @@
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColasSalidaSesionesTests {
+
+	private static final String REACCION = "MESSAGE\ndestination:/broker/canciones/c1\nsubscription:sub-0\n\n{\"tipo\":\"REACCION\"}\u0000";
+	private static final String PRIVADO = "MESSAGE\ndestination:/user/queue/notificaciones\nsubscription:sub-1\n\n{}\u0000";
+
+	private ColasSalidaSesiones colas;
+
+	@AfterEach
+	void detener() {
+		if (colas != null) {
+			colas.detener();
+		}
+	}
+
+	@Test
+	void clasificaTramasPorDestino() {
+		assertTrue(ColaSalidaSesion.esDescartable(new TextMessage(REACCION)));
+		assertFalse(ColaSalidaSesion.esDescartable(new TextMessage(PRIVADO)));
+		assertTrue(ColaSalidaSesion.esDescartable(
+				new TextMessage("MESSAGE\ndestination:/user/queue/canciones\nsubscription:sub-2\n\n{}\u0000")));
+		assertFalse(ColaSalidaSesion.esDescartable(
+				new TextMessage("MESSAGE\ndestination:/user/queue/canciones-privadas\n\n{}\u0000")));
+		assertFalse(ColaSalidaSesion.esDescartable(new TextMessage("CONNECTED\nversion:1.2\n\n\u0000")));
+		assertFalse(ColaSalidaSesion.esDescartable(
+				new TextMessage("MESSAGE\ndestination:/queue/x\n\n\ndestination:/broker/falso\u0000")));
+	}
+
+	@Test
+	void descartaLasReaccionesMasAntiguasPeroNuncaLasPrivadas() throws Exception {
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), 8, 1024, 256, 1, 1, 60_000, 0);
+		SesionFalsa bloqueada = new SesionFalsa("bloqueada", 0);
+		bloqueada.bloquear();
+		ColaSalidaSesion cola = conectar(bloqueada);
+
+		// El primer mensaje queda en vuelo, bloqueado en el hilo de drenado.
+		cola.sendMessage(new TextMessage(REACCION));
+		while (cola.getPendientes() > 0) {
+			Thread.onSpinWait();
+		}
+		for (int i = 1; i < 100; i++) {
+			cola.sendMessage(new TextMessage(REACCION));
+		}
+		for (int i = 0; i < 20; i++) {
+			cola.sendMessage(new TextMessage(PRIVADO));
+		}
+
+		assertEquals(8 + 20, cola.getPendientes());
+		assertEquals(100 - 8 - 1, cola.getDescartados());
+
+		bloqueada.desbloquear();
+		assertTrue(bloqueada.esperarRecibidos(1 + 8 + 20));
+		long privados = bloqueada.recibidos.stream().filter(PRIVADO::equals).count();
+		assertEquals(20, privados);
+	}
+
+	@Test
+	void cierraLaSesionAlSuperarElLimiteDuro() throws Exception {
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), 8, 32, 256, 1, 1, 60_000, 0);
+		SesionFalsa bloqueada = new SesionFalsa("bloqueada", 0);
+		bloqueada.bloquear();
+		ColaSalidaSesion cola = conectar(bloqueada);
+
+		for (int i = 0; i < 40; i++) {
+			cola.sendMessage(new TextMessage(PRIVADO));
+		}
+
+		assertTrue(cola.isCerrada());
+		assertEquals(CloseStatus.SESSION_NOT_RELIABLE, bloqueada.estadoCierre);
+		bloqueada.desbloquear();
+	}
+
+	@Test
+	void cierraLaSesionAlSuperarElLimiteDeBytes() throws Exception {
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), 8, 1024, 1, 1, 1, 60_000, 0);
+		SesionFalsa bloqueada = new SesionFalsa("bloqueada", 0);
+		bloqueada.bloquear();
+		ColaSalidaSesion cola = conectar(bloqueada);
+
+		// Unos 370 bytes por trama contra un límite de 1 KB; la primera queda en vuelo.
+		TextMessage grande = new TextMessage(PRIVADO.replace("{}", "\"" + "x".repeat(300) + "\""));
+		cola.sendMessage(grande);
+		while (cola.getPendientes() > 0) {
+			Thread.onSpinWait();
+		}
+		cola.sendMessage(grande);
+		cola.sendMessage(grande);
+		assertFalse(cola.isCerrada());
+		assertEquals(2L * grande.getPayloadLength(), cola.getBytesPendientes());
+
+		cola.sendMessage(grande);
+		assertTrue(cola.isCerrada());
+		assertEquals(CloseStatus.SESSION_NOT_RELIABLE, bloqueada.estadoCierre);
+		bloqueada.desbloquear();
+	}
+
+	@Test
+	void elVigilanteCierraUnEnvioBloqueadoSinEsperarAQueTermine() throws Exception {
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), 8, 1024, 256, 1, 1, 100, 0);
+		SesionFalsa bloqueada = new SesionFalsa("bloqueada", 0);
+		bloqueada.bloquear();
+		ColaSalidaSesion cola = conectar(bloqueada);
+
+		cola.sendMessage(new TextMessage(PRIVADO));
+		long limite = System.currentTimeMillis() + 5_000;
+		while (!cola.isCerrada() && System.currentTimeMillis() < limite) {
+			Thread.sleep(5);
+		}
+
+		assertTrue(cola.isCerrada());
+		assertEquals(CloseStatus.SESSION_NOT_RELIABLE, bloqueada.estadoCierre);
+		// El envío sigue bloqueado: el cierre no esperó a que terminara.
+		assertTrue(bloqueada.recibidos.isEmpty());
+		bloqueada.desbloquear();
+	}
+
+	/**
+	 * Más clientes detenidos que hilos de escritura: el ejecutor crece y los clientes sanos
+	 * reciben todo mientras los detenidos siguen bloqueados.
+	 */
+	@Test
+	void clientesDetenidosNoRetienenLaEntregaALosSanos() throws Exception {
+		int hilos = 4;
+		int mensajes = 50;
+		// Caben todos los mensajes: ninguno se descarta a los sanos.
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), mensajes, 4096, 256, hilos, 64, 60_000, 0);
+		List<SesionFalsa> detenidas = new ArrayList<>();
+		List<ColaSalidaSesion> colasDetenidas = new ArrayList<>();
+		for (int i = 0; i < 2 * hilos; i++) {
+			SesionFalsa detenida = new SesionFalsa("detenida-" + i, 0);
+			detenida.bloquear();
+			detenidas.add(detenida);
+			colasDetenidas.add(conectar(detenida));
+		}
+		List<SesionFalsa> sanas = new ArrayList<>();
+		List<ColaSalidaSesion> colasSanas = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			SesionFalsa sana = new SesionFalsa("sana-" + i, 0);
+			sanas.add(sana);
+			colasSanas.add(conectar(sana));
+		}
+
+		for (int m = 0; m < mensajes; m++) {
+			TextMessage trama = new TextMessage(REACCION.replace("REACCION", "R" + m));
+			for (ColaSalidaSesion cola : colasDetenidas) {
+				cola.sendMessage(trama);
+			}
+			for (ColaSalidaSesion cola : colasSanas) {
+				cola.sendMessage(trama);
+			}
+		}
+
+		for (SesionFalsa sana : sanas) {
+			assertTrue(sana.esperarRecibidos(mensajes), "la sesión " + sana.id + " no recibió todo");
+		}
+		for (SesionFalsa detenida : detenidas) {
+			assertTrue(detenida.recibidos.isEmpty());
+			detenida.desbloquear();
+		}
+	}
+
+	@Test
+	void agrupaLasTramasPequenasSoloSiLaSesionComprime() throws Exception {
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), 64, 1024, 256, 1, 1, 60_000, 200);
+		SesionFalsa comprimida = new SesionFalsa("comprimida", 0);
+		comprimida.extensiones = List.of(new WebSocketExtension("permessage-deflate"));
+		SesionFalsa sinCompresion = new SesionFalsa("sin-compresion", 0);
+
+		for (SesionFalsa sesion : List.of(comprimida, sinCompresion)) {
+			sesion.bloquear();
+			ColaSalidaSesion cola = conectar(sesion);
+			// El primero queda en vuelo; los demás esperan en cola y pueden agruparse.
+			cola.sendMessage(new TextMessage(REACCION));
+			while (cola.getPendientes() > 0) {
+				Thread.onSpinWait();
+			}
+			for (int i = 0; i < 10; i++) {
+				cola.sendMessage(new TextMessage(i % 2 == 0 ? REACCION : PRIVADO));
+			}
+			sesion.desbloquear();
+			while (cola.getEnviados() < 11) {
+				Thread.sleep(5);
+			}
+		}
+
+		assertEquals(11, sinCompresion.recibidos.size());
+		assertTrue(comprimida.recibidos.size() < 11, "se esperaban tramas agrupadas: " + comprimida.recibidos.size());
+		// Las tramas llegan completas y en el mismo orden, primero las privadas.
+		assertEquals(String.join("", sinCompresion.recibidos), String.join("", comprimida.recibidos));
+	}
+
+	/**
+	 * Prueba de caos: un cliente muy lento y tantos clientes detenidos como hilos de escritura
+	 * reciben el mismo broadcast que muchos clientes sanos. La latencia de entrega a los clientes
+	 * sanos no debe depender de ellos.
+	 */
+	@Test
+	@Tag("benchmark")
+	void clienteLentoNoAfectaLaLatenciaDeLosSanos() throws Exception {
+		int hilos = 4;
+		colas = new ColasSalidaSesiones(new SimpleMeterRegistry(), 16, 4096, 256, hilos, 64, 60_000, 0);
+		SesionFalsa lenta = new SesionFalsa("lenta", 20);
+		ColaSalidaSesion colaLenta = conectar(lenta);
+		List<SesionFalsa> detenidas = new ArrayList<>();
+		List<ColaSalidaSesion> colasDetenidas = new ArrayList<>();
+		for (int i = 0; i < hilos; i++) {
+			SesionFalsa detenida = new SesionFalsa("detenida-" + i, 0);
+			detenida.bloquear();
+			detenidas.add(detenida);
+			colasDetenidas.add(conectar(detenida));
+		}
+		List<SesionFalsa> sanas = new ArrayList<>();
+		List<ColaSalidaSesion> colasSanas = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			SesionFalsa sana = new SesionFalsa("sana-" + i, 0);
+			sanas.add(sana);
+			colasSanas.add(conectar(sana));
+		}
+
+		int mensajes = 200;
+		for (int m = 0; m < mensajes; m++) {
+			String trama = REACCION.replace("REACCION", "R" + m);
+			long enviado = System.nanoTime();
+			colaLenta.sendMessage(new TextMessage(trama));
+			for (ColaSalidaSesion cola : colasDetenidas) {
+				cola.sendMessage(new TextMessage(trama));
+			}
+			for (int i = 0; i < colasSanas.size(); i++) {
+				sanas.get(i).enviados.put(trama, enviado);
+				colasSanas.get(i).sendMessage(new TextMessage(trama));
+			}
+			Thread.sleep(1);
+		}
+
+		List<Long> latencias = new ArrayList<>();
+		for (SesionFalsa sana : sanas) {
+			assertTrue(sana.esperarRecibidos(mensajes));
+			latencias.addAll(sana.latenciasNanos);
+		}
+		Collections.sort(latencias);
+		long p99Ms = TimeUnit.NANOSECONDS.toMillis(latencias.get((int) (latencias.size() * 0.99)));
+		System.out.printf("[CAOS] p99 de entrega a clientes sanos=%d ms, descartados al cliente lento=%d%n",
+				p99Ms, colaLenta.getDescartados());
+
+		assertTrue(p99Ms < 50, "p99 de clientes sanos demasiado alto: " + p99Ms + " ms");
+		assertTrue(colaLenta.getDescartados() > 0);
+		assertTrue(colaLenta.getPendientes() <= 16);
+		for (SesionFalsa detenida : detenidas) {
+			detenida.desbloquear();
+		}
+	}
+
+	private ColaSalidaSesion conectar(SesionFalsa sesion) throws Exception {
+		ColaSalidaSesion[] capturada = new ColaSalidaSesion[1];
+		WebSocketHandler decorado = colas.decorar(new AbstractWebSocketHandler() {
+			@Override
+			public void afterConnectionEstablished(WebSocketSession session) {
+				capturada[0] = (ColaSalidaSesion) session;
+			}
+		});
+		decorado.afterConnectionEstablished(sesion);
+		return capturada[0];
+	}
+
+	/**
+	 * Sesión en memoria que registra lo recibido y puede simular un cliente lento o bloqueado.
+	 */
+	private static final class SesionFalsa implements WebSocketSession {
+
+		private final String id;
+		private final long demoraMs;
+		private final List<String> recibidos = Collections.synchronizedList(new ArrayList<>());
+		private final List<Long> latenciasNanos = Collections.synchronizedList(new ArrayList<>());
+		private final Map<String, Long> enviados = new ConcurrentHashMap<>();
+		private volatile CountDownLatch bloqueo = new CountDownLatch(0);
+		private volatile CloseStatus estadoCierre;
+		private List<WebSocketExtension> extensiones = List.of();
+
+		SesionFalsa(String id, long demoraMs) {
+			this.id = id;
+			this.demoraMs = demoraMs;
+		}
+
+		void bloquear() {
+			bloqueo = new CountDownLatch(1);
+		}
+
+		void desbloquear() {
+			bloqueo.countDown();
+		}
+
+		boolean esperarRecibidos(int cantidad) throws InterruptedException {
+			long limite = System.currentTimeMillis() + 10_000;
+			while (recibidos.size() < cantidad && System.currentTimeMillis() < limite) {
+				Thread.sleep(5);
+			}
+			return recibidos.size() >= cantidad;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) {
+			try {
+				bloqueo.await();
+				if (demoraMs > 0) {
+					Thread.sleep(demoraMs);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			String trama = ((TextMessage) message).getPayload();
+			Long enviado = enviados.get(trama);
+			if (enviado != null) {
+				latenciasNanos.add(System.nanoTime() - enviado);
+			}
+			recibidos.add(trama);
+		}
+
+		@Override
+		public void close(CloseStatus status) {
+			estadoCierre = status;
+		}
+
+		@Override
+		public void close() {
+			close(CloseStatus.NORMAL);
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return estadoCierre == null;
+		}
+
+		@Override
+		public URI getUri() {
+			return null;
+		}
+
+		@Override
+		public HttpHeaders getHandshakeHeaders() {
+			return new HttpHeaders();
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return new ConcurrentHashMap<>();
+		}
+
+		@Override
+		public Principal getPrincipal() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getLocalAddress() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getRemoteAddress() {
+			return null;
+		}
+
+		@Override
+		public String getAcceptedProtocol() {
+			return null;
+		}
+
+		@Override
+		public void setTextMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getTextMessageSizeLimit() {
+			return 0;
+		}
+
+		@Override
+		public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getBinaryMessageSizeLimit() {
+			return 0;
+		}
+
+		@Override
+		public List<WebSocketExtension> getExtensions() {
+			return extensiones;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket.EstrategiaCompresionWebSocket.ModoCompresion;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompresionWebSocketTests {
+
+	private static final String OFERTA_NAVEGADOR = "permessage-deflate; client_max_window_bits";
+
+	@Test
+	void reescribeLaOfertaSegunElModo() {
+		assertEquals("", EstrategiaCompresionWebSocket.reescribirExtensiones(OFERTA_NAVEGADOR, ModoCompresion.DESACTIVADA));
+		assertEquals("permessage-deflate; client_max_window_bits; server_no_context_takeover",
+				EstrategiaCompresionWebSocket.reescribirExtensiones(OFERTA_NAVEGADOR, ModoCompresion.SIN_CONTEXTO));
+		assertEquals("x-webkit-deflate-frame, permessage-deflate; server_no_context_takeover",
+				EstrategiaCompresionWebSocket.reescribirExtensiones(
+						"x-webkit-deflate-frame, permessage-deflate; server_no_context_takeover", ModoCompresion.SIN_CONTEXTO));
+		assertEquals("x-webkit-deflate-frame",
+				EstrategiaCompresionWebSocket.reescribirExtensiones(
+						"permessage-deflate, x-webkit-deflate-frame", ModoCompresion.DESACTIVADA));
+	}
+
+	@Test
+	void elContenedorVeLaCabeceraReescrita() {
+		MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/ws-nativo");
+		peticion.addHeader(EstrategiaCompresionWebSocket.CABECERA_EXTENSIONES, OFERTA_NAVEGADOR);
+
+		assertSame(peticion, new EstrategiaCompresionWebSocket(ModoCompresion.CONTEXTO_COMPARTIDO).reescribirPeticion(peticion));
+
+		HttpServletRequest sinCompresion = new EstrategiaCompresionWebSocket(ModoCompresion.DESACTIVADA).reescribirPeticion(peticion);
+		assertNull(sinCompresion.getHeader(EstrategiaCompresionWebSocket.CABECERA_EXTENSIONES));
+		assertTrue(Collections.list(sinCompresion.getHeaders(EstrategiaCompresionWebSocket.CABECERA_EXTENSIONES)).isEmpty());
+
+		HttpServletRequest sinContexto = new EstrategiaCompresionWebSocket(ModoCompresion.SIN_CONTEXTO).reescribirPeticion(peticion);
+		assertEquals(List.of(OFERTA_NAVEGADOR + "; server_no_context_takeover"),
+				Collections.list(sinContexto.getHeaders(EstrategiaCompresionWebSocket.CABECERA_EXTENSIONES)));
+	}
+
+	/**
+	 * Compara bytes en el cable y CPU de compresión por trama entregada, para varios tamaños de trama
+	 * y niveles de difusión. Reproduce lo que hace Tomcat con {@code permessage-deflate}: un
+	 * compresor por conexión, vaciado de bloque al final de cada mensaje sin los 4 bytes finales, y
+	 * reinicio del compresor entre mensajes si no se comparte contexto.
+	 */
+	@Test
+	@Tag("benchmark")
+	void benchmarkAnchoDeBandaContraCpu() {
+		int mensajes = 100;
+		int tamanoMinimo = 512;
+		System.out.println("[BENCHMARK] permessage-deflate: bytes y CPU por trama entregada (" + mensajes + " tramas por sesión)");
+		System.out.printf("[BENCHMARK] %7s %8s | %22s | %22s | %22s | %22s%n", "trama", "sesiones",
+				"sin compresion", "deflate sin contexto", "deflate contexto", "contexto + agrupacion");
+		for (int tamano : new int[]{200, 512, 2048, 8192}) {
+			List<String> tramas = generarTramas(mensajes, tamano);
+			List<String> agrupadas = agrupar(tramas, tamanoMinimo);
+			for (int sesiones : new int[]{1, 10, 100}) {
+				Resultado crudo = medirSinCompresion(tramas, sesiones);
+				Resultado sinContexto = medir(tramas, sesiones, false);
+				Resultado contexto = medir(tramas, sesiones, true);
+				Resultado agrupado = medir(agrupadas, sesiones, true);
+				System.out.printf("[BENCHMARK] %6dB %8d | %s | %s | %s | %s%n", tamano, sesiones,
+						crudo.formato(mensajes, sesiones), sinContexto.formato(mensajes, sesiones),
+						contexto.formato(mensajes, sesiones), agrupado.formato(mensajes, sesiones));
+
+				assertTrue(contexto.bytes < sinContexto.bytes, "compartir contexto debería ahorrar bytes");
+				assertTrue(contexto.bytes < crudo.bytes, "la compresión debería ahorrar bytes");
+				if (tamano < tamanoMinimo) {
+					assertTrue(agrupado.bytes < contexto.bytes, "agrupar tramas pequeñas debería ahorrar bytes");
+				}
+			}
+		}
+	}
+
+	private record Resultado(long bytes, long cpuNanos) {
+
+		String formato(int mensajes, int sesiones) {
+			double entregadas = (double) mensajes * sesiones;
+			return String.format("%7.0f B %7.2f us/trama", bytes / entregadas, cpuNanos / entregadas / 1000.0);
+		}
+	}
+
+	private static Resultado medirSinCompresion(List<String> tramas, int sesiones) {
+		long bytes = 0;
+		for (String trama : tramas) {
+			int longitud = trama.getBytes(StandardCharsets.UTF_8).length;
+			bytes += longitud + cabeceraTrama(longitud);
+		}
+		return new Resultado(bytes * sesiones, 0);
+	}
+
+	private static Resultado medir(List<String> mensajes, int sesiones, boolean contextoCompartido) {
+		ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+		List<byte[]> cargas = new ArrayList<>(mensajes.size());
+		for (String mensaje : mensajes) {
+			cargas.add(mensaje.getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] salida = new byte[8192];
+		long bytes = 0;
+		long inicio = hilos.getCurrentThreadCpuTime();
+		for (int s = 0; s < sesiones; s++) {
+			Deflater compresor = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				for (byte[] carga : cargas) {
+					compresor.setInput(carga);
+					int comprimidos = 0;
+					int escritos;
+					do {
+						escritos = compresor.deflate(salida, 0, salida.length, Deflater.SYNC_FLUSH);
+						comprimidos += escritos;
+					} while (escritos == salida.length);
+					// El vaciado termina en 00 00 FF FF, que permessage-deflate no transmite.
+					comprimidos -= 4;
+					bytes += comprimidos + cabeceraTrama(comprimidos);
+					if (!contextoCompartido) {
+						compresor.reset();
+					}
+				}
+			} finally {
+				compresor.end();
+			}
+		}
+		return new Resultado(bytes, hilos.getCurrentThreadCpuTime() - inicio);
+	}
+
+	/**
+	 * Cabecera de una trama WebSocket del servidor al cliente, que no va enmascarada.
+	 */
+	private static int cabeceraTrama(int longitud) {
+		return longitud < 126 ? 2 : longitud < 65536 ? 4 : 10;
+	}
+
+	/**
+	 * Une tramas consecutivas hasta alcanzar el tamaño mínimo, como hace la cola de salida cuando
+	 * tiene todas pendientes.
+	 */
+	private static List<String> agrupar(List<String> tramas, int tamanoMinimo) {
+		List<String> grupos = new ArrayList<>();
+		StringBuilder actual = new StringBuilder();
+		for (String trama : tramas) {
+			actual.append(trama);
+			if (actual.length() >= tamanoMinimo) {
+				grupos.add(actual.toString());
+				actual.setLength(0);
+			}
+		}
+		if (!actual.isEmpty()) {
+			grupos.add(actual.toString());
+		}
+		return grupos;
+	}
+
+	/**
+	 * Tramas MESSAGE de un canal de canción; el cuerpo crece con la lista de oyentes hasta el tamaño
+	 * pedido, con nicknames distintos para no sobreestimar la compresión.
+	 */
+	private static List<String> generarTramas(int cantidad, int tamano) {
+		Random aleatorio = new Random(42);
+		String[] tipos = {"REACCION", "PLAY", "PAUSE", "PRESENCIA"};
+		List<String> tramas = new ArrayList<>(cantidad);
+		for (int i = 0; i < cantidad; i++) {
+			StringBuilder trama = new StringBuilder(tamano + 64)
+					.append("MESSAGE\ndestination:/broker/canciones/cancion-").append(aleatorio.nextInt(20))
+					.append("\ncontent-type:application/json\nsubscription:sub-").append(aleatorio.nextInt(4))
+					.append("\nmessage-id:").append(Long.toHexString(aleatorio.nextLong())).append('-').append(i)
+					.append("\n\n{\"nickname\":\"usuario-").append(aleatorio.nextInt(100_000))
+					.append("\",\"tipo\":\"").append(tipos[aleatorio.nextInt(tipos.length)])
+					.append("\",\"secuencia\":").append(i).append(",\"oyentes\":[");
+			while (trama.length() < tamano - 3) {
+				trama.append("\"oyente-").append(Integer.toString(aleatorio.nextInt(1 << 20), 36)).append("\",");
+			}
+			trama.append("\"\"]}\u0000");
+			tramas.add(trama.toString());
+		}
+		return tramas;
+	}
+}
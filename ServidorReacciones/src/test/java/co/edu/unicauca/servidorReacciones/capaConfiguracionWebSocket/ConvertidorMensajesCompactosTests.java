@@ -0,0 +1,79 @@
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import co.edu.unicauca.servidorReacciones.capaModelos.NotificacionPrivada;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConvertidorMensajesCompactosTests {
+
+	private final ConvertidorMensajesCompactos convertidor = new ConvertidorMensajesCompactos();
+
+	@Test
+	void codificaYDecodificaMensajeCancion() {
+		MensajeCancion original = new MensajeCancion("Juanito", "cancion:2", "REACCION", null);
+
+		Message<?> codificado = convertidor.toMessage(original, cabecerasCompactas());
+		assertEquals("M7:Juanito9:cancion:28:REACCION-",
+				new String((byte[]) codificado.getPayload(), StandardCharsets.UTF_8));
+
+		MensajeCancion decodificado = (MensajeCancion) convertidor.fromMessage(codificado, MensajeCancion.class);
+		assertEquals(original, decodificado);
+	}
+
+	@Test
+	void codificaLaSecuenciaComoCampoOpcional() {
+		MensajeCancion original = new MensajeCancion("Juanito", "cancion2", "PLAY", null);
+		original.setSecuencia(42L);
+
+		Message<?> codificado = convertidor.toMessage(original, cabecerasCompactas());
+		assertEquals("M7:Juanito8:cancion24:PLAY-2:42",
+				new String((byte[]) codificado.getPayload(), StandardCharsets.UTF_8));
+
+		MensajeCancion decodificado = (MensajeCancion) convertidor.fromMessage(codificado, MensajeCancion.class);
+		assertEquals(original, decodificado);
+	}
+
+	@Test
+	void codificaNotificacionConCaracteresMultibyte() {
+		NotificacionPrivada original = new NotificacionPrivada("ERROR_PAGO", "Error en la Reacción", "Inténtalo de nuevo");
+
+		Message<?> codificado = convertidor.toMessage(original, cabecerasCompactas());
+		NotificacionPrivada decodificado = (NotificacionPrivada) convertidor.fromMessage(codificado, NotificacionPrivada.class);
+
+		assertEquals(original, decodificado);
+	}
+
+	@Test
+	void ignoraMensajesSinTipoDeContenidoCompacto() {
+		Message<byte[]> json = MessageBuilder.withPayload("{}".getBytes(StandardCharsets.UTF_8)).build();
+
+		assertNull(convertidor.fromMessage(json, MensajeCancion.class));
+		assertNull(convertidor.toMessage(new MensajeCancion(), null));
+	}
+
+	@Test
+	void esMasCompactoQueJson() {
+		MensajeCancion mensaje = new MensajeCancion("Juanito", "cancion2", "REACCION", "like");
+		byte[] compacto = (byte[]) convertidor.toMessage(mensaje, cabecerasCompactas()).getPayload();
+		byte[] json = "{\"nickname\":\"Juanito\",\"idCancion\":\"cancion2\",\"tipo\":\"REACCION\",\"contenido\":\"like\"}"
+				.getBytes(StandardCharsets.UTF_8);
+
+		assertTrue(compacto.length * 2 < json.length);
+		assertArrayEquals("M7:Juanito8:cancion28:REACCION4:like".getBytes(StandardCharsets.UTF_8), compacto);
+	}
+
+	private static MessageHeaders cabecerasCompactas() {
+		return new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, ConvertidorMensajesCompactos.TIPO_COMPACTO));
+	}
+}
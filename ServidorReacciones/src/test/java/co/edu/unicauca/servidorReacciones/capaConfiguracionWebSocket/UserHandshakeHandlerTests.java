@@ -0,0 +1,147 @@
+package co.edu.unicauca.servidorReacciones.capaConfiguracionWebSocket;
+
+import co.edu.unicauca.servidorReacciones.capaControladores.StompPrincipal;
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserHandshakeHandlerTests {
+
+	@Test
+	void extraeNicknameDeLaCadenaDeConsulta() {
+		assertEquals("Juanito", UserHandshakeHandler.extraerNickname("nickname=Juanito"));
+		assertEquals("Juanito", UserHandshakeHandler.extraerNickname("t=1&nickname=Juanito&x=2"));
+		assertEquals("Ana Sofía", UserHandshakeHandler.extraerNickname("nickname=Ana+Sof%C3%ADa"));
+		assertEquals("", UserHandshakeHandler.extraerNickname("nickname="));
+		assertNull(UserHandshakeHandler.extraerNickname("otronickname=Pepe"));
+		assertNull(UserHandshakeHandler.extraerNickname(null));
+	}
+
+	@Test
+	void asignaNombresAnonimosUnicos() {
+		Set<String> nombres = new HashSet<>();
+		for (int i = 0; i < 100_000; i++) {
+			String nombre = UserHandshakeHandler.generarNombreAnonimo();
+			assertEquals(13, nombre.length());
+			assertTrue(nombres.add(nombre));
+		}
+	}
+
+	@Test
+	void asignaPrincipalConIdentificadorInternado() {
+		RegistroIdentificadores registro = new RegistroIdentificadores();
+		UserHandshakeHandler handler = new UserHandshakeHandler(registro);
+
+		Principal principal = handler.determineUser(peticion("nickname=Juanito"), null, new HashMap<>());
+
+		assertEquals("Juanito", principal.getName());
+		assertEquals(registro.buscarIdUsuario("Juanito"), ((StompPrincipal) principal).getId());
+	}
+
+	@Test
+	void limitadorRechazaAlInstanteLoQueExcedeLaRafaga() {
+		LimitadorHandshakes limitador = new LimitadorHandshakes(1, 3);
+
+		assertEquals(0, limitador.admitir());
+		assertEquals(0, limitador.admitir());
+		assertEquals(0, limitador.admitir());
+		long inicio = System.nanoTime();
+		assertEquals(1, limitador.admitir());
+		assertTrue(System.nanoTime() - inicio < TimeUnit.MILLISECONDS.toNanos(100), "el rechazo no debe esperar turno");
+		assertEquals(1, limitador.getRechazados());
+	}
+
+	@Test
+	void elRechazoDelLimitadorIndicaCuandoReintentar() throws IOException {
+		InterceptorAdmisionHandshakes interceptor = new InterceptorAdmisionHandshakes(new LimitadorHandshakes(1, 1));
+
+		assertTrue(interceptor.beforeHandshake(peticion("nickname=Juanito"), respuesta(), null, new HashMap<>()));
+		ServletServerHttpResponse respuesta = respuesta();
+		assertFalse(interceptor.beforeHandshake(peticion("nickname=Juanito"), respuesta, null, new HashMap<>()));
+		respuesta.flush();
+		MockHttpServletResponse servlet = (MockHttpServletResponse) respuesta.getServletResponse();
+		assertEquals(503, servlet.getStatus());
+		assertEquals("1", servlet.getHeader("Retry-After"));
+	}
+
+	@Test
+	void rechazaLosHandshakesDuranteElDrenado() {
+		ControlAdmision controlAdmision = new ControlAdmision();
+		InterceptorAdmisionHandshakes interceptor = new InterceptorAdmisionHandshakes(null, controlAdmision);
+
+		assertTrue(interceptor.beforeHandshake(peticion("nickname=Juanito"), respuesta(), null, new HashMap<>()));
+		controlAdmision.cerrar();
+		ServletServerHttpResponse respuesta = respuesta();
+		assertFalse(interceptor.beforeHandshake(peticion("nickname=Juanito"), respuesta, null, new HashMap<>()));
+		assertEquals(503, ((MockHttpServletResponse) respuesta.getServletResponse()).getStatus());
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkHandshakesPorSegundo() {
+		UserHandshakeHandler handler = new UserHandshakeHandler(new RegistroIdentificadores());
+		ServletServerHttpRequest conNickname = peticion("nickname=Juanito&t=1700000000");
+		ServletServerHttpRequest anonima = peticion("t=1700000000");
+		int iteraciones = 200_000;
+
+		// Calentamiento de ambos caminos.
+		for (int i = 0; i < iteraciones; i++) {
+			handler.determineUser(conNickname, null, null);
+			caminoAnterior(conNickname);
+		}
+
+		long inicio = System.nanoTime();
+		for (int i = 0; i < iteraciones; i++) {
+			handler.determineUser((i & 1) == 0 ? conNickname : anonima, null, null);
+		}
+		long nuevo = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		for (int i = 0; i < iteraciones; i++) {
+			caminoAnterior((i & 1) == 0 ? conNickname : anonima);
+		}
+		long anterior = System.nanoTime() - inicio;
+
+		System.out.printf("[BENCHMARK] determineUser: nuevo=%,.0f handshakes/s, anterior=%,.0f handshakes/s%n",
+				iteraciones * 1e9 / nuevo, iteraciones * 1e9 / anterior);
+	}
+
+	/**
+	 * Reproduce la extracción previa (URI completa + UUID aleatorio) como línea base del benchmark.
+	 */
+	private static String caminoAnterior(ServletServerHttpRequest request) {
+		String nickname = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("nickname");
+		if (nickname == null || nickname.trim().isEmpty()) {
+			nickname = "anon-" + UUID.randomUUID().toString().substring(0, 8);
+		}
+		return nickname;
+	}
+
+	private static ServletServerHttpRequest peticion(String consulta) {
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/ws");
+		servletRequest.setQueryString(consulta);
+		return new ServletServerHttpRequest(servletRequest);
+	}
+
+	private static ServletServerHttpResponse respuesta() {
+		return new ServletServerHttpResponse(new MockHttpServletResponse());
+	}
+}
@@ -0,0 +1,36 @@
+package co.edu.unicauca.servidorReacciones.capaEstadisticas;
+
+import co.edu.unicauca.servidorReacciones.capaPresencia.CanalCancion;
+import co.edu.unicauca.servidorReacciones.capaPresencia.RegistroIdentificadores;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EstadisticasReaccionesTests {
+
+	@Test
+	void elDecaimientoQuitaLosContadoresDeCancionesSinReaccionesEnLaVentana() {
+		AtomicLong reloj = new AtomicLong(100_000);
+		EstadisticasReacciones estadisticas = new EstadisticasReacciones(10, 1000, 5, reloj::get);
+		RegistroIdentificadores registro = new RegistroIdentificadores();
+		CanalCancion antigua = registro.canal("antigua");
+		CanalCancion reciente = registro.canal("reciente");
+
+		estadisticas.registrarReaccion(antigua, "like");
+		reloj.addAndGet(8_000);
+		estadisticas.registrarReaccion(reciente, "like");
+		estadisticas.decaer();
+		assertEquals(2, estadisticas.cantidadContadoresCancion());
+
+		// La reacción de "antigua" sale de la ventana de 10 s; la de "reciente" sigue dentro.
+		reloj.addAndGet(5_000);
+		estadisticas.decaer();
+		assertEquals(1, estadisticas.cantidadContadoresCancion());
+		assertEquals(0.1, estadisticas.estadistica(reciente).getReaccionesPorSegundo(), 1e-9);
+
+		estadisticas.registrarReaccion(antigua, "like");
+		assertEquals(2, estadisticas.cantidadContadoresCancion());
+	}
+}
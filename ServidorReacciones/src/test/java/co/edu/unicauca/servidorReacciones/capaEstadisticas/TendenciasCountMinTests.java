@@ -0,0 +1,72 @@
+package co.edu.unicauca.servidorReacciones.capaEstadisticas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TendenciasCountMinTests {
+
+	@Test
+	void encuentraLasCancionesMasFrecuentesEntreMuchasPocoActivas() {
+		TendenciasCountMin tendencias = new TendenciasCountMin(4, 2048, 5);
+		Random aleatorio = new Random(7);
+		// 20.000 canciones con unas pocas reacciones cada una, mezcladas con 5 canciones muy populares.
+		for (int i = 0; i < 200_000; i++) {
+			if (i % 10 == 0) {
+				tendencias.registrar(1_000_000 + (i / 10) % 5);
+			} else {
+				tendencias.registrar(aleatorio.nextInt(20_000));
+			}
+		}
+
+		List<TendenciasCountMin.Tendencia> top = tendencias.top();
+		Set<Integer> ids = top.stream().map(TendenciasCountMin.Tendencia::id).collect(Collectors.toSet());
+		assertEquals(Set.of(1_000_000, 1_000_001, 1_000_002, 1_000_003, 1_000_004), ids);
+		for (TendenciasCountMin.Tendencia tendencia : top) {
+			// 4.000 reales; el sketch solo puede sobreestimar, y poco con este ancho.
+			assertTrue(tendencia.estimacion() >= 4_000 && tendencia.estimacion() < 4_400, "estimación " + tendencia.estimacion());
+		}
+	}
+
+	@Test
+	void elDecaimientoDejaPasarAUnaCancionQueEmpiezaATenerTendencia() {
+		TendenciasCountMin tendencias = new TendenciasCountMin(4, 256, 1);
+		for (int i = 0; i < 100; i++) {
+			tendencias.registrar(1);
+		}
+		tendencias.decaer();
+		tendencias.decaer();
+		for (int i = 0; i < 30; i++) {
+			tendencias.registrar(2);
+		}
+
+		assertEquals(25, tendencias.estimar(1));
+		assertEquals(2, tendencias.top().get(0).id());
+	}
+
+	@Test
+	void elContadorDeVentanaOlvidaLosEventosQueSalenDeLaVentana() {
+		long[] ahora = {10_000};
+		ContadorVentanaDeslizante contador = new ContadorVentanaDeslizante(10, 1000, () -> ahora[0]);
+		for (int i = 0; i < 20; i++) {
+			contador.incrementar();
+		}
+		ahora[0] += 5_000;
+		for (int i = 0; i < 10; i++) {
+			contador.incrementar();
+		}
+		assertEquals(30, contador.total());
+		assertEquals(3.0, contador.porSegundo());
+
+		ahora[0] += 5_000;
+		assertEquals(10, contador.total());
+		ahora[0] += 5_000;
+		assertEquals(0, contador.total());
+	}
+}
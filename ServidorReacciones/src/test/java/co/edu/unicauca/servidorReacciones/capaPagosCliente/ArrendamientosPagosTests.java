@@ -0,0 +1,151 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.EstadoPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ArrendamientosPagosTests {
+
+	private static final String URL = "http://pagos/api/pagos/arrendamientos";
+
+	private final AtomicLong reloj = new AtomicLong(1_000);
+	private final AtomicBoolean conmutado = new AtomicBoolean();
+	private final RestTemplate restTemplate = new RestTemplate();
+	private final MockRestServiceServer servidor = MockRestServiceServer.bindTo(restTemplate).build();
+	private final ArrendamientosPagos arrendamientos = new ArrendamientosPagos(true, URL, 3, 1_000,
+			new SimpleMeterRegistry(), restTemplate, reloj::get, conmutado::get);
+
+	@Test
+	void apruebaLocalmenteYLiquidaElAcumuladoEnUnLote() {
+		esperarArrendamiento("c1", "a1", 3, 20);
+		servidor.expect(requestTo(URL + "/liquidaciones"))
+				.andExpect(content().json("[{\"idArrendamiento\":\"a1\",\"consumidas\":2,\"devolver\":false}]"))
+				.andRespond(withSuccess("[{\"idArrendamiento\":\"a1\",\"liquidadas\":2,\"vigente\":true}]",
+						MediaType.APPLICATION_JSON));
+
+		PagoResponse primera = arrendamientos.intentarAprobar(reaccion("c1"));
+		PagoResponse segunda = arrendamientos.intentarAprobar(reaccion("c1"));
+		arrendamientos.liquidar();
+		// Sin gasto nuevo no se envía nada.
+		arrendamientos.liquidar();
+
+		assertEquals(EstadoPago.ACEPTADO, primera.getEstado());
+		assertEquals(EstadoPago.ACEPTADO, segunda.getEstado());
+		assertEquals(40, segunda.getTotalAcumuladoUsuario());
+		servidor.verify();
+	}
+
+	@Test
+	void siSeNiegaElArrendamientoDevuelveLosDemasDelUsuarioYReintenta() {
+		esperarArrendamiento("c1", "a1", 3, 0);
+		servidor.expect(requestTo(URL)).andRespond(withSuccess(
+				"{\"estado\":\"LIMITE_SUPERADO\",\"unidades\":0,\"totalAcumuladoUsuario\":0}", MediaType.APPLICATION_JSON));
+		servidor.expect(requestTo(URL + "/liquidaciones"))
+				.andExpect(content().json("[{\"idArrendamiento\":\"a1\",\"consumidas\":1,\"devolver\":true}]"))
+				.andRespond(withSuccess("[{\"idArrendamiento\":\"a1\",\"liquidadas\":1,\"vigente\":false}]",
+						MediaType.APPLICATION_JSON));
+		esperarArrendamiento("c2", "a2", 2, 10);
+
+		arrendamientos.intentarAprobar(reaccion("c1"));
+		PagoResponse respuesta = arrendamientos.intentarAprobar(reaccion("c2"));
+
+		assertEquals(EstadoPago.ACEPTADO, respuesta.getEstado());
+		assertEquals(1, arrendamientos.cantidadVigentes());
+		servidor.verify();
+	}
+
+	@Test
+	void alNegarseElArrendamientoSoloSeDevuelvenLosDelMismoUsuario() {
+		esperarArrendamiento("beto", "c1", "b1", 3, 0);
+		esperarArrendamiento("ana", "c1", "a1", 3, 0);
+		servidor.expect(requestTo(URL)).andRespond(withSuccess(
+				"{\"estado\":\"LIMITE_SUPERADO\",\"unidades\":0,\"totalAcumuladoUsuario\":0}", MediaType.APPLICATION_JSON));
+		// Solo el de ana, aunque el de beto tenga gasto sin liquidar.
+		servidor.expect(requestTo(URL + "/liquidaciones"))
+				.andExpect(content().json("[{\"idArrendamiento\":\"a1\",\"consumidas\":1,\"devolver\":true}]", true))
+				.andRespond(withSuccess("[{\"idArrendamiento\":\"a1\",\"liquidadas\":1,\"vigente\":false}]",
+						MediaType.APPLICATION_JSON));
+		esperarArrendamiento("ana", "c2", "a2", 2, 10);
+
+		arrendamientos.intentarAprobar(reaccion("beto", "c1"));
+		arrendamientos.intentarAprobar(reaccion("ana", "c1"));
+		PagoResponse respuesta = arrendamientos.intentarAprobar(reaccion("ana", "c2"));
+
+		assertEquals(EstadoPago.ACEPTADO, respuesta.getEstado());
+		assertEquals(2, arrendamientos.cantidadVigentes());
+		servidor.verify();
+	}
+
+	@Test
+	void unaLiquidacionFallidaSeReenviaYSinServidorSeUsaElFlujoNormal() {
+		esperarArrendamiento("c1", "a1", 3, 0);
+		servidor.expect(requestTo(URL + "/liquidaciones")).andRespond(withServerError());
+		servidor.expect(requestTo(URL + "/liquidaciones"))
+				.andExpect(content().json("[{\"idArrendamiento\":\"a1\",\"consumidas\":1,\"devolver\":true}]"))
+				.andRespond(withSuccess("[{\"idArrendamiento\":\"a1\",\"liquidadas\":1,\"vigente\":false}]",
+						MediaType.APPLICATION_JSON));
+		servidor.expect(requestTo(URL)).andRespond(withServerError());
+
+		arrendamientos.intentarAprobar(reaccion("c1"));
+		// Vence (menos el margen) antes de liquidar; la devolución falla y se repite.
+		reloj.addAndGet(60_000);
+		arrendamientos.liquidar();
+		arrendamientos.liquidar();
+
+		assertNull(arrendamientos.intentarAprobar(reaccion("c1")));
+		servidor.verify();
+	}
+
+	@Test
+	void trasConmutarAlRespaldoDejaDeArrendarYNoLiquidaContraElPrincipal() {
+		esperarArrendamiento("c1", "a1", 3, 0);
+		arrendamientos.intentarAprobar(reaccion("c1"));
+
+		conmutado.set(true);
+		// Sin más peticiones: el arrendamiento vive en el principal caído y el respaldo no lo conoce.
+		assertNull(arrendamientos.intentarAprobar(reaccion("c1")));
+		arrendamientos.liquidar();
+
+		assertEquals(0, arrendamientos.cantidadVigentes());
+		servidor.verify();
+	}
+
+	private void esperarArrendamiento(String idCancion, String id, int unidades, int total) {
+		esperarArrendamiento("ana", idCancion, id, unidades, total);
+	}
+
+	private void esperarArrendamiento(String nickname, String idCancion, String id, int unidades, int total) {
+		servidor.expect(requestTo(URL))
+				.andExpect(method(HttpMethod.POST))
+				.andExpect(content().json("{\"nickname\":\"" + nickname + "\",\"idCancion\":\"" + idCancion
+						+ "\",\"unidades\":3}"))
+				.andRespond(withSuccess("{\"id\":\"" + id + "\",\"estado\":\"ACEPTADO\",\"precio\":10,\"unidades\":"
+						+ unidades + ",\"duracionMs\":30000,\"totalAcumuladoUsuario\":" + total + "}",
+						MediaType.APPLICATION_JSON));
+	}
+
+	private static MensajeCancion reaccion(String idCancion) {
+		return reaccion("ana", idCancion);
+	}
+
+	private static MensajeCancion reaccion(String nickname, String idCancion) {
+		return new MensajeCancion(nickname, idCancion, "REACCION", "like");
+	}
+}
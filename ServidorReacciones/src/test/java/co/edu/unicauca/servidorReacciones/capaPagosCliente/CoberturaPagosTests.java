@@ -0,0 +1,58 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoberturaPagosTests {
+
+	@Test
+	void calculaPercentilesSobreLasUltimasMuestras() {
+		VentanaLatencias ventana = new VentanaLatencias(100, 1, 0.5, 0.95);
+		for (int i = 1; i <= 100; i++) {
+			ventana.registrar(i);
+		}
+		assertEquals(51, ventana.percentil(0));
+		assertEquals(96, ventana.percentil(1));
+
+		// Las muestras nuevas desplazan a las más antiguas.
+		for (int i = 0; i < 100; i++) {
+			ventana.registrar(1000);
+		}
+		assertEquals(1000, ventana.percentil(0));
+		assertEquals(100, ventana.getCantidad());
+	}
+
+	@Test
+	void recalculaSoloCadaCiertoNumeroDeMuestras() {
+		VentanaLatencias ventana = new VentanaLatencias(64, 8, 0.95);
+		for (int i = 0; i < 7; i++) {
+			ventana.registrar(10);
+		}
+		assertEquals(0, ventana.percentil(0));
+		ventana.registrar(10);
+		assertEquals(10, ventana.percentil(0));
+	}
+
+	@Test
+	void elPresupuestoLimitaLasCoberturasALaProporcionConfigurada() {
+		PresupuestoSolicitudesExtra presupuesto = new PresupuestoSolicitudesExtra(0.1, 2);
+
+		// Créditos iniciales acumulados.
+		assertTrue(presupuesto.intentarConsumir());
+		assertTrue(presupuesto.intentarConsumir());
+		assertFalse(presupuesto.intentarConsumir());
+
+		// Con todas las peticiones lentas (caída), solo se cubre 1 de cada 10.
+		int concedidas = 0;
+		for (int i = 0; i < 1000; i++) {
+			presupuesto.registrarSolicitud();
+			if (presupuesto.intentarConsumir()) {
+				concedidas++;
+			}
+		}
+		assertTrue(concedidas >= 99 && concedidas <= 100, "coberturas concedidas: " + concedidas);
+	}
+}
@@ -0,0 +1,121 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EjecutorSerialPorUsuarioTests {
+
+	private EjecutorSerialPorUsuario ejecutor;
+
+	@AfterEach
+	void detener() {
+		if (ejecutor != null) {
+			ejecutor.detener();
+		}
+	}
+
+	@Test
+	void ejecutaLasTareasDeCadaUsuarioEnOrdenYSinSolaparse() throws Exception {
+		ejecutor = new EjecutorSerialPorUsuario(new SimpleMeterRegistry(), 8, 10_000);
+		int usuarios = 20;
+		int tareasPorUsuario = 500;
+		List<List<Integer>> ejecutadas = new ArrayList<>();
+		List<AtomicInteger> enCurso = new ArrayList<>();
+		AtomicInteger solapamientos = new AtomicInteger();
+		CountDownLatch terminadas = new CountDownLatch(usuarios * tareasPorUsuario);
+		for (int u = 0; u < usuarios; u++) {
+			ejecutadas.add(Collections.synchronizedList(new ArrayList<>()));
+			enCurso.add(new AtomicInteger());
+		}
+
+		for (int i = 0; i < tareasPorUsuario; i++) {
+			for (int u = 0; u < usuarios; u++) {
+				int usuario = u;
+				int secuencia = i;
+				assertTrue(ejecutor.ejecutar("usuario" + u, () -> {
+					if (enCurso.get(usuario).incrementAndGet() > 1) {
+						solapamientos.incrementAndGet();
+					}
+					ejecutadas.get(usuario).add(secuencia);
+					enCurso.get(usuario).decrementAndGet();
+					terminadas.countDown();
+				}));
+			}
+		}
+
+		assertTrue(terminadas.await(10, TimeUnit.SECONDS));
+		assertEquals(0, solapamientos.get());
+		for (List<Integer> secuencias : ejecutadas) {
+			assertEquals(tareasPorUsuario, secuencias.size());
+			for (int i = 0; i < tareasPorUsuario; i++) {
+				assertEquals(i, secuencias.get(i));
+			}
+		}
+		esperarBuzonesVacios();
+	}
+
+	@Test
+	void usuariosDistintosAvanzanEnParalelo() throws Exception {
+		ejecutor = new EjecutorSerialPorUsuario(new SimpleMeterRegistry(), 4, 10);
+		CountDownLatch tareaDeBEjecutada = new CountDownLatch(1);
+		CountDownLatch tareaDeATerminada = new CountDownLatch(1);
+
+		// La tarea de A solo termina si la de B corre mientras A sigue ocupado.
+		ejecutor.ejecutar("A", () -> {
+			try {
+				if (tareaDeBEjecutada.await(5, TimeUnit.SECONDS)) {
+					tareaDeATerminada.countDown();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		ejecutor.ejecutar("B", tareaDeBEjecutada::countDown);
+
+		assertTrue(tareaDeATerminada.await(5, TimeUnit.SECONDS));
+		esperarBuzonesVacios();
+	}
+
+	@Test
+	void rechazaTareasCuandoElUsuarioSuperaSuMaximoDePendientes() throws Exception {
+		ejecutor = new EjecutorSerialPorUsuario(new SimpleMeterRegistry(), 2, 2);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Runnable bloqueante = () -> {
+			try {
+				liberar.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+
+		assertTrue(ejecutor.ejecutar("A", bloqueante));
+		assertTrue(ejecutor.ejecutar("A", () -> { }));
+		assertFalse(ejecutor.ejecutar("A", () -> { }));
+		// Otro usuario no se ve afectado.
+		assertTrue(ejecutor.ejecutar("B", () -> { }));
+
+		liberar.countDown();
+		esperarBuzonesVacios();
+		assertTrue(ejecutor.ejecutar("A", () -> { }));
+	}
+
+	private void esperarBuzonesVacios() throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (ejecutor.getBuzonesActivos() > 0 && System.nanoTime() < limite) {
+			Thread.sleep(5);
+		}
+		assertEquals(0, ejecutor.getBuzonesActivos());
+	}
+}
@@ -0,0 +1,72 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitadorConcurrenciaPagosTests {
+
+	private static final long RTT_SANO = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+	private final AtomicLong reloj = new AtomicLong(1);
+
+	@Test
+	void descartaPorEncimaDelLimiteYPublicaLasMetricas() {
+		LimitadorConcurrenciaPagos limitador = limitador(2, 1, 10);
+
+		assertTrue(limitador.intentarAdquirir());
+		assertTrue(limitador.intentarAdquirir());
+		assertFalse(limitador.intentarAdquirir());
+		limitador.liberar();
+		assertTrue(limitador.intentarAdquirir());
+
+		assertEquals(1, limitador.getDescartadas());
+		assertEquals(2.0, registro.get("reacciones.concurrencia.en-curso").gauge().value());
+		assertEquals(2.0, registro.get("reacciones.concurrencia.limite").gauge().value());
+		assertEquals(1.0, registro.get("reacciones.concurrencia.descartadas").counter().count());
+	}
+
+	@Test
+	void bajaConFallosYRttLentosComoMuchoUnaVezPorRttDeReferencia() {
+		LimitadorConcurrenciaPagos limitador = limitador(100, 16, 1000);
+		// Sin reacciones en curso el límite no está en uso: los RTT sanos no lo suben.
+		for (int i = 0; i < 20; i++) {
+			limitador.registrarRtt(RTT_SANO, false);
+		}
+		assertEquals(100, limitador.getLimite());
+
+		limitador.registrarRtt(0, true);
+		assertEquals(90, limitador.getLimite());
+		// Dentro del mismo RTT de referencia la segunda señal no vuelve a bajarlo.
+		limitador.registrarRtt(5 * RTT_SANO, false);
+		assertEquals(90, limitador.getLimite());
+
+		reloj.addAndGet(2 * RTT_SANO);
+		limitador.registrarRtt(5 * RTT_SANO, false);
+		assertEquals(81, limitador.getLimite());
+	}
+
+	@Test
+	void subeEnUnoPorRttSanoSoloMientrasElLimiteEstaEnUso() {
+		LimitadorConcurrenciaPagos limitador = limitador(4, 1, 10);
+		limitador.intentarAdquirir();
+		limitador.intentarAdquirir();
+
+		limitador.registrarRtt(RTT_SANO, false);
+		assertEquals(5, limitador.getLimite());
+		// Con 2 de 5 ocupados ya no está en uso.
+		limitador.registrarRtt(RTT_SANO, false);
+		assertEquals(5, limitador.getLimite());
+	}
+
+	private LimitadorConcurrenciaPagos limitador(int inicial, int minimo, int maximo) {
+		return new LimitadorConcurrenciaPagos(registro, true, inicial, minimo, maximo, 2.0, 0.9, reloj::get);
+	}
+}
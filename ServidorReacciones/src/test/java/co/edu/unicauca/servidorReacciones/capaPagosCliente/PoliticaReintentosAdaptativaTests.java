@@ -0,0 +1,133 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.exceptions.PagoSimuladoFallidoException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.retry.backoff.NoBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PoliticaReintentosAdaptativaTests {
+
+	private static final int REACCIONES = 1000;
+
+	/**
+	 * Simula un servidor de pagos sobrecargado que falla el 90% de los intentos y compara la
+	 * carga total que recibe con la política fija anterior (4 intentos siempre) y con la adaptativa.
+	 */
+	@Test
+	void reduceLaTormentaDeReintentosDuranteUnaSobrecarga() throws Exception {
+		RetryTemplate fija = new RetryTemplate();
+		fija.setRetryPolicy(new SimpleRetryPolicy(4));
+		fija.setBackOffPolicy(new NoBackOffPolicy());
+		int intentosFija = simular(fija, null, 0.9).intentos;
+
+		PoliticaReintentosAdaptativa politica = new PoliticaReintentosAdaptativa(4, 1500, 10000, 0.1);
+		List<Long> esperas = new ArrayList<>();
+		Resultado adaptativa = simular(politica.crearPlantilla(esperas::add), politica, 0.9);
+
+		System.out.printf("[SIMULACION] Intentos al servidor sobrecargado: fija=%d, adaptativa=%d (%d reacciones)%n",
+				intentosFija, adaptativa.intentos, REACCIONES);
+		assertTrue(intentosFija > 3 * REACCIONES, "intentos con política fija: " + intentosFija);
+		// Presupuesto del 10% más los créditos iniciales.
+		assertTrue(adaptativa.intentos <= REACCIONES * 1.1 + 10, "intentos con política adaptativa: " + adaptativa.intentos);
+		assertTrue(politica.getReintentosDenegados() > 0);
+
+		// Con una tasa de fallos alta las esperas se alargan por encima de la base configurada.
+		assertTrue(politica.getTasaFallos() > 0.8);
+		assertTrue(politica.getEsperaBaseEfectivaMs() > 3 * 1500);
+		for (long espera : esperas) {
+			assertTrue(espera >= 1500 && espera <= 10000, "espera fuera de rango: " + espera);
+		}
+	}
+
+	/**
+	 * Con el servidor sano del laboratorio (falla 1 de cada 4 intentos) el presupuesto configurado
+	 * alcanza para reintentar casi todos los fallos.
+	 */
+	@Test
+	void conElServidorSanoCasiTodosLosPagosTerminanBien() throws Exception {
+		PoliticaReintentosAdaptativa politica = new PoliticaReintentosAdaptativa(4, 1500, 10000, 0.35);
+		Resultado resultado = simular(politica.crearPlantilla(espera -> { }), politica, 0.25);
+
+		assertTrue(resultado.exitos > REACCIONES * 0.95, "pagos exitosos: " + resultado.exitos);
+	}
+
+	@Test
+	void seReconfiguraEnCalienteDesdeActuator() throws Exception {
+		PoliticaReintentosAdaptativa politica = new PoliticaReintentosAdaptativa(4, 1500, 10000, 0.1);
+		ReintentosPagosEndpoint endpoint = new ReintentosPagosEndpoint(politica);
+
+		WebEndpointResponse<Map<String, Object>> respuesta = endpoint.configurar(2, null, null, 1.0);
+		assertEquals(WebEndpointResponse.STATUS_OK, respuesta.getStatus());
+		Map<String, Object> configuracion = respuesta.getBody();
+		assertEquals(2, configuracion.get("maxIntentos"));
+		assertEquals(1500L, configuracion.get("esperaBaseMs"));
+
+		// El nuevo máximo de intentos se aplica a las plantillas ya creadas.
+		Resultado resultado = simular(politica.crearPlantilla(espera -> { }), politica, 1.0);
+		assertEquals(2 * REACCIONES, resultado.intentos);
+	}
+
+	@Test
+	void rechazaConfiguracionesInvalidasSinCambiarNingunValor() {
+		PoliticaReintentosAdaptativa politica = new PoliticaReintentosAdaptativa(4, 1500, 10000, 0.1);
+		ReintentosPagosEndpoint endpoint = new ReintentosPagosEndpoint(politica);
+
+		assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.configurar(-1, null, null, null).getStatus());
+		assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.configurar(2, 20_000L, null, null).getStatus());
+		assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.configurar(null, null, 1000L, null).getStatus());
+		assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.configurar(null, -5L, null, null).getStatus());
+		assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.configurar(2, null, null, -0.5).getStatus());
+		assertThrows(IllegalArgumentException.class, () -> politica.setEsperaMaximaMs(100));
+
+		assertEquals(4, politica.getMaxIntentos());
+		assertEquals(1500, politica.getEsperaBaseMs());
+		assertEquals(10000, politica.getEsperaMaximaMs());
+		assertEquals(0.1, politica.getProporcionReintentos());
+
+		// Subir la base por encima del máximo vigente es válido si el máximo sube en la misma petición.
+		assertEquals(WebEndpointResponse.STATUS_OK, endpoint.configurar(null, 20_000L, 30_000L, null).getStatus());
+		assertEquals(20_000, politica.getEsperaBaseMs());
+	}
+
+	private static final class Resultado {
+		private int intentos;
+		private int exitos;
+	}
+
+	private static Resultado simular(RetryTemplate plantilla, PoliticaReintentosAdaptativa politica,
+									 double probabilidadFallo) throws Exception {
+		Random aleatorio = new Random(42);
+		AtomicInteger intentos = new AtomicInteger();
+		Resultado resultado = new Resultado();
+		for (int i = 0; i < REACCIONES; i++) {
+			boolean exito = plantilla.execute(contexto -> {
+				intentos.incrementAndGet();
+				boolean fallo = aleatorio.nextDouble() < probabilidadFallo;
+				if (politica != null) {
+					politica.registrarResultado(5_000_000L, fallo);
+				}
+				if (fallo) {
+					throw new PagoSimuladoFallidoException("sobrecarga");
+				}
+				return true;
+			}, contexto -> false);
+			if (exito) {
+				resultado.exitos++;
+			}
+		}
+		resultado.intentos = intentos.get();
+		return resultado;
+	}
+}
@@ -0,0 +1,195 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.pagos.grpc.PagosServiceGrpc;
+import co.edu.unicauca.pagos.grpc.estadoPago;
+import co.edu.unicauca.pagos.grpc.peticionPago;
+import co.edu.unicauca.pagos.grpc.respuestaPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.EstadoPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoRequest;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoResponse;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransportePagosGrpcTests {
+
+	private final List<Server> servidores = new ArrayList<>();
+	private final List<ManagedChannel> canales = new ArrayList<>();
+
+	@AfterEach
+	void cerrar() {
+		canales.forEach(ManagedChannel::shutdownNow);
+		servidores.forEach(Server::shutdownNow);
+	}
+
+	@Test
+	void cadaHiloRecibeSuRespuestaAunqueLleguenDesordenadas() throws Exception {
+		// El servidor acumula los pagos de a 8 y los responde en orden inverso.
+		TransportePagosGrpc transporte = transporte(new PagosServiceGrpc.PagosServiceImplBase() {
+			@Override
+			public StreamObserver<peticionPago> registrarPagos(StreamObserver<respuestaPago> respuestas) {
+				return new StreamObserver<>() {
+					private final List<peticionPago> lote = new ArrayList<>();
+
+					@Override
+					public synchronized void onNext(peticionPago peticion) {
+						lote.add(peticion);
+						if (lote.size() == 8) {
+							for (int i = lote.size() - 1; i >= 0; i--) {
+								peticionPago p = lote.get(i);
+								respuestas.onNext(respuestaPago.newBuilder()
+										.setIdCorrelacion(p.getIdCorrelacion())
+										.setEstado(estadoPago.ACEPTADO)
+										.setMensaje(p.getNickname())
+										.build());
+							}
+							lote.clear();
+						}
+					}
+
+					@Override
+					public void onError(Throwable error) {
+					}
+
+					@Override
+					public void onCompleted() {
+						respuestas.onCompleted();
+					}
+				};
+			}
+		});
+
+		ExecutorService hilos = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<PagoResponse>> respuestas = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				PagoRequest pago = new PagoRequest("t" + i, "usuario" + i, "c1", "clave" + i, "like");
+				respuestas.add(hilos.submit(() -> transporte.enviarPago(pago, false)));
+			}
+			for (int i = 0; i < 64; i++) {
+				PagoResponse respuesta = respuestas.get(i).get();
+				assertEquals(EstadoPago.ACEPTADO, respuesta.getEstado());
+				assertEquals("usuario" + i, respuesta.getMensaje());
+			}
+		} finally {
+			hilos.shutdown();
+		}
+	}
+
+	@Test
+	void unaSesionCaidaFallaSusPagosYElSiguientePagoAbreOtra() {
+		AtomicInteger sesiones = new AtomicInteger();
+		TransportePagosGrpc transporte = transporte(new PagosServiceGrpc.PagosServiceImplBase() {
+			@Override
+			public StreamObserver<peticionPago> registrarPagos(StreamObserver<respuestaPago> respuestas) {
+				boolean primera = sesiones.incrementAndGet() == 1;
+				return new StreamObserver<>() {
+					@Override
+					public void onNext(peticionPago peticion) {
+						if (primera) {
+							respuestas.onError(Status.UNAVAILABLE.asRuntimeException());
+							return;
+						}
+						respuestas.onNext(respuestaPago.newBuilder()
+								.setIdCorrelacion(peticion.getIdCorrelacion())
+								.setEstado(estadoPago.LIMITE_SUPERADO)
+								.setTotalAcumuladoUsuario(50)
+								.build());
+					}
+
+					@Override
+					public void onError(Throwable error) {
+					}
+
+					@Override
+					public void onCompleted() {
+						respuestas.onCompleted();
+					}
+				};
+			}
+		});
+		PagoRequest pago = new PagoRequest("t1", "ana", "c1", "clave1", "like");
+
+		assertThrows(RestClientException.class, () -> transporte.enviarPago(pago, false));
+		PagoResponse respuesta = transporte.enviarPago(pago, false);
+
+		assertEquals(EstadoPago.LIMITE_SUPERADO, respuesta.getEstado());
+		assertEquals(50, respuesta.getTotalAcumuladoUsuario());
+		assertEquals(2, sesiones.get());
+	}
+
+	@Test
+	void conmutaAlRespaldoCuandoElPrincipalNoEstaDisponible() {
+		AtomicInteger pagosRespaldo = new AtomicInteger();
+		String respaldo = servidor(new PagosServiceGrpc.PagosServiceImplBase() {
+			@Override
+			public StreamObserver<peticionPago> registrarPagos(StreamObserver<respuestaPago> respuestas) {
+				return new StreamObserver<>() {
+					@Override
+					public void onNext(peticionPago peticion) {
+						pagosRespaldo.incrementAndGet();
+						respuestas.onNext(respuestaPago.newBuilder()
+								.setIdCorrelacion(peticion.getIdCorrelacion())
+								.setEstado(estadoPago.ACEPTADO)
+								.build());
+					}
+
+					@Override
+					public void onError(Throwable error) {
+					}
+
+					@Override
+					public void onCompleted() {
+						respuestas.onCompleted();
+					}
+				};
+			}
+		});
+		// Un principal sin servidor: sus llamadas fallan con UNAVAILABLE.
+		ManagedChannel principal = canal(InProcessServerBuilder.generateName());
+		TransportePagosGrpc transporte = new TransportePagosGrpc(principal, canal(respaldo), canal(respaldo), 5_000, 16, 0);
+		PagoRequest pago = new PagoRequest("t1", "ana", "c1", "clave1", "like");
+
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, false).getEstado());
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, false).getEstado());
+		assertEquals(2, pagosRespaldo.get());
+	}
+
+	private TransportePagosGrpc transporte(PagosServiceGrpc.PagosServiceImplBase servicio) {
+		String nombre = servidor(servicio);
+		return new TransportePagosGrpc(canal(nombre), canal(nombre), 5_000, 16);
+	}
+
+	private String servidor(PagosServiceGrpc.PagosServiceImplBase servicio) {
+		String nombre = InProcessServerBuilder.generateName();
+		try {
+			servidores.add(InProcessServerBuilder.forName(nombre).addService(servicio).build().start());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return nombre;
+	}
+
+	private ManagedChannel canal(String nombre) {
+		ManagedChannel canal = InProcessChannelBuilder.forName(nombre).build();
+		canales.add(canal);
+		return canal;
+	}
+}
@@ -0,0 +1,104 @@
+package co.edu.unicauca.servidorReacciones.capaPagosCliente;
+
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.EstadoPago;
+import co.edu.unicauca.servidorReacciones.capaPagosCliente.models.PagoRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withException;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class TransportePagosRestTests {
+
+	private static final String PRINCIPAL = "http://principal/api/pagos";
+	private static final String RESPALDO = "http://respaldo/api/pagos";
+	private static final String SECUNDARIA = "http://secundaria/api/pagos";
+
+	private final RestTemplate restTemplate = new RestTemplate();
+	private final MockRestServiceServer servidor = MockRestServiceServer.bindTo(restTemplate).build();
+
+	@Test
+	void conmutaAlRespaldoCuandoElPrincipalRechazaLaConexionYSeQuedaAlli() {
+		TransportePagosRest transporte = new TransportePagosRest(restTemplate, PRINCIPAL, RESPALDO, PRINCIPAL, 0);
+		PagoRequest pago = new PagoRequest("t1", "ana", "c1", "clave1", "like");
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withException(new ConnectException("Connection refused")));
+		servidor.expect(requestTo(RESPALDO)).andRespond(withSuccess(
+				"{\"estado\":\"ACEPTADO\",\"totalAcumuladoUsuario\":10}", MediaType.APPLICATION_JSON));
+		servidor.expect(requestTo(RESPALDO + "/token")).andRespond(withSuccess(
+				"{\"token\":\"t2\"}", MediaType.APPLICATION_JSON));
+
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, false).getEstado());
+		assertEquals("t2", transporte.solicitarToken().getToken());
+		assertTrue(transporte.isConmutadoAlRespaldo());
+		servidor.verify();
+	}
+
+	@Test
+	void unRechazoAisladoNoConmutaYLasCoberturasSiguenAlDestinoVigente() {
+		TransportePagosRest transporte = new TransportePagosRest(restTemplate, PRINCIPAL, RESPALDO, SECUNDARIA, 60_000);
+		PagoRequest pago = new PagoRequest("t1", "ana", "c1", "clave1", "like");
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withException(new ConnectException("Connection refused")));
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withSuccess(
+				"{\"estado\":\"ACEPTADO\",\"totalAcumuladoUsuario\":10}", MediaType.APPLICATION_JSON));
+		servidor.expect(requestTo(SECUNDARIA)).andRespond(withSuccess(
+				"{\"estado\":\"ACEPTADO\",\"totalAcumuladoUsuario\":10}", MediaType.APPLICATION_JSON));
+
+		assertThrows(ResourceAccessException.class, () -> transporte.enviarPago(pago, false));
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, false).getEstado());
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, true).getEstado());
+		assertFalse(transporte.isConmutadoAlRespaldo());
+		servidor.verify();
+	}
+
+	@Test
+	void vuelveAlPrincipalSiElRespaldoAunNoSePromueveYTrasConmutarCubreEnElRespaldo() {
+		TransportePagosRest transporte = new TransportePagosRest(restTemplate, PRINCIPAL, RESPALDO, SECUNDARIA, 0);
+		PagoRequest pago = new PagoRequest("t1", "ana", "c1", "clave1", "like");
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withException(new ConnectException("Connection refused")));
+		servidor.expect(requestTo(RESPALDO)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withException(new ConnectException("Connection refused")));
+		servidor.expect(requestTo(RESPALDO)).andRespond(withSuccess(
+				"{\"estado\":\"ACEPTADO\",\"totalAcumuladoUsuario\":10}", MediaType.APPLICATION_JSON));
+		servidor.expect(requestTo(RESPALDO)).andRespond(withSuccess(
+				"{\"estado\":\"ACEPTADO\",\"totalAcumuladoUsuario\":10}", MediaType.APPLICATION_JSON));
+		servidor.expect(requestTo(RESPALDO)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		// El primario aún replica al respaldo: este lo rechaza y el siguiente intento vuelve al principal.
+		assertThrows(HttpServerErrorException.class, () -> transporte.enviarPago(pago, false));
+		assertFalse(transporte.isConmutadoAlRespaldo());
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, false).getEstado());
+		assertEquals(EstadoPago.ACEPTADO, transporte.enviarPago(pago, true).getEstado());
+		// Ya promovido, un 503 del respaldo no devuelve el tráfico al principal desactualizado.
+		assertThrows(HttpServerErrorException.class, () -> transporte.enviarPago(pago, false));
+		assertTrue(transporte.isConmutadoAlRespaldo());
+		servidor.verify();
+	}
+
+	@Test
+	void noConmutaSiElPrincipalAceptoLaConexionONoHayRespaldo() {
+		PagoRequest pago = new PagoRequest("t1", "ana", "c1", "clave1", "like");
+		TransportePagosRest conRespaldo = new TransportePagosRest(restTemplate, PRINCIPAL, RESPALDO, PRINCIPAL, 0);
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withException(new SocketTimeoutException("Read timed out")));
+		servidor.expect(requestTo(PRINCIPAL)).andRespond(withException(new ConnectException("Connection refused")));
+
+		// Una lectura vencida puede ser un pago en curso: el principal sigue vivo.
+		assertThrows(ResourceAccessException.class, () -> conRespaldo.enviarPago(pago, false));
+		TransportePagosRest sinRespaldo = new TransportePagosRest(restTemplate, PRINCIPAL, "", PRINCIPAL, 0);
+		assertThrows(ResourceAccessException.class, () -> sinRespaldo.enviarPago(pago, false));
+		servidor.verify();
+	}
+}
@@ -0,0 +1,79 @@
+package co.edu.unicauca.servidorReacciones.capaPerfilado;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrabadorJfrTests {
+
+	private final GrabadorJfr grabador = new GrabadorJfr("default", 60, 600);
+
+	@AfterEach
+	void cerrar() {
+		grabador.cerrar();
+	}
+
+	@Test
+	void laGrabacionContieneLosEventosPropios() throws Exception {
+		// Sin grabación los eventos no se registran.
+		EventoReaccionRecibida.registrar("ana", "perdida", "like", true);
+		assertNull(grabador.detener());
+
+		assertTrue(grabador.iniciar(30));
+		assertFalse(grabador.iniciar(30));
+		assertEquals("RUNNING", grabador.estado().get("estado"));
+		EventoReaccionRecibida.registrar("ana", "c1", "like", true);
+		EventoCambioPresencia.registrar("ana", "c1", "PLAY", 1);
+		EventoIntentoPago intento = new EventoIntentoPago();
+		intento.begin();
+		intento.terminar("ana", "c1", 2, "ACEPTADO");
+		EventoDifusion difusion = new EventoDifusion();
+		difusion.begin();
+		difusion.terminar("c1", 1, 0);
+		Path archivo = grabador.detener();
+
+		try {
+			List<RecordedEvent> eventos = RecordingFile.readAllEvents(archivo).stream()
+					.filter(e -> e.getEventType().getName().startsWith("co.edu.unicauca.reacciones."))
+					.toList();
+			assertEquals(List.of("ReaccionRecibida", "CambioPresencia", "IntentoPago", "Difusion"),
+					eventos.stream().map(e -> e.getEventType().getName().substring(27)).toList());
+			assertEquals("c1", eventos.get(0).getString("cancion"));
+			assertEquals(2, eventos.get(2).getInt("intento"));
+			assertEquals("ACEPTADO", eventos.get(2).getString("resultado"));
+			assertEquals(1, eventos.get(3).getInt("oyentes"));
+			assertEquals("SIN_GRABACION", grabador.estado().get("estado"));
+		} finally {
+			Files.deleteIfExists(archivo);
+		}
+	}
+
+	@Test
+	void laGrabacionSeDetieneSolaYSeConservaHastaDescargarla() throws Exception {
+		assertTrue(grabador.iniciar(1));
+		EventoCambioPresencia.registrar("ana", "c1", "PAUSE", 0);
+		long limite = System.currentTimeMillis() + 10_000;
+		while ("RUNNING".equals(grabador.estado().get("estado")) && System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals("STOPPED", grabador.estado().get("estado"));
+
+		Path archivo = grabador.detener();
+		try {
+			assertTrue(RecordingFile.readAllEvents(archivo).stream()
+					.anyMatch(e -> e.getEventType().getName().equals("co.edu.unicauca.reacciones.CambioPresencia")));
+		} finally {
+			Files.deleteIfExists(archivo);
+		}
+	}
+}
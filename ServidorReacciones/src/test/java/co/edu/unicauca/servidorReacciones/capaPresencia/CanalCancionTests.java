@@ -0,0 +1,57 @@
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CanalCancionTests {
+
+	@Test
+	void cuentaLosOyentesSinDuplicarlos() {
+		CanalCancion canal = new CanalCancion(0, "cancion1");
+
+		assertTrue(canal.agregarOyente(3));
+		assertFalse(canal.agregarOyente(3));
+		assertTrue(canal.agregarOyente(70));
+		assertEquals(2, canal.getCantidadOyentes());
+		assertArrayEquals(new int[]{3, 70}, canal.copiarOyentes());
+
+		assertTrue(canal.quitarOyente(3));
+		assertFalse(canal.quitarOyente(3));
+		assertEquals(1, canal.getCantidadOyentes());
+		assertEquals("/broker/canciones/cancion1", canal.getDestino());
+	}
+
+	@Test
+	void noSeRetiraConOyentesNiSesionesMultiplexadas() {
+		CanalCancion canal = new CanalCancion(0, "cancion1");
+		long despues = System.nanoTime() + 1;
+
+		canal.agregarOyente(1);
+		assertFalse(canal.retirarSiInactivo(despues));
+		canal.quitarOyente(1);
+
+		SesionMultiplexada sesion = new SesionMultiplexada("s1");
+		canal.agregarSesionMultiplexada(sesion);
+		assertFalse(canal.retirarSiInactivo(despues));
+		canal.quitarSesionMultiplexada(sesion);
+
+		assertTrue(canal.retirarSiInactivo(despues));
+		assertTrue(canal.isRetirado());
+	}
+
+	@Test
+	void laActividadRecienteEvitaElRetiroYUnCanalRetiradoNoSeReactiva() {
+		CanalCancion canal = new CanalCancion(0, "cancion1");
+		long antes = System.nanoTime() - 1_000_000_000L;
+
+		assertTrue(canal.tocar());
+		assertFalse(canal.retirarSiInactivo(antes));
+
+		assertTrue(canal.retirarSiInactivo(System.nanoTime() + 1));
+		assertFalse(canal.tocar());
+	}
+}
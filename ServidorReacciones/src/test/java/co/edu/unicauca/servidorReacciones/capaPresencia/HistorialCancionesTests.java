@@ -0,0 +1,129 @@
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistorialCancionesTests {
+
+	private final RegistroIdentificadores registro = new RegistroIdentificadores();
+
+	@Test
+	void asignaSecuenciasCrecientesYRepiteDesdeUnaSecuencia() {
+		HistorialCanciones historial = new HistorialCanciones(8, 1024);
+		CanalCancion canal = registro.canal("cancion1");
+		for (int i = 0; i < 5; i++) {
+			historial.publicar(canal, reaccion("u" + i));
+		}
+
+		List<MensajeCancion> eventos = historial.desde(canal, 3, 64);
+		assertEquals(List.of(3L, 4L, 5L), secuencias(eventos));
+		assertEquals(List.of(4L, 5L), secuencias(historial.ultimos(canal, 2)));
+		assertTrue(historial.desde(canal, 6, 64).isEmpty());
+	}
+
+	@Test
+	void conservaSoloLosUltimosEventosDeCadaCanal() {
+		HistorialCanciones historial = new HistorialCanciones(8, 1024);
+		CanalCancion canal = registro.canal("cancion1");
+		for (int i = 0; i < 20; i++) {
+			historial.publicar(canal, reaccion("u" + i));
+		}
+
+		// Quien pide desde una secuencia ya sobrescrita recibe solo lo que sigue guardado.
+		assertEquals(List.of(13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L), secuencias(historial.desde(canal, 1, 64)));
+		assertEquals(20, canal.getUltimaSecuencia());
+	}
+
+	@Test
+	void liberaElBufferDeLaCancionMenosActivaAlSuperarElLimiteGlobal() throws Exception {
+		// 16 eventos en total con 8 por canción: solo dos canciones tienen historial a la vez.
+		HistorialCanciones historial = new HistorialCanciones(8, 16);
+		CanalCancion antigua = registro.canal("antigua");
+		CanalCancion reciente = registro.canal("reciente");
+		CanalCancion nueva = registro.canal("nueva");
+
+		historial.publicar(antigua, reaccion("a"));
+		Thread.sleep(2);
+		historial.publicar(reciente, reaccion("b"));
+		Thread.sleep(2);
+		historial.publicar(nueva, reaccion("c"));
+
+		assertEquals(2, historial.getCantidadBuffers());
+		assertNull(antigua.getRepeticion());
+		assertTrue(historial.ultimos(antigua, 8).isEmpty());
+		assertEquals(1, historial.ultimos(reciente, 8).size());
+
+		// La secuencia de la canción liberada continúa donde iba.
+		historial.publicar(antigua, reaccion("a"));
+		assertEquals(List.of(2L), secuencias(historial.ultimos(antigua, 8)));
+	}
+
+	@Test
+	void losLectoresVenEventosConsistentesMientrasVariosHilosPublican() throws Exception {
+		HistorialCanciones historial = new HistorialCanciones(64, 1024);
+		CanalCancion canal = registro.canal("concurrida");
+		int escritores = 4;
+		int eventosPorEscritor = 20_000;
+		AtomicBoolean terminado = new AtomicBoolean();
+		AtomicReference<String> error = new AtomicReference<>();
+
+		Thread lector = new Thread(() -> {
+			while (!terminado.get()) {
+				List<MensajeCancion> eventos = historial.ultimos(canal, 64);
+				long anterior = 0;
+				for (MensajeCancion evento : eventos) {
+					if (evento.getSecuencia() <= anterior) {
+						error.set("secuencias desordenadas: " + secuencias(eventos));
+					}
+					anterior = evento.getSecuencia();
+				}
+				if (eventos.size() > 64) {
+					error.set("se devolvieron más eventos que la capacidad");
+				}
+			}
+		});
+		lector.start();
+
+		List<Thread> hilos = new ArrayList<>();
+		for (int e = 0; e < escritores; e++) {
+			int escritor = e;
+			Thread hilo = new Thread(() -> {
+				for (int i = 0; i < eventosPorEscritor; i++) {
+					historial.publicar(canal, reaccion("u" + escritor));
+				}
+			});
+			hilos.add(hilo);
+			hilo.start();
+		}
+		for (Thread hilo : hilos) {
+			hilo.join();
+		}
+		terminado.set(true);
+		lector.join();
+
+		assertNull(error.get());
+		assertEquals((long) escritores * eventosPorEscritor, canal.getUltimaSecuencia());
+		assertEquals(64, historial.ultimos(canal, 64).size());
+	}
+
+	private static MensajeCancion reaccion(String nickname) {
+		return new MensajeCancion(nickname, "cancion1", "REACCION", "like");
+	}
+
+	private static List<Long> secuencias(List<MensajeCancion> eventos) {
+		List<Long> resultado = new ArrayList<>();
+		for (MensajeCancion evento : eventos) {
+			resultado.add(evento.getSecuencia());
+		}
+		return resultado;
+	}
+}
@@ -0,0 +1,117 @@
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import co.edu.unicauca.servidorReacciones.capaModelos.MensajeCancion;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistroIdentificadoresTests {
+
+	private final RegistroIdentificadores registro = new RegistroIdentificadores();
+
+	@Test
+	void buscarNoCreaCanalesNiUsuarios() {
+		assertNull(registro.buscarCanal("inventada"));
+		assertEquals(-1, registro.buscarIdUsuario("nadie"));
+		assertEquals(0, registro.cantidadCanales());
+		assertEquals(0, registro.cantidadUsuarios());
+
+		CanalCancion canal = registro.canal("real");
+		assertSame(canal, registro.buscarCanal("real"));
+		assertSame(canal, registro.canal(canal.getId()));
+	}
+
+	@Test
+	void elIdentificadorDelUsuarioSeLiberaConSuUltimaSesion() {
+		int id = registro.adquirirUsuario("Juanito");
+		assertEquals(id, registro.adquirirUsuario("Juanito"));
+
+		assertFalse(registro.liberarUsuario(id, "Juanito"));
+		assertEquals("Juanito", registro.nickname(id));
+
+		assertTrue(registro.liberarUsuario(id, "Juanito"));
+		assertNull(registro.nickname(id));
+		assertEquals(-1, registro.buscarIdUsuario("Juanito"));
+		assertEquals(0, registro.cantidadUsuarios());
+	}
+
+	@Test
+	void reutilizaPrimeroLosIdentificadoresLiberadosHaceMasTiempo() {
+		int a = registro.adquirirUsuario("a");
+		int b = registro.adquirirUsuario("b");
+		registro.liberarUsuario(a, "a");
+		registro.liberarUsuario(b, "b");
+
+		assertEquals(a, registro.adquirirUsuario("c"));
+		assertEquals(b, registro.adquirirUsuario("d"));
+	}
+
+	@Test
+	void liberarUnUsuarioLoQuitaDeSusCanalesAntesDeReutilizarSuIdentificador() {
+		CanalCancion canal = registro.canal("cancion1");
+		int id = registro.adquirirUsuario("Juanito");
+		assertTrue(registro.agregarOyente(canal, id));
+
+		registro.liberarUsuario(id, "Juanito");
+		assertEquals(0, canal.getCantidadOyentes());
+
+		assertEquals(id, registro.adquirirUsuario("Pepita"));
+		assertEquals(0, canal.getCantidadOyentes());
+	}
+
+	@Test
+	void noSeAgreganOyentesConIdentificadoresLiberados() {
+		CanalCancion canal = registro.canal("cancion1");
+		int id = registro.adquirirUsuario("Juanito");
+		registro.liberarUsuario(id, "Juanito");
+
+		assertFalse(registro.agregarOyente(canal, id));
+		assertFalse(registro.agregarOyente(canal, -1));
+		assertEquals(0, canal.getCantidadOyentes());
+	}
+
+	@Test
+	void elRecolectorRetiraSoloLosCanalesSinUso() {
+		HistorialCanciones historial = new HistorialCanciones(8, 1024);
+		Set<String> suscritos = new HashSet<>();
+		RecolectorCanales recolector = new RecolectorCanales(registro, historial, () -> suscritos, 0);
+
+		CanalCancion inactivo = registro.canal("inactivo");
+		historial.publicar(inactivo, new MensajeCancion());
+		CanalCancion escuchado = registro.canal("escuchado");
+		registro.agregarOyente(escuchado, registro.adquirirUsuario("Juanito"));
+		CanalCancion observado = registro.canal("observado");
+		suscritos.add(observado.getDestino());
+
+		assertEquals(1, recolector.recolectar());
+		assertTrue(inactivo.isRetirado());
+		assertNull(registro.buscarCanal("inactivo"));
+		assertEquals(0, historial.getCantidadBuffers());
+		assertSame(escuchado, registro.buscarCanal("escuchado"));
+		assertSame(observado, registro.buscarCanal("observado"));
+
+		CanalCancion recreado = registro.canal("inactivo");
+		assertNotSame(inactivo, recreado);
+		assertEquals(inactivo.getId(), recreado.getId());
+		assertSame(recreado, registro.canal(recreado.getId()));
+	}
+
+	@Test
+	void elRecolectorConservaLosCanalesConActividadReciente() {
+		HistorialCanciones historial = new HistorialCanciones(8, 1024);
+		RecolectorCanales recolector = new RecolectorCanales(registro, historial, Set::of, 60_000);
+
+		CanalCancion canal = registro.canal("reciente");
+
+		assertEquals(0, recolector.recolectar());
+		assertSame(canal, registro.buscarCanal("reciente"));
+	}
+}
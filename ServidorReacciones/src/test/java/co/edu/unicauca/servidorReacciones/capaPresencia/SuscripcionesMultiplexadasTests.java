@@ -0,0 +1,61 @@
+package co.edu.unicauca.servidorReacciones.capaPresencia;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SuscripcionesMultiplexadasTests {
+
+	private final RegistroIdentificadores registro = new RegistroIdentificadores();
+	private final SuscripcionesMultiplexadas suscripciones = new SuscripcionesMultiplexadas(registro, 3);
+
+	@Test
+	void elIndiceInvertidoSigueLosCambiosDeFiltro() {
+		suscripciones.registrarSuscripcion("s1", "sub-0");
+		suscripciones.actualizarFiltro("s1", SuscripcionesMultiplexadas.Operacion.AGREGAR, List.of("a", "b"));
+		suscripciones.actualizarFiltro("s2", SuscripcionesMultiplexadas.Operacion.AGREGAR, List.of("b"));
+
+		SesionMultiplexada[] enB = registro.canal("b").getSesionesMultiplexadas();
+		assertEquals(2, enB.length);
+		assertEquals(1, registro.canal("a").getSesionesMultiplexadas().length);
+		assertEquals("sub-0", registro.canal("a").getSesionesMultiplexadas()[0].getIdSuscripcion());
+
+		Set<String> filtro = suscripciones.actualizarFiltro("s1", SuscripcionesMultiplexadas.Operacion.REEMPLAZAR, List.of("b", "c"));
+		assertEquals(Set.of("b", "c"), filtro);
+		assertEquals(0, registro.canal("a").getSesionesMultiplexadas().length);
+		assertEquals(2, registro.canal("b").getSesionesMultiplexadas().length);
+
+		suscripciones.actualizarFiltro("s2", SuscripcionesMultiplexadas.Operacion.QUITAR, List.of("b"));
+		assertEquals("s1", registro.canal("b").getSesionesMultiplexadas()[0].getIdSesion());
+		assertEquals(1, registro.canal("b").getSesionesMultiplexadas().length);
+	}
+
+	@Test
+	void alDesconectarseLaSesionSaleDelIndice() {
+		suscripciones.registrarSuscripcion("s1", "sub-0");
+		suscripciones.actualizarFiltro("s1", SuscripcionesMultiplexadas.Operacion.REEMPLAZAR, List.of("a", "b"));
+
+		// Cancelar otra suscripción de la misma sesión no afecta a la multiplexada.
+		suscripciones.cancelarSuscripcion("s1", "sub-7");
+		assertEquals(1, registro.canal("a").getSesionesMultiplexadas().length);
+
+		suscripciones.eliminarSesion("s1");
+		assertSame(SesionMultiplexada.NINGUNA, registro.canal("a").getSesionesMultiplexadas());
+		assertArrayEquals(new SesionMultiplexada[0], registro.canal("b").getSesionesMultiplexadas());
+		assertEquals(0, suscripciones.getCantidadSesiones());
+	}
+
+	@Test
+	void limitaLasCancionesPorSesion() {
+		Set<String> filtro = suscripciones.actualizarFiltro("s1", SuscripcionesMultiplexadas.Operacion.AGREGAR,
+				List.of("a", "b", "c", "d", "e"));
+
+		assertEquals(Set.of("a", "b", "c"), filtro);
+		assertEquals(0, registro.canal("d").getSesionesMultiplexadas().length);
+	}
+}
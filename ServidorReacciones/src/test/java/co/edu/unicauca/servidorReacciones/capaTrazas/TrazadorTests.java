@@ -0,0 +1,156 @@
+package co.edu.unicauca.servidorReacciones.capaTrazas;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrazadorTests {
+
+	@TempDir
+	Path directorio;
+
+	@Test
+	void interpretaYGeneraLaCabeceraTraceparent() {
+		String valor = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+		ContextoTraza contexto = ContextoTraza.desdeTraceparent(valor);
+
+		assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", contexto.getIdTraza());
+		assertEquals("00f067aa0ba902b7", contexto.getIdTramo());
+		assertTrue(contexto.isMuestreado());
+		assertEquals(valor, contexto.aTraceparent());
+		assertFalse(ContextoTraza.desdeTraceparent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00").isMuestreado());
+		assertNull(ContextoTraza.desdeTraceparent("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+		assertNull(ContextoTraza.desdeTraceparent("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+		assertNull(ContextoTraza.desdeTraceparent("basura"));
+	}
+
+	@Test
+	void losTramosHijosSiguenAlContextoActualYLoRestauran() throws Exception {
+		Trazador trazador = new Trazador("reacciones", 1.0, false, directorio.resolve("t.jsonl"), 64, 64);
+		trazador.iniciarExportador();
+
+		Tramo raiz = trazador.iniciarRaiz("reaccion", null, System.nanoTime());
+		trazador.registrar("cola-entrada", raiz.getContexto(), System.nanoTime() - 1_000, System.nanoTime());
+		ContextoTraza anterior = Trazador.activar(raiz.getContexto());
+		Tramo pago = trazador.iniciar("pago");
+		Tramo intento = trazador.iniciar("intento-pago").atributo("intento", 1);
+		assertSame(intento.getContexto(), Trazador.actual());
+		intento.terminar();
+		assertSame(pago.getContexto(), Trazador.actual());
+		pago.terminar();
+		Trazador.restaurar(anterior);
+		raiz.terminar();
+		assertNull(Trazador.actual());
+		trazador.detenerExportador();
+
+		List<Tramo> tramos = trazador.recientes(raiz.getContexto().getIdTraza());
+		assertEquals(List.of("cola-entrada", "intento-pago", "pago", "reaccion"),
+				tramos.stream().map(Tramo::getNombre).toList());
+		assertEquals(pago.getContexto().getIdTramo(), tramos.get(1).getIdPadre());
+		assertEquals(raiz.getContexto().getIdTramo(), tramos.get(2).getIdPadre());
+		assertNull(tramos.get(3).getIdPadre());
+	}
+
+	@Test
+	void respetaLaDecisionDeMuestreoDeLaCabeza() throws Exception {
+		Trazador trazador = new Trazador("reacciones", 1.0, false, directorio.resolve("t.jsonl"), 64, 64);
+		trazador.iniciarExportador();
+		ContextoTraza noMuestreado = ContextoTraza.desdeTraceparent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+
+		Tramo raiz = trazador.iniciarRaiz("reaccion", noMuestreado, System.nanoTime());
+		ContextoTraza anterior = Trazador.activar(raiz.getContexto());
+		assertSame(Tramo.NINGUNO, trazador.iniciar("pago"));
+		// El servidor de pagos recibe la misma traza, marcada como no muestreada.
+		assertTrue(Trazador.actual().aTraceparent().startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-"));
+		assertTrue(Trazador.actual().aTraceparent().endsWith("-00"));
+		Trazador.restaurar(anterior);
+		raiz.terminar();
+		trazador.detenerExportador();
+
+		assertEquals(0, trazador.getExportados());
+	}
+
+	@Test
+	@Tag("benchmark")
+	void elCostoDeTrazarUnaReaccionEsPequenoFrenteAUnPago() throws Exception {
+		Path archivo = directorio.resolve("trazas.jsonl");
+		Trazador completo = new Trazador("reacciones", 1.0, true, archivo, 1 << 17, 2048);
+		Trazador apagado = new Trazador("reacciones", 0.0, true, archivo, 1 << 17, 2048);
+		completo.iniciarExportador();
+		apagado.iniciarExportador();
+
+		int reacciones = 10_000;
+		long control = 0;
+		long mejorCompleto = Long.MAX_VALUE;
+		long mejorApagado = Long.MAX_VALUE;
+		for (int ronda = 0; ronda < 5; ronda++) {
+			long inicio = System.nanoTime();
+			for (int i = 0; i < reacciones; i++) {
+				control += simularReaccion(apagado, i);
+			}
+			mejorApagado = Math.min(mejorApagado, (System.nanoTime() - inicio) / reacciones);
+			inicio = System.nanoTime();
+			for (int i = 0; i < reacciones; i++) {
+				control += simularReaccion(completo, i);
+			}
+			mejorCompleto = Math.min(mejorCompleto, (System.nanoTime() - inicio) / reacciones);
+			// Deja que el exportador vacíe la cola entre rondas, como entre ráfagas de reacciones.
+			while (completo.getPendientes() > 0) {
+				Thread.sleep(10);
+			}
+		}
+		completo.detenerExportador();
+		apagado.detenerExportador();
+
+		System.out.println("[TRAZAS] Costo por reacción (9 tramos): " + mejorCompleto + " ns con muestreo 100%, "
+				+ mejorApagado + " ns con 0%; exportados " + completo.getExportados() + ", descartados "
+				+ completo.getDescartados() + " (control " + control + ")");
+		assertEquals(completo.getExportados(), Files.lines(archivo).count());
+		assertEquals(0, apagado.getExportados());
+		// Un pago cuesta al menos un viaje al servidor de pagos (cientos de microsegundos).
+		assertTrue(mejorCompleto < TimeUnit.MICROSECONDS.toNanos(50), mejorCompleto + " ns");
+	}
+
+	/**
+	 * Reproduce los tramos de una reacción pagada al primer reintento, sin el trabajo real de cada etapa.
+	 */
+	private static long simularReaccion(Trazador trazador, int i) {
+		long llegada = System.nanoTime();
+		Tramo raiz = trazador.iniciarRaiz("reaccion", null, llegada)
+				.atributo("nickname", "usuario" + (i & 63))
+				.atributo("cancion", "cancion1");
+		trazador.registrar("cola-entrada", raiz.getContexto(), llegada, System.nanoTime());
+		trazador.registrar("buzon-usuario", raiz.getContexto(), llegada, System.nanoTime());
+		ContextoTraza anterior = Trazador.activar(raiz.getContexto());
+		long propagado = 0;
+		try {
+			Tramo pago = trazador.iniciar("pago");
+			Tramo intento = trazador.iniciar("intento-pago").atributo("intento", 1);
+			Tramo token = trazador.iniciar("token");
+			propagado += Trazador.actual().aTraceparent().length();
+			token.terminar();
+			Tramo envio = trazador.iniciar("registrar-pago").atributo("cobertura", false);
+			propagado += Trazador.actual().aTraceparent().length();
+			envio.terminar();
+			intento.terminar();
+			trazador.registrar("espera-reintento", Trazador.actual(), llegada, System.nanoTime());
+			pago.atributo("estado", "ACEPTADO").terminar();
+			trazador.iniciar("difusion").atributo("multiplexadas", 0).terminar();
+		} finally {
+			Trazador.restaurar(anterior);
+			raiz.terminar();
+		}
+		return propagado;
+	}
+}
@@ -1,9 +1,10 @@
 package co.edu.unicauca.servidorchat;
 
+import co.edu.unicauca.servidorReacciones.ServidorchatApplication;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(classes = ServidorchatApplication.class)
 class ServidorchatApplicationTests {
 
 	@Test
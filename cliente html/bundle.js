@@ -25,7 +25,7 @@ eval("{// cliente_receptor_fragmentos.js\r\n\r\nconst { peticionDTO } = __webpac
   \**********************/
 /***/ ((module) => {
 
-eval("{/**\n * Inicia el proceso de streaming de una canción llamando a la implementación\n * gRPC-Web disponible en el objeto `window`.\n * \n * Esta función actúa como un \"wrapper\" o intermediario, buscando varias\n * posibles implementaciones del cliente de streaming (cargadas desde `bundle.js`)\n * y ejecutando la primera que encuentre. Esto proporciona flexibilidad y\n * retrocompatibilidad con nombres de funciones antiguos.\n * \n * Si no se encuentra ninguna implementación, registra un error en la consola y en la UI.\n *\n * @param {string} titulo El nombre del archivo de la canción a solicitar (ej. 'cancion1').\n * @param {string} formato El formato de la canción (ej. 'mp3' o 'wav').\n */\nfunction pedirCancion(titulo, formato) {\n    // Busca en `window` la función de streaming, probando varios nombres posibles.\n    if (typeof window.iniciar_streaming_cancion === 'function') {\n        return window.iniciar_streaming_cancion(titulo, formato);\n    }\n    if (typeof window.iniciar_streaming_cancion_impl === 'function') {\n        return window.iniciar_streaming_cancion_impl(titulo, formato);\n    }\n    if (typeof window.iniciarStreamGRPCImpl === 'function') {\n        return window.iniciarStreamGRPCImpl(titulo, formato);\n    }\n    if (typeof window.iniciarStreamGRPC === 'function') {\n        return window.iniciarStreamGRPC(titulo, formato);\n    }\n\n    // Si no se encuentra ninguna función, se notifica el error.\n    console.error('No se encontró ninguna implementación de iniciar_streaming_cancion.');\n    const d = document.getElementById('log');\n    if (d) {\n        const p = document.createElement('div');\n        p.className = 'error';\n        p.textContent = 'No se encontró ninguna implementación de iniciar_streaming_cancion.';\n        d.appendChild(p);\n    }\n}\n\n// Exporta la función para compatibilidad con sistemas de módulos como CommonJS (usado por Webpack).\nif ( true && module.exports) {\n    module.exports = { pedirCancion };\n}\n\n// -----------------------------------------------------------------------------\n// ESTADO GLOBAL DEL CLIENTE\n// Almacena las variables clave de la sesión actual del usuario.\n// -----------------------------------------------------------------------------\n\n/** \n * La instancia del cliente STOMP una vez que la conexión WebSocket se establece.\n * Es `null` si no hay conexión activa.\n * @type {Stomp.Client | null} \n */\nlet stompClient = null;\n\n/** \n * El identificador de la canción que se está reproduciendo actualmente (ej. 'cancion1').\n * Se usa para suscribirse y enviar mensajes al canal correcto del broker.\n */\nlet currentSongId = null;\n\n/** \n * El nickname del usuario actual, establecido desde el campo de entrada.\n * Se utiliza para identificar al usuario en los mensajes y para la conexión WebSocket.\n */\nlet currentNickname = null;\n\n/** \n * La suscripción activa al canal STOMP de la canción actual.\n * Se guarda para poder anular la suscripción al cambiar de canción.\n */\nlet currentSubscription = null;\n\n// -----------------------------------------------------------------------------\n// HELPERS DE UI\n// Funciones dedicadas a manipular el DOM y mostrar información visual al usuario.\n// -----------------------------------------------------------------------------\n\n/**\n * Escribe un mensaje en el panel de \"Línea de Tiempo\" de la UI.\n * Cada mensaje se añade con una marca de tiempo.\n *\n * @param {string} message El texto del mensaje a mostrar.\n * @param {string} [level] Una clase CSS opcional ('success', 'error') para dar estilo al mensaje.\n */\nfunction writeLog(message, level) {\n    const d = document.getElementById('log');\n    if (!d) return;\n\n    const p = document.createElement('div');\n    p.className = level || '';\n    const ts = new Date().toLocaleTimeString();\n    p.textContent = `[${ts}] ${message}`;\n    d.appendChild(p);\n    // Hace scroll automático para que el último mensaje sea siempre visible.\n    d.scrollTop = d.scrollHeight;\n}\n\n/**\n * Muestra una burbuja de notificación simple en el centro del reproductor.\n * Utilizada específicamente para los eventos de PLAY y PAUSE.\n *\n * @param {string} text El texto a mostrar dentro de la burbuja (ej. 'Juanito ▶').\n */\nfunction showReactionBubble(text) {\n    const overlay = document.getElementById('reactions-overlay');\n    if (!overlay) return;\n\n    const bubble = document.createElement('div');\n    bubble.className = 'reaction-bubble';\n    bubble.textContent = text;\n\n    // Coloca la burbuja en una posición horizontal aleatoria para un efecto visual menor.\n    const randomLeft = 20 + Math.random() * 60;\n    bubble.style.left = randomLeft + '%';\n\n    overlay.appendChild(bubble);\n\n    // Elimina la burbuja del DOM después de que su animación CSS haya terminado.\n    setTimeout(() => {\n        if (overlay.contains(bubble)) {\n            overlay.removeChild(bubble);\n        }\n    }, 3000);\n}\n\n/**\n * Actualiza la lista de \"Usuarios Activos\" en la UI.\n * Añade o elimina un nickname de la lista basado en el tipo de evento recibido.\n *\n * @param {string} nickname El nickname del usuario que se une o se va.\n * @param {'PLAY' | 'PAUSE'} tipo El tipo de evento que determina si añadir o quitar al usuario.\n */\nfunction updateUserListFromEvent(nickname, tipo) {\n    const ul = document.getElementById('usuarios-lista');\n    if (!ul || !nickname) return;\n\n    if (tipo === 'PLAY') {\n        // Solo añade el usuario si no está ya en la lista.\n        const exists = Array.from(ul.children).some(li => li.dataset.user === nickname);\n        if (!exists) {\n            const li = document.createElement('li');\n            li.dataset.user = nickname; // Usamos un data-attribute para identificarlo fácilmente.\n            li.textContent = nickname;\n            li.classList.add('user-event');\n            ul.appendChild(li);\n        }\n    } else if (tipo === 'PAUSE') {\n        // Busca y elimina el elemento 'li' correspondiente al usuario.\n        Array.from(ul.children).forEach(li => {\n            if (li.dataset.user === nickname) {\n                ul.removeChild(li);\n            }\n        });\n    }\n}\n\n/**\n * Muestra una notificación \"toast\" en la esquina superior derecha de la pantalla.\n * Se utiliza para mensajes privados del servidor, como errores de pago o advertencias.\n *\n * @param {object} notificationData Un objeto con los detalles de la notificación.\n * @param {string} notificationData.tipo Tipo de notificación (ej. 'ERROR_PAGO', 'LIMITE_ALCANZADO') para aplicar un estilo.\n * @param {string} notificationData.titulo El título de la notificación.\n * @param {string} notificationData.mensaje El cuerpo del mensaje.\n */\nfunction showPrivateNotification({ tipo, titulo, mensaje }) {\n    const container = document.querySelector('body'); // Adjuntamos al body para asegurar visibilidad.\n    if (!container) return;\n\n    const notification = document.createElement('div');\n    notification.className = 'private-notification';\n\n    // Añade una clase de estilo condicional basada en el tipo.\n    if (tipo === 'ERROR_PAGO') {\n        notification.classList.add('error');\n    } else if (tipo === 'LIMITE_ALCANZADO') {\n        notification.classList.add('warning');\n    }\n\n    const titleElem = document.createElement('h4');\n    titleElem.textContent = titulo;\n    notification.appendChild(titleElem);\n\n    const messageElem = document.createElement('p');\n    messageElem.textContent = mensaje;\n    notification.appendChild(messageElem);\n\n    container.appendChild(notification);\n\n    // La notificación se elimina automáticamente del DOM después de 5 segundos.\n    setTimeout(() => {\n        if (container.contains(notification)) {\n            container.removeChild(notification);\n        }\n    }, 5000);\n}\n\n// -----------------------------------------------------------------------------\n// GESTIÓN DE LA CONEXIÓN WEBSOCKET / STOMP\n// Funciones responsables de establecer, gestionar y cerrar la comunicación\n// en tiempo real con el servidor de reacciones.\n// -----------------------------------------------------------------------------\n\n/**\n * Orquesta el proceso de conexión al servidor de reacciones.\n * \n * Si ya existe una conexión activa, se desconecta de forma segura antes de\n * intentar establecer una nueva. Esto es crucial al cambiar de canción para\n * evitar suscripciones duplicadas.\n * \n * Si no hay conexión, llama directamente a {@link procederConNuevaConexion}.\n */\nfunction connectReacciones() {\n    if (!currentNickname || !currentSongId) {\n        writeLog('No se puede conectar a reacciones: falta nickname o id de canción.', 'error');\n        return;\n    }\n\n    // Si ya estamos conectados, primero nos desconectamos limpiamente.\n    if (stompClient && stompClient.connected) {\n        if (currentSubscription) {\n            currentSubscription.unsubscribe();\n            currentSubscription = null;\n        }\n        // La desconexión es asíncrona; la nueva conexión se inicia en su callback.\n        stompClient.disconnect(() => {\n            writeLog('Conexión anterior de reacciones cerrada.');\n            procederConNuevaConexion();\n        });\n    } else {\n        // Si no hay conexión, procedemos a conectar directamente.\n        procederConNuevaConexion();\n    }\n}\n\n/**\n * Establece una nueva conexión WebSocket y se suscribe a los canales STOMP.\n * \n * Esta función es el núcleo de la comunicación en tiempo real.\n * 1. Crea una URL de conexión que incluye el nickname del usuario como parámetro\n *    para su identificación en el backend durante el handshake.\n * 2. Utiliza SockJS para establecer una conexión compatible y la envuelve con STOMP.\n * 3. Una vez conectado, realiza dos suscripciones clave:\n *    - Al canal público de la canción (`/broker/canciones/...`), para recibir eventos\n *      de play, pause y reacciones de otros usuarios.\n *    - Al canal privado del usuario (`/user/queue/notificaciones`), para recibir\n *      mensajes directos del servidor (ej. errores de pago).\n */\nfunction procederConNuevaConexion() {\n    // Construye la URL incluyendo el nickname para que el HandshakeHandler del servidor nos identifique.\n    const url = `http://localhost:5000/ws?nickname=${encodeURIComponent(currentNickname)}`;\n    console.log('Conectando a SockJS con URL:', url);\n\n    // Usa SockJS para una conexión robusta y compatible.\n    const socket = new SockJS(url);\n    stompClient = Stomp.over(socket);\n    \n    // Habilita logs de depuración de STOMP en la consola del navegador.\n    stompClient.debug = (str) => {\n        console.log('STOMP DEBUG:', str);\n    };\n\n    const headers = {\n        login: currentNickname\n    };\n\n    // Intenta conectar al servidor con las cabeceras definidas.\n    stompClient.connect(headers, () => {\n        console.log('CONEXIÓN STOMP EXITOSA. Suscribiendo a canales...');\n        writeLog('Conectado al servidor de reacciones.', 'success');\n\n        // Suscripción al canal PÚBLICO de la canción.\n        const publicDestino = `/broker/canciones/${currentSongId}`;\n        currentSubscription = stompClient.subscribe(publicDestino, (message) => {\n            if (!message.body) return;\n            try {\n                const data = JSON.parse(message.body);\n                manejarMensajeReaccion(data);\n            } catch (e) {\n                console.error('Error parseando mensaje de reacciones:', e);\n            }\n        });\n\n        // Suscripción al canal PRIVADO para notificaciones.\n        stompClient.subscribe('/user/queue/notificaciones', (message) => {\n            if (!message.body) return;\n            try {\n                const notificacion = JSON.parse(message.body);\n                console.log('NOTIFICACIÓN PRIVADA RECIBIDA:', notificacion);\n                showPrivateNotification(notificacion);\n            } catch (e) {\n                console.error('Error parseando notificación privada:', e);\n            }\n        });\n\n    }, (error) => {\n        console.error('Error detallado en conexión STOMP:', error);\n        writeLog('Error al conectar al servidor de reacciones.', 'error');\n    });\n}\n\n// ================================================================\n//  Lógica para \"Burbujas Laterales Ascendentes\"\n// ================================================================\n\n// Mapeo de tipo de reacción a su emoji/icono correspondiente.\nconst reactionMap = {\n    like: '👍',\n    heart: '❤️',\n    fire: '🔥',\n};\n\n/**\n * Crea y anima una burbuja de reacción flotante en la pantalla.\n *\n * @param {string} nickname El nombre del usuario que reacciona.\n * @param {string} reactionType El tipo de reacción (ej. 'like', 'heart').\n */\nfunction showFloatingReaction(nickname, reactionType) {\n    const overlay = document.getElementById('global-reactions-overlay');\n    if (!overlay || !reactionMap[reactionType]) return;\n\n    const bubble = document.createElement('div');\n    bubble.className = 'reaction-float-bubble';\n\n    // Creamos el contenido de la burbuja con el icono y el nickname\n    bubble.innerHTML = `<span>${reactionMap[reactionType]}</span> ${nickname}`;\n\n    // 1. Posición inicial: Decide si la burbuja sale por la izquierda o por la derecha.\n    const side = Math.random() < 0.5 ? 'left' : 'right';\n    const startX = side === 'left' \n        ? (10 + Math.random() * 20) // Entre 10% y 30% del borde izquierdo\n        : (70 + Math.random() * 20); // Entre 70% y 90% del borde derecho\n    bubble.style.setProperty('--start-x', `${startX}%`);\n\n    // 2. Deriva horizontal final: Un desplazamiento lateral para una trayectoria curva.\n    const xDrift = (Math.random() - 0.5) * 150; // Entre -75px y +75px\n    bubble.style.setProperty('--x-drift', `${xDrift}px`);\n\n    // 3. Duración de la animación: Para que no todas suban a la misma velocidad.\n    const duration = 4 + Math.random() * 2; // Entre 4 y 6 segundos\n    bubble.style.setProperty('--duration', `${duration}s`);\n\n    // 4. Retardo: Para evitar que las ráfagas de reacciones se solapen perfectamente.\n    const delay = Math.random() * 0.3; // Hasta 0.3 segundos de retardo\n    bubble.style.setProperty('--delay', `${delay}s`);\n\n    overlay.appendChild(bubble);\n\n    // Limpia el elemento del DOM después de que la animación termine (duración + retardo).\n    setTimeout(() => {\n        if (overlay.contains(bubble)) {\n            overlay.removeChild(bubble);\n        }\n    }, (duration + delay) * 1000);\n}\n\n\n/**\n * Procesa los mensajes recibidos desde el canal público de la canción.\n * \n * Esta función es el callback principal para la suscripción STOMP. Clasifica el\n * mensaje entrante por su 'tipo' y actualiza la UI correspondientemente.\n * - Para 'PLAY'/'PAUSE', actualiza la lista de usuarios y muestra una notificación central.\n * - Para 'REACCION', invoca la animación de burbuja flotante, pero solo si el \n *   reproductor de audio del usuario no está en pausa.\n *\n * @param {object} data El objeto del mensaje deserializado desde JSON.\n * @param {string} data.nickname El nickname del usuario que originó el evento.\n * @param {string} data.idCancion El ID de la canción a la que pertenece el evento.\n * @param {'PLAY' | 'PAUSE' | 'REACCION'} data.tipo El tipo de evento.\n * @param {string} [data.contenido] Contenido adicional (ej. el tipo de reacción).\n */\nfunction manejarMensajeReaccion(data) {\n    const { nickname, idCancion, tipo, contenido } = data;\n\n    // Ignora el mensaje si no corresponde a la canción actual.\n    if (!idCancion || idCancion !== currentSongId) {\n        return;\n    }\n\n    const audioPlayer = document.getElementById('audio-player');\n\n    // Gestiona eventos de estado (Play/Pause).\n    if (tipo === 'PLAY') {\n        updateUserListFromEvent(nickname, 'PLAY');\n        writeLog(`${nickname} comenzó a reproducir la canción ${idCancion}.`, 'success');\n        showReactionBubble(`${nickname} ▶`); // Usa la animación central simple.\n    } else if (tipo === 'PAUSE') {\n        updateUserListFromEvent(nickname, 'PAUSE');\n        writeLog(`${nickname} pausó la canción ${idCancion}.`, 'error');\n        showReactionBubble(`${nickname} ⏸`); // Usa la animación central simple.\n    } \n    // Gestiona eventos de reacción.\n    else if (tipo === 'REACCION') {\n        // Filtro clave: Solo muestra la animación si el usuario está escuchando activamente.\n        if (audioPlayer && !audioPlayer.paused) {\n            writeLog(`${nickname} envió reacción: ${contenido}`, 'success');\n            showFloatingReaction(nickname, contenido); // Llama a la animación de burbuja lateral.\n        } else {\n            console.log(`Reacción de ${nickname} ignorada porque el reproductor está pausado.`);\n        }\n    }\n}\n\n/**\n * Envía un mensaje STOMP al servidor a través de la conexión WebSocket activa.\n * \n * Es una función de utilidad que verifica si la conexión está activa antes de enviar\n * el payload, que es serializado a JSON.\n *\n * @param {string} destino El destino STOMP en el servidor (ej. '/app/reaccionar').\n * @param {object} payload El objeto JavaScript que se enviará como cuerpo del mensaje.\n */\nfunction enviarMensajeStomp(destino, payload) {\n    if (!stompClient || !stompClient.connected) {\n        writeLog('No hay conexión activa con el servidor de reacciones.', 'error');\n        return;\n    }\n    stompClient.send(destino, {}, JSON.stringify(payload));\n}\n\n/**\n * Envía un mensaje 'PLAY' al servidor para notificar que el usuario ha\n * comenzado a reproducir la canción.\n * Utiliza los valores globales `currentNickname` y `currentSongId`.\n */\nfunction enviarPlay() {\n    if (!currentNickname || !currentSongId) return;\n    enviarMensajeStomp('/app/reproducir', {\n        nickname: currentNickname,\n        idCancion: currentSongId,\n        tipo: 'PLAY',\n        contenido: null\n    });\n}\n\n/**\n * Envía un mensaje 'PAUSE' al servidor para notificar que el usuario ha\n * pausado la reproducción de la canción.\n * Utiliza los valores globales `currentNickname` y `currentSongId`.\n */\nfunction enviarPause() {\n    if (!currentNickname || !currentSongId) return;\n    enviarMensajeStomp('/app/detener', {\n        nickname: currentNickname,\n        idCancion: currentSongId,\n        tipo: 'PAUSE',\n        contenido: null\n    });\n}\n\n/**\n * Envía un mensaje de 'REACCION' al servidor.\n * \n * Antes de enviar, verifica que el reproductor de audio no esté en pausa.\n * Si lo está, muestra una notificación de error al usuario y cancela el envío.\n *\n * @param {string} tipoReaccion El tipo de reacción a enviar (ej. 'like', 'heart').\n */\nfunction enviarReaccion(tipoReaccion) {\n    if (!currentNickname || !currentSongId) {\n        writeLog('No se puede enviar reacción: falta nickname o canción.', 'error');\n        return;\n    }\n\n    // Validación de estado: no se permite reaccionar si la música está pausada.\n    const audioPlayer = document.getElementById('audio-player');\n    if (audioPlayer && audioPlayer.paused) {\n        writeLog('No puedes reaccionar mientras la canción está pausada.', 'error');\n        // Proporciona feedback inmediato al usuario.\n        showPrivateNotification({\n            tipo: 'ERROR_PAGO',\n            titulo: 'Acción no permitida',\n            mensaje: 'No puedes enviar reacciones mientras la canción está en pausa.'\n        });\n        return; // Detiene la ejecución.\n    }\n    \n    // Si el reproductor está activo, envía el mensaje de reacción.\n    enviarMensajeStomp('/app/reaccionar', {\n        nickname: currentNickname,\n        idCancion: currentSongId,\n        tipo: 'REACCION',\n        contenido: tipoReaccion\n    });\n}\n// -----------------------------------------------------------------------------\n// LISTENERS DE EVENTOS DE AUDIO Y UI\n// Conectan las acciones del usuario (clics, play/pause) con las funciones lógicas.\n// -----------------------------------------------------------------------------\n\n/**\n * Adjunta listeners a los eventos 'play' y 'pause' del reproductor de audio.\n * Cuando estos eventos se disparan, se llama a las funciones correspondientes\n * para notificar al servidor a través de WebSocket.\n */\nfunction attachAudioListeners() {\n    const audio = document.getElementById('audio-player');\n    if (!audio) {\n        writeLog('No se encontró el elemento audio#audio-player.', 'error');\n        return;\n    }\n\n    // Cuando el usuario presiona 'play' en el reproductor.\n    audio.addEventListener('play', function () {\n        writeLog('Reproducción iniciada (play).', 'success');\n        enviarPlay();\n    });\n\n    // Cuando el usuario presiona 'pause' en el reproductor.\n    audio.addEventListener('pause', function () {\n        writeLog('Reproducción pausada (pause).', 'error');\n        enviarPause();\n    });\n}\n\n/**\n * Adjunta listeners a los elementos de la interfaz de usuario, como botones.\n */\nfunction attachUiListeners() {\n    const btnPedir = document.getElementById('btn-pedir-cancion');\n    if (btnPedir) {\n        // Listener para el botón principal \"Pedir Canción\".\n        btnPedir.addEventListener('click', () => {\n            const nicknameInput = document.getElementById('nickname');\n            const tituloInput = document.getElementById('titulo-cancion');\n            const formatoSelect = document.getElementById('formato-cancion');\n\n            const nickname = nicknameInput ? nicknameInput.value.trim() : '';\n            const titulo = tituloInput ? tituloInput.value.trim() : '';\n            const formato = formatoSelect ? formatoSelect.value : 'mp3';\n\n            // Validación simple para asegurar que los campos no estén vacíos.\n            if (!nickname || !titulo) {\n                writeLog('Debes ingresar un nickname y un título de canción.', 'error');\n                return;\n            }\n\n            // Actualiza el estado global con la información de la nueva sesión.\n            currentNickname = nickname;\n            currentSongId = titulo;\n\n            writeLog(`Solicitando canción \"${titulo}\" en formato ${formato} para ${nickname}.`, 'success');\n\n            // Inicia las dos operaciones principales: pedir el audio y conectar a reacciones.\n            pedirCancion(titulo, formato);\n            connectReacciones();\n        });\n    }\n\n    // Listeners para todos los botones de reacción.\n    const reactionButtons = document.querySelectorAll('.reaction-btn');\n    reactionButtons.forEach(btn => {\n        btn.addEventListener('click', () => {\n            // Obtiene el tipo de reacción desde el atributo 'data-reaccion' del botón.\n            const tipoReaccion = btn.dataset.reaccion;\n            enviarReaccion(tipoReaccion);\n        });\n    });\n}\n\n/**\n * IIFE (Immediately Invoked Function Expression) para asegurar que los listeners\n * se adjunten tan pronto como el DOM esté listo, ya sea que el script se cargue\n * de forma síncrona o asíncrona.\n */\n(function () {\n    if (document.readyState === 'loading') {\n        // Si el DOM aún está cargando, espera al evento DOMContentLoaded.\n        document.addEventListener('DOMContentLoaded', () => {\n            attachAudioListeners();\n            attachUiListeners();\n        });\n    } else {\n        // Si el DOM ya está listo, ejecuta las funciones inmediatamente.\n        attachAudioListeners();\n        attachUiListeners();\n    }\n})();\n\n// -----------------------------------------------------------------------------\n// EXPORTACIÓN GLOBAL\n// Expone funciones clave al objeto `window` para que puedan ser llamadas\n// desde otros scripts, como el `bundle.js` generado por Webpack.\n// -----------------------------------------------------------------------------\nif (typeof window !== 'undefined') {\n    window.pedirCancion = pedirCancion;\n}\n\n//# sourceURL=webpack://cliente-html/./funciones.js?\n}");
+eval("{/**\n * Inicia el proceso de streaming de una canción llamando a la implementación\n * gRPC-Web disponible en el objeto `window`.\n * \n * Esta función actúa como un \"wrapper\" o intermediario, buscando varias\n * posibles implementaciones del cliente de streaming (cargadas desde `bundle.js`)\n * y ejecutando la primera que encuentre. Esto proporciona flexibilidad y\n * retrocompatibilidad con nombres de funciones antiguos.\n * \n * Si no se encuentra ninguna implementación, registra un error en la consola y en la UI.\n *\n * @param {string} titulo El nombre del archivo de la canción a solicitar (ej. 'cancion1').\n * @param {string} formato El formato de la canción (ej. 'mp3' o 'wav').\n */\nfunction pedirCancion(titulo, formato) {\n    // Busca en `window` la función de streaming, probando varios nombres posibles.\n    if (typeof window.iniciar_streaming_cancion === 'function') {\n        return window.iniciar_streaming_cancion(titulo, formato);\n    }\n    if (typeof window.iniciar_streaming_cancion_impl === 'function') {\n        return window.iniciar_streaming_cancion_impl(titulo, formato);\n    }\n    if (typeof window.iniciarStreamGRPCImpl === 'function') {\n        return window.iniciarStreamGRPCImpl(titulo, formato);\n    }\n    if (typeof window.iniciarStreamGRPC === 'function') {\n        return window.iniciarStreamGRPC(titulo, formato);\n    }\n\n    // Si no se encuentra ninguna función, se notifica el error.\n    console.error('No se encontró ninguna implementación de iniciar_streaming_cancion.');\n    const d = document.getElementById('log');\n    if (d) {\n        const p = document.createElement('div');\n        p.className = 'error';\n        p.textContent = 'No se encontró ninguna implementación de iniciar_streaming_cancion.';\n        d.appendChild(p);\n    }\n}\n\n// Exporta la función para compatibilidad con sistemas de módulos como CommonJS (usado por Webpack).\nif ( true && module.exports) {\n    module.exports = { pedirCancion };\n}\n\n// -----------------------------------------------------------------------------\n// ESTADO GLOBAL DEL CLIENTE\n// Almacena las variables clave de la sesión actual del usuario.\n// -----------------------------------------------------------------------------\n\n/** \n * La instancia del cliente STOMP una vez que la conexión WebSocket se establece.\n * Es `null` si no hay conexión activa.\n * @type {Stomp.Client | null} \n */\nlet stompClient = null;\n\n/** \n * El identificador de la canción que se está reproduciendo actualmente (ej. 'cancion1').\n * Se usa para suscribirse y enviar mensajes al canal correcto del broker.\n */\nlet currentSongId = null;\n\n/** \n * El nickname del usuario actual, establecido desde el campo de entrada.\n * Se utiliza para identificar al usuario en los mensajes y para la conexión WebSocket.\n */\nlet currentNickname = null;\n\n/** \n * La suscripción activa al canal STOMP de la canción actual.\n * Se guarda para poder anular la suscripción al cambiar de canción.\n */\nlet currentSubscription = null;\n\n/**\n * Última secuencia recibida en el canal de la canción actual. Al reconectarse se pide\n * al servidor que repita los eventos posteriores, y sirve para descartar duplicados.\n */\nlet ultimaSecuencia = 0;\n\n/**\n * Canción a la que corresponde {@link ultimaSecuencia}.\n */\nlet cancionDeUltimaSecuencia = null;\n\n/**\n * Cantidad de eventos recientes que se piden al entrar por primera vez a una canción.\n */\nconst EVENTOS_RECIENTES_AL_UNIRSE = 20;\n\n/**\n * Intentos de reconexión realizados tras un aviso RECONECTAR del servidor.\n * Es 0 cuando no hay una reconexión en curso.\n */\nlet intentosReconexion = 0;\n\n/**\n * Número máximo de intentos de reconexión tras un aviso RECONECTAR.\n */\nconst MAXIMO_INTENTOS_RECONEXION = 10;\n\n// -----------------------------------------------------------------------------\n// HELPERS DE UI\n// Funciones dedicadas a manipular el DOM y mostrar información visual al usuario.\n// -----------------------------------------------------------------------------\n\n/**\n * Escribe un mensaje en el panel de \"Línea de Tiempo\" de la UI.\n * Cada mensaje se añade con una marca de tiempo.\n *\n * @param {string} message El texto del mensaje a mostrar.\n * @param {string} [level] Una clase CSS opcional ('success', 'error') para dar estilo al mensaje.\n */\nfunction writeLog(message, level) {\n    const d = document.getElementById('log');\n    if (!d) return;\n\n    const p = document.createElement('div');\n    p.className = level || '';\n    const ts = new Date().toLocaleTimeString();\n    p.textContent = `[${ts}] ${message}`;\n    d.appendChild(p);\n    // Hace scroll automático para que el último mensaje sea siempre visible.\n    d.scrollTop = d.scrollHeight;\n}\n\n/**\n * Muestra una burbuja de notificación simple en el centro del reproductor.\n * Utilizada específicamente para los eventos de PLAY y PAUSE.\n *\n * @param {string} text El texto a mostrar dentro de la burbuja (ej. 'Juanito ▶').\n */\nfunction showReactionBubble(text) {\n    const overlay = document.getElementById('reactions-overlay');\n    if (!overlay) return;\n\n    const bubble = document.createElement('div');\n    bubble.className = 'reaction-bubble';\n    bubble.textContent = text;\n\n    // Coloca la burbuja en una posición horizontal aleatoria para un efecto visual menor.\n    const randomLeft = 20 + Math.random() * 60;\n    bubble.style.left = randomLeft + '%';\n\n    overlay.appendChild(bubble);\n\n    // Elimina la burbuja del DOM después de que su animación CSS haya terminado.\n    setTimeout(() => {\n        if (overlay.contains(bubble)) {\n            overlay.removeChild(bubble);\n        }\n    }, 3000);\n}\n\n/**\n * Actualiza la lista de \"Usuarios Activos\" en la UI.\n * Añade o elimina un nickname de la lista basado en el tipo de evento recibido.\n *\n * @param {string} nickname El nickname del usuario que se une o se va.\n * @param {'PLAY' | 'PAUSE'} tipo El tipo de evento que determina si añadir o quitar al usuario.\n */\nfunction updateUserListFromEvent(nickname, tipo) {\n    const ul = document.getElementById('usuarios-lista');\n    if (!ul || !nickname) return;\n\n    if (tipo === 'PLAY') {\n        // Solo añade el usuario si no está ya en la lista.\n        const exists = Array.from(ul.children).some(li => li.dataset.user === nickname);\n        if (!exists) {\n            const li = document.createElement('li');\n            li.dataset.user = nickname; // Usamos un data-attribute para identificarlo fácilmente.\n            li.textContent = nickname;\n            li.classList.add('user-event');\n            ul.appendChild(li);\n        }\n    } else if (tipo === 'PAUSE') {\n        // Busca y elimina el elemento 'li' correspondiente al usuario.\n        Array.from(ul.children).forEach(li => {\n            if (li.dataset.user === nickname) {\n                ul.removeChild(li);\n            }\n        });\n    }\n}\n\n/**\n * Muestra una notificación \"toast\" en la esquina superior derecha de la pantalla.\n * Se utiliza para mensajes privados del servidor, como errores de pago o advertencias.\n *\n * @param {object} notificationData Un objeto con los detalles de la notificación.\n * @param {string} notificationData.tipo Tipo de notificación (ej. 'ERROR_PAGO', 'LIMITE_ALCANZADO') para aplicar un estilo.\n * @param {string} notificationData.titulo El título de la notificación.\n * @param {string} notificationData.mensaje El cuerpo del mensaje.\n */\nfunction showPrivateNotification({ tipo, titulo, mensaje }) {\n    const container = document.querySelector('body'); // Adjuntamos al body para asegurar visibilidad.\n    if (!container) return;\n\n    const notification = document.createElement('div');\n    notification.className = 'private-notification';\n\n    // Añade una clase de estilo condicional basada en el tipo.\n    if (tipo === 'ERROR_PAGO') {\n        notification.classList.add('error');\n    } else if (tipo === 'LIMITE_ALCANZADO') {\n        notification.classList.add('warning');\n    }\n\n    const titleElem = document.createElement('h4');\n    titleElem.textContent = titulo;\n    notification.appendChild(titleElem);\n\n    const messageElem = document.createElement('p');\n    messageElem.textContent = mensaje;\n    notification.appendChild(messageElem);\n\n    container.appendChild(notification);\n\n    // La notificación se elimina automáticamente del DOM después de 5 segundos.\n    setTimeout(() => {\n        if (container.contains(notification)) {\n            container.removeChild(notification);\n        }\n    }, 5000);\n}\n\n// -----------------------------------------------------------------------------\n// GESTIÓN DE LA CONEXIÓN WEBSOCKET / STOMP\n// Funciones responsables de establecer, gestionar y cerrar la comunicación\n// en tiempo real con el servidor de reacciones.\n// -----------------------------------------------------------------------------\n\n/**\n * Orquesta el proceso de conexión al servidor de reacciones.\n * \n * Si ya existe una conexión activa, se desconecta de forma segura antes de\n * intentar establecer una nueva. Esto es crucial al cambiar de canción para\n * evitar suscripciones duplicadas.\n * \n * Si no hay conexión, llama directamente a {@link procederConNuevaConexion}.\n */\nfunction connectReacciones() {\n    if (!currentNickname || !currentSongId) {\n        writeLog('No se puede conectar a reacciones: falta nickname o id de canción.', 'error');\n        return;\n    }\n\n    // Si ya estamos conectados, primero nos desconectamos limpiamente.\n    if (stompClient && stompClient.connected) {\n        if (currentSubscription) {\n            currentSubscription.unsubscribe();\n            currentSubscription = null;\n        }\n        // La desconexión es asíncrona; la nueva conexión se inicia en su callback.\n        stompClient.disconnect(() => {\n            writeLog('Conexión anterior de reacciones cerrada.');\n            procederConNuevaConexion();\n        });\n    } else {\n        // Si no hay conexión, procedemos a conectar directamente.\n        procederConNuevaConexion();\n    }\n}\n\n/**\n * Establece una nueva conexión WebSocket y se suscribe a los canales STOMP.\n * \n * Esta función es el núcleo de la comunicación en tiempo real.\n * 1. Crea una URL de conexión que incluye el nickname del usuario como parámetro\n *    para su identificación en el backend durante el handshake.\n * 2. Usa WebSocket nativo (`/ws-nativo`) si el navegador lo soporta y, si no, recurre a\n *    SockJS (`/ws`) para una conexión compatible; en ambos casos la envuelve con STOMP.\n * 3. Una vez conectado, realiza dos suscripciones clave:\n *    - Al canal público de la canción (`/broker/canciones/...`), para recibir eventos\n *      de play, pause y reacciones de otros usuarios. La suscripción pide repetir los\n *      eventos que se perdieron: desde la última secuencia si es una reconexión, o los\n *      más recientes si es la primera vez en esa canción.\n *    - Al canal privado del usuario (`/user/queue/notificaciones`), para recibir\n *      mensajes directos del servidor (ej. errores de pago).\n *    - Al canal de avisos del sistema (`/broker/sistema`), por el que el servidor pide\n *      reconectarse antes de reiniciarse.\n */\nfunction procederConNuevaConexion() {\n    // Construye la URL incluyendo el nickname para que el HandshakeHandler del servidor nos identifique.\n    const query = `nickname=${encodeURIComponent(currentNickname)}`;\n\n    if ('WebSocket' in window) {\n        // Camino rápido: WebSocket puro, sin el framing ni los transportes de respaldo de SockJS.\n        const url = `ws://localhost:5000/ws-nativo?${query}`;\n        console.log('Conectando a WebSocket nativo con URL:', url);\n        stompClient = Stomp.over(new WebSocket(url));\n    } else {\n        // Usa SockJS para una conexión robusta y compatible.\n        const url = `http://localhost:5000/ws?${query}`;\n        console.log('Conectando a SockJS con URL:', url);\n        stompClient = Stomp.over(new SockJS(url));\n    }\n    \n    // Habilita logs de depuración de STOMP en la consola del navegador.\n    stompClient.debug = (str) => {\n        console.log('STOMP DEBUG:', str);\n    };\n\n    const headers = {\n        login: currentNickname\n    };\n\n    // Intenta conectar al servidor con las cabeceras definidas.\n    stompClient.connect(headers, () => {\n        console.log('CONEXIÓN STOMP EXITOSA. Suscribiendo a canales...');\n        writeLog('Conectado al servidor de reacciones.', 'success');\n        intentosReconexion = 0;\n\n        // Suscripción al canal PÚBLICO de la canción.\n        const publicDestino = `/broker/canciones/${currentSongId}`;\n        if (cancionDeUltimaSecuencia !== currentSongId) {\n            cancionDeUltimaSecuencia = currentSongId;\n            ultimaSecuencia = 0;\n        }\n        const cabecerasSuscripcion = ultimaSecuencia > 0\n            ? { 'repetir-desde': String(ultimaSecuencia + 1) }\n            : { 'repetir-ultimos': String(EVENTOS_RECIENTES_AL_UNIRSE) };\n        currentSubscription = stompClient.subscribe(publicDestino, (message) => {\n            if (!message.body) return;\n            try {\n                const data = JSON.parse(message.body);\n                manejarMensajeReaccion(data);\n            } catch (e) {\n                console.error('Error parseando mensaje de reacciones:', e);\n            }\n        }, cabecerasSuscripcion);\n\n        // Suscripción al canal PRIVADO para notificaciones.\n        stompClient.subscribe('/user/queue/notificaciones', (message) => {\n            if (!message.body) return;\n            try {\n                const notificacion = JSON.parse(message.body);\n                console.log('NOTIFICACIÓN PRIVADA RECIBIDA:', notificacion);\n                showPrivateNotification(notificacion);\n            } catch (e) {\n                console.error('Error parseando notificación privada:', e);\n            }\n        });\n\n        // Suscripción a los avisos del sistema (drenado antes de un reinicio).\n        stompClient.subscribe('/broker/sistema', (message) => {\n            if (!message.body) return;\n            try {\n                const aviso = JSON.parse(message.body);\n                if (aviso.tipo === 'RECONECTAR') {\n                    writeLog(aviso.mensaje);\n                    programarReconexion(aviso.esperaMaximaMs);\n                }\n            } catch (e) {\n                console.error('Error parseando aviso del sistema:', e);\n            }\n        });\n\n    }, (error) => {\n        console.error('Error detallado en conexión STOMP:', error);\n        writeLog('Error al conectar al servidor de reacciones.', 'error');\n        if (intentosReconexion > 0) {\n            // El servidor aún no está disponible tras el aviso: se reintenta con espera creciente.\n            programarReconexion(Math.min(30000, 1000 * 2 ** intentosReconexion));\n        }\n    });\n}\n\n/**\n * Programa una reconexión tras una espera al azar entre 0 y `esperaMaximaMs`, para que los\n * clientes avisados a la vez no se reconecten todos en el mismo instante. La suscripción\n * al canal de la canción pedirá repetir los eventos posteriores a la última secuencia.\n *\n * @param {number} esperaMaximaMs Espera máxima antes de reconectarse.\n */\nfunction programarReconexion(esperaMaximaMs) {\n    if (intentosReconexion >= MAXIMO_INTENTOS_RECONEXION) {\n        writeLog('No fue posible reconectarse al servidor de reacciones.', 'error');\n        intentosReconexion = 0;\n        return;\n    }\n    intentosReconexion++;\n    const espera = Math.floor(Math.random() * (esperaMaximaMs || 0));\n    setTimeout(() => {\n        if (stompClient && stompClient.connected) {\n            currentSubscription = null;\n            stompClient.disconnect(() => procederConNuevaConexion());\n        } else {\n            procederConNuevaConexion();\n        }\n    }, espera);\n}\n\n// ================================================================\n//  Lógica para \"Burbujas Laterales Ascendentes\"\n// ================================================================\n\n// Mapeo de tipo de reacción a su emoji/icono correspondiente.\nconst reactionMap = {\n    like: '👍',\n    heart: '❤️',\n    fire: '🔥',\n};\n\n/**\n * Crea y anima una burbuja de reacción flotante en la pantalla.\n *\n * @param {string} nickname El nombre del usuario que reacciona.\n * @param {string} reactionType El tipo de reacción (ej. 'like', 'heart').\n */\nfunction showFloatingReaction(nickname, reactionType) {\n    const overlay = document.getElementById('global-reactions-overlay');\n    if (!overlay || !reactionMap[reactionType]) return;\n\n    const bubble = document.createElement('div');\n    bubble.className = 'reaction-float-bubble';\n\n    // Creamos el contenido de la burbuja con el icono y el nickname\n    bubble.innerHTML = `<span>${reactionMap[reactionType]}</span> ${nickname}`;\n\n    // 1. Posición inicial: Decide si la burbuja sale por la izquierda o por la derecha.\n    const side = Math.random() < 0.5 ? 'left' : 'right';\n    const startX = side === 'left' \n        ? (10 + Math.random() * 20) // Entre 10% y 30% del borde izquierdo\n        : (70 + Math.random() * 20); // Entre 70% y 90% del borde derecho\n    bubble.style.setProperty('--start-x', `${startX}%`);\n\n    // 2. Deriva horizontal final: Un desplazamiento lateral para una trayectoria curva.\n    const xDrift = (Math.random() - 0.5) * 150; // Entre -75px y +75px\n    bubble.style.setProperty('--x-drift', `${xDrift}px`);\n\n    // 3. Duración de la animación: Para que no todas suban a la misma velocidad.\n    const duration = 4 + Math.random() * 2; // Entre 4 y 6 segundos\n    bubble.style.setProperty('--duration', `${duration}s`);\n\n    // 4. Retardo: Para evitar que las ráfagas de reacciones se solapen perfectamente.\n    const delay = Math.random() * 0.3; // Hasta 0.3 segundos de retardo\n    bubble.style.setProperty('--delay', `${delay}s`);\n\n    overlay.appendChild(bubble);\n\n    // Limpia el elemento del DOM después de que la animación termine (duración + retardo).\n    setTimeout(() => {\n        if (overlay.contains(bubble)) {\n            overlay.removeChild(bubble);\n        }\n    }, (duration + delay) * 1000);\n}\n\n\n/**\n * Procesa los mensajes recibidos desde el canal público de la canción.\n * \n * Esta función es el callback principal para la suscripción STOMP. Clasifica el\n * mensaje entrante por su 'tipo' y actualiza la UI correspondientemente.\n * - Para 'PLAY'/'PAUSE', actualiza la lista de usuarios y muestra una notificación central.\n * - Para 'REACCION', invoca la animación de burbuja flotante, pero solo si el \n *   reproductor de audio del usuario no está en pausa.\n *\n * @param {object} data El objeto del mensaje deserializado desde JSON.\n * @param {string} data.nickname El nickname del usuario que originó el evento.\n * @param {string} data.idCancion El ID de la canción a la que pertenece el evento.\n * @param {'PLAY' | 'PAUSE' | 'REACCION'} data.tipo El tipo de evento.\n * @param {string} [data.contenido] Contenido adicional (ej. el tipo de reacción).\n * @param {number} [data.secuencia] Número de secuencia del evento en el canal.\n */\nfunction manejarMensajeReaccion(data) {\n    const { nickname, idCancion, tipo, contenido, secuencia } = data;\n\n    // Ignora el mensaje si no corresponde a la canción actual.\n    if (!idCancion || idCancion !== currentSongId) {\n        return;\n    }\n\n    // Descarta los eventos repetidos que ya se habían recibido.\n    if (typeof secuencia === 'number') {\n        if (secuencia <= ultimaSecuencia) {\n            return;\n        }\n        ultimaSecuencia = secuencia;\n    }\n\n    const audioPlayer = document.getElementById('audio-player');\n\n    // Gestiona eventos de estado (Play/Pause).\n    if (tipo === 'PLAY') {\n        updateUserListFromEvent(nickname, 'PLAY');\n        writeLog(`${nickname} comenzó a reproducir la canción ${idCancion}.`, 'success');\n        showReactionBubble(`${nickname} ▶`); // Usa la animación central simple.\n    } else if (tipo === 'PAUSE') {\n        updateUserListFromEvent(nickname, 'PAUSE');\n        writeLog(`${nickname} pausó la canción ${idCancion}.`, 'error');\n        showReactionBubble(`${nickname} ⏸`); // Usa la animación central simple.\n    } \n    // Gestiona eventos de reacción.\n    else if (tipo === 'REACCION') {\n        // Filtro clave: Solo muestra la animación si el usuario está escuchando activamente.\n        if (audioPlayer && !audioPlayer.paused) {\n            writeLog(`${nickname} envió reacción: ${contenido}`, 'success');\n            showFloatingReaction(nickname, contenido); // Llama a la animación de burbuja lateral.\n        } else {\n            console.log(`Reacción de ${nickname} ignorada porque el reproductor está pausado.`);\n        }\n    }\n}\n\n/**\n * Envía un mensaje STOMP al servidor a través de la conexión WebSocket activa.\n * \n * Es una función de utilidad que verifica si la conexión está activa antes de enviar\n * el payload, que es serializado a JSON.\n *\n * @param {string} destino El destino STOMP en el servidor (ej. '/app/reaccionar').\n * @param {object} payload El objeto JavaScript que se enviará como cuerpo del mensaje.\n */\nfunction enviarMensajeStomp(destino, payload) {\n    if (!stompClient || !stompClient.connected) {\n        writeLog('No hay conexión activa con el servidor de reacciones.', 'error');\n        return;\n    }\n    stompClient.send(destino, {}, JSON.stringify(payload));\n}\n\n/**\n * Envía un mensaje 'PLAY' al servidor para notificar que el usuario ha\n * comenzado a reproducir la canción.\n * Utiliza los valores globales `currentNickname` y `currentSongId`.\n */\nfunction enviarPlay() {\n    if (!currentNickname || !currentSongId) return;\n    enviarMensajeStomp('/app/reproducir', {\n        nickname: currentNickname,\n        idCancion: currentSongId,\n        tipo: 'PLAY',\n        contenido: null\n    });\n}\n\n/**\n * Envía un mensaje 'PAUSE' al servidor para notificar que el usuario ha\n * pausado la reproducción de la canción.\n * Utiliza los valores globales `currentNickname` y `currentSongId`.\n */\nfunction enviarPause() {\n    if (!currentNickname || !currentSongId) return;\n    enviarMensajeStomp('/app/detener', {\n        nickname: currentNickname,\n        idCancion: currentSongId,\n        tipo: 'PAUSE',\n        contenido: null\n    });\n}\n\n/**\n * Envía un mensaje de 'REACCION' al servidor.\n * \n * Antes de enviar, verifica que el reproductor de audio no esté en pausa.\n * Si lo está, muestra una notificación de error al usuario y cancela el envío.\n *\n * @param {string} tipoReaccion El tipo de reacción a enviar (ej. 'like', 'heart').\n */\nfunction enviarReaccion(tipoReaccion) {\n    if (!currentNickname || !currentSongId) {\n        writeLog('No se puede enviar reacción: falta nickname o canción.', 'error');\n        return;\n    }\n\n    // Validación de estado: no se permite reaccionar si la música está pausada.\n    const audioPlayer = document.getElementById('audio-player');\n    if (audioPlayer && audioPlayer.paused) {\n        writeLog('No puedes reaccionar mientras la canción está pausada.', 'error');\n        // Proporciona feedback inmediato al usuario.\n        showPrivateNotification({\n            tipo: 'ERROR_PAGO',\n            titulo: 'Acción no permitida',\n            mensaje: 'No puedes enviar reacciones mientras la canción está en pausa.'\n        });\n        return; // Detiene la ejecución.\n    }\n    \n    // Si el reproductor está activo, envía el mensaje de reacción.\n    enviarMensajeStomp('/app/reaccionar', {\n        nickname: currentNickname,\n        idCancion: currentSongId,\n        tipo: 'REACCION',\n        contenido: tipoReaccion\n    });\n}\n// -----------------------------------------------------------------------------\n// LISTENERS DE EVENTOS DE AUDIO Y UI\n// Conectan las acciones del usuario (clics, play/pause) con las funciones lógicas.\n// -----------------------------------------------------------------------------\n\n/**\n * Adjunta listeners a los eventos 'play' y 'pause' del reproductor de audio.\n * Cuando estos eventos se disparan, se llama a las funciones correspondientes\n * para notificar al servidor a través de WebSocket.\n */\nfunction attachAudioListeners() {\n    const audio = document.getElementById('audio-player');\n    if (!audio) {\n        writeLog('No se encontró el elemento audio#audio-player.', 'error');\n        return;\n    }\n\n    // Cuando el usuario presiona 'play' en el reproductor.\n    audio.addEventListener('play', function () {\n        writeLog('Reproducción iniciada (play).', 'success');\n        enviarPlay();\n    });\n\n    // Cuando el usuario presiona 'pause' en el reproductor.\n    audio.addEventListener('pause', function () {\n        writeLog('Reproducción pausada (pause).', 'error');\n        enviarPause();\n    });\n}\n\n/**\n * Adjunta listeners a los elementos de la interfaz de usuario, como botones.\n */\nfunction attachUiListeners() {\n    const btnPedir = document.getElementById('btn-pedir-cancion');\n    if (btnPedir) {\n        // Listener para el botón principal \"Pedir Canción\".\n        btnPedir.addEventListener('click', () => {\n            const nicknameInput = document.getElementById('nickname');\n            const tituloInput = document.getElementById('titulo-cancion');\n            const formatoSelect = document.getElementById('formato-cancion');\n\n            const nickname = nicknameInput ? nicknameInput.value.trim() : '';\n            const titulo = tituloInput ? tituloInput.value.trim() : '';\n            const formato = formatoSelect ? formatoSelect.value : 'mp3';\n\n            // Validación simple para asegurar que los campos no estén vacíos.\n            if (!nickname || !titulo) {\n                writeLog('Debes ingresar un nickname y un título de canción.', 'error');\n                return;\n            }\n\n            // Actualiza el estado global con la información de la nueva sesión.\n            currentNickname = nickname;\n            currentSongId = titulo;\n\n            writeLog(`Solicitando canción \"${titulo}\" en formato ${formato} para ${nickname}.`, 'success');\n\n            // Inicia las dos operaciones principales: pedir el audio y conectar a reacciones.\n            pedirCancion(titulo, formato);\n            connectReacciones();\n        });\n    }\n\n    // Listeners para todos los botones de reacción.\n    const reactionButtons = document.querySelectorAll('.reaction-btn');\n    reactionButtons.forEach(btn => {\n        btn.addEventListener('click', () => {\n            // Obtiene el tipo de reacción desde el atributo 'data-reaccion' del botón.\n            const tipoReaccion = btn.dataset.reaccion;\n            enviarReaccion(tipoReaccion);\n        });\n    });\n}\n\n/**\n * IIFE (Immediately Invoked Function Expression) para asegurar que los listeners\n * se adjunten tan pronto como el DOM esté listo, ya sea que el script se cargue\n * de forma síncrona o asíncrona.\n */\n(function () {\n    if (document.readyState === 'loading') {\n        // Si el DOM aún está cargando, espera al evento DOMContentLoaded.\n        document.addEventListener('DOMContentLoaded', () => {\n            attachAudioListeners();\n            attachUiListeners();\n        });\n    } else {\n        // Si el DOM ya está listo, ejecuta las funciones inmediatamente.\n        attachAudioListeners();\n        attachUiListeners();\n    }\n})();\n\n// -----------------------------------------------------------------------------\n// EXPORTACIÓN GLOBAL\n// Expone funciones clave al objeto `window` para que puedan ser llamadas\n// desde otros scripts, como el `bundle.js` generado por Webpack.\n// -----------------------------------------------------------------------------\nif (typeof window !== 'undefined') {\n    window.pedirCancion = pedirCancion;\n}\n\n//# sourceURL=webpack://cliente-html/./funciones.js?\n}");
 
 /***/ }),
 
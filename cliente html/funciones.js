@@ -73,6 +73,33 @@ let currentNickname = null;
  */
 let currentSubscription = null;
 
+/**
+ * Última secuencia recibida en el canal de la canción actual. Al reconectarse se pide
+ * al servidor que repita los eventos posteriores, y sirve para descartar duplicados.
+ */
+let ultimaSecuencia = 0;
+
+/**
+ * Canción a la que corresponde {@link ultimaSecuencia}.
+ */
+let cancionDeUltimaSecuencia = null;
+
+/**
+ * Cantidad de eventos recientes que se piden al entrar por primera vez a una canción.
+ */
+const EVENTOS_RECIENTES_AL_UNIRSE = 20;
+
+/**
+ * Intentos de reconexión realizados tras un aviso RECONECTAR del servidor.
+ * Es 0 cuando no hay una reconexión en curso.
+ */
+let intentosReconexion = 0;
+
+/**
+ * Número máximo de intentos de reconexión tras un aviso RECONECTAR.
+ */
+const MAXIMO_INTENTOS_RECONEXION = 10;
+
 // -----------------------------------------------------------------------------
 // HELPERS DE UI
 // Funciones dedicadas a manipular el DOM y mostrar información visual al usuario.
@@ -242,21 +269,33 @@ function connectReacciones() {
  * Esta función es el núcleo de la comunicación en tiempo real.
  * 1. Crea una URL de conexión que incluye el nickname del usuario como parámetro
  *    para su identificación en el backend durante el handshake.
- * 2. Utiliza SockJS para establecer una conexión compatible y la envuelve con STOMP.
+ * 2. Usa WebSocket nativo (`/ws-nativo`) si el navegador lo soporta y, si no, recurre a
+ *    SockJS (`/ws`) para una conexión compatible; en ambos casos la envuelve con STOMP.
  * 3. Una vez conectado, realiza dos suscripciones clave:
  *    - Al canal público de la canción (`/broker/canciones/...`), para recibir eventos
- *      de play, pause y reacciones de otros usuarios.
+ *      de play, pause y reacciones de otros usuarios. La suscripción pide repetir los
+ *      eventos que se perdieron: desde la última secuencia si es una reconexión, o los
+ *      más recientes si es la primera vez en esa canción.
  *    - Al canal privado del usuario (`/user/queue/notificaciones`), para recibir
  *      mensajes directos del servidor (ej. errores de pago).
+ *    - Al canal de avisos del sistema (`/broker/sistema`), por el que el servidor pide
+ *      reconectarse antes de reiniciarse.
  */
 function procederConNuevaConexion() {
     // Construye la URL incluyendo el nickname para que el HandshakeHandler del servidor nos identifique.
-    const url = `http://localhost:5000/ws?nickname=${encodeURIComponent(currentNickname)}`;
-    console.log('Conectando a SockJS con URL:', url);
+    const query = `nickname=${encodeURIComponent(currentNickname)}`;
 
-    // Usa SockJS para una conexión robusta y compatible.
-    const socket = new SockJS(url);
-    stompClient = Stomp.over(socket);
+    if ('WebSocket' in window) {
+        // Camino rápido: WebSocket puro, sin el framing ni los transportes de respaldo de SockJS.
+        const url = `ws://localhost:5000/ws-nativo?${query}`;
+        console.log('Conectando a WebSocket nativo con URL:', url);
+        stompClient = Stomp.over(new WebSocket(url));
+    } else {
+        // Usa SockJS para una conexión robusta y compatible.
+        const url = `http://localhost:5000/ws?${query}`;
+        console.log('Conectando a SockJS con URL:', url);
+        stompClient = Stomp.over(new SockJS(url));
+    }
     
     // Habilita logs de depuración de STOMP en la consola del navegador.
     stompClient.debug = (str) => {
@@ -271,9 +310,17 @@ function procederConNuevaConexion() {
     stompClient.connect(headers, () => {
         console.log('CONEXIÓN STOMP EXITOSA. Suscribiendo a canales...');
         writeLog('Conectado al servidor de reacciones.', 'success');
+        intentosReconexion = 0;
 
         // Suscripción al canal PÚBLICO de la canción.
         const publicDestino = `/broker/canciones/${currentSongId}`;
+        if (cancionDeUltimaSecuencia !== currentSongId) {
+            cancionDeUltimaSecuencia = currentSongId;
+            ultimaSecuencia = 0;
+        }
+        const cabecerasSuscripcion = ultimaSecuencia > 0
+            ? { 'repetir-desde': String(ultimaSecuencia + 1) }
+            : { 'repetir-ultimos': String(EVENTOS_RECIENTES_AL_UNIRSE) };
         currentSubscription = stompClient.subscribe(publicDestino, (message) => {
             if (!message.body) return;
             try {
@@ -282,7 +329,7 @@ function procederConNuevaConexion() {
             } catch (e) {
                 console.error('Error parseando mensaje de reacciones:', e);
             }
-        });
+        }, cabecerasSuscripcion);
 
         // Suscripción al canal PRIVADO para notificaciones.
         stompClient.subscribe('/user/queue/notificaciones', (message) => {
@@ -296,12 +343,55 @@ function procederConNuevaConexion() {
             }
         });
 
+        // Suscripción a los avisos del sistema (drenado antes de un reinicio).
+        stompClient.subscribe('/broker/sistema', (message) => {
+            if (!message.body) return;
+            try {
+                const aviso = JSON.parse(message.body);
+                if (aviso.tipo === 'RECONECTAR') {
+                    writeLog(aviso.mensaje);
+                    programarReconexion(aviso.esperaMaximaMs);
+                }
+            } catch (e) {
+                console.error('Error parseando aviso del sistema:', e);
+            }
+        });
+
     }, (error) => {
         console.error('Error detallado en conexión STOMP:', error);
         writeLog('Error al conectar al servidor de reacciones.', 'error');
+        if (intentosReconexion > 0) {
+            // El servidor aún no está disponible tras el aviso: se reintenta con espera creciente.
+            programarReconexion(Math.min(30000, 1000 * 2 ** intentosReconexion));
+        }
     });
 }
 
+/**
+ * Programa una reconexión tras una espera al azar entre 0 y `esperaMaximaMs`, para que los
+ * clientes avisados a la vez no se reconecten todos en el mismo instante. La suscripción
+ * al canal de la canción pedirá repetir los eventos posteriores a la última secuencia.
+ *
+ * @param {number} esperaMaximaMs Espera máxima antes de reconectarse.
+ */
+function programarReconexion(esperaMaximaMs) {
+    if (intentosReconexion >= MAXIMO_INTENTOS_RECONEXION) {
+        writeLog('No fue posible reconectarse al servidor de reacciones.', 'error');
+        intentosReconexion = 0;
+        return;
+    }
+    intentosReconexion++;
+    const espera = Math.floor(Math.random() * (esperaMaximaMs || 0));
+    setTimeout(() => {
+        if (stompClient && stompClient.connected) {
+            currentSubscription = null;
+            stompClient.disconnect(() => procederConNuevaConexion());
+        } else {
+            procederConNuevaConexion();
+        }
+    }, espera);
+}
+
 // ================================================================
 //  Lógica para "Burbujas Laterales Ascendentes"
 // ================================================================
@@ -373,15 +463,24 @@ function showFloatingReaction(nickname, reactionType) {
  * @param {string} data.idCancion El ID de la canción a la que pertenece el evento.
  * @param {'PLAY' | 'PAUSE' | 'REACCION'} data.tipo El tipo de evento.
  * @param {string} [data.contenido] Contenido adicional (ej. el tipo de reacción).
+ * @param {number} [data.secuencia] Número de secuencia del evento en el canal.
  */
 function manejarMensajeReaccion(data) {
-    const { nickname, idCancion, tipo, contenido } = data;
+    const { nickname, idCancion, tipo, contenido, secuencia } = data;
 
     // Ignora el mensaje si no corresponde a la canción actual.
     if (!idCancion || idCancion !== currentSongId) {
         return;
     }
 
+    // Descarta los eventos repetidos que ya se habían recibido.
+    if (typeof secuencia === 'number') {
+        if (secuencia <= ultimaSecuencia) {
+            return;
+        }
+        ultimaSecuencia = secuencia;
+    }
+
     const audioPlayer = document.getElementById('audio-player');
 
     // Gestiona eventos de estado (Play/Pause).
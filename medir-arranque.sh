@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Mide el tiempo hasta la primera petición atendida de un servicio.
+#
+# Uso: ./medir-arranque.sh <jar> <url> [argumentos JVM...]
+# Ejemplos:
+#   ./medir-arranque.sh ServidorPagos/target/servidor-pagos-0.0.1-SNAPSHOT.jar http://localhost:6000/api/pagos/reglas
+#   ./medir-arranque.sh ServidorReacciones/target/extraido/ServidorReacciones-0.0.1-SNAPSHOT.jar \
+#       http://localhost:5000/actuator/health \
+#       -XX:SharedArchiveFile=ServidorReacciones/target/extraido/aplicacion.jsa -Dspring.profiles.active=arranque-rapido
+#
+# Lanza el jar, consulta la URL cada 10 ms hasta recibir una respuesta HTTP 200 y muestra los
+# milisegundos transcurridos desde el lanzamiento. Después detiene el proceso.
+
+set -u
+jar="$1"
+url="$2"
+shift 2
+
+inicio=$(date +%s%N)
+java "$@" -jar "$jar" > /tmp/medir-arranque.log 2>&1 &
+pid=$!
+trap 'kill $pid 2>/dev/null; wait $pid 2>/dev/null' EXIT
+
+until [ "$(curl -s -o /dev/null -w '%{http_code}' "$url")" = "200" ]; do
+    if ! kill -0 $pid 2>/dev/null; then
+        echo "El proceso terminó antes de responder; ver /tmp/medir-arranque.log" >&2
+        exit 1
+    fi
+    sleep 0.01
+done
+fin=$(date +%s%N)
+echo "Primera petición atendida en $(( (fin - inicio) / 1000000 )) ms"